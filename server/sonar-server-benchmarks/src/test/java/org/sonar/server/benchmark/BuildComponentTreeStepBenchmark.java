@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.server.computation.analysis.AnalysisMetadataHolderImpl;
+import org.sonar.server.computation.batch.BatchReportDirectoryHolderImpl;
+import org.sonar.server.computation.batch.BatchReportReader;
+import org.sonar.server.computation.batch.BatchReportReaderImpl;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.TreeRootHolderImpl;
+import org.sonar.server.computation.step.BuildComponentTreeStep;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Builds the tree of components of a synthetic report, on first analysis of the project
+ * (all uuids are generated).
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class BuildComponentTreeStepBenchmark {
+
+  @Param({"1000", "10000"})
+  public int files;
+
+  private File reportDir;
+  private DbTester dbTester;
+  private BatchReportReader reportReader;
+
+  @Setup
+  public void setup() throws Exception {
+    reportDir = new SyntheticReport().setFiles(files).setLinesPerFile(10).write(Files.createTempDir());
+    dbTester = DbTester.create(System2.INSTANCE);
+    dbTester.truncateTables();
+    BatchReportDirectoryHolderImpl reportDirectoryHolder = new BatchReportDirectoryHolderImpl();
+    reportDirectoryHolder.setDirectory(reportDir);
+    reportReader = new BatchReportReaderImpl(reportDirectoryHolder);
+  }
+
+  @TearDown
+  public void tearDown() {
+    deleteQuietly(reportDir);
+  }
+
+  @Benchmark
+  public Component build_tree() {
+    TreeRootHolderImpl treeRootHolder = new TreeRootHolderImpl();
+    AnalysisMetadataHolderImpl analysisMetadataHolder = new AnalysisMetadataHolderImpl();
+    analysisMetadataHolder.setRootComponentRef(SyntheticReport.ROOT_REF);
+    analysisMetadataHolder.setBranch(null);
+    new BuildComponentTreeStep(dbTester.getDbClient(), reportReader, treeRootHolder, analysisMetadataHolder).execute();
+    return treeRootHolder.getRoot();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(BuildComponentTreeStepBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
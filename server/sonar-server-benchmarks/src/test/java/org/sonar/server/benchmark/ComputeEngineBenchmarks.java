@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of Compute Engine and writes results to target/jmh-result.json, so that
+ * releases can be compared. Command-line arguments are the JMH ones, for example
+ * <pre>-p files=50000 BuildComponentTreeStepBenchmark</pre>
+ * <p>
+ * From the directory of this module:
+ * <pre>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.sonar.server.benchmark.ComputeEngineBenchmarks</pre>
+ * </p>
+ */
+public class ComputeEngineBenchmarks {
+
+  private static final String RESULT_FILE = "target/jmh-result.json";
+
+  private ComputeEngineBenchmarks() {
+    // only static stuff
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLineOptions.getIncludes().isEmpty()) {
+      builder
+        .include(BuildComponentTreeStepBenchmark.class.getSimpleName())
+        .include(FormulaStepsBenchmark.class.getSimpleName())
+        .include(TrackerBenchmark.class.getSimpleName())
+        .include(ComputeFileSourceDataBenchmark.class.getSimpleName())
+        .include(FileSourceDtoBenchmark.class.getSimpleName())
+        .include(PersistIssuesStepBenchmark.class.getSimpleName());
+    }
+    Options options = builder
+      .parent(commandLineOptions)
+      .resultFormat(ResultFormatType.JSON)
+      .result(RESULT_FILE)
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ReportComponent;
+import org.sonar.server.computation.duplication.Duplicate;
+import org.sonar.server.computation.duplication.Duplication;
+import org.sonar.server.computation.duplication.InnerDuplicate;
+import org.sonar.server.computation.duplication.TextBlock;
+import org.sonar.server.computation.scm.Changeset;
+import org.sonar.server.computation.scm.ScmInfoImpl;
+import org.sonar.server.computation.source.ComputeFileSourceData;
+import org.sonar.server.computation.source.CoverageLineReader;
+import org.sonar.server.computation.source.DuplicationLineReader;
+import org.sonar.server.computation.source.HighlightingLineReader;
+import org.sonar.server.computation.source.LineReader;
+import org.sonar.server.computation.source.RangeOffsetConverter;
+import org.sonar.server.computation.source.ScmLineReader;
+import org.sonar.server.computation.source.SymbolsLineReader;
+
+/**
+ * Merges the sources of a file with coverage, SCM, highlighting, symbols and duplications, as done
+ * by {@link org.sonar.server.computation.step.PersistFileSourcesStep} for each file.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class ComputeFileSourceDataBenchmark {
+
+  private static final int DUPLICATIONS = 5;
+
+  @Param({"100", "1000", "10000"})
+  public int lines;
+
+  private final Component file = ReportComponent.builder(Component.Type.FILE, 2).setUuid("FILE_UUID").setKey("PROJECT:File.xoo").build();
+  private List<String> sources;
+  private List<BatchReport.Coverage> coverages;
+  private List<BatchReport.SyntaxHighlighting> highlightings;
+  private List<BatchReport.Symbol> symbols;
+  private List<Changeset> changesets;
+  private List<Duplication> duplications;
+
+  @Setup
+  public void setup() {
+    sources = SyntheticReport.newLines(lines);
+    coverages = SyntheticReport.newCoverages(lines);
+    highlightings = SyntheticReport.newHighlightings(lines);
+    symbols = SyntheticReport.newSymbols(lines);
+
+    BatchReport.Changesets reportChangesets = SyntheticReport.newChangesets(lines).build();
+    changesets = new ArrayList<>(lines);
+    for (int index : reportChangesets.getChangesetIndexByLineList()) {
+      BatchReport.Changesets.Changeset changeset = reportChangesets.getChangeset(index);
+      changesets.add(Changeset.newChangesetBuilder()
+        .setAuthor(changeset.getAuthor())
+        .setDate(changeset.getDate())
+        .setRevision(changeset.getRevision())
+        .build());
+    }
+
+    duplications = new ArrayList<>(DUPLICATIONS);
+    for (BatchReport.Duplication duplication : SyntheticReport.newDuplications(DUPLICATIONS, lines, file.getReportAttributes().getRef())) {
+      TextBlock block = new TextBlock(duplication.getOriginPosition().getStartLine(), duplication.getOriginPosition().getEndLine());
+      duplications.add(new Duplication(block, Arrays.<Duplicate>asList(new InnerDuplicate(block))));
+    }
+  }
+
+  @Benchmark
+  public ComputeFileSourceData.Data compute() {
+    RangeOffsetConverter rangeOffsetConverter = new RangeOffsetConverter();
+    List<LineReader> lineReaders = Arrays.<LineReader>asList(
+      new CoverageLineReader(coverages.iterator()),
+      new ScmLineReader(new ScmInfoImpl(changesets)),
+      new HighlightingLineReader(file, highlightings.iterator(), rangeOffsetConverter),
+      new SymbolsLineReader(file, symbols.iterator(), rangeOffsetConverter),
+      new DuplicationLineReader(duplications));
+    return new ComputeFileSourceData(sources.iterator(), lineReaders, lines).compute();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(ComputeFileSourceDataBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
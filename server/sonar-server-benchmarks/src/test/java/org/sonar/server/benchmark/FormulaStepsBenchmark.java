@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.TreeRootHolderImpl;
+import org.sonar.server.computation.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.metric.MetricRepositoryRule;
+import org.sonar.server.computation.step.CoverageMeasuresStep;
+import org.sonar.server.computation.step.SizeMeasuresStep;
+
+import static org.sonar.server.computation.measure.Measure.newMeasureBuilder;
+
+/**
+ * Aggregates the measures of files of a synthetic project with formula steps. The measures of files are
+ * reset before each invocation as formulas can't override existing measures.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class FormulaStepsBenchmark {
+
+  private static final List<Metric> SIZE_INPUT_METRICS = Arrays.<Metric>asList(CoreMetrics.LINES, CoreMetrics.GENERATED_LINES, CoreMetrics.NCLOC,
+    CoreMetrics.GENERATED_NCLOC, CoreMetrics.FUNCTIONS, CoreMetrics.STATEMENTS, CoreMetrics.CLASSES, CoreMetrics.ACCESSORS);
+  private static final List<Metric> SIZE_OUTPUT_METRICS = Arrays.<Metric>asList(CoreMetrics.FILES, CoreMetrics.DIRECTORIES);
+  private static final List<Metric> COVERAGE_INPUT_METRICS = Arrays.<Metric>asList(
+    CoreMetrics.LINES_TO_COVER, CoreMetrics.UNCOVERED_LINES, CoreMetrics.CONDITIONS_TO_COVER, CoreMetrics.UNCOVERED_CONDITIONS,
+    CoreMetrics.IT_LINES_TO_COVER, CoreMetrics.IT_UNCOVERED_LINES, CoreMetrics.IT_CONDITIONS_TO_COVER, CoreMetrics.IT_UNCOVERED_CONDITIONS,
+    CoreMetrics.OVERALL_LINES_TO_COVER, CoreMetrics.OVERALL_UNCOVERED_LINES, CoreMetrics.OVERALL_CONDITIONS_TO_COVER, CoreMetrics.OVERALL_UNCOVERED_CONDITIONS);
+  private static final List<Metric> COVERAGE_OUTPUT_METRICS = Arrays.<Metric>asList(
+    CoreMetrics.COVERAGE, CoreMetrics.LINE_COVERAGE, CoreMetrics.BRANCH_COVERAGE,
+    CoreMetrics.IT_COVERAGE, CoreMetrics.IT_LINE_COVERAGE, CoreMetrics.IT_BRANCH_COVERAGE,
+    CoreMetrics.OVERALL_COVERAGE, CoreMetrics.OVERALL_LINE_COVERAGE, CoreMetrics.OVERALL_BRANCH_COVERAGE);
+
+  @Param({"1000", "10000"})
+  public int files;
+
+  private SyntheticReport report;
+  private TreeRootHolderImpl treeRootHolder;
+  private MetricRepositoryRule metricRepository;
+  private MeasureRepositoryRule measureRepository;
+
+  @Setup
+  public void setup() {
+    report = new SyntheticReport().setFiles(files);
+    treeRootHolder = new TreeRootHolderImpl();
+    treeRootHolder.setRoot(report.buildTree());
+    metricRepository = new MetricRepositoryRule();
+    int metricId = 1;
+    for (List<Metric> metrics : Arrays.asList(SIZE_INPUT_METRICS, SIZE_OUTPUT_METRICS, COVERAGE_INPUT_METRICS, COVERAGE_OUTPUT_METRICS)) {
+      for (Metric metric : metrics) {
+        metricRepository.add(metricId, metric);
+        metricId++;
+      }
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void resetMeasures() {
+    measureRepository = MeasureRepositoryRule.create(treeRootHolder.getRoot(), metricRepository);
+    for (int fileIndex = 0; fileIndex < files; fileIndex++) {
+      int fileRef = report.fileRef(fileIndex);
+      int value = 1 + fileIndex % 100;
+      for (Metric metric : SIZE_INPUT_METRICS) {
+        measureRepository.addRawMeasure(fileRef, metric.getKey(), newMeasureBuilder().create(value));
+      }
+      for (Metric metric : COVERAGE_INPUT_METRICS) {
+        measureRepository.addRawMeasure(fileRef, metric.getKey(), newMeasureBuilder().create(value));
+      }
+    }
+  }
+
+  @Benchmark
+  public Component size_measures() {
+    new SizeMeasuresStep(treeRootHolder, metricRepository, measureRepository).execute();
+    return treeRootHolder.getRoot();
+  }
+
+  @Benchmark
+  public Component coverage_measures() {
+    new CoverageMeasuresStep(treeRootHolder, metricRepository, measureRepository).execute();
+    return treeRootHolder.getRoot();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(FormulaStepsBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.rule.RuleTesting;
+import org.sonar.server.computation.issue.IssueCache;
+import org.sonar.server.computation.issue.RuleRepositoryImpl;
+import org.sonar.server.computation.issue.UpdateConflictResolver;
+import org.sonar.server.computation.step.PersistIssuesStep;
+import org.sonar.server.util.cache.DiskCache;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Inserts the new issues of a synthetic project into an embedded H2 database. The table ISSUES is
+ * emptied before each invocation.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class PersistIssuesStepBenchmark {
+
+  private static final String PROJECT_UUID = "PROJECT_UUID";
+
+  @Param({"1000", "10000"})
+  public int issues;
+
+  private DbTester dbTester;
+  private File cacheFile;
+  private IssueCache issueCache;
+
+  @Setup
+  public void setup() {
+    dbTester = DbTester.create(System2.INSTANCE);
+    dbTester.truncateTables();
+    DbClient dbClient = dbTester.getDbClient();
+    DbSession session = dbClient.openSession(false);
+    try {
+      for (int i = 0; i < SyntheticReport.RULES; i++) {
+        dbClient.ruleDao().insert(session, RuleTesting.newDto(RuleKey.of(SyntheticReport.RULE_REPOSITORY, SyntheticReport.ruleKey(i))));
+      }
+      session.commit();
+    } finally {
+      dbClient.closeSession(session);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void prepareIssues() throws Exception {
+    dbTester.executeUpdateSql("delete from issues");
+    cacheFile = File.createTempFile("issues", ".dat");
+    issueCache = new IssueCache(cacheFile, System2.INSTANCE);
+    DiskCache<DefaultIssue>.DiskAppender appender = issueCache.newAppender();
+    for (int i = 0; i < issues; i++) {
+      appender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(RuleKey.of(SyntheticReport.RULE_REPOSITORY, SyntheticReport.ruleKey(i)))
+        .setComponentUuid("FILE_" + (i / 10))
+        .setProjectUuid(PROJECT_UUID)
+        .setLine(1 + i % 1000)
+        .setMessage("Issue " + i)
+        .setChecksum("checksum" + i)
+        .setSeverity(Severity.MAJOR)
+        .setStatus(Issue.STATUS_OPEN)
+        .setNew(true));
+    }
+    appender.close();
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteIssueCache() {
+    deleteQuietly(cacheFile);
+  }
+
+  @Benchmark
+  public IssueCache persist() {
+    new PersistIssuesStep(dbTester.getDbClient(), System2.INSTANCE, new UpdateConflictResolver(),
+      new RuleRepositoryImpl(dbTester.getDbClient()), issueCache).execute();
+    return issueCache;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(PersistIssuesStepBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.sonar.batch.protocol.Constants;
+import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.BatchReportWriter;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ReportComponent;
+
+/**
+ * Generates a batch report of configurable size, as written by scanner: a project with directories of
+ * {@value #FILES_PER_DIRECTORY} files, each file having sources, issues, measures, duplications,
+ * syntax highlighting, symbols, SCM and optionally coverage.
+ * <p>
+ * Data is deterministic so that results of benchmarks can be compared between executions.
+ * </p>
+ */
+public class SyntheticReport {
+
+  public static final String PROJECT_KEY = "PROJECT";
+  public static final String RULE_REPOSITORY = "xoo";
+  public static final int RULES = 10;
+  public static final int ROOT_REF = 1;
+  public static final long ANALYSIS_DATE = 1_400_000_000_000L;
+  static final int FILES_PER_DIRECTORY = 100;
+
+  private int files = 1_000;
+  private int linesPerFile = 1_000;
+  private int issuesPerFile = 10;
+  private int measuresPerFile = 10;
+  private int duplicationsPerFile = 5;
+  private boolean coverage = true;
+
+  public SyntheticReport setFiles(int files) {
+    this.files = files;
+    return this;
+  }
+
+  public SyntheticReport setLinesPerFile(int linesPerFile) {
+    this.linesPerFile = linesPerFile;
+    return this;
+  }
+
+  public SyntheticReport setIssuesPerFile(int issuesPerFile) {
+    this.issuesPerFile = issuesPerFile;
+    return this;
+  }
+
+  public SyntheticReport setMeasuresPerFile(int measuresPerFile) {
+    this.measuresPerFile = measuresPerFile;
+    return this;
+  }
+
+  public SyntheticReport setDuplicationsPerFile(int duplicationsPerFile) {
+    this.duplicationsPerFile = duplicationsPerFile;
+    return this;
+  }
+
+  public SyntheticReport setCoverage(boolean coverage) {
+    this.coverage = coverage;
+    return this;
+  }
+
+  public int getFiles() {
+    return files;
+  }
+
+  public int getLinesPerFile() {
+    return linesPerFile;
+  }
+
+  public int getIssuesPerFile() {
+    return issuesPerFile;
+  }
+
+  private int directories() {
+    return (files + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY;
+  }
+
+  private static int directoryRef(int directoryIndex) {
+    return ROOT_REF + 1 + directoryIndex;
+  }
+
+  public int fileRef(int fileIndex) {
+    return ROOT_REF + 1 + directories() + fileIndex;
+  }
+
+  private static String directoryPath(int directoryIndex) {
+    return "src/dir" + directoryIndex;
+  }
+
+  private static String filePath(int fileIndex) {
+    return directoryPath(fileIndex / FILES_PER_DIRECTORY) + "/File" + fileIndex + ".xoo";
+  }
+
+  /**
+   * Writes the report to the given directory
+   */
+  public File write(File reportDir) throws IOException {
+    BatchReportWriter writer = new BatchReportWriter(reportDir);
+    writer.writeMetadata(BatchReport.Metadata.newBuilder()
+      .setRootComponentRef(ROOT_REF)
+      .setProjectKey(PROJECT_KEY)
+      .setAnalysisDate(ANALYSIS_DATE)
+      .build());
+
+    BatchReport.Component.Builder project = BatchReport.Component.newBuilder()
+      .setRef(ROOT_REF)
+      .setType(Constants.ComponentType.PROJECT)
+      .setKey(PROJECT_KEY)
+      .setName("Project");
+    for (int directoryIndex = 0; directoryIndex < directories(); directoryIndex++) {
+      project.addChildRef(directoryRef(directoryIndex));
+      BatchReport.Component.Builder directory = BatchReport.Component.newBuilder()
+        .setRef(directoryRef(directoryIndex))
+        .setType(Constants.ComponentType.DIRECTORY)
+        .setPath(directoryPath(directoryIndex));
+      int lastFileIndex = Math.min(files, (directoryIndex + 1) * FILES_PER_DIRECTORY);
+      for (int fileIndex = directoryIndex * FILES_PER_DIRECTORY; fileIndex < lastFileIndex; fileIndex++) {
+        directory.addChildRef(fileRef(fileIndex));
+        writeFile(writer, fileIndex);
+      }
+      writer.writeComponent(directory.build());
+    }
+    writer.writeComponent(project.build());
+    return reportDir;
+  }
+
+  private void writeFile(BatchReportWriter writer, int fileIndex) throws IOException {
+    int fileRef = fileRef(fileIndex);
+    writer.writeComponent(BatchReport.Component.newBuilder()
+      .setRef(fileRef)
+      .setType(Constants.ComponentType.FILE)
+      .setPath(filePath(fileIndex))
+      .setLanguage("xoo")
+      .setLines(linesPerFile)
+      .build());
+
+    FileUtils.writeLines(writer.getSourceFile(fileRef), newLines(linesPerFile));
+    writer.writeComponentIssues(fileRef, newIssues(issuesPerFile, linesPerFile));
+    writer.writeComponentMeasures(fileRef, newMeasures(measuresPerFile));
+    writer.writeComponentDuplications(fileRef, newDuplications(duplicationsPerFile, linesPerFile, fileRef(fileIndex + 1 < files ? (fileIndex + 1) : 0)));
+    writer.writeComponentSyntaxHighlighting(fileRef, newHighlightings(linesPerFile));
+    writer.writeComponentSymbols(fileRef, newSymbols(linesPerFile));
+    writer.writeComponentChangesets(newChangesets(linesPerFile).setComponentRef(fileRef).build());
+    if (coverage) {
+      writer.writeComponentCoverage(fileRef, newCoverages(linesPerFile));
+    }
+  }
+
+  /**
+   * Tree of components as built by {@link org.sonar.server.computation.step.BuildComponentTreeStep} from the report,
+   * for benchmarks of the steps executed after it.
+   */
+  public Component buildTree() {
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, ROOT_REF)
+      .setUuid("UUID_" + ROOT_REF)
+      .setKey(PROJECT_KEY);
+    for (int directoryIndex = 0; directoryIndex < directories(); directoryIndex++) {
+      int directoryRef = directoryRef(directoryIndex);
+      List<Component> directoryFiles = new ArrayList<>();
+      int lastFileIndex = Math.min(files, (directoryIndex + 1) * FILES_PER_DIRECTORY);
+      for (int fileIndex = directoryIndex * FILES_PER_DIRECTORY; fileIndex < lastFileIndex; fileIndex++) {
+        int fileRef = fileRef(fileIndex);
+        directoryFiles.add(ReportComponent.builder(Component.Type.FILE, fileRef)
+          .setUuid("UUID_" + fileRef)
+          .setKey(PROJECT_KEY + ":" + filePath(fileIndex))
+          .setPath(filePath(fileIndex))
+          .build());
+      }
+      project.addChildren(ReportComponent.builder(Component.Type.DIRECTORY, directoryRef)
+        .setUuid("UUID_" + directoryRef)
+        .setKey(PROJECT_KEY + ":" + directoryPath(directoryIndex))
+        .setPath(directoryPath(directoryIndex))
+        .addChildren(directoryFiles.toArray(new Component[directoryFiles.size()]))
+        .build());
+    }
+    return project.build();
+  }
+
+  static List<String> newLines(int lines) {
+    List<String> result = new ArrayList<>(lines);
+    for (int line = 1; line <= lines; line++) {
+      result.add("  public int method" + line + "(int arg) { return arg + " + (line % 7) + "; }");
+    }
+    return result;
+  }
+
+  static List<BatchReport.Issue> newIssues(int issues, int lines) {
+    List<BatchReport.Issue> result = new ArrayList<>(issues);
+    for (int i = 0; i < issues; i++) {
+      result.add(BatchReport.Issue.newBuilder()
+        .setRuleRepository(RULE_REPOSITORY)
+        .setRuleKey(ruleKey(i))
+        .setLine(1 + (i * 7) % lines)
+        .setMsg("Issue " + i)
+        .setSeverity(Constants.Severity.MAJOR)
+        .setEffortToFix(2.0)
+        .build());
+    }
+    return result;
+  }
+
+  static String ruleKey(int index) {
+    return "S" + (index % RULES);
+  }
+
+  static List<BatchReport.Measure> newMeasures(int measures) {
+    List<BatchReport.Measure> result = new ArrayList<>(measures);
+    for (int i = 0; i < measures; i++) {
+      result.add(BatchReport.Measure.newBuilder()
+        .setMetricKey("metric" + i)
+        .setValueType(Constants.MeasureValueType.INT)
+        .setIntValue(i)
+        .build());
+    }
+    return result;
+  }
+
+  static List<BatchReport.Duplication> newDuplications(int duplications, int lines, int otherFileRef) {
+    List<BatchReport.Duplication> result = new ArrayList<>(duplications);
+    int blockSize = Math.max(1, lines / Math.max(1, 2 * duplications));
+    for (int i = 0; i < duplications; i++) {
+      int startLine = Math.min(lines, 1 + 2 * i * blockSize);
+      int endLine = Math.min(lines, startLine + blockSize - 1);
+      result.add(BatchReport.Duplication.newBuilder()
+        .setOriginPosition(BatchReport.TextRange.newBuilder().setStartLine(startLine).setEndLine(endLine).build())
+        .addDuplicate(BatchReport.Duplicate.newBuilder()
+          .setOtherFileRef(otherFileRef)
+          .setRange(BatchReport.TextRange.newBuilder().setStartLine(startLine).setEndLine(endLine).build())
+          .build())
+        .build());
+    }
+    return result;
+  }
+
+  static List<BatchReport.SyntaxHighlighting> newHighlightings(int lines) {
+    List<BatchReport.SyntaxHighlighting> result = new ArrayList<>(lines);
+    for (int line = 1; line <= lines; line++) {
+      result.add(BatchReport.SyntaxHighlighting.newBuilder()
+        .setRange(BatchReport.TextRange.newBuilder()
+          .setStartLine(line).setEndLine(line)
+          .setStartOffset(2).setEndOffset(8)
+          .build())
+        .setType(Constants.HighlightingType.KEYWORD)
+        .build());
+    }
+    return result;
+  }
+
+  static List<BatchReport.Symbol> newSymbols(int lines) {
+    List<BatchReport.Symbol> result = new ArrayList<>(lines);
+    for (int line = 1; line < lines; line++) {
+      result.add(BatchReport.Symbol.newBuilder()
+        .setDeclaration(BatchReport.TextRange.newBuilder()
+          .setStartLine(line).setEndLine(line).setStartOffset(13).setEndOffset(20)
+          .build())
+        .addReference(BatchReport.TextRange.newBuilder()
+          .setStartLine(line + 1).setEndLine(line + 1).setStartOffset(13).setEndOffset(20)
+          .build())
+        .build());
+    }
+    return result;
+  }
+
+  static BatchReport.Changesets.Builder newChangesets(int lines) {
+    BatchReport.Changesets.Builder changesets = BatchReport.Changesets.newBuilder();
+    for (int i = 0; i < 10; i++) {
+      changesets.addChangeset(BatchReport.Changesets.Changeset.newBuilder()
+        .setAuthor("author" + i)
+        .setDate(ANALYSIS_DATE - i * 1_000_000L)
+        .setRevision("rev" + i)
+        .build());
+    }
+    for (int line = 1; line <= lines; line++) {
+      changesets.addChangesetIndexByLine(line % 10);
+    }
+    return changesets;
+  }
+
+  static List<BatchReport.Coverage> newCoverages(int lines) {
+    List<BatchReport.Coverage> result = new ArrayList<>(lines);
+    for (int line = 1; line <= lines; line++) {
+      result.add(BatchReport.Coverage.newBuilder()
+        .setLine(line)
+        .setConditions(2)
+        .setUtHits(line % 3 != 0)
+        .setUtCoveredConditions(1)
+        .setItHits(line % 2 == 0)
+        .setItCoveredConditions(1)
+        .setOverallCoveredConditions(2)
+        .build());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+
+/**
+ * Tracks the issues of a file in which some lines have been inserted since the previous analysis,
+ * so that issues are matched by the different steps of the tracker: same line, code moves, same message.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class TrackerBenchmark {
+
+  private static final int INSERTED_LINES = 10;
+
+  @Param({"1000", "10000"})
+  public int lines;
+
+  @Param({"10", "1000"})
+  public int issues;
+
+  private final Tracker<DefaultIssue, DefaultIssue> tracker = new Tracker<>();
+  private Input<DefaultIssue> rawInput;
+  private Input<DefaultIssue> baseInput;
+
+  @Setup
+  public void setup() {
+    List<String> baseLines = SyntheticReport.newLines(lines);
+    List<String> rawLines = new ArrayList<>();
+    for (int i = 0; i < INSERTED_LINES; i++) {
+      rawLines.add("  // inserted line " + i);
+    }
+    rawLines.addAll(baseLines);
+
+    LineHashSequence baseHashes = LineHashSequence.createForLines(baseLines);
+    LineHashSequence rawHashes = LineHashSequence.createForLines(rawLines);
+    List<DefaultIssue> baseIssues = new ArrayList<>();
+    List<DefaultIssue> rawIssues = new ArrayList<>();
+    for (int i = 0; i < issues; i++) {
+      int baseLine = 1 + (i * 7) % lines;
+      baseIssues.add(newIssue(i, baseLine, "Issue " + i, baseHashes));
+      // one issue out of ten has a different message, so that it's not matched by the first step
+      String rawMessage = i % 10 == 0 ? ("Changed issue " + i) : ("Issue " + i);
+      rawIssues.add(newIssue(i, baseLine + INSERTED_LINES, rawMessage, rawHashes));
+    }
+    baseInput = new SimpleInput(baseHashes, baseIssues);
+    rawInput = new SimpleInput(rawHashes, rawIssues);
+  }
+
+  private static DefaultIssue newIssue(int index, int line, String message, LineHashSequence hashes) {
+    return new DefaultIssue()
+      .setKey("ISSUE_" + index)
+      .setRuleKey(RuleKey.of(SyntheticReport.RULE_REPOSITORY, SyntheticReport.ruleKey(index)))
+      .setLine(line)
+      .setMessage(message)
+      .setChecksum(hashes.getHashForLine(line));
+  }
+
+  @Benchmark
+  public Tracking<DefaultIssue, DefaultIssue> track() {
+    return tracker.track(rawInput, baseInput);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(TrackerBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+
+  private static class SimpleInput implements Input<DefaultIssue> {
+    private final LineHashSequence lineHashes;
+    private final BlockHashSequence blockHashes;
+    private final List<DefaultIssue> issues;
+
+    SimpleInput(LineHashSequence lineHashes, List<DefaultIssue> issues) {
+      this.lineHashes = lineHashes;
+      this.blockHashes = BlockHashSequence.create(lineHashes);
+      this.issues = issues;
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashes;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashes;
+    }
+
+    @Override
+    public Collection<DefaultIssue> getIssues() {
+      return issues;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ComponentVisitor;
+import org.sonar.server.computation.component.CrawlerDepthLimit;
+import org.sonar.server.computation.component.PathAwareVisitorAdapter;
+import org.sonar.server.computation.component.ReportComponent;
+import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.component.VisitorsCrawler;
+
+import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * Crawls a synthetic tree of nested modules with the same kinds of visitors as ExecuteVisitorsStep:
+ * pre-order and post-order visitors, path aware visitors and visitors which do not go down to files.
+ * <p>
+ * Run this benchmark with the main method or with JMH command-line.
+ * </p>
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+public class VisitorsCrawlerBenchmark {
+
+  private static final int MODULE_DEPTH = 10;
+  private static final int DIRECTORIES_PER_MODULE = 20;
+
+  @Param({"10", "1000"})
+  public int filesPerDirectory;
+
+  private int ref = 0;
+  private Component root;
+  private List<ComponentVisitor> visitors;
+
+  @Setup
+  public void setup() {
+    ref = 0;
+    root = newModule(Component.Type.PROJECT, MODULE_DEPTH);
+    visitors = Arrays.<ComponentVisitor>asList(
+      new CountingVisitor(CrawlerDepthLimit.PROJECT, PRE_ORDER),
+      new CountingVisitor(CrawlerDepthLimit.FILE, POST_ORDER),
+      new SumVisitor(CrawlerDepthLimit.FILE),
+      new SumVisitor(CrawlerDepthLimit.LEAVES),
+      new CountingVisitor(CrawlerDepthLimit.MODULE, POST_ORDER),
+      new CountingVisitor(CrawlerDepthLimit.FILE, POST_ORDER));
+  }
+
+  private Component newModule(Component.Type type, int depth) {
+    ReportComponent.Builder builder = ReportComponent.builder(type, ++ref);
+    if (depth > 1) {
+      builder.addChildren(newModule(Component.Type.MODULE, depth - 1));
+    }
+    for (int i = 0; i < DIRECTORIES_PER_MODULE; i++) {
+      builder.addChildren(newDirectory());
+    }
+    return builder.build();
+  }
+
+  private Component newDirectory() {
+    ReportComponent.Builder builder = ReportComponent.builder(Component.Type.DIRECTORY, ++ref);
+    List<Component> files = new ArrayList<>();
+    for (int i = 0; i < filesPerDirectory; i++) {
+      files.add(ReportComponent.builder(Component.Type.FILE, ++ref).build());
+    }
+    return builder.addChildren(files.toArray(new Component[files.size()])).build();
+  }
+
+  @Benchmark
+  public Component crawl() {
+    new VisitorsCrawler(visitors).visit(root);
+    return root;
+  }
+
+  @Benchmark
+  public Component crawl_and_compute_durations() {
+    VisitorsCrawler crawler = new VisitorsCrawler(visitors, true);
+    crawler.visit(root);
+    crawler.getCumulativeDurations();
+    return root;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(VisitorsCrawlerBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+
+  private static class CountingVisitor extends TypeAwareVisitorAdapter {
+    private long count = 0;
+
+    CountingVisitor(CrawlerDepthLimit maxDepth, ComponentVisitor.Order order) {
+      super(maxDepth, order);
+    }
+
+    @Override
+    public void visitAny(Component any) {
+      count++;
+    }
+  }
+
+  private static class SumVisitor extends PathAwareVisitorAdapter<SumVisitor.Counter> {
+
+    SumVisitor(CrawlerDepthLimit maxDepth) {
+      super(maxDepth, POST_ORDER, new SimpleStackElementFactory<Counter>() {
+        @Override
+        public Counter createForAny(Component component) {
+          return new Counter();
+        }
+
+        @Override
+        public Counter createForFile(Component file) {
+          return null;
+        }
+      });
+    }
+
+    @Override
+    public void visitFile(Component file, Path<Counter> path) {
+      path.parent().value++;
+    }
+
+    @Override
+    public void visitDirectory(Component directory, Path<Counter> path) {
+      aggregateToParent(path);
+    }
+
+    @Override
+    public void visitModule(Component module, Path<Counter> path) {
+      aggregateToParent(path);
+    }
+
+    private static void aggregateToParent(Path<Counter> path) {
+      if (!path.isRoot()) {
+        path.parent().value += path.current().value;
+      }
+    }
+
+    static class Counter {
+      private long value = 0;
+    }
+  }
+}
@@ -19,23 +19,33 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.input.BatchInput;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.properties.ProjectSettingsFactory;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.MediaTypes;
 
@@ -46,17 +56,35 @@ import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
+  private static final String PARAM_SINCE = "since";
+  private static final String GZIP = "gzip";
+
+  /**
+   * Response header giving the value of parameter "since" to be used by the next request
+   */
+  static final String NEXT_SINCE_HEADER = "Sonar-Next-Since";
+
+  /**
+   * Response header telling whether the response contains only the changes since the requested date ("true"),
+   * which are to be merged into the copy kept by the batch, or all the issues ("false"), which replace it
+   */
+  static final String INCREMENTAL_HEADER = "Sonar-Incremental";
 
   private final DbClient dbClient;
   private final IssueIndex issueIndex;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final ProjectSettingsFactory projectSettingsFactory;
+  private final System2 system2;
 
-  public IssuesAction(DbClient dbClient, IssueIndex issueIndex, UserSession userSession, ComponentFinder componentFinder) {
+  public IssuesAction(DbClient dbClient, IssueIndex issueIndex, UserSession userSession, ComponentFinder componentFinder,
+    ProjectSettingsFactory projectSettingsFactory, System2 system2) {
     this.dbClient = dbClient;
     this.issueIndex = issueIndex;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.projectSettingsFactory = projectSettingsFactory;
+    this.system2 = system2;
   }
 
   @Override
@@ -73,11 +101,22 @@ public class IssuesAction implements BatchWsAction {
       .setRequired(true)
       .setDescription("Project, module or file key")
       .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_SINCE)
+      .setDescription("Timestamp in milliseconds. If set, only the issues changed since this time are returned, " +
+        "including the issues that have been closed, so that the copy kept by the batch can be updated. " +
+        "The value to be used by the next request is returned in the response header " + NEXT_SINCE_HEADER + ". " +
+        "If closed issues changed since this time may have been purged, all the issues are returned and the response header " +
+        INCREMENTAL_HEADER + " is false.")
+      .setSince("5.5")
+      .setExampleValue("1459420800000");
   }
 
   @Override
   public void handle(Request request, Response response) throws Exception {
     String componentKey = request.mandatoryParam(PARAM_KEY);
+    Long since = request.paramAsLong(PARAM_SINCE);
     userSession.checkComponentPermission(USER, componentKey);
 
     response.stream().setMediaType(MediaTypes.PROTOBUF);
@@ -85,16 +124,65 @@ public class IssuesAction implements BatchWsAction {
     try {
       ComponentDto component = componentFinder.getByKey(session, componentKey);
       Map<String, String> keysByUUid = keysByUUid(session, component);
+      long now = system2.now();
+      response.setHeader(NEXT_SINCE_HEADER, String.valueOf(nextSince(session, component, now)));
+      Date sinceDate = null;
+      if (since != null && !isOlderThanClosedIssuesRetention(session, component, since, now)) {
+        sinceDate = new Date(since);
+      }
+      response.setHeader(INCREMENTAL_HEADER, String.valueOf(sinceDate != null));
+
+      // issues of big projects weigh hundreds of MB, but compress very well
+      OutputStream output = response.stream().output();
+      GZIPOutputStream gzipOutput = null;
+      if (acceptsGzip(request.header(HttpHeaders.ACCEPT_ENCODING))) {
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        gzipOutput = new GZIPOutputStream(output);
+        output = gzipOutput;
+      }
 
       BatchInput.ServerIssue.Builder issueBuilder = BatchInput.ServerIssue.newBuilder();
-      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
-        handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
+      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component, sinceDate); issueDocIterator.hasNext();) {
+        handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, output);
+      }
+      if (gzipOutput != null) {
+        gzipOutput.finish();
       }
     } finally {
       MyBatis.closeQuietly(session);
     }
   }
 
+  /**
+   * Issues are persisted at the beginning of Compute Engine tasks, but they are indexed only at the end.
+   * Changes made by the tasks in progress are not visible yet, so the next request must return them.
+   */
+  private long nextSince(DbSession session, ComponentDto component, long now) {
+    long nextSince = now;
+    for (CeQueueDto task : dbClient.ceQueueDao().selectByComponentUuid(session, component.projectUuid())) {
+      Long startedAt = task.getStartedAt();
+      if (task.getStatus() == CeQueueDto.Status.IN_PROGRESS && startedAt != null) {
+        nextSince = Math.min(nextSince, startedAt);
+      }
+    }
+    return nextSince;
+  }
+
+  /**
+   * Closed issues are the tombstones of incremental responses, but they are deleted by the purge after some days.
+   * Changes older than that can't be returned, so all the issues are returned instead.
+   */
+  private boolean isOlderThanClosedIssuesRetention(DbSession session, ComponentDto component, long since, long now) {
+    String projectKey = component.uuid().equals(component.projectUuid()) ? component.key()
+      : dbClient.componentDao().selectOrFailByUuid(session, component.projectUuid()).key();
+    int retentionDays = projectSettingsFactory.newProjectSettings(projectKey).getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES);
+    return since < now - TimeUnit.DAYS.toMillis(retentionDays);
+  }
+
+  private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+    return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ENGLISH).contains(GZIP);
+  }
+
   private static void handleIssue(IssueDoc issue, BatchInput.ServerIssue.Builder issueBuilder, Map<String, String> keysByUUid, OutputStream out) {
     issueBuilder.setKey(issue.key());
     issueBuilder.setModuleKey(keysByUUid.get(issue.moduleUuid()));
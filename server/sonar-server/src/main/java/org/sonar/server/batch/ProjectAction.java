@@ -19,9 +19,11 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -30,6 +32,7 @@ import org.sonar.batch.protocol.input.ProjectRepositories;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import org.sonarqube.ws.WsBatch.WsProjectResponse.FileData.Builder;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
 
@@ -80,9 +83,20 @@ public class ProjectAction implements BatchWsAction {
       .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
 
     WsProjectResponse projectResponse = buildResponse(data);
+    // scanners keep a copy of the response, which is not sent again if it did not change since the last analysis
+    String etag = etag(projectResponse);
+    if (etag.equals(wsRequest.header(HttpHeaders.IF_NONE_MATCH))) {
+      wsResponse.stream().setStatus(HTTP_NOT_MODIFIED);
+      return;
+    }
+    wsResponse.setHeader(HttpHeaders.ETAG, etag);
     writeProtobuf(projectResponse, wsRequest, wsResponse);
   }
 
+  private static String etag(WsProjectResponse projectResponse) {
+    return "\"" + DigestUtils.md5Hex(projectResponse.toByteArray()) + "\"";
+  }
+
   private static WsProjectResponse buildResponse(ProjectRepositories data) {
     WsProjectResponse.Builder response = WsProjectResponse.newBuilder();
     setLastAnalysisDate(response, data);
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.server.ServerSide;
 import org.sonar.batch.protocol.input.FileData;
 import org.sonar.batch.protocol.input.ProjectRepositories;
@@ -34,6 +35,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.user.UserSession;
@@ -49,10 +51,12 @@ public class ProjectDataLoader {
 
   private final DbClient dbClient;
   private final UserSession userSession;
+  private final ProjectFilesCache projectFilesCache;
 
-  public ProjectDataLoader(DbClient dbClient, UserSession userSession) {
+  public ProjectDataLoader(DbClient dbClient, UserSession userSession, ProjectFilesCache projectFilesCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
+    this.projectFilesCache = projectFilesCache;
   }
 
   public ProjectRepositories load(ProjectDataQuery query) {
@@ -79,12 +83,13 @@ public class ProjectDataLoader {
       TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
 
       addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
-      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
+      SnapshotDto lastSnapshot = dbClient.snapshotDao().selectLastSnapshotByComponentId(session, project.getId());
+      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module, lastSnapshot);
       addFileData(data, modulesTree, files);
 
-      // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
-      // ok
-      data.setLastAnalysisDate(new Date());
+      // Only used to know if there is a previous analysis in local issue tracking mode. The date of the last analysis
+      // is preferred to the current date so that the response does not change between two analyses.
+      data.setLastAnalysisDate(lastSnapshot == null ? new Date() : new Date(lastSnapshot.getCreatedAt()));
 
       return data;
     } finally {
@@ -92,10 +97,20 @@ public class ProjectDataLoader {
     }
   }
 
-  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, ComponentDto module) {
-    return module.isRootProject() ?
-      dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid())
-      : dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
+  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, ComponentDto module, @Nullable SnapshotDto lastSnapshot) {
+    if (!module.isRootProject()) {
+      return dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
+    }
+    if (lastSnapshot == null) {
+      // project has never been analyzed, there's no version to cache files for
+      return dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid());
+    }
+    List<FilePathWithHashDto> files = projectFilesCache.get(module.uuid(), lastSnapshot.getId());
+    if (files == null) {
+      files = dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid());
+      projectFilesCache.put(module.uuid(), lastSnapshot.getId(), files);
+    }
+    return files;
   }
 
   private ComponentDto getProject(ComponentDto module, DbSession session) {
@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.component.FilePathWithHashDto;
+
+/**
+ * Cache of the files of projects, as returned to scanners by {@link ProjectAction}. Loading them is the most expensive
+ * part of the request on big projects, whereas they change only when an analysis is processed.
+ * <p/>
+ * Files are cached per project, along with the id of the last snapshot of the project. Files loaded for a previous
+ * analysis are never returned, even if {@link #invalidate(String)} has not been called. As files are disabled by
+ * the purge, after the switch of snapshot, the Compute Engine invalidates the project once purged. Entries expire
+ * anyway one hour after being loaded.
+ */
+@ServerSide
+public class ProjectFilesCache {
+
+  static final long MAX_FILES = 500_000L;
+
+  private final Cache<String, ProjectFiles> filesByProjectUuid = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_FILES)
+    .weigher(ProjectFilesWeigher.INSTANCE)
+    .expireAfterWrite(1, TimeUnit.HOURS)
+    .build();
+
+  /**
+   * @return the files of the project as of snapshot {@code snapshotId}, or null if they are not cached
+   */
+  @CheckForNull
+  public List<FilePathWithHashDto> get(String projectUuid, long snapshotId) {
+    ProjectFiles files = filesByProjectUuid.getIfPresent(projectUuid);
+    if (files == null || files.snapshotId != snapshotId) {
+      return null;
+    }
+    return files.files;
+  }
+
+  public void put(String projectUuid, long snapshotId, List<FilePathWithHashDto> files) {
+    filesByProjectUuid.put(projectUuid, new ProjectFiles(snapshotId, files));
+  }
+
+  /**
+   * Releases the files of a project or of a module which components have been updated after the switch of snapshot,
+   * for example by the purge
+   */
+  public void invalidate(String componentUuid) {
+    filesByProjectUuid.invalidate(componentUuid);
+  }
+
+  long size() {
+    return filesByProjectUuid.size();
+  }
+
+  private static class ProjectFiles {
+    private final long snapshotId;
+    private final List<FilePathWithHashDto> files;
+
+    private ProjectFiles(long snapshotId, List<FilePathWithHashDto> files) {
+      this.snapshotId = snapshotId;
+      this.files = files;
+    }
+  }
+
+  private enum ProjectFilesWeigher implements Weigher<String, ProjectFiles> {
+    INSTANCE;
+
+    @Override
+    public int weigh(String projectUuid, ProjectFiles value) {
+      return value.files.size() + 1;
+    }
+  }
+}
@@ -42,6 +42,7 @@ import org.sonar.core.util.Uuids;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
@@ -58,13 +59,16 @@ public class ComponentService {
   private final UserSession userSession;
   private final System2 system2;
   private final ComponentFinder componentFinder;
+  private final ComponentIndexer componentIndexer;
 
-  public ComponentService(DbClient dbClient, I18n i18n, UserSession userSession, System2 system2, ComponentFinder componentFinder) {
+  public ComponentService(DbClient dbClient, I18n i18n, UserSession userSession, System2 system2, ComponentFinder componentFinder,
+    ComponentIndexer componentIndexer) {
     this.dbClient = dbClient;
     this.i18n = i18n;
     this.userSession = userSession;
     this.system2 = system2;
     this.componentFinder = componentFinder;
+    this.componentIndexer = componentIndexer;
   }
 
   public ComponentDto getByKey(String key) {
@@ -114,6 +118,7 @@ public class ComponentService {
       session.commit();
 
       session.commit();
+      componentIndexer.index(projectOrModule.projectUuid());
     } finally {
       session.close();
     }
@@ -138,6 +143,7 @@ public class ComponentService {
       userSession.checkComponentUuidPermission(UserRole.ADMIN, project.projectUuid());
       dbClient.resourceKeyUpdaterDao().bulkUpdateKey(session, project.getId(), stringToReplace, replacementString);
       session.commit();
+      componentIndexer.index(project.projectUuid());
     } finally {
       session.close();
     }
@@ -159,6 +165,7 @@ public class ComponentService {
     checkKeyFormat(newComponent.qualifier(), newComponent.key());
     ComponentDto project = createProject(session, newComponent);
     removeDuplicatedProjects(session, project.getKey());
+    componentIndexer.index(project.uuid());
     return project;
   }
 
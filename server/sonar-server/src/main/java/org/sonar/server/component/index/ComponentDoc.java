@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import com.google.common.collect.Maps;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.server.search.BaseDoc;
+
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_ENABLED;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_KEY;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_LANGUAGE;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_NAME;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_PATH;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_PROJECT_UUID;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_QUALIFIER;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_UUID;
+
+public class ComponentDoc extends BaseDoc {
+
+  public ComponentDoc(Map<String, Object> fields) {
+    super(fields);
+  }
+
+  public ComponentDoc() {
+    this(Maps.<String, Object>newHashMapWithExpectedSize(8));
+  }
+
+  public String uuid() {
+    return getField(FIELD_UUID);
+  }
+
+  public String projectUuid() {
+    return getField(FIELD_PROJECT_UUID);
+  }
+
+  public String key() {
+    return getField(FIELD_KEY);
+  }
+
+  @CheckForNull
+  public String name() {
+    return getNullableField(FIELD_NAME);
+  }
+
+  @CheckForNull
+  public String path() {
+    return getNullableField(FIELD_PATH);
+  }
+
+  public String qualifier() {
+    return getField(FIELD_QUALIFIER);
+  }
+
+  @CheckForNull
+  public String language() {
+    return getNullableField(FIELD_LANGUAGE);
+  }
+
+  public boolean isEnabled() {
+    return (Boolean) getField(FIELD_ENABLED);
+  }
+
+  public ComponentDoc setUuid(String s) {
+    setField(FIELD_UUID, s);
+    return this;
+  }
+
+  public ComponentDoc setProjectUuid(String s) {
+    setField(FIELD_PROJECT_UUID, s);
+    return this;
+  }
+
+  public ComponentDoc setKey(String s) {
+    setField(FIELD_KEY, s);
+    return this;
+  }
+
+  public ComponentDoc setName(@Nullable String s) {
+    setField(FIELD_NAME, s);
+    return this;
+  }
+
+  public ComponentDoc setPath(@Nullable String s) {
+    setField(FIELD_PATH, s);
+    return this;
+  }
+
+  public ComponentDoc setQualifier(String s) {
+    setField(FIELD_QUALIFIER, s);
+    return this;
+  }
+
+  public ComponentDoc setLanguage(@Nullable String s) {
+    setField(FIELD_LANGUAGE, s);
+    return this;
+  }
+
+  public ComponentDoc setEnabled(boolean b) {
+    setField(FIELD_ENABLED, b);
+    return this;
+  }
+}
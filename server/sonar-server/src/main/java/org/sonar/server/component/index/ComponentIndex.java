@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import com.google.common.base.Functions;
+import java.util.Locale;
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.server.es.BaseIndex;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.SearchIdResult;
+import org.sonar.server.es.SearchOptions;
+
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_ENABLED;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_KEY;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_LANGUAGE;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_NAME;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_PATH;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_QUALIFIER;
+import static org.sonar.server.component.index.ComponentIndexDefinition.INDEX;
+import static org.sonar.server.component.index.ComponentIndexDefinition.SEARCH_SUBSTRING_SUFFIX;
+import static org.sonar.server.component.index.ComponentIndexDefinition.SUBSTRING_MAX_LENGTH;
+import static org.sonar.server.component.index.ComponentIndexDefinition.TYPE_COMPONENT;
+
+public class ComponentIndex extends BaseIndex {
+
+  public ComponentIndex(EsClient client) {
+    super(client);
+  }
+
+  /**
+   * Returns the uuids of the enabled components matching the query, sorted by name then key.
+   */
+  public SearchIdResult<String> search(ComponentIndexQuery query, SearchOptions searchOptions) {
+    SearchRequestBuilder request = getClient().prepareSearch(INDEX)
+      .setTypes(TYPE_COMPONENT)
+      .setQuery(QueryBuilders.filteredQuery(createQuery(query), createFilter(query)))
+      .setFetchSource(false)
+      .setFrom(searchOptions.getOffset())
+      .setSize(searchOptions.getLimit())
+      .addSort(sortableField(FIELD_NAME), SortOrder.ASC)
+      .addSort(sortableField(FIELD_KEY), SortOrder.ASC);
+    return new SearchIdResult<>(request.get(), Functions.<String>identity());
+  }
+
+  private static QueryBuilder createQuery(ComponentIndexQuery query) {
+    String text = query.getNameOrKeyQuery();
+    if (StringUtils.isEmpty(text)) {
+      return QueryBuilders.matchAllQuery();
+    }
+    return QueryBuilders.boolQuery()
+      .should(substringQuery(FIELD_KEY, text))
+      .should(substringQuery(FIELD_NAME, text))
+      .should(substringQuery(FIELD_PATH, text));
+  }
+
+  /**
+   * Texts up to {@link ComponentIndexDefinition#SUBSTRING_MAX_LENGTH} characters are one of the n-grams of the
+   * matching values. Longer texts are searched in the lower-cased values with a wildcard query, which is slower.
+   */
+  private static QueryBuilder substringQuery(String field, String text) {
+    if (text.length() <= SUBSTRING_MAX_LENGTH) {
+      return QueryBuilders.matchQuery(field + "." + SEARCH_SUBSTRING_SUFFIX, text);
+    }
+    String escapedText = text.toLowerCase(Locale.ENGLISH).replace("\\", "\\\\").replace("*", "\\*").replace("?", "\\?");
+    return QueryBuilders.wildcardQuery(sortableField(field), "*" + escapedText + "*");
+  }
+
+  private static FilterBuilder createFilter(ComponentIndexQuery query) {
+    BoolFilterBuilder filter = FilterBuilders.boolFilter().must(FilterBuilders.termFilter(FIELD_ENABLED, true));
+    if (!query.getQualifiers().isEmpty()) {
+      filter.must(FilterBuilders.termsFilter(FIELD_QUALIFIER, query.getQualifiers()));
+    }
+    String language = query.getLanguage();
+    if (language != null) {
+      filter.must(FilterBuilders.termFilter(FIELD_LANGUAGE, language));
+    }
+    return filter;
+  }
+
+  private static String sortableField(String field) {
+    return field + "." + SORT_SUFFIX;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.SortedMap;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.IndexDefinition;
+import org.sonar.server.es.NewIndex;
+
+/**
+ * Definition of ES index "components". It contains a document per component (project, module, directory,
+ * file, view...), disabled components included. Key, name and path are analyzed with n-grams of the whole
+ * lower-cased value, so that components can be searched by any part of them, as with {@code LIKE '%text%'}.
+ */
+public class ComponentIndexDefinition implements IndexDefinition {
+
+  public static final String INDEX = "components";
+  public static final String TYPE_COMPONENT = "component";
+
+  public static final String FIELD_UUID = "uuid";
+  public static final String FIELD_PROJECT_UUID = "projectUuid";
+  public static final String FIELD_KEY = "key";
+  public static final String FIELD_NAME = "name";
+  public static final String FIELD_PATH = "path";
+  public static final String FIELD_QUALIFIER = "qualifier";
+  public static final String FIELD_LANGUAGE = "language";
+  public static final String FIELD_ENABLED = "enabled";
+
+  public static final String SEARCH_SUBSTRING_SUFFIX = "substrings";
+
+  /**
+   * Longest text which can be searched in n-grams. Longer texts are searched with wildcards.
+   */
+  public static final int SUBSTRING_MAX_LENGTH = 15;
+
+  private final Settings settings;
+
+  public ComponentIndexDefinition(Settings settings) {
+    this.settings = settings;
+  }
+
+  @Override
+  public void define(IndexDefinitionContext context) {
+    NewIndex index = context.create(INDEX);
+    index.refreshHandledByIndexer();
+    index.setShards(settings);
+
+    index.getSettings()
+      // NGram filter (not edge) of the whole value, including 1-character grams
+      .put("index.analysis.filter.substring_filter.type", "nGram")
+      .put("index.analysis.filter.substring_filter.min_gram", 1)
+      .put("index.analysis.filter.substring_filter.max_gram", SUBSTRING_MAX_LENGTH)
+
+      // NGram index analyzer
+      .put("index.analysis.analyzer.index_substrings.type", "custom")
+      .put("index.analysis.analyzer.index_substrings.tokenizer", "keyword")
+      .putArray("index.analysis.analyzer.index_substrings.filter", "lowercase", "substring_filter")
+
+      // NGram search analyzer: the text must be one of the indexed grams
+      .put("index.analysis.analyzer.search_substrings.type", "custom")
+      .put("index.analysis.analyzer.search_substrings.tokenizer", "keyword")
+      .putArray("index.analysis.analyzer.search_substrings.filter", "lowercase");
+
+    NewIndex.NewIndexType mapping = index.createType(TYPE_COMPONENT);
+    mapping.setAttribute("_id", ImmutableMap.of("path", FIELD_UUID));
+    mapping.setAttribute("_routing", ImmutableMap.of("required", true, "path", FIELD_PROJECT_UUID));
+    mapping.stringFieldBuilder(FIELD_UUID).build();
+    mapping.stringFieldBuilder(FIELD_PROJECT_UUID).build();
+    mapping.stringFieldBuilder(FIELD_KEY).enableSorting().addSubField(SEARCH_SUBSTRING_SUFFIX, buildSubstringSearchField()).build();
+    mapping.stringFieldBuilder(FIELD_NAME).enableSorting().addSubField(SEARCH_SUBSTRING_SUFFIX, buildSubstringSearchField()).build();
+    mapping.stringFieldBuilder(FIELD_PATH).enableSorting().addSubField(SEARCH_SUBSTRING_SUFFIX, buildSubstringSearchField()).build();
+    mapping.stringFieldBuilder(FIELD_QUALIFIER).build();
+    mapping.stringFieldBuilder(FIELD_LANGUAGE).build();
+    mapping.createBooleanField(FIELD_ENABLED);
+  }
+
+  private static SortedMap<String, String> buildSubstringSearchField() {
+    return ImmutableSortedMap.of(
+      "type", "string",
+      "index", "analyzed",
+      "index_analyzer", "index_substrings",
+      "search_analyzer", "search_substrings");
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Query on index "components". By default all the documents are returned, sorted by name.
+ */
+public class ComponentIndexQuery {
+
+  private List<String> qualifiers = Collections.emptyList();
+  private String language = null;
+  private String nameOrKeyQuery = null;
+
+  public List<String> getQualifiers() {
+    return qualifiers;
+  }
+
+  /**
+   * Empty or {@code null} list means that all qualifiers are accepted
+   */
+  public ComponentIndexQuery setQualifiers(@Nullable List<String> l) {
+    this.qualifiers = l == null ? Collections.<String>emptyList() : l;
+    return this;
+  }
+
+  @CheckForNull
+  public String getLanguage() {
+    return language;
+  }
+
+  public ComponentIndexQuery setLanguage(@Nullable String s) {
+    this.language = s;
+    return this;
+  }
+
+  @CheckForNull
+  public String getNameOrKeyQuery() {
+    return nameOrKeyQuery;
+  }
+
+  /**
+   * Text to be searched in any part of name, key or path of component. Search is case-insensitive.
+   */
+  public ComponentIndexQuery setNameOrKeyQuery(@Nullable String s) {
+    this.nameOrKeyQuery = s;
+    return this;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import javax.annotation.Nullable;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.es.BaseIndexer;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsClient;
+
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_PROJECT_UUID;
+import static org.sonar.server.component.index.ComponentIndexDefinition.FIELD_UUID;
+import static org.sonar.server.component.index.ComponentIndexDefinition.INDEX;
+import static org.sonar.server.component.index.ComponentIndexDefinition.TYPE_COMPONENT;
+
+public class ComponentIndexer extends BaseIndexer {
+
+  private final DbClient dbClient;
+
+  public ComponentIndexer(DbClient dbClient, EsClient esClient) {
+    super(esClient, 300, INDEX, TYPE_COMPONENT, "updatedAt");
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Index all components if the index is empty (only used on startup).
+   * Table PROJECTS has no column of last update, so components are not indexed incrementally. Instead
+   * they are re-indexed by project, after each analysis and each change of keys.
+   */
+  @Override
+  protected long doIndex(long lastUpdatedAt) {
+    long count = esClient.prepareCount(INDEX).setTypes(TYPE_COMPONENT).get().getCount();
+    if (count == 0) {
+      doIndex(null);
+    }
+    return 0L;
+  }
+
+  /**
+   * Replace the documents of the components of the given project (or view) by the
+   * components currently stored in database.
+   */
+  public void index(final String projectUuid) {
+    deleteProject(projectUuid);
+    super.index(new IndexerTask() {
+      @Override
+      public long index(long lastUpdatedAt) {
+        doIndex(projectUuid);
+        return 0L;
+      }
+    });
+  }
+
+  private void doIndex(@Nullable String projectUuid) {
+    BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
+    bulk.setLarge(projectUuid == null);
+
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      ComponentResultSetIterator rowIt = ComponentResultSetIterator.create(dbClient, dbSession, projectUuid);
+      bulk.start();
+      while (rowIt.hasNext()) {
+        bulk.add(newIndexRequest(rowIt.next()));
+      }
+      bulk.stop();
+      rowIt.close();
+    } finally {
+      dbSession.close();
+    }
+  }
+
+  public void deleteProject(String projectUuid) {
+    SearchRequestBuilder searchRequest = esClient.prepareSearch(INDEX)
+      .setRouting(projectUuid)
+      .setTypes(TYPE_COMPONENT)
+      .setQuery(QueryBuilders.filteredQuery(
+        QueryBuilders.matchAllQuery(),
+        FilterBuilders.termFilter(FIELD_PROJECT_UUID, projectUuid).cache(false)));
+    BulkIndexer.delete(esClient, INDEX, searchRequest);
+  }
+
+  /**
+   * Delete the document of a component which has been disabled, for example a file removed from the project
+   */
+  public void deleteByComponent(String uuid) {
+    SearchRequestBuilder searchRequest = esClient.prepareSearch(INDEX)
+      .setTypes(TYPE_COMPONENT)
+      .setQuery(QueryBuilders.filteredQuery(
+        QueryBuilders.matchAllQuery(),
+        FilterBuilders.termFilter(FIELD_UUID, uuid).cache(false)));
+    BulkIndexer.delete(esClient, INDEX, searchRequest);
+  }
+
+  private static IndexRequest newIndexRequest(ComponentDoc doc) {
+    return new IndexRequest(INDEX, TYPE_COMPONENT, doc.uuid())
+      .routing(doc.projectUuid())
+      .source(doc.getFields());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.db.DatabaseUtils;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ResultSetIterator;
+
+/**
+ * Scrolls over table PROJECTS and reads documents to populate the index "components"
+ */
+class ComponentResultSetIterator extends ResultSetIterator<ComponentDoc> {
+
+  private static final String[] FIELDS = {
+    "p.uuid",
+    "p.project_uuid",
+    "p.kee",
+    "p.name",
+    "p.path",
+    "p.qualifier",
+    "p.language",
+    "p.enabled"
+  };
+
+  private static final String SQL_ALL = "select " + StringUtils.join(FIELDS, ",") + " from projects p " +
+    "where p.copy_resource_id is null";
+
+  private static final String SQL_PROJECT = SQL_ALL + " and p.project_uuid=?";
+
+  private ComponentResultSetIterator(PreparedStatement stmt) throws SQLException {
+    super(stmt);
+  }
+
+  static ComponentResultSetIterator create(DbClient dbClient, DbSession session, @Nullable String projectUuid) {
+    String sql = projectUuid == null ? SQL_ALL : SQL_PROJECT;
+    PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+    try {
+      if (projectUuid != null) {
+        stmt.setString(1, projectUuid);
+      }
+      return new ComponentResultSetIterator(stmt);
+    } catch (SQLException e) {
+      DatabaseUtils.closeQuietly(stmt);
+      throw new IllegalStateException("Fail to prepare SQL request to select components", e);
+    }
+  }
+
+  @Override
+  protected ComponentDoc read(ResultSet rs) throws SQLException {
+    return new ComponentDoc()
+      .setUuid(rs.getString(1))
+      .setProjectUuid(rs.getString(2))
+      .setKey(rs.getString(3))
+      .setName(rs.getString(4))
+      .setPath(rs.getString(5))
+      .setQualifier(rs.getString(6))
+      .setLanguage(rs.getString(7))
+      .setEnabled(rs.getBoolean(8));
+  }
+}
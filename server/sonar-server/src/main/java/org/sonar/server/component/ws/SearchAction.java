@@ -20,6 +20,7 @@
 package org.sonar.server.component.ws;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Ordering;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
@@ -36,7 +37,10 @@ import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
-import org.sonar.db.component.ComponentQuery;
+import org.sonar.server.component.index.ComponentIndex;
+import org.sonar.server.component.index.ComponentIndexQuery;
+import org.sonar.server.es.SearchIdResult;
+import org.sonar.server.es.SearchOptions;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.WsComponents;
 import org.sonarqube.ws.WsComponents.SearchWsResponse;
@@ -45,6 +49,7 @@ import org.sonarqube.ws.client.component.SearchWsRequest;
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Ordering.natural;
 import static java.lang.String.format;
+import static org.sonar.db.component.ComponentDtoFunctions.toUuid;
 import static org.sonar.server.component.ResourceTypeFunctions.RESOURCE_TYPE_TO_QUALIFIER;
 import static org.sonar.server.ws.WsUtils.checkRequest;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
@@ -56,13 +61,15 @@ public class SearchAction implements ComponentsWsAction {
   private static final String QUALIFIER_PROPERTY_PREFIX = "qualifiers.";
 
   private final DbClient dbClient;
+  private final ComponentIndex componentIndex;
   private final ResourceTypes resourceTypes;
   private final I18n i18n;
   private final UserSession userSession;
   private final Languages languages;
 
-  public SearchAction(DbClient dbClient, ResourceTypes resourceTypes, I18n i18n, UserSession userSession, Languages languages) {
+  public SearchAction(DbClient dbClient, ComponentIndex componentIndex, ResourceTypes resourceTypes, I18n i18n, UserSession userSession, Languages languages) {
     this.dbClient = dbClient;
+    this.componentIndex = componentIndex;
     this.resourceTypes = resourceTypes;
     this.i18n = i18n;
     this.userSession = userSession;
@@ -105,15 +112,11 @@ public class SearchAction implements ComponentsWsAction {
     List<String> qualifiers = request.getQualifiers();
     validateQualifiers(qualifiers);
 
-    DbSession dbSession = dbClient.openSession(false);
-    try {
-      ComponentQuery query = buildQuery(request, qualifiers);
-      Paging paging = buildPaging(dbSession, request, query);
-      List<ComponentDto> components = searchComponents(dbSession, query, paging);
-      return buildResponse(components, paging);
-    } finally {
-      dbClient.closeSession(dbSession);
-    }
+    SearchIdResult<String> result = componentIndex.search(buildQuery(request, qualifiers),
+      new SearchOptions().setPage(request.getPage(), request.getPageSize()));
+    Paging paging = buildPaging(request, result);
+    List<ComponentDto> components = loadComponents(result.getIds());
+    return buildResponse(components, paging);
   }
 
   private static SearchWsRequest toSearchWsRequest(Request request) {
@@ -125,12 +128,17 @@ public class SearchAction implements ComponentsWsAction {
       .setPageSize(request.mandatoryParamAsInt(Param.PAGE_SIZE));
   }
 
-  private List<ComponentDto> searchComponents(DbSession dbSession, ComponentQuery query, Paging paging) {
-    return dbClient.componentDao().selectByQuery(
-      dbSession,
-      query,
-      paging.offset(),
-      paging.pageSize());
+  /**
+   * Components are loaded from db, in the order of the search results
+   */
+  private List<ComponentDto> loadComponents(List<String> uuids) {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      List<ComponentDto> components = dbClient.componentDao().selectByUuids(dbSession, uuids);
+      return Ordering.explicit(uuids).onResultOf(toUuid()).immutableSortedCopy(components);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
   }
 
   private static SearchWsResponse buildResponse(List<ComponentDto> components, Paging paging) {
@@ -148,19 +156,18 @@ public class SearchAction implements ComponentsWsAction {
     return responseBuilder.build();
   }
 
-  private Paging buildPaging(DbSession dbSession, SearchWsRequest request, ComponentQuery query) {
-    int total = dbClient.componentDao().countByQuery(dbSession, query);
+  private static Paging buildPaging(SearchWsRequest request, SearchIdResult<String> result) {
+    int total = (int) result.getTotal();
     return Paging.forPageIndex(request.getPage())
       .withPageSize(request.getPageSize())
       .andTotal(total);
   }
 
-  private ComponentQuery buildQuery(SearchWsRequest request, List<String> qualifiers) {
-    return ComponentQuery.builder()
+  private static ComponentIndexQuery buildQuery(SearchWsRequest request, List<String> qualifiers) {
+    return new ComponentIndexQuery()
       .setNameOrKeyQuery(request.getQuery())
       .setLanguage(request.getLanguage())
-      .setQualifiers(qualifiers.toArray(new String[qualifiers.size()]))
-      .build();
+      .setQualifiers(qualifiers);
   }
 
   private void validateQualifiers(List<String> qualifiers) {
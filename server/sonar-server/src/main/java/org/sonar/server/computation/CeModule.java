@@ -25,6 +25,8 @@ import org.sonar.server.computation.configuration.CeConfigurationImpl;
 import org.sonar.server.computation.dbcleaner.IndexPurgeListener;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
 import org.sonar.server.computation.log.CeLogging;
+import org.sonar.server.computation.monitoring.ComputeEngineStepsMonitor;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 import org.sonar.server.properties.ProjectSettingsFactory;
 
 /**
@@ -36,6 +38,8 @@ public class CeModule extends Module {
     add(
       CeConfigurationImpl.class,
       CeLogging.class,
+      TaskStatsRecorder.class,
+      ComputeEngineStepsMonitor.class,
 
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
@@ -34,8 +34,10 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.FileStructure;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.server.computation.stats.ThreadResourceUsage;
 
 public class BatchReportReaderImpl implements BatchReportReader {
   private final org.sonar.batch.protocol.output.BatchReportReader delegate;
@@ -49,6 +51,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public BatchReport.Metadata readMetadata() {
     if (this.metadata == null) {
+      countBytesRead(delegate.getFileStructure().metadataFile());
       this.metadata = delegate.readMetadata();
     }
     return this.metadata;
@@ -60,6 +63,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
     if (!file.exists()) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    countBytesRead(file);
     try {
       InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), StandardCharsets.UTF_8);
       return new LineReaderIterator(reader);
@@ -70,52 +74,62 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   @Override
   public CloseableIterator<BatchReport.ActiveRule> readActiveRules() {
+    countBytesRead(delegate.getFileStructure().activeRules());
     return delegate.readActiveRules();
   }
 
   @Override
   public CloseableIterator<BatchReport.Measure> readComponentMeasures(int componentRef) {
+    countBytesRead(FileStructure.Domain.MEASURES, componentRef);
     return delegate.readComponentMeasures(componentRef);
   }
 
   @Override
   @CheckForNull
   public BatchReport.Changesets readChangesets(int componentRef) {
+    countBytesRead(FileStructure.Domain.CHANGESETS, componentRef);
     return delegate.readChangesets(componentRef);
   }
 
   @Override
   public BatchReport.Component readComponent(int componentRef) {
+    countBytesRead(FileStructure.Domain.COMPONENT, componentRef);
     return delegate.readComponent(componentRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.Issue> readComponentIssues(int componentRef) {
+    countBytesRead(FileStructure.Domain.ISSUES, componentRef);
     return delegate.readComponentIssues(componentRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.Duplication> readComponentDuplications(int componentRef) {
+    countBytesRead(FileStructure.Domain.DUPLICATIONS, componentRef);
     return delegate.readComponentDuplications(componentRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
+    countBytesRead(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
     return delegate.readCpdTextBlocks(componentRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.Symbol> readComponentSymbols(int componentRef) {
+    countBytesRead(FileStructure.Domain.SYMBOLS, componentRef);
     return delegate.readComponentSymbols(componentRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.SyntaxHighlighting> readComponentSyntaxHighlighting(int fileRef) {
+    countBytesRead(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
     return delegate.readComponentSyntaxHighlighting(fileRef);
   }
 
   @Override
   public CloseableIterator<BatchReport.Coverage> readComponentCoverage(int fileRef) {
+    countBytesRead(FileStructure.Domain.COVERAGES, fileRef);
     return delegate.readComponentCoverage(fileRef);
   }
 
@@ -125,6 +139,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
     if (file == null) {
       return Optional.absent();
     }
+    countBytesRead(file);
 
     try {
       return Optional.<CloseableIterator<String>>of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
@@ -133,6 +148,19 @@ public class BatchReportReaderImpl implements BatchReportReader {
     }
   }
 
+  private void countBytesRead(FileStructure.Domain domain, int componentRef) {
+    countBytesRead(delegate.getFileStructure().fileFor(domain, componentRef));
+  }
+
+  /**
+   * Files of the report are fully read, so their size is accounted in the statistics of the current task
+   */
+  private static void countBytesRead(File file) {
+    if (file.exists()) {
+      ThreadResourceUsage.addReportBytesRead(file.length());
+    }
+  }
+
   private static class CloseableLineIterator extends CloseableIterator<String> {
     private final LineIterator lineIterator;
 
@@ -168,6 +196,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
     if (file == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    countBytesRead(file);
 
     try {
       return new ParserCloseableIterator<>(BatchReport.Test.parser(), FileUtils.openInputStream(file));
@@ -184,6 +213,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
     if (file == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    countBytesRead(file);
 
     try {
       return new ParserCloseableIterator<>(BatchReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
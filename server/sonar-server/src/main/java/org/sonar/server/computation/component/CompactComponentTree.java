@@ -0,0 +1,375 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.component;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.batch.protocol.Constants;
+import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.core.component.ComponentKeys;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Memory-efficient storage of the tree of components loaded from the analysis report.
+ * <p>
+ * Components are stored in a table of arrays indexed by an int. Keys of directories and files are not stored
+ * but built on demand from the key of their module and their path. The path of a file is stored relative to its
+ * directory, and strings shared by many components, like file names or languages, are interned.
+ * Names, descriptions and versions, which are set only on a few components, are stored in sparse maps.
+ * </p>
+ * <p>
+ * The {@link Component}s returned by {@link #getRoot()} and {@link Component#getChildren()} are flyweight views
+ * on this table, created on demand. As {@link ComponentImpl}, they are equal if they have the same UUID.
+ * </p>
+ */
+public final class CompactComponentTree {
+
+  private static final int NO_INDEX = -1;
+  private static final byte UNIT_TEST_FLAG = 1;
+  private static final byte REUSE_PREVIOUS_FLAG = 2;
+  private static final Component.Type[] TYPES = Component.Type.values();
+
+  private final int size;
+  private final byte[] types;
+  private final int[] refs;
+  private final String[] uuids;
+  private final int[] moduleIndexes;
+  private final int[] pathParentIndexes;
+  private final String[] paths;
+  private final String[] languages;
+  private final byte[] fileFlags;
+  private final int[] firstChildSlots;
+  private final int[] childCounts;
+  private final int[] childIndexes;
+  private final Map<Integer, String> moduleKeys;
+  private final Map<Integer, String> names;
+  private final Map<Integer, String> descriptions;
+  private final Map<Integer, String> versions;
+
+  private CompactComponentTree(Builder builder) {
+    this.size = builder.size;
+    this.types = Arrays.copyOf(builder.types, size);
+    this.refs = Arrays.copyOf(builder.refs, size);
+    this.uuids = Arrays.copyOf(builder.uuids, size);
+    this.moduleIndexes = Arrays.copyOf(builder.moduleIndexes, size);
+    this.pathParentIndexes = Arrays.copyOf(builder.pathParentIndexes, size);
+    this.paths = Arrays.copyOf(builder.paths, size);
+    this.languages = Arrays.copyOf(builder.languages, size);
+    this.fileFlags = Arrays.copyOf(builder.fileFlags, size);
+    this.firstChildSlots = Arrays.copyOf(builder.firstChildSlots, size);
+    this.childCounts = Arrays.copyOf(builder.childCounts, size);
+    this.childIndexes = Arrays.copyOf(builder.childIndexes, builder.childSlots);
+    this.moduleKeys = builder.moduleKeys;
+    this.names = builder.names;
+    this.descriptions = builder.descriptions;
+    this.versions = builder.versions;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Component getRoot() {
+    checkState(size > 0, "Tree is empty");
+    return new ComponentView(0);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private String keyOf(int index) {
+    String moduleKey = moduleKeys.get(moduleIndexes[index]);
+    if (moduleIndexes[index] == index) {
+      return moduleKey;
+    }
+    return ComponentKeys.createEffectiveKey(moduleKey, pathOf(index));
+  }
+
+  @CheckForNull
+  private String pathOf(int index) {
+    int pathParentIndex = pathParentIndexes[index];
+    if (pathParentIndex == NO_INDEX) {
+      return paths[index];
+    }
+    return paths[pathParentIndex] + '/' + paths[index];
+  }
+
+  public static final class Builder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Interner<String> interner = Interners.newStrongInterner();
+    private int size = 0;
+    private int childSlots = 0;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] refs = new int[INITIAL_CAPACITY];
+    private String[] uuids = new String[INITIAL_CAPACITY];
+    private int[] moduleIndexes = new int[INITIAL_CAPACITY];
+    private int[] pathParentIndexes = new int[INITIAL_CAPACITY];
+    private String[] paths = new String[INITIAL_CAPACITY];
+    private String[] languages = new String[INITIAL_CAPACITY];
+    private byte[] fileFlags = new byte[INITIAL_CAPACITY];
+    private int[] firstChildSlots = new int[INITIAL_CAPACITY];
+    private int[] childCounts = new int[INITIAL_CAPACITY];
+    private int[] childIndexes = new int[INITIAL_CAPACITY];
+    private int[] filledChildCounts = new int[INITIAL_CAPACITY];
+    private final Map<Integer, String> moduleKeys = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Map<Integer, String> descriptions = new HashMap<>();
+    private final Map<Integer, String> versions = new HashMap<>();
+
+    private Builder() {
+      // use CompactComponentTree.builder()
+    }
+
+    /**
+     * Adds a project or a module. The root of the tree must be the first component to be added.
+     *
+     * @param parentIndex index of the parent component, or {@code -1} for the root
+     * @return the index of the new component, to be used as {@code parentIndex} of its children
+     */
+    public int addModule(BatchReport.Component reportComponent, int parentIndex, String key, String uuid) {
+      Constants.ComponentType type = reportComponent.getType();
+      checkArgument(type == Constants.ComponentType.PROJECT || type == Constants.ComponentType.MODULE, "Not a project nor a module: %s", type);
+      int index = add(reportComponent, parentIndex, uuid);
+      moduleIndexes[index] = index;
+      moduleKeys.put(index, key);
+      return index;
+    }
+
+    /**
+     * Adds a directory or a file to its parent. Its key is built from the key of the closest module.
+     *
+     * @return the index of the new component, to be used as {@code parentIndex} of its children
+     */
+    public int addDirectoryOrFile(BatchReport.Component reportComponent, int parentIndex, String uuid) {
+      Constants.ComponentType type = reportComponent.getType();
+      checkArgument(type == Constants.ComponentType.DIRECTORY || type == Constants.ComponentType.FILE, "Not a directory nor a file: %s", type);
+      checkArgument(parentIndex != NO_INDEX, "Directories and files must have a parent");
+      int index = add(reportComponent, parentIndex, uuid);
+      moduleIndexes[index] = moduleIndexes[parentIndex];
+      if (type == Constants.ComponentType.FILE) {
+        languages[index] = reportComponent.hasLanguage() ? interner.intern(reportComponent.getLanguage()) : null;
+        fileFlags[index] = (byte) ((reportComponent.hasIsTest() && reportComponent.getIsTest() ? UNIT_TEST_FLAG : 0)
+          | (reportComponent.hasReusePrevious() && reportComponent.getReusePrevious() ? REUSE_PREVIOUS_FLAG : 0));
+      }
+      return index;
+    }
+
+    private int add(BatchReport.Component reportComponent, int parentIndex, String uuid) {
+      checkArgument(parentIndex != NO_INDEX || size == 0, "Only the root can have no parent");
+      checkArgument(parentIndex == NO_INDEX || parentIndex < size, "Unknown parent index %s", parentIndex);
+      ensureCapacity(size + 1);
+      int index = size;
+      size++;
+
+      types[index] = (byte) ComponentImpl.Builder.convertType(reportComponent.getType()).ordinal();
+      refs[index] = reportComponent.getRef();
+      uuids[index] = uuid;
+      setPath(index, parentIndex, reportComponent.hasPath() ? reportComponent.getPath() : null);
+      if (reportComponent.hasName()) {
+        names.put(index, reportComponent.getName());
+      }
+      if (reportComponent.hasDescription()) {
+        descriptions.put(index, reportComponent.getDescription());
+      }
+      if (reportComponent.hasVersion()) {
+        versions.put(index, reportComponent.getVersion());
+      }
+
+      // slots of children are reserved, they are filled when children are added
+      int childCount = reportComponent.getChildRefCount();
+      ensureChildSlotsCapacity(childSlots + childCount);
+      firstChildSlots[index] = childSlots;
+      childCounts[index] = childCount;
+      childSlots += childCount;
+
+      if (parentIndex != NO_INDEX) {
+        checkState(filledChildCounts[parentIndex] < childCounts[parentIndex], "Too many children for component with ref %s", refs[parentIndex]);
+        childIndexes[firstChildSlots[parentIndex] + filledChildCounts[parentIndex]] = index;
+        filledChildCounts[parentIndex]++;
+      }
+      return index;
+    }
+
+    private void setPath(int index, int parentIndex, @Nullable String path) {
+      pathParentIndexes[index] = NO_INDEX;
+      paths[index] = path;
+      // only paths of the children of directories are relative, so a path is never built recursively
+      if (path == null || parentIndex == NO_INDEX || types[parentIndex] != Component.Type.DIRECTORY.ordinal() || pathParentIndexes[parentIndex] != NO_INDEX) {
+        return;
+      }
+      String parentPath = paths[parentIndex];
+      if (parentPath != null && path.length() > parentPath.length() + 1 && path.startsWith(parentPath) && path.charAt(parentPath.length()) == '/') {
+        pathParentIndexes[index] = parentIndex;
+        paths[index] = interner.intern(path.substring(parentPath.length() + 1));
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity <= types.length) {
+        return;
+      }
+      int newCapacity = Math.max(capacity, types.length * 2);
+      types = Arrays.copyOf(types, newCapacity);
+      refs = Arrays.copyOf(refs, newCapacity);
+      uuids = Arrays.copyOf(uuids, newCapacity);
+      moduleIndexes = Arrays.copyOf(moduleIndexes, newCapacity);
+      pathParentIndexes = Arrays.copyOf(pathParentIndexes, newCapacity);
+      paths = Arrays.copyOf(paths, newCapacity);
+      languages = Arrays.copyOf(languages, newCapacity);
+      fileFlags = Arrays.copyOf(fileFlags, newCapacity);
+      firstChildSlots = Arrays.copyOf(firstChildSlots, newCapacity);
+      childCounts = Arrays.copyOf(childCounts, newCapacity);
+      filledChildCounts = Arrays.copyOf(filledChildCounts, newCapacity);
+    }
+
+    private void ensureChildSlotsCapacity(int capacity) {
+      if (capacity > childIndexes.length) {
+        childIndexes = Arrays.copyOf(childIndexes, Math.max(capacity, childIndexes.length * 2));
+      }
+    }
+
+    public CompactComponentTree build() {
+      checkState(size > 0, "Tree is empty");
+      for (int i = 0; i < size; i++) {
+        checkState(filledChildCounts[i] == childCounts[i], "Missing children of component with ref %s", refs[i]);
+      }
+      return new CompactComponentTree(this);
+    }
+  }
+
+  private final class ComponentView implements Component {
+    private final int index;
+
+    private ComponentView(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Type getType() {
+      return TYPES[types[index]];
+    }
+
+    @Override
+    public String getUuid() {
+      return uuids[index];
+    }
+
+    @Override
+    public String getKey() {
+      return keyOf(index);
+    }
+
+    @Override
+    public String getName() {
+      String name = names.get(index);
+      return name == null ? "" : name;
+    }
+
+    @Override
+    @CheckForNull
+    public String getDescription() {
+      return descriptions.get(index);
+    }
+
+    @Override
+    public List<Component> getChildren() {
+      return new ChildrenView(index);
+    }
+
+    @Override
+    public ReportAttributes getReportAttributes() {
+      return ReportAttributes.newBuilder(refs[index])
+        .setVersion(versions.get(index))
+        .setPath(pathOf(index))
+        .build();
+    }
+
+    @Override
+    public FileAttributes getFileAttributes() {
+      checkState(getType() == Type.FILE, "Only component of type FILE have a FileAttributes object");
+      byte flags = fileFlags[index];
+      return new FileAttributes((flags & UNIT_TEST_FLAG) != 0, languages[index], (flags & REUSE_PREVIOUS_FLAG) != 0);
+    }
+
+    @Override
+    public ProjectViewAttributes getProjectViewAttributes() {
+      throw new IllegalStateException("Only component of type PROJECT_VIEW have a FileAttributes object");
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      return getUuid().equals(((ComponentView) o).getUuid());
+    }
+
+    @Override
+    public int hashCode() {
+      return getUuid().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "ComponentView{" +
+        "key='" + getKey() + '\'' +
+        ", type=" + getType() +
+        ", uuid='" + getUuid() + '\'' +
+        ", ref=" + refs[index] +
+        '}';
+    }
+  }
+
+  private final class ChildrenView extends AbstractList<Component> implements RandomAccess {
+    private final int parentIndex;
+
+    private ChildrenView(int parentIndex) {
+      this.parentIndex = parentIndex;
+    }
+
+    @Override
+    public Component get(int i) {
+      if (i < 0 || i >= childCounts[parentIndex]) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + childCounts[parentIndex]);
+      }
+      return new ComponentView(childIndexes[firstChildSlots[parentIndex] + i]);
+    }
+
+    @Override
+    public int size() {
+      return childCounts[parentIndex];
+    }
+  }
+}
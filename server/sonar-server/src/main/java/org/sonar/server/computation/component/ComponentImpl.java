@@ -170,7 +170,8 @@ public class ComponentImpl implements Component {
 
       return new FileAttributes(
         component.hasIsTest() && component.getIsTest(),
-        component.hasLanguage() ? component.getLanguage() : null);
+        component.hasLanguage() ? component.getLanguage() : null,
+        component.hasReusePrevious() && component.getReusePrevious());
     }
 
     @VisibleForTesting
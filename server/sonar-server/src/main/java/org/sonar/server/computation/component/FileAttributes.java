@@ -31,10 +31,16 @@ public class FileAttributes {
   private final boolean unitTest;
   @CheckForNull
   private final String languageKey;
+  private final boolean reusePrevious;
 
   public FileAttributes(boolean unitTest, @Nullable String languageKey) {
+    this(unitTest, languageKey, false);
+  }
+
+  public FileAttributes(boolean unitTest, @Nullable String languageKey, boolean reusePrevious) {
     this.unitTest = unitTest;
     this.languageKey = languageKey;
+    this.reusePrevious = reusePrevious;
   }
 
   public boolean isUnitTest() {
@@ -46,11 +52,20 @@ public class FileAttributes {
     return languageKey;
   }
 
+  /**
+   * The file is unchanged since the previous analysis and was not processed by the scanner: its sources, measures and
+   * issues are the ones of the previous analysis.
+   */
+  public boolean isReusePrevious() {
+    return reusePrevious;
+  }
+
   @Override
   public String toString() {
     return "FileAttributes{" +
       "languageKey='" + languageKey + '\'' +
       ", unitTest=" + unitTest +
+      ", reusePrevious=" + reusePrevious +
       '}';
   }
 }
@@ -19,41 +19,60 @@
  */
 package org.sonar.server.computation.component;
 
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
-import org.sonar.api.utils.log.Loggers;
-import org.sonar.core.util.logs.Profiler;
+import java.util.concurrent.TimeUnit;
 
-import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Iterables.concat;
-import static java.util.Objects.requireNonNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * The visitors to be executed on each type of component are computed once, when the crawler is created, so that
+ * the traversal of the tree does not allocate any object. The cumulative duration of each visitor is computed only
+ * when requested at creation.
+ * </p>
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
-  private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
-  private final List<VisitorWrapper> preOrderVisitorWrappers;
-  private final List<VisitorWrapper> postOrderVisitorWrappers;
+  private final boolean computeDuration;
+  private final List<CrawledVisitor> crawledVisitors;
+  private final Map<Component.Type, VisitorsOfType> visitorsByType;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
-    List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
-    this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
-    this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
-    this.visitorCumulativeDurations = from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE);
+    this(visitors, false);
   }
 
+  /**
+   * @param computeDuration whether the cumulative duration of each visitor must be computed, see {@link #getCumulativeDurations()}
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this.computeDuration = computeDuration;
+    this.crawledVisitors = new ArrayList<>();
+    for (ComponentVisitor visitor : visitors) {
+      crawledVisitors.add(new CrawledVisitor(toVisitorWrapper(visitor)));
+    }
+    this.visitorsByType = new EnumMap<>(Component.Type.class);
+    for (Component.Type type : Component.Type.values()) {
+      visitorsByType.put(type, new VisitorsOfType(type, crawledVisitors));
+    }
+  }
+
+  /**
+   * Cumulative duration in milliseconds of each visitor
+   *
+   * @throws IllegalStateException if durations are not computed
+   */
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
-    return ImmutableMap.copyOf(
-      Maps.transformValues(this.visitorCumulativeDurations, VisitorDurationToDuration.INSTANCE)
-      );
+    checkState(computeDuration, "Durations of visitors are not computed");
+    ImmutableMap.Builder<ComponentVisitor, Long> builder = ImmutableMap.builder();
+    for (CrawledVisitor crawledVisitor : crawledVisitors) {
+      builder.put(crawledVisitor.wrapper.getWrappedVisitor(), TimeUnit.NANOSECONDS.toMillis(crawledVisitor.durationInNanos));
+    }
+    return builder.build();
   }
 
   @Override
@@ -69,29 +88,28 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitImpl(Component component) {
-    MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forComponent(component);
-    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    if (preOrderVisitorWrappersToExecute.isEmpty() && postOrderVisitorWrappersToExecute.isEmpty()) {
+    VisitorsOfType visitorsOfType = visitorsByType.get(component.getType());
+    // no visitor goes down to this type of component, so none of them visits its children
+    if (visitorsOfType.all.length == 0) {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
-      visitorWrapper.beforeComponent(component);
+    for (CrawledVisitor visitor : visitorsOfType.all) {
+      visitor.wrapper.beforeComponent(component);
     }
 
-    for (VisitorWrapper visitorWrapper : preOrderVisitorWrappersToExecute) {
-      visitNode(component, visitorWrapper);
+    for (CrawledVisitor visitor : visitorsOfType.preOrder) {
+      visitNode(component, visitor);
     }
 
     visitChildren(component);
 
-    for (VisitorWrapper visitorWrapper : postOrderVisitorWrappersToExecute) {
-      visitNode(component, visitorWrapper);
+    for (CrawledVisitor visitor : visitorsOfType.postOrder) {
+      visitNode(component, visitor);
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappersToExecute, postOrderVisitorWrappersToExecute)) {
-      visitorWrapper.afterComponent(component);
+    for (CrawledVisitor visitor : visitorsOfType.all) {
+      visitor.wrapper.afterComponent(component);
     }
   }
 
@@ -101,9 +119,17 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
-  private void visitNode(Component component, VisitorWrapper visitor) {
-    Profiler profiler = Profiler.create(Loggers.get(visitor.getWrappedVisitor().getClass()))
-      .startTrace("Visiting component {}", component.getKey());
+  private void visitNode(Component component, CrawledVisitor visitor) {
+    if (computeDuration) {
+      long start = System.nanoTime();
+      visitNode(component, visitor.wrapper);
+      visitor.durationInNanos += System.nanoTime() - start;
+    } else {
+      visitNode(component, visitor.wrapper);
+    }
+  }
+
+  private static void visitNode(Component component, VisitorWrapper visitor) {
     visitor.visitAny(component);
     switch (component.getType()) {
       case PROJECT:
@@ -130,104 +156,53 @@ public class VisitorsCrawler implements ComponentCrawler {
       default:
         throw new IllegalStateException(String.format("Unknown type %s", component.getType().name()));
     }
-    long duration = profiler.stopTrace();
-    incrementDuration(visitor, duration);
-  }
-
-  private void incrementDuration(VisitorWrapper visitorWrapper, long duration) {
-    visitorCumulativeDurations.get(visitorWrapper.getWrappedVisitor()).increment(duration);
   }
 
-  private enum ToVisitorWrapper implements Function<ComponentVisitor, VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public VisitorWrapper apply(@Nonnull ComponentVisitor componentVisitor) {
-      if (componentVisitor instanceof TypeAwareVisitor) {
-        return new TypeAwareVisitorWrapper((TypeAwareVisitor) componentVisitor);
-      } else if (componentVisitor instanceof PathAwareVisitor) {
-        return new PathAwareVisitorWrapper((PathAwareVisitor) componentVisitor);
-      } else {
-        throw new IllegalArgumentException("Only TypeAwareVisitor and PathAwareVisitor can be used");
-      }
+  private static VisitorWrapper toVisitorWrapper(ComponentVisitor componentVisitor) {
+    if (componentVisitor instanceof TypeAwareVisitor) {
+      return new TypeAwareVisitorWrapper((TypeAwareVisitor) componentVisitor);
+    } else if (componentVisitor instanceof PathAwareVisitor) {
+      return new PathAwareVisitorWrapper((PathAwareVisitor) componentVisitor);
+    } else {
+      throw new IllegalArgumentException("Only TypeAwareVisitor and PathAwareVisitor can be used");
     }
   }
 
-  private static class MatchVisitorMaxDepth implements Predicate<VisitorWrapper> {
-    private static final Map<Component.Type, MatchVisitorMaxDepth> INSTANCES = buildInstances();
-
-    private static Map<Component.Type, MatchVisitorMaxDepth> buildInstances() {
-      ImmutableMap.Builder<Component.Type, MatchVisitorMaxDepth> builder = ImmutableMap.builder();
-      for (Component.Type type : Component.Type.values()) {
-        builder.put(type, new MatchVisitorMaxDepth(type));
-      }
-      return builder.build();
-    }
-
-    private final Component.Type type;
+  private static final class CrawledVisitor {
+    private final VisitorWrapper wrapper;
+    private long durationInNanos = 0;
 
-    private MatchVisitorMaxDepth(Component.Type type) {
-      this.type = requireNonNull(type);
-    }
-
-    public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
-    }
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      CrawlerDepthLimit maxDepth = visitorWrapper.getMaxDepth();
-      return maxDepth.isSameAs(type) || maxDepth.isDeeperThan(type);
+    private CrawledVisitor(VisitorWrapper wrapper) {
+      this.wrapper = wrapper;
     }
   }
 
-  private enum MathPreOrderVisitor implements Predicate<VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      return visitorWrapper.getOrder() == ComponentVisitor.Order.PRE_ORDER;
-    }
-  }
-
-  private enum MatchPostOrderVisitor implements Predicate<VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      return visitorWrapper.getOrder() == ComponentVisitor.Order.POST_ORDER;
-    }
-  }
-
-  private static final class VisitorDuration {
-    private long duration = 0;
-
-    public void increment(long duration) {
-      this.duration += duration;
-    }
-
-    public long getDuration() {
-      return duration;
-    }
-  }
-
-  private enum VisitorWrapperToInitialDuration implements Function<ComponentVisitor, VisitorDuration> {
-    INSTANCE;
-
-    @Override
-    @Nonnull
-    public VisitorDuration apply(@Nonnull ComponentVisitor visitorWrapper) {
-      return new VisitorDuration();
-    }
-  }
-
-  private enum VisitorDurationToDuration implements Function<VisitorDuration, Long> {
-    INSTANCE;
-
-    @Nullable
-    @Override
-    public Long apply(VisitorDuration input) {
-      return input.getDuration();
+  /**
+   * Visitors to be executed on a type of component, in the order of the list of visitors
+   */
+  private static final class VisitorsOfType {
+    private final CrawledVisitor[] all;
+    private final CrawledVisitor[] preOrder;
+    private final CrawledVisitor[] postOrder;
+
+    private VisitorsOfType(Component.Type type, List<CrawledVisitor> visitors) {
+      List<CrawledVisitor> matchingVisitors = new ArrayList<>();
+      List<CrawledVisitor> preOrderVisitors = new ArrayList<>();
+      List<CrawledVisitor> postOrderVisitors = new ArrayList<>();
+      for (CrawledVisitor visitor : visitors) {
+        CrawlerDepthLimit maxDepth = visitor.wrapper.getMaxDepth();
+        if (maxDepth.isSameAs(type) || maxDepth.isDeeperThan(type)) {
+          matchingVisitors.add(visitor);
+          if (visitor.wrapper.getOrder() == ComponentVisitor.Order.PRE_ORDER) {
+            preOrderVisitors.add(visitor);
+          } else {
+            postOrderVisitors.add(visitor);
+          }
+        }
+      }
+      this.all = matchingVisitors.toArray(new CrawledVisitor[matchingVisitors.size()]);
+      this.preOrder = preOrderVisitors.toArray(new CrawledVisitor[preOrderVisitors.size()]);
+      this.postOrder = postOrderVisitors.toArray(new CrawledVisitor[postOrderVisitors.size()]);
     }
   }
 }
@@ -31,4 +31,29 @@ public interface CeConfiguration {
    * when previous one had nothing to do.
    */
   long getQueuePollingDelay();
+
+  /**
+   * Identifier of this Compute Engine node among all the nodes sharing the same database. Tasks
+   * in progress are assigned to a node.
+   */
+  String getNodeUuid();
+
+  /**
+   * The duration in milliseconds during which a task in progress is kept by its node without renewal of
+   * its lease. Once expired, the task can be processed by any node.
+   */
+  long getLeaseDuration();
+
+  /**
+   * The maximum difference in milliseconds between the clocks of the nodes. A lease is considered as expired by
+   * the other nodes only once this delay has also elapsed. Clocks of the nodes must be synchronized, for example
+   * with NTP, so that they never differ by more.
+   */
+  long getMaxClockSkew();
+
+  /**
+   * Whether several nodes process the queue. In this case the analysis reports are stored in a directory
+   * shared by all the nodes and tasks in progress are not reset when a node starts.
+   */
+  boolean isClustered();
 }
@@ -20,11 +20,14 @@
 package org.sonar.server.computation.configuration;
 
 import com.google.common.annotations.VisibleForTesting;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.Uuids;
 
 import static java.lang.String.format;
 
@@ -32,9 +35,18 @@ import static java.lang.String.format;
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
  * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
  * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * <p>
+ * The node UUID is taken from property {@link #CE_NODE_UUID_PROPERTY}, or generated at startup if not defined. The Compute
+ * Engine is clustered when property {@link #CE_SHARED_PATH_PROPERTY} is defined.
+ * </p>
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  public static final String CE_NODE_UUID_PROPERTY = "sonar.ce.nodeUuid";
+  /**
+   * Directory shared by all the nodes of a Compute Engine cluster
+   */
+  public static final String CE_SHARED_PATH_PROPERTY = "sonar.ce.sharedPath";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
@@ -43,8 +55,17 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   // 2 seconds
   @VisibleForTesting
   protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // 5 minutes
+  @VisibleForTesting
+  protected static final long DEFAULT_LEASE_DURATION = 5 * 60 * 1000L;
+  // 1 minute
+  @VisibleForTesting
+  protected static final long DEFAULT_MAX_CLOCK_SKEW = 60 * 1000L;
+  private static final int MAX_NODE_UUID_LENGTH = 40;
 
   private final int workerCount;
+  private final String nodeUuid;
+  private final boolean clustered;
 
   public CeConfigurationImpl(Settings settings) {
     String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
@@ -53,6 +74,20 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     } else {
       this.workerCount = parseStringValue(workerCountAsStr);
     }
+    this.nodeUuid = parseNodeUuid(settings.getString(CE_NODE_UUID_PROPERTY));
+    this.clustered = StringUtils.isNotBlank(settings.getString(CE_SHARED_PATH_PROPERTY));
+  }
+
+  private static String parseNodeUuid(@Nullable String nodeUuidAsStr) {
+    if (StringUtils.isBlank(nodeUuidAsStr)) {
+      return Uuids.create();
+    }
+    String value = nodeUuidAsStr.trim();
+    if (value.length() > MAX_NODE_UUID_LENGTH) {
+      throw MessageException.of(format("value '%s' of property %s is invalid. It must not be longer than %d characters",
+        value, CE_NODE_UUID_PROPERTY, MAX_NODE_UUID_LENGTH));
+    }
+    return value;
   }
 
   private static int parseStringValue(String workerCountAsStr) {
@@ -80,6 +115,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     if (this.workerCount > 1) {
       LOG.info("Compute Engine will use {} concurrent workers to process tasks", this.workerCount);
     }
+    if (this.clustered) {
+      LOG.info("Compute Engine is clustered, this node is {}", this.nodeUuid);
+    }
   }
 
   @Override
@@ -96,4 +134,24 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
+
+  @Override
+  public String getNodeUuid() {
+    return nodeUuid;
+  }
+
+  @Override
+  public long getLeaseDuration() {
+    return DEFAULT_LEASE_DURATION;
+  }
+
+  @Override
+  public long getMaxClockSkew() {
+    return DEFAULT_MAX_CLOCK_SKEW;
+  }
+
+  @Override
+  public boolean isClustered() {
+    return clustered;
+  }
 }
@@ -87,7 +87,6 @@ import org.sonar.server.computation.source.LastCommitVisitor;
 import org.sonar.server.computation.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.source.SourceLinesRepositoryImpl;
 import org.sonar.server.computation.step.ComputationStepExecutor;
-import org.sonar.server.computation.step.ComputationSteps;
 import org.sonar.server.computation.step.ReportComputationSteps;
 import org.sonar.server.computation.taskprocessor.MutableTaskResultHolderImpl;
 import org.sonar.server.devcockpit.DevCockpitBridge;
@@ -104,7 +103,7 @@ public final class ReportComputeEngineContainerPopulator implements ContainerPop
 
   @Override
   public void populateContainer(ComputeEngineContainer container) {
-    ComputationSteps steps = new ReportComputationSteps(container);
+    ReportComputationSteps steps = new ReportComputationSteps(container);
     container.add(task);
     container.add(steps);
     container.addSingletons(componentClasses());
@@ -112,11 +111,13 @@ public final class ReportComputeEngineContainerPopulator implements ContainerPop
       container.addSingletons(devCockpitBridge.getCeComponents());
     }
     container.addSingletons(steps.orderedStepClasses());
+    container.addSingletons(steps.orderedFormulaStepClasses());
   }
 
   /**
    * List of all objects to be injected in the picocontainer dedicated to computation stack.
-   * Does not contain the steps declared in {@link ReportComputationSteps#orderedStepClasses()}.
+   * Does not contain the steps declared in {@link ReportComputationSteps#orderedStepClasses()} and
+   * {@link ReportComputationSteps#orderedFormulaStepClasses()}.
    */
   private static List componentClasses() {
     return Arrays.asList(
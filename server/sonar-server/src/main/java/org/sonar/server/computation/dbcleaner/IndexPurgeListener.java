@@ -21,18 +21,22 @@ package org.sonar.server.computation.dbcleaner;
 
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.purge.PurgeListener;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.test.index.TestIndexer;
 
 @ServerSide
 public class IndexPurgeListener implements PurgeListener {
   private final TestIndexer testIndexer;
+  private final ComponentIndexer componentIndexer;
 
-  public IndexPurgeListener(TestIndexer testIndexer) {
+  public IndexPurgeListener(TestIndexer testIndexer, ComponentIndexer componentIndexer) {
     this.testIndexer = testIndexer;
+    this.componentIndexer = componentIndexer;
   }
 
   @Override
   public void onComponentDisabling(String uuid) {
     testIndexer.deleteByFile(uuid);
+    componentIndexer.deleteByComponent(uuid);
   }
 }
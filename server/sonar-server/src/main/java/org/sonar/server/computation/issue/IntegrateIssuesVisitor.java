@@ -27,6 +27,7 @@ import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
 import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.qualityprofile.ActiveRulesHolder;
 import org.sonar.server.util.cache.DiskCache;
 
 import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
@@ -39,11 +40,13 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final IssueVisitors issueVisitors;
   private final MutableComponentIssuesRepository componentIssuesRepository;
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
+  private final ActiveRulesHolder activeRulesHolder;
 
   private final List<DefaultIssue> componentIssues = new ArrayList<>();
 
   public IntegrateIssuesVisitor(TrackerExecution tracker, IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
-                                ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository) {
+                                ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository,
+                                ActiveRulesHolder activeRulesHolder) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
     this.tracker = tracker;
     this.issueCache = issueCache;
@@ -51,6 +54,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.issueVisitors = issueVisitors;
     this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
     this.componentIssuesRepository = componentIssuesRepository;
+    this.activeRulesHolder = activeRulesHolder;
   }
 
   @Override
@@ -68,7 +72,11 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
       issueVisitors.beforeComponent(component);
       fillNewOpenIssues(component, tracking, cacheAppender);
       fillExistingOpenIssues(component, tracking, cacheAppender);
-      closeUnmatchedBaseIssues(component, tracking, cacheAppender);
+      if (isReusePrevious(component)) {
+        keepUnmatchedBaseIssues(component, tracking, cacheAppender);
+      } else {
+        closeUnmatchedBaseIssues(component, tracking, cacheAppender);
+      }
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getKey()), e);
@@ -99,6 +107,29 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
+  /**
+   * Sensors did not process files which are unchanged since the previous analysis, so the absence of raw issues
+   * does not mean that base issues have been fixed. Issues of rules which are not active anymore in the quality
+   * profile are closed anyway.
+   */
+  private void keepUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+    for (DefaultIssue issue : tracking.getUnmatchedBases()) {
+      if (!isRuleActive(issue)) {
+        issue.setOnDisabledRule(true);
+        issue.setBeingClosed(true);
+      }
+      process(component, issue, cacheAppender);
+    }
+  }
+
+  private boolean isRuleActive(DefaultIssue issue) {
+    return issue.ruleKey().isManual() || (!issue.isOnDisabledRule() && activeRulesHolder.get(issue.ruleKey()).isPresent());
+  }
+
+  private static boolean isReusePrevious(Component component) {
+    return component.getType() == Component.Type.FILE && component.getFileAttributes().isReusePrevious();
+  }
+
   private void closeUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
     for (DefaultIssue issue : tracking.getUnmatchedBases()) {
       // TODO should replace flag "beingClosed" by express call to transition "automaticClose"
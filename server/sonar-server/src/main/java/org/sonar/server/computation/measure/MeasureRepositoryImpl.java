@@ -20,9 +20,14 @@
 package org.sonar.server.computation.measure;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
@@ -30,6 +35,10 @@ import org.sonar.db.DbSession;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.CrawlerDepthLimit;
+import org.sonar.server.computation.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.component.TreeRootHolder;
+import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.measure.MapBasedRawMeasureRepository.OverridePolicy;
 import org.sonar.server.computation.metric.Metric;
 import org.sonar.server.computation.metric.MetricRepository;
@@ -37,6 +46,7 @@ import org.sonar.server.computation.metric.ReportMetricValidator;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
 import static org.sonar.server.computation.component.ComponentFunctions.toReportRef;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
@@ -46,16 +56,26 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
   private final ReportMetricValidator reportMetricValidator;
+  private final TreeRootHolder treeRootHolder;
 
   private MeasureDtoToMeasure underTest = new MeasureDtoToMeasure();
   private final Set<Integer> loadedComponents = new HashSet<>();
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator) {
+  /**
+   * Measures of the previous analysis of all the files flagged as unchanged, by component key. Loaded
+   * on first request.
+   */
+  @CheckForNull
+  private ListMultimap<String, MeasureDto> previousMeasuresByComponentKey = null;
+
+  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator,
+    TreeRootHolder treeRootHolder) {
     this.dbClient = dbClient;
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
     this.metricRepository = metricRepository;
+    this.treeRootHolder = treeRootHolder;
   }
 
   @Override
@@ -123,7 +143,75 @@ public class MeasureRepositoryImpl implements MeasureRepository {
         }
       }
     }
+    if (component.getType() == Component.Type.FILE && component.getFileAttributes().isReusePrevious()) {
+      loadPreviousMeasuresForComponent(component);
+    }
     loadedComponents.add(component.getReportAttributes().getRef());
   }
 
+  /**
+   * Files flagged by the scanner as unchanged have not been processed by sensors. Measures which are usually provided
+   * by the report are carried forward from the previous analysis, without their variations and quality gate status which
+   * are computed again. Measures present in the report have precedence.
+   */
+  private void loadPreviousMeasuresForComponent(Component component) {
+    if (previousMeasuresByComponentKey == null) {
+      previousMeasuresByComponentKey = loadPreviousMeasuresOfReusedFiles();
+    }
+    for (MeasureDto measureDto : previousMeasuresByComponentKey.removeAll(component.getKey())) {
+      Metric metric = metricRepository.getByKey(measureDto.getMetricKey());
+      clearComputedValues(measureDto);
+      Optional<Measure> measure = underTest.toMeasure(measureDto, metric);
+      if (measure.isPresent()) {
+        delegate.add(component, metric, measure.get(), OverridePolicy.DO_NOT_OVERRIDE);
+      }
+    }
+  }
+
+  /**
+   * Measures of all the reused files are loaded at once, instead of one request per file.
+   */
+  private ListMultimap<String, MeasureDto> loadPreviousMeasuresOfReusedFiles() {
+    ListMultimap<String, MeasureDto> result = ArrayListMultimap.create();
+    List<String> reportMetricKeys = new ArrayList<>();
+    for (Metric metric : metricRepository.getAll()) {
+      if (reportMetricValidator.validate(metric.getKey())) {
+        reportMetricKeys.add(metric.getKey());
+      }
+    }
+    List<String> reusedFileKeys = loadReusedFileKeys();
+    if (reportMetricKeys.isEmpty() || reusedFileKeys.isEmpty()) {
+      return result;
+    }
+
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (MeasureDto measureDto : dbClient.measureDao().selectByComponentKeysAndMetricKeys(dbSession, reusedFileKeys, reportMetricKeys)) {
+        result.put(measureDto.getComponentKey(), measureDto);
+      }
+    }
+    return result;
+  }
+
+  private List<String> loadReusedFileKeys() {
+    final List<String> keys = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          if (file.getFileAttributes().isReusePrevious()) {
+            keys.add(file.getKey());
+          }
+        }
+      }).visit(treeRootHolder.getRoot());
+    return keys;
+  }
+
+  private static void clearComputedValues(MeasureDto measureDto) {
+    for (int i = 1; i < 6; i++) {
+      measureDto.setVariation(i, null);
+    }
+    measureDto.setAlertStatus(null);
+    measureDto.setAlertText(null);
+  }
+
 }
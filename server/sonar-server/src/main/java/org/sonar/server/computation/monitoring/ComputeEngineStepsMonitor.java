@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
+import org.sonar.server.platform.monitoring.BaseMonitorMBean;
+
+import static java.lang.String.format;
+
+public class ComputeEngineStepsMonitor extends BaseMonitorMBean implements ComputeEngineStepsMonitorMBean {
+  private final TaskStatsRecorder statsRecorder;
+
+  public ComputeEngineStepsMonitor(TaskStatsRecorder statsRecorder) {
+    this.statsRecorder = statsRecorder;
+  }
+
+  @Override
+  public String name() {
+    return "ComputeEngineSteps";
+  }
+
+  @Override
+  public LinkedHashMap<String, Object> attributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Tasks", getTaskCount());
+    for (DbCe.Stat stat : statsRecorder.getCumulatedStepStats()) {
+      attributes.put(stat.getName(), formatStat(stat));
+    }
+    return attributes;
+  }
+
+  @Override
+  public long getTaskCount() {
+    return statsRecorder.getTaskCount();
+  }
+
+  @Override
+  public String[] getCumulatedStepStats() {
+    List<DbCe.Stat> stats = statsRecorder.getCumulatedStepStats();
+    String[] result = new String[stats.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = format("%s | %s", stats.get(i).getName(), formatStat(stats.get(i)));
+    }
+    return result;
+  }
+
+  private static String formatStat(DbCe.Stat stat) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(format("time=%dms", stat.getWallTimeMs()));
+    if (stat.hasCpuTimeMs()) {
+      sb.append(format(" | cpu=%dms", stat.getCpuTimeMs()));
+    }
+    if (stat.hasAllocatedBytes()) {
+      sb.append(format(" | allocated=%dB", stat.getAllocatedBytes()));
+    }
+    sb.append(format(" | rows=%d | reportRead=%dB", stat.getWrittenRows(), stat.getReportBytesRead()));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Periodically renews the lease of the tasks in progress on this node, so that they are not processed
+ * by another node. When the Compute Engine is clustered, it also resets to pending the tasks whose lease
+ * has expired, for example because their node crashed.
+ */
+@ServerSide
+public class CeNodeHeartbeat implements Startable {
+
+  private static final Logger LOG = Loggers.get(CeNodeHeartbeat.class);
+  private static final String THREAD_NAME_PREFIX = "CE_heartbeat-";
+
+  private final DbClient dbClient;
+  private final CeConfiguration ceConfiguration;
+  private ScheduledExecutorService executor;
+
+  public CeNodeHeartbeat(DbClient dbClient, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.ceConfiguration = ceConfiguration;
+  }
+
+  @Override
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+    // renew three times per lease, so that a slow database does not make the leases expire
+    long delay = ceConfiguration.getLeaseDuration() / 3;
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        beat();
+      }
+    }, delay, delay, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  void beat() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      dbClient.ceQueueDao().renewLeases(dbSession, ceConfiguration.getNodeUuid(), ceConfiguration.getLeaseDuration());
+      if (ceConfiguration.isClustered()) {
+        int resetCount = dbClient.ceQueueDao().resetExpiredLeases(dbSession, ceConfiguration.getMaxClockSkew());
+        if (resetCount > 0) {
+          LOG.info("{} task(s) in progress with expired lease reset to pending", resetCount);
+        }
+      }
+      dbSession.commit();
+    } catch (Exception e) {
+      // do not stop the schedule, next beat may succeed before expiration of leases
+      LOG.warn("Fail to renew leases of Compute Engine tasks", e);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.protobuf.DbCe;
 
 /**
  * Queue of pending Compute Engine tasks. Both producer and consumer actions
@@ -101,11 +102,12 @@ public interface CeQueue {
 
   /**
    * Removes a task from the queue and registers it to past activities. This method
-   * is called by Compute Engine workers when task is processed and can include an option {@link CeTaskResult} object.
+   * is called by Compute Engine workers when task is processed and can include an option {@link CeTaskResult} object
+   * and the statistics of the processing.
    *
    * @throws IllegalStateException if the task does not exist in the queue
    */
-  void remove(CeTask task, CeActivityDto.Status status, @Nullable CeTaskResult taskResult);
+  void remove(CeTask task, CeActivityDto.Status status, @Nullable CeTaskResult taskResult, @Nullable DbCe.TaskStats taskStats);
 
   void pauseSubmit();
 
@@ -29,11 +29,17 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfiguration;
 import org.sonar.server.computation.queue.report.ReportFiles;
 
 /**
  * Cleans-up the Compute Engine queue and resets the JMX counters.
  * CE workers must not be started before execution of this class.
+ * <p>
+ * When the Compute Engine is clustered, other nodes may be processing tasks or receiving reports, so only
+ * the tasks of this node or whose lease is expired are reset, and report files are not cleaned-up. They
+ * are deleted when expired by {@link ReportFilesCleaner}.
+ * </p>
  */
 @ServerSide
 public class CeQueueCleaner {
@@ -44,12 +50,15 @@ public class CeQueueCleaner {
   private final ServerUpgradeStatus serverUpgradeStatus;
   private final ReportFiles reportFiles;
   private final CeQueueImpl queue;
+  private final CeConfiguration ceConfiguration;
 
-  public CeQueueCleaner(DbClient dbClient, ServerUpgradeStatus serverUpgradeStatus, ReportFiles reportFiles, CeQueueImpl queue) {
+  public CeQueueCleaner(DbClient dbClient, ServerUpgradeStatus serverUpgradeStatus, ReportFiles reportFiles, CeQueueImpl queue,
+    CeConfiguration ceConfiguration) {
     this.dbClient = dbClient;
     this.serverUpgradeStatus = serverUpgradeStatus;
     this.reportFiles = reportFiles;
     this.queue = queue;
+    this.ceConfiguration = ceConfiguration;
   }
 
   public void clean(DbSession dbSession) {
@@ -58,6 +67,10 @@ public class CeQueueCleaner {
     } else {
       verifyConsistency(dbSession);
     }
+    if (!ceConfiguration.isClustered()) {
+      // reports uploaded by parts but not submitted can't be resumed by scanners
+      reportFiles.deleteUploads();
+    }
   }
 
   private void cleanOnUpgrade() {
@@ -69,7 +82,7 @@ public class CeQueueCleaner {
 
   private void verifyConsistency(DbSession dbSession) {
     // server is not being upgraded
-    dbClient.ceQueueDao().resetAllToPendingStatus(dbSession);
+    resetToPending(dbSession);
     dbSession.commit();
 
     // verify that the report files are available for the tasks in queue
@@ -82,6 +95,11 @@ public class CeQueueCleaner {
       }
     }
 
+    if (ceConfiguration.isClustered()) {
+      // a report may be saved by another node before its task is inserted in queue
+      return;
+    }
+
     // clean-up filesystem
     for (String uuid : reportFiles.listUuids()) {
       if (!uuidsInQueue.contains(uuid)) {
@@ -89,4 +107,16 @@ public class CeQueueCleaner {
       }
     }
   }
+
+  private void resetToPending(DbSession dbSession) {
+    if (ceConfiguration.isClustered()) {
+      int resetCount = dbClient.ceQueueDao().resetToPendingForNode(dbSession, ceConfiguration.getNodeUuid());
+      resetCount += dbClient.ceQueueDao().resetExpiredLeases(dbSession, ceConfiguration.getMaxClockSkew());
+      if (resetCount > 0) {
+        LOGGER.info("{} task(s) in progress reset to pending", resetCount);
+      }
+    } else {
+      dbClient.ceQueueDao().resetAllToPendingStatus(dbSession);
+    }
+  }
 }
@@ -38,6 +38,8 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.configuration.CeConfiguration;
 import org.sonar.server.computation.monitoring.CEQueueStatus;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -53,6 +55,7 @@ public class CeQueueImpl implements CeQueue {
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
   private final CEQueueStatus queueStatus;
+  private final CeConfiguration ceConfiguration;
   private final CeQueueListener[] listeners;
 
   // state
@@ -60,11 +63,12 @@ public class CeQueueImpl implements CeQueue {
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
   public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory,
-    CEQueueStatus queueStatus, CeQueueListener[] listeners) {
+    CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeQueueListener[] listeners) {
     this.system2 = system2;
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
     this.queueStatus = queueStatus;
+    this.ceConfiguration = ceConfiguration;
     this.listeners = listeners;
   }
 
@@ -119,7 +123,7 @@ public class CeQueueImpl implements CeQueue {
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
+      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession, ceConfiguration.getNodeUuid(), ceConfiguration.getLeaseDuration());
       CeTask task = null;
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
@@ -207,17 +211,25 @@ public class CeQueueImpl implements CeQueue {
   }
 
   @Override
-  public void remove(CeTask task, CeActivityDto.Status status, CeTaskResult taskResult) {
+  public void remove(CeTask task, CeActivityDto.Status status, @Nullable CeTaskResult taskResult, @Nullable DbCe.TaskStats taskStats) {
     DbSession dbSession = dbClient.openSession(false);
     try {
       Optional<CeQueueDto> queueDto = dbClient.ceQueueDao().selectByUuid(dbSession, task.getUuid());
       if (!queueDto.isPresent()) {
         throw new IllegalStateException(format("Task does not exist anymore: %s", task));
       }
+      String nodeUuid = queueDto.get().getNodeUuid();
+      if (nodeUuid != null && !nodeUuid.equals(ceConfiguration.getNodeUuid())) {
+        // lease expired and task has been peeked again by another node
+        throw new IllegalStateException(format("Task is processed by another Compute Engine node [node=%s]: %s", nodeUuid, task));
+      }
       CeActivityDto activityDto = new CeActivityDto(queueDto.get());
       activityDto.setStatus(status);
       updateQueueStatus(status, activityDto);
       updateTaskResult(activityDto, taskResult);
+      if (taskStats != null) {
+        activityDto.setStats(taskStats.toByteArray());
+      }
       remove(dbSession, task, queueDto.get(), activityDto);
 
     } finally {
@@ -36,10 +36,14 @@ public class CeQueueModule extends Module {
       CEQueueStatusImpl.class,
       ComputeEngineQueueMonitor.class,
 
+      // leases of tasks in progress
+      CeNodeHeartbeat.class,
+
       // queue cleaning
       CeQueueCleaner.class,
       CleanReportQueueListener.class,
       ReportFiles.class,
+      ReportFilesCleaner.class,
 
       // init queue state and queue processing
       CeQueueInitializer.class);
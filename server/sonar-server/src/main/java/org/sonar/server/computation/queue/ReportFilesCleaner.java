@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.computation.queue.report.ReportFiles;
+
+/**
+ * Periodically deletes:
+ * <ul>
+ *   <li>the reports uploaded by parts which have not received any part for a day. Scanners
+ *   do not resume such uploads, for example because the analysis has been interrupted.</li>
+ *   <li>the reports which are not referenced by the queue, for example because the node which saved
+ *   them crashed before inserting the task.</li>
+ * </ul>
+ * Only files older than the expiration delays are deleted, so that files being written by the other nodes
+ * sharing the same directory in a clustered Compute Engine are not touched. The clean-up of files
+ * on startup is not done in this case, see {@link CeQueueCleaner}.
+ */
+@ServerSide
+public class ReportFilesCleaner implements Startable {
+
+  private static final Logger LOG = Loggers.get(ReportFilesCleaner.class);
+  private static final String THREAD_NAME_PREFIX = "CE_report_files_cleaner-";
+
+  static final long UPLOAD_EXPIRATION_MS = TimeUnit.DAYS.toMillis(1);
+  // reports are saved just before insertion of their task in queue
+  static final long ORPHAN_REPORT_EXPIRATION_MS = TimeUnit.HOURS.toMillis(1);
+  private static final long DELAY_MS = TimeUnit.HOURS.toMillis(1);
+
+  private final DbClient dbClient;
+  private final ReportFiles reportFiles;
+  private final System2 system2;
+  private ScheduledExecutorService executor;
+
+  public ReportFilesCleaner(DbClient dbClient, ReportFiles reportFiles, System2 system2) {
+    this.dbClient = dbClient;
+    this.reportFiles = reportFiles;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        clean();
+      }
+    }, DELAY_MS, DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  void clean() {
+    try {
+      reportFiles.deleteUploadsNotModifiedSince(system2.now() - UPLOAD_EXPIRATION_MS);
+      deleteOrphanReports();
+    } catch (Exception e) {
+      // do not stop the schedule, files will be deleted by next execution
+      LOG.warn("Fail to delete expired files of reports", e);
+    }
+  }
+
+  private void deleteOrphanReports() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      for (String uuid : reportFiles.listUuidsNotModifiedSince(system2.now() - ORPHAN_REPORT_EXPIRATION_MS)) {
+        if (!dbClient.ceQueueDao().selectByUuid(dbSession, uuid).isPresent()) {
+          LOG.debug("Delete report {} which is not in queue", uuid);
+          reportFiles.deleteIfExists(uuid);
+        }
+      }
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+}
@@ -19,24 +19,54 @@
  */
 package org.sonar.server.computation.queue.report;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.Files;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.AgeFileFilter;
+import org.apache.commons.io.filefilter.AndFileFilter;
+import org.apache.commons.io.filefilter.SuffixFileFilter;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.config.Settings;
 import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.process.ProcessProperties;
+import org.sonar.server.computation.configuration.CeConfigurationImpl;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 
+/**
+ * Analysis reports waiting to be processed by the Compute Engine, and reports being uploaded by parts. They are stored
+ * in the directory defined by property {@link CeConfigurationImpl#CE_SHARED_PATH_PROPERTY} when the Compute Engine is
+ * clustered, so that they can be processed by any node, else in the data directory of the server.
+ */
 @ServerSide
 public class ReportFiles {
 
+  private static final Logger LOG = Loggers.get(ReportFiles.class);
   private static final String ZIP_EXTENSION = "zip";
+  private static final String OWNER_EXTENSION = "properties";
+  private static final String OWNER_PROJECT_KEY = "projectKey";
+  private static final String OWNER_LOGIN = "login";
+  private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[\\w\\-]{1,40}");
 
   private final Settings settings;
 
@@ -55,6 +85,161 @@ public class ReportFiles {
     }
   }
 
+  /**
+   * Appends a part of report to the upload {@code uploadId}, at the given offset, and returns the
+   * number of bytes of the upload. If the upload is already bigger than offset, then it is truncated,
+   * so that a part can be sent again after a failure. The part is not kept if its MD5 checksum
+   * is not {@code md5Hex}.
+   * <p/>
+   * The first part binds the upload to the project and to the user, so that it can't be altered
+   * or submitted on behalf of someone else.
+   */
+  public long appendPart(String uploadId, String projectKey, @Nullable String login, long offset, InputStream partInput, String md5Hex) {
+    File file = fileForUpload(uploadId);
+    try {
+      checkOrSaveOwner(uploadId, projectKey, login);
+    } catch (RuntimeException e) {
+      IOUtils.closeQuietly(partInput);
+      throw e;
+    }
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      checkArgument(offset <= output.length(), "Offset %s is greater than the size of upload %s (%s bytes)", offset, uploadId, output.length());
+      output.setLength(offset);
+      output.seek(offset);
+      HashingInputStream hashingInput = new HashingInputStream(Hashing.md5(), partInput);
+      byte[] buffer = new byte[64 * 1024];
+      int read = hashingInput.read(buffer);
+      while (read >= 0) {
+        output.write(buffer, 0, read);
+        read = hashingInput.read(buffer);
+      }
+      if (!hashingInput.hash().equals(HashCode.fromString(md5Hex.toLowerCase()))) {
+        output.setLength(offset);
+        throw new IllegalArgumentException(format("Checksum of part at offset %d of upload %s does not match", offset, uploadId));
+      }
+      return output.length();
+    } catch (IOException e) {
+      truncateQuietly(file, offset);
+      throw new IllegalStateException(format("Fail to append part to file: %s", file.getAbsolutePath()), e);
+    } finally {
+      IOUtils.closeQuietly(partInput);
+    }
+  }
+
+  /**
+   * Verifies the owner and the MD5 checksum of the upload {@code uploadId} then moves it to the report of the given task.
+   */
+  public void saveUpload(String taskUuid, String uploadId, String projectKey, @Nullable String login, String md5Hex) {
+    File uploadFile = fileForUpload(uploadId);
+    checkArgument(uploadFile.exists(), "Upload %s does not exist", uploadId);
+    checkOwner(uploadId, projectKey, login);
+    File reportFile = fileForUuid(taskUuid);
+    try {
+      HashCode hash = Files.hash(uploadFile, Hashing.md5());
+      if (!hash.equals(HashCode.fromString(md5Hex.toLowerCase()))) {
+        org.sonar.core.util.FileUtils.deleteQuietly(uploadFile);
+        throw new IllegalArgumentException(format("Checksum of upload %s does not match", uploadId));
+      }
+      FileUtils.moveFile(uploadFile, reportFile);
+      org.sonar.core.util.FileUtils.deleteQuietly(fileForUploadOwner(uploadId));
+    } catch (IOException e) {
+      org.sonar.core.util.FileUtils.deleteQuietly(reportFile);
+      throw new IllegalStateException(format("Fail to move upload %s to file: %s", uploadId, reportFile.getAbsolutePath()), e);
+    }
+  }
+
+  private void checkOrSaveOwner(String uploadId, String projectKey, @Nullable String login) {
+    File ownerFile = fileForUploadOwner(uploadId);
+    if (ownerFile.exists()) {
+      checkOwner(uploadId, projectKey, login);
+      return;
+    }
+    Properties owner = new Properties();
+    owner.setProperty(OWNER_PROJECT_KEY, projectKey);
+    owner.setProperty(OWNER_LOGIN, StringUtils.defaultString(login));
+    try (OutputStream output = new FileOutputStream(ownerFile)) {
+      owner.store(output, null);
+    } catch (IOException e) {
+      org.sonar.core.util.FileUtils.deleteQuietly(ownerFile);
+      throw new IllegalStateException(format("Fail to write file: %s", ownerFile.getAbsolutePath()), e);
+    }
+  }
+
+  private void checkOwner(String uploadId, String projectKey, @Nullable String login) {
+    File ownerFile = fileForUploadOwner(uploadId);
+    Properties owner = new Properties();
+    try (InputStream input = new FileInputStream(ownerFile)) {
+      owner.load(input);
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to read file: %s", ownerFile.getAbsolutePath()), e);
+    }
+    checkArgument(projectKey.equals(owner.getProperty(OWNER_PROJECT_KEY)) && StringUtils.defaultString(login).equals(owner.getProperty(OWNER_LOGIN)),
+      "Upload %s has been started by another user or for another project", uploadId);
+  }
+
+  /**
+   * Uploads that have not been submitted yet. They are dropped on server startup, and expired
+   * by {@link org.sonar.server.computation.queue.ReportFilesCleaner} while the server is up.
+   */
+  public void deleteUploads() {
+    File dir = uploadDir();
+    if (dir.exists()) {
+      try {
+        org.sonar.core.util.FileUtils.cleanDirectory(dir);
+      } catch (Exception e) {
+        throw new IllegalStateException(format("Fail to clean directory: %s", dir.getAbsolutePath()), e);
+      }
+    }
+  }
+
+  /**
+   * Deletes the uploads which have not received any part since the given date. They are considered
+   * as abandoned by scanners. Safe to be called by several nodes sharing the upload directory, as
+   * the uploads still in progress are not touched.
+   */
+  public void deleteUploadsNotModifiedSince(long date) {
+    File dir = uploadDir();
+    if (!dir.exists()) {
+      return;
+    }
+    Collection<File> files = FileUtils.listFiles(dir, new AgeFileFilter(date), null);
+    for (File file : files) {
+      String uploadId = FilenameUtils.getBaseName(file.getName());
+      if (OWNER_EXTENSION.equals(FilenameUtils.getExtension(file.getName())) && new File(dir, format("%s.%s", uploadId, ZIP_EXTENSION)).exists()) {
+        // the owner is written with the first part, the upload itself is the one to be checked
+        continue;
+      }
+      LOG.debug("Delete abandoned upload {}", uploadId);
+      org.sonar.core.util.FileUtils.deleteQuietly(file);
+      if (ZIP_EXTENSION.equals(FilenameUtils.getExtension(file.getName()))) {
+        org.sonar.core.util.FileUtils.deleteQuietly(new File(dir, format("%s.%s", uploadId, OWNER_EXTENSION)));
+      }
+    }
+  }
+
+  private File fileForUploadOwner(String uploadId) {
+    return new File(fileForUpload(uploadId).getParentFile(), format("%s.%s", uploadId, OWNER_EXTENSION));
+  }
+
+  private File fileForUpload(String uploadId) {
+    checkArgument(UPLOAD_ID_PATTERN.matcher(uploadId).matches(), "Invalid upload id: %s", uploadId);
+    File dir = uploadDir();
+    try {
+      FileUtils.forceMkdir(dir);
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to create directory: %s", dir.getAbsolutePath()), e);
+    }
+    return new File(dir, format("%s.%s", uploadId, ZIP_EXTENSION));
+  }
+
+  private static void truncateQuietly(File file, long length) {
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.setLength(length);
+    } catch (IOException e) {
+      // the part will be sent again by client
+    }
+  }
+
   public void deleteIfExists(String taskUuid) {
     org.sonar.core.util.FileUtils.deleteQuietly(fileForUuid(taskUuid));
   }
@@ -71,7 +256,19 @@ public class ReportFiles {
   }
 
   private File reportDir() {
-    return new File(settings.getString(ProcessProperties.PATH_DATA), "ce/reports");
+    return new File(baseDir(), "ce/reports");
+  }
+
+  private File uploadDir() {
+    return new File(baseDir(), "ce/uploads");
+  }
+
+  private File baseDir() {
+    String sharedPath = settings.getString(CeConfigurationImpl.CE_SHARED_PATH_PROPERTY);
+    if (StringUtils.isNotBlank(sharedPath)) {
+      return new File(sharedPath.trim());
+    }
+    return new File(settings.getString(ProcessProperties.PATH_DATA));
   }
 
   /**
@@ -93,4 +290,19 @@ public class ReportFiles {
     }
     return uuids;
   }
+
+  /**
+   * Same as {@link #listUuids()} but restricted to the reports which have not been modified since the given date
+   */
+  public List<String> listUuidsNotModifiedSince(long date) {
+    List<String> uuids = new ArrayList<>();
+    File dir = reportDir();
+    if (dir.exists()) {
+      Collection<File> files = FileUtils.listFiles(dir, new AndFileFilter(new SuffixFileFilter("." + ZIP_EXTENSION), new AgeFileFilter(date)), null);
+      for (File file : files) {
+        uuids.add(FilenameUtils.getBaseName(file.getName()));
+      }
+    }
+    return uuids;
+  }
 }
@@ -56,6 +56,40 @@ public class ReportSubmitter {
   }
 
   public CeTask submit(String projectKey, @Nullable String projectBranch, @Nullable String projectName, InputStream reportInput) {
+    ComponentDto project = getOrProvisionProject(projectKey, projectBranch, projectName);
+
+    // the report file must be saved before submitting the task
+    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+    reportFiles.save(submit.getUuid(), reportInput);
+    return submit(submit, project);
+  }
+
+  /**
+   * Appends a part of the report uploaded by parts. See {@link ReportFiles#appendPart(String, String, String, long, InputStream, String)}.
+   * The project is not provisioned until the upload is submitted.
+   */
+  public long appendPart(String projectKey, @Nullable String projectBranch, String uploadId, long offset, InputStream partInput, String md5Hex) {
+    String effectiveProjectKey = ComponentKeys.createKey(projectKey, projectBranch);
+    if (componentService.getNullableByKey(effectiveProjectKey) == null) {
+      userSession.checkPermission(SCAN_EXECUTION);
+    } else {
+      userSession.checkComponentPermission(SCAN_EXECUTION, projectKey);
+    }
+    return reportFiles.appendPart(uploadId, effectiveProjectKey, userSession.getLogin(), offset, partInput, md5Hex);
+  }
+
+  /**
+   * Submits the report uploaded by parts, once its owner and its checksum are verified.
+   */
+  public CeTask submitUpload(String projectKey, @Nullable String projectBranch, @Nullable String projectName, String uploadId, String md5Hex) {
+    ComponentDto project = getOrProvisionProject(projectKey, projectBranch, projectName);
+
+    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+    reportFiles.saveUpload(submit.getUuid(), uploadId, ComponentKeys.createKey(projectKey, projectBranch), userSession.getLogin(), md5Hex);
+    return submit(submit, project);
+  }
+
+  private ComponentDto getOrProvisionProject(String projectKey, @Nullable String projectBranch, @Nullable String projectName) {
     String effectiveProjectKey = ComponentKeys.createKey(projectKey, projectBranch);
     ComponentDto project = componentService.getNullableByKey(effectiveProjectKey);
     if (project == null) {
@@ -73,11 +107,10 @@ public class ReportSubmitter {
       // the project exists -> require global or project permission
       userSession.checkComponentPermission(SCAN_EXECUTION, projectKey);
     }
+    return project;
+  }
 
-    // the report file must be saved before submitting the task
-    CeTaskSubmit.Builder submit = queue.prepareSubmit();
-    reportFiles.save(submit.getUuid(), reportInput);
-
+  private CeTask submit(CeTaskSubmit.Builder submit, ComponentDto project) {
     submit.setType(CeTaskTypes.REPORT);
     submit.setComponentUuid(project.uuid());
     submit.setSubmitterLogin(userSession.getLogin());
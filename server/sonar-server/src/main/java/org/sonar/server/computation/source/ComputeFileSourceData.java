@@ -32,6 +32,10 @@ public class ComputeFileSourceData {
   private final Iterator<String> linesIterator;
 
   private final int numberOfLines;
+  /**
+   * Builder reused for every line, so that only the built {@link DbFileSources.Line} is kept for each line
+   */
+  private final DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
   private int currentLine;
 
   public ComputeFileSourceData(Iterator<String> sourceLinesIterator, List<LineReader> dataLineReaders, int numberOfLines) {
@@ -54,12 +58,13 @@ public class ComputeFileSourceData {
     data.linesHashesComputer.addLine(source);
     data.sourceHashComputer.addLine(source, hasNextLine);
 
-    DbFileSources.Line.Builder lineBuilder = data.fileSourceBuilder.addLinesBuilder()
+    lineBuilder.clear()
       .setSource(source)
       .setLine(currentLine);
     for (LineReader lineReader : lineReaders) {
       lineReader.read(lineBuilder);
     }
+    data.fileSourceBuilder.addLines(lineBuilder.build());
   }
 
   public static class Data {
@@ -23,7 +23,6 @@ import com.google.common.collect.ImmutableMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.batch.protocol.Constants;
@@ -56,17 +55,20 @@ public class HighlightingLineReader implements LineReader {
     .build();
 
   private final Component file;
-  private final Iterator<BatchReport.SyntaxHighlighting> lineHighlightingIterator;
   private final RangeOffsetConverter rangeOffsetConverter;
-  private final List<BatchReport.SyntaxHighlighting> highlightingList;
-
-  private BatchReport.SyntaxHighlighting currentItem;
+  private final List<BatchReport.SyntaxHighlighting> highlightings;
+  private final TextRangesPerLine highlightingIndexesPerLine;
+  /**
+   * A highlighting is not processed anymore once it has been found empty on a line
+   */
+  private final boolean[] completedHighlightings;
 
   public HighlightingLineReader(Component file, Iterator<BatchReport.SyntaxHighlighting> lineHighlightingIterator, RangeOffsetConverter rangeOffsetConverter) {
     this.file = file;
-    this.lineHighlightingIterator = lineHighlightingIterator;
     this.rangeOffsetConverter = rangeOffsetConverter;
-    this.highlightingList = newArrayList();
+    this.highlightings = newArrayList(lineHighlightingIterator);
+    this.highlightingIndexesPerLine = buildHighlightingIndexesPerLine(highlightings);
+    this.completedHighlightings = new boolean[highlightings.size()];
   }
 
   @Override
@@ -84,38 +86,39 @@ public class HighlightingLineReader implements LineReader {
 
   private void processHighlightings(DbFileSources.Line.Builder lineBuilder) {
     int line = lineBuilder.getLine();
-    StringBuilder highlighting = new StringBuilder();
-
-    incrementHighlightingListMatchingLine(line);
-    for (Iterator<BatchReport.SyntaxHighlighting> syntaxHighlightingIterator = highlightingList.iterator(); syntaxHighlightingIterator.hasNext();) {
-      processHighlighting(syntaxHighlightingIterator, highlighting, lineBuilder);
-    }
-    if (highlighting.length() > 0) {
-      lineBuilder.setHighlighting(highlighting.toString());
-    }
-  }
+    int lineLength = lineBuilder.getSource().length();
+    StringBuilder highlighting = null;
 
-  private void processHighlighting(Iterator<BatchReport.SyntaxHighlighting> syntaxHighlightingIterator, StringBuilder highlighting,
-    DbFileSources.Line.Builder lineBuilder) {
-    BatchReport.SyntaxHighlighting syntaxHighlighting = syntaxHighlightingIterator.next();
-    int line = lineBuilder.getLine();
-    BatchReport.TextRange range = syntaxHighlighting.getRange();
-    if (range.getStartLine() <= line) {
-      String offsets = rangeOffsetConverter.offsetToString(syntaxHighlighting.getRange(), line, lineBuilder.getSource().length());
+    for (int entry = highlightingIndexesPerLine.firstEntry(line); entry < highlightingIndexesPerLine.endEntry(line); entry++) {
+      int highlightingIndex = highlightingIndexesPerLine.value(entry);
+      if (completedHighlightings[highlightingIndex]) {
+        continue;
+      }
+      String offsets = rangeOffsetConverter.offsetToString(highlightingIndexesPerLine.range(entry), line, lineLength);
       if (offsets.isEmpty()) {
-        syntaxHighlightingIterator.remove();
+        completedHighlightings[highlightingIndex] = true;
       } else {
-        if (highlighting.length() > 0) {
+        if (highlighting == null) {
+          highlighting = new StringBuilder();
+        } else {
           highlighting.append(SYMBOLS_SEPARATOR);
         }
         highlighting.append(offsets)
           .append(OFFSET_SEPARATOR)
-          .append(getCssClass(syntaxHighlighting.getType()));
-        if (range.getEndLine() == line) {
-          syntaxHighlightingIterator.remove();
-        }
+          .append(getCssClass(highlightings.get(highlightingIndex).getType()));
       }
     }
+    if (highlighting != null) {
+      lineBuilder.setHighlighting(highlighting.toString());
+    }
+  }
+
+  private static TextRangesPerLine buildHighlightingIndexesPerLine(List<BatchReport.SyntaxHighlighting> highlightings) {
+    TextRangesPerLine.Builder builder = TextRangesPerLine.builder();
+    for (int i = 0; i < highlightings.size(); i++) {
+      builder.add(highlightings.get(i).getRange(), i);
+    }
+    return builder.build();
   }
 
   private static String getCssClass(Constants.HighlightingType type) {
@@ -127,26 +130,4 @@ public class HighlightingLineReader implements LineReader {
     }
   }
 
-  private void incrementHighlightingListMatchingLine(int line) {
-    BatchReport.SyntaxHighlighting syntaxHighlighting = getNextHighlightingMatchingLine(line);
-    while (syntaxHighlighting != null) {
-      highlightingList.add(syntaxHighlighting);
-      this.currentItem = null;
-      syntaxHighlighting = getNextHighlightingMatchingLine(line);
-    }
-  }
-
-  @CheckForNull
-  private BatchReport.SyntaxHighlighting getNextHighlightingMatchingLine(int line) {
-    // Get next element (if exists)
-    if (currentItem == null && lineHighlightingIterator.hasNext()) {
-      currentItem = lineHighlightingIterator.next();
-    }
-    // Return current element if lines match
-    if (currentItem != null && currentItem.getRange().getStartLine() == line) {
-      return currentItem;
-    }
-    return null;
-  }
-
 }
@@ -19,16 +19,11 @@
  */
 package org.sonar.server.computation.source;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.SetMultimap;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.batch.protocol.output.BatchReport;
@@ -45,8 +40,7 @@ public class SymbolsLineReader implements LineReader {
 
   private final Component file;
   private final RangeOffsetConverter rangeOffsetConverter;
-  private final Map<BatchReport.Symbol, Integer> idsBySymbol;
-  private final SetMultimap<Integer, BatchReport.Symbol> symbolsPerLine;
+  private final TextRangesPerLine symbolIdsPerLine;
 
   private boolean areSymbolsValid = true;
 
@@ -57,8 +51,7 @@ public class SymbolsLineReader implements LineReader {
     // Sort symbols to have deterministic id generation
     Collections.sort(symbols, SymbolsComparator.INSTANCE);
 
-    this.idsBySymbol = createIdsBySymbolMap(symbols);
-    this.symbolsPerLine = buildSymbolsPerLine(symbols);
+    this.symbolIdsPerLine = buildSymbolIdsPerLine(symbols);
   }
 
   @Override
@@ -76,69 +69,43 @@ public class SymbolsLineReader implements LineReader {
 
   private void processSymbols(DbFileSources.Line.Builder lineBuilder) {
     int line = lineBuilder.getLine();
+    int lineLength = lineBuilder.getSource().length();
 
-    List<BatchReport.Symbol> lineSymbols = new ArrayList<>(this.symbolsPerLine.get(line));
-    // Sort symbols to have deterministic results and avoid false variation that would lead to an unnecessary update of the source files
-    // data
-    Collections.sort(lineSymbols, SymbolsComparator.INSTANCE);
-
-    StringBuilder symbolString = new StringBuilder();
-    for (BatchReport.Symbol lineSymbol : lineSymbols) {
-      int symbolId = idsBySymbol.get(lineSymbol);
-
-      appendSymbol(symbolString, lineSymbol.getDeclaration(), line, symbolId, lineBuilder.getSource());
-      for (BatchReport.TextRange range : lineSymbol.getReferenceList()) {
-        appendSymbol(symbolString, range, line, symbolId, lineBuilder.getSource());
-      }
-    }
-    if (symbolString.length() > 0) {
-      lineBuilder.setSymbols(symbolString.toString());
-    }
-  }
-
-  private void appendSymbol(StringBuilder lineSymbol, BatchReport.TextRange range, int line, int symbolId, String sourceLine) {
-    if (matchLine(range, line)) {
-      String offsets = rangeOffsetConverter.offsetToString(range, line, sourceLine.length());
+    // entries of the line are already ordered by symbol id, then by declaration and references of each symbol, which gives
+    // deterministic results and avoids false variation that would lead to an unnecessary update of the source files data
+    StringBuilder symbolString = null;
+    for (int entry = symbolIdsPerLine.firstEntry(line); entry < symbolIdsPerLine.endEntry(line); entry++) {
+      String offsets = rangeOffsetConverter.offsetToString(symbolIdsPerLine.range(entry), line, lineLength);
       if (!offsets.isEmpty()) {
-        if (lineSymbol.length() > 0) {
-          lineSymbol.append(SYMBOLS_SEPARATOR);
+        if (symbolString == null) {
+          symbolString = new StringBuilder();
+        } else {
+          symbolString.append(SYMBOLS_SEPARATOR);
         }
-        lineSymbol.append(offsets)
+        symbolString.append(offsets)
           .append(OFFSET_SEPARATOR)
-          .append(symbolId);
+          .append(symbolIdsPerLine.value(entry));
       }
     }
-  }
-
-  private static boolean matchLine(BatchReport.TextRange range, int line) {
-    return range.getStartLine() <= line && range.getEndLine() >= line;
-  }
-
-  private static Map<BatchReport.Symbol, Integer> createIdsBySymbolMap(List<BatchReport.Symbol> symbols) {
-    Map<BatchReport.Symbol, Integer> map = new HashMap<>(symbols.size());
-    int symbolId = 1;
-    for (BatchReport.Symbol symbol : symbols) {
-      map.put(symbol, symbolId);
-      symbolId++;
+    if (symbolString != null) {
+      lineBuilder.setSymbols(symbolString.toString());
     }
-    return map;
   }
 
-  private static SetMultimap<Integer, BatchReport.Symbol> buildSymbolsPerLine(List<BatchReport.Symbol> symbols) {
-    SetMultimap<Integer, BatchReport.Symbol> res = HashMultimap.create();
+  /**
+   * Symbol ids are generated from the order of the (sorted) symbols, starting at 1
+   */
+  private static TextRangesPerLine buildSymbolIdsPerLine(List<BatchReport.Symbol> symbols) {
+    TextRangesPerLine.Builder builder = TextRangesPerLine.builder();
+    int symbolId = 1;
     for (BatchReport.Symbol symbol : symbols) {
-      putForTextRange(res, symbol, symbol.getDeclaration());
+      builder.add(symbol.getDeclaration(), symbolId);
       for (BatchReport.TextRange textRange : symbol.getReferenceList()) {
-        putForTextRange(res, symbol, textRange);
+        builder.add(textRange, symbolId);
       }
+      symbolId++;
     }
-    return res;
-  }
-
-  private static void putForTextRange(SetMultimap<Integer, BatchReport.Symbol> res, BatchReport.Symbol symbol, BatchReport.TextRange declaration) {
-    for (int i = declaration.getStartLine(); i <= declaration.getEndLine(); i++) {
-      res.put(i, symbol);
-    }
+    return builder.build();
   }
 
   private enum SymbolsComparator implements Comparator<BatchReport.Symbol> {
@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.source;
+
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.batch.protocol.output.BatchReport;
+
+import static java.lang.Math.max;
+
+/**
+ * Index of {@link BatchReport.TextRange}s by line, built once from the report so that line readers don't have to
+ * scan or re-sort ranges for each line of the file.
+ * <p>
+ * Each range is associated to an {@code int} value chosen by the caller (eg. an id or an index in another array). Entries
+ * of a line are stored in a single array, ordered as the ranges were added, and each line points to the first entry
+ * of the next line (same layout as the children of {@link org.sonar.server.computation.component.CompactComponentTree}).
+ * </p>
+ */
+final class TextRangesPerLine {
+
+  private static final TextRangesPerLine EMPTY = new TextRangesPerLine(new int[] {0}, new BatchReport.TextRange[0], new int[0]);
+
+  /**
+   * {@code firstEntryByLine[line]} is the index of the first entry of line {@code line} and
+   * {@code firstEntryByLine[line + 1]} the index after the last entry of this line.
+   */
+  private final int[] firstEntryByLine;
+  private final BatchReport.TextRange[] rangeByEntry;
+  private final int[] valueByEntry;
+
+  private TextRangesPerLine(int[] firstEntryByLine, BatchReport.TextRange[] rangeByEntry, int[] valueByEntry) {
+    this.firstEntryByLine = firstEntryByLine;
+    this.rangeByEntry = rangeByEntry;
+    this.valueByEntry = valueByEntry;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  int firstEntry(int line) {
+    return line < 1 || line >= firstEntryByLine.length - 1 ? 0 : firstEntryByLine[line];
+  }
+
+  /**
+   * Index after the last entry of the line, ie. the line has no entry when {@code endEntry(line) == firstEntry(line)}
+   */
+  int endEntry(int line) {
+    return line < 1 || line >= firstEntryByLine.length - 1 ? 0 : firstEntryByLine[line + 1];
+  }
+
+  BatchReport.TextRange range(int entry) {
+    return rangeByEntry[entry];
+  }
+
+  int value(int entry) {
+    return valueByEntry[entry];
+  }
+
+  static final class Builder {
+    private final List<BatchReport.TextRange> ranges = new ArrayList<>();
+    private final List<Integer> values = new ArrayList<>();
+    private int maxLine = 0;
+
+    private Builder() {
+      // use TextRangesPerLine.builder()
+    }
+
+    Builder add(BatchReport.TextRange range, int value) {
+      ranges.add(range);
+      values.add(value);
+      maxLine = max(maxLine, range.getEndLine());
+      return this;
+    }
+
+    TextRangesPerLine build() {
+      if (ranges.isEmpty()) {
+        return EMPTY;
+      }
+      // one slot per line (1-based) plus one to mark the end of the last line
+      int[] firstEntryByLine = new int[maxLine + 2];
+      for (BatchReport.TextRange range : ranges) {
+        for (int line = firstLine(range); line <= range.getEndLine(); line++) {
+          firstEntryByLine[line + 1]++;
+        }
+      }
+      for (int line = 1; line < firstEntryByLine.length; line++) {
+        firstEntryByLine[line] += firstEntryByLine[line - 1];
+      }
+
+      int entryCount = firstEntryByLine[firstEntryByLine.length - 1];
+      BatchReport.TextRange[] rangeByEntry = new BatchReport.TextRange[entryCount];
+      int[] valueByEntry = new int[entryCount];
+      int[] nextEntryByLine = firstEntryByLine.clone();
+      int[] rangeValues = Ints.toArray(values);
+      for (int i = 0; i < ranges.size(); i++) {
+        BatchReport.TextRange range = ranges.get(i);
+        for (int line = firstLine(range); line <= range.getEndLine(); line++) {
+          int entry = nextEntryByLine[line]++;
+          rangeByEntry[entry] = range;
+          valueByEntry[entry] = rangeValues[i];
+        }
+      }
+      return new TextRangesPerLine(firstEntryByLine, rangeByEntry, valueByEntry);
+    }
+
+    private static int firstLine(BatchReport.TextRange range) {
+      return max(1, range.getStartLine());
+    }
+  }
+}
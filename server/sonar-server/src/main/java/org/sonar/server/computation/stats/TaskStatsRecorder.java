@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.stats;
+
+import com.google.common.collect.Ordering;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.sonar.db.protobuf.DbCe;
+
+/**
+ * Records the statistics of the Compute Engine task executed by the current thread, and
+ * cumulates the statistics of the computation steps of all the tasks executed since startup.
+ * Statistics are silently ignored when no task has been initialized on the current thread.
+ */
+public class TaskStatsRecorder {
+
+  private static final Ordering<DbCe.Stat> BY_DESCENDING_WALL_TIME = new Ordering<DbCe.Stat>() {
+    @Override
+    public int compare(@Nonnull DbCe.Stat left, @Nonnull DbCe.Stat right) {
+      return Long.compare(right.getWallTimeMs(), left.getWallTimeMs());
+    }
+  };
+
+  private final ThreadLocal<DbCe.TaskStats.Builder> currentTaskStats = new ThreadLocal<>();
+
+  // guarded by this
+  private final Map<String, DbCe.Stat> cumulatedStepStats = new LinkedHashMap<>();
+  private long taskCount = 0L;
+
+  /**
+   * Start recording statistics of a task. Must be called by the CE worker before processing the task.
+   */
+  public void initForTask() {
+    currentTaskStats.set(DbCe.TaskStats.newBuilder());
+  }
+
+  public void addStep(DbCe.Stat stat) {
+    DbCe.TaskStats.Builder stats = currentTaskStats.get();
+    if (stats != null) {
+      stats.addStep(stat);
+    }
+  }
+
+  public void addVisitor(DbCe.Stat stat) {
+    DbCe.TaskStats.Builder stats = currentTaskStats.get();
+    if (stats != null) {
+      stats.addVisitor(stat);
+    }
+  }
+
+  /**
+   * Stop recording statistics of the current task.
+   *
+   * @return the statistics of the task, or {@code null} if {@link #initForTask()} has not been called
+   */
+  @CheckForNull
+  public DbCe.TaskStats clearForTask() {
+    DbCe.TaskStats.Builder builder = currentTaskStats.get();
+    if (builder == null) {
+      return null;
+    }
+    currentTaskStats.remove();
+    DbCe.TaskStats stats = builder.build();
+    cumulate(stats);
+    return stats;
+  }
+
+  public synchronized long getTaskCount() {
+    return taskCount;
+  }
+
+  /**
+   * Statistics of steps cumulated over all the tasks executed since startup, sorted by descending wall time
+   */
+  public synchronized List<DbCe.Stat> getCumulatedStepStats() {
+    return BY_DESCENDING_WALL_TIME.sortedCopy(cumulatedStepStats.values());
+  }
+
+  private synchronized void cumulate(DbCe.TaskStats stats) {
+    taskCount++;
+    for (DbCe.Stat step : stats.getStepList()) {
+      DbCe.Stat cumulated = cumulatedStepStats.get(step.getName());
+      cumulatedStepStats.put(step.getName(), cumulated == null ? step : sum(cumulated, step));
+    }
+  }
+
+  private static DbCe.Stat sum(DbCe.Stat s1, DbCe.Stat s2) {
+    DbCe.Stat.Builder sum = DbCe.Stat.newBuilder()
+      .setName(s1.getName())
+      .setWallTimeMs(s1.getWallTimeMs() + s2.getWallTimeMs())
+      .setWrittenRows(s1.getWrittenRows() + s2.getWrittenRows())
+      .setReportBytesRead(s1.getReportBytesRead() + s2.getReportBytesRead());
+    if (s1.hasCpuTimeMs() && s2.hasCpuTimeMs()) {
+      sum.setCpuTimeMs(s1.getCpuTimeMs() + s2.getCpuTimeMs());
+    }
+    if (s1.hasAllocatedBytes() && s2.hasAllocatedBytes()) {
+      sum.setAllocatedBytes(s1.getAllocatedBytes() + s2.getAllocatedBytes());
+    }
+    return sum.build();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.stats;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.sonar.db.WrittenRowsCounter;
+import org.sonar.db.protobuf.DbCe;
+
+/**
+ * Snapshot of the resources consumed by the current thread since its start. The difference between
+ * two snapshots gives the resources consumed by the code executed in between.
+ * CPU time and allocated bytes are not available on all JVMs, in which case they are not
+ * part of the {@link DbCe.Stat} returned by {@link #since(String, ThreadResourceUsage)}.
+ */
+public final class ThreadResourceUsage {
+
+  private static final long UNSUPPORTED = -1L;
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final ThreadLocal<long[]> REPORT_BYTES_READ = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+
+  private final long wallTimeNanos;
+  private final long cpuTimeNanos;
+  private final long allocatedBytes;
+  private final long writtenRows;
+  private final long reportBytesRead;
+
+  private ThreadResourceUsage(long wallTimeNanos, long cpuTimeNanos, long allocatedBytes, long writtenRows, long reportBytesRead) {
+    this.wallTimeNanos = wallTimeNanos;
+    this.cpuTimeNanos = cpuTimeNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.writtenRows = writtenRows;
+    this.reportBytesRead = reportBytesRead;
+  }
+
+  public static ThreadResourceUsage current() {
+    return new ThreadResourceUsage(System.nanoTime(), currentThreadCpuTime(), currentThreadAllocatedBytes(),
+      WrittenRowsCounter.get(), REPORT_BYTES_READ.get()[0]);
+  }
+
+  /**
+   * To be called by the readers of the analysis report each time a file of the report is loaded.
+   */
+  public static void addReportBytesRead(long bytes) {
+    REPORT_BYTES_READ.get()[0] += bytes;
+  }
+
+  /**
+   * Resources consumed by the current thread since {@code start}
+   */
+  public DbCe.Stat since(String name, ThreadResourceUsage start) {
+    DbCe.Stat.Builder stat = DbCe.Stat.newBuilder()
+      .setName(name)
+      .setWallTimeMs(TimeUnit.NANOSECONDS.toMillis(wallTimeNanos - start.wallTimeNanos))
+      .setWrittenRows(writtenRows - start.writtenRows)
+      .setReportBytesRead(reportBytesRead - start.reportBytesRead);
+    if (cpuTimeNanos != UNSUPPORTED && start.cpuTimeNanos != UNSUPPORTED) {
+      stat.setCpuTimeMs(TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos - start.cpuTimeNanos));
+    }
+    if (allocatedBytes != UNSUPPORTED && start.allocatedBytes != UNSUPPORTED) {
+      stat.setAllocatedBytes(allocatedBytes - start.allocatedBytes);
+    }
+    return stat.build();
+  }
+
+  private static long currentThreadCpuTime() {
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return UNSUPPORTED;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    // extension of the standard MXBean provided by HotSpot-based JVMs
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (hotSpotBean.isThreadAllocatedMemorySupported() && hotSpotBean.isThreadAllocatedMemoryEnabled()) {
+        return hotSpotBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return UNSUPPORTED;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.server.computation.component.ComponentVisitor;
+import org.sonar.server.computation.component.TreeRootHolder;
+import org.sonar.server.computation.component.VisitorsCrawler;
+import org.sonar.server.computation.formula.Formula;
+import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
+import org.sonar.server.computation.measure.MeasureRepository;
+import org.sonar.server.computation.metric.MetricRepository;
+import org.sonar.server.computation.period.PeriodsHolder;
+
+/**
+ * A {@link ComputationStep} which computes measures with {@link Formula}s.
+ * <p>
+ * When processing a report, these steps are not executed one by one: the formulas of all of them are executed by
+ * {@link ExecuteVisitorsStep} in a single traversal of the component tree (see {@link #createVisitors}).
+ * </p>
+ */
+public abstract class AbstractFormulaComputationStep implements ComputationStep {
+
+  private final TreeRootHolder treeRootHolder;
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  @CheckForNull
+  private final PeriodsHolder periodsHolder;
+
+  protected AbstractFormulaComputationStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    @Nullable PeriodsHolder periodsHolder) {
+    this.treeRootHolder = treeRootHolder;
+    this.metricRepository = metricRepository;
+    this.measureRepository = measureRepository;
+    this.periodsHolder = periodsHolder;
+  }
+
+  /**
+   * Formulas are executed in this order on each component, so that a formula can use the measures created on the same
+   * component by the formulas which precede it.
+   */
+  public abstract List<Formula> getFormulas();
+
+  /**
+   * Visitors computing the measures which can not be computed by formulas. On each component, they are executed before
+   * the formulas.
+   */
+  public List<ComponentVisitor> getVisitors() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void execute() {
+    new VisitorsCrawler(createVisitors(metricRepository, measureRepository, periodsHolder, Collections.singletonList(this)))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Visitors executing the given steps in a single traversal of the component tree. The formulas of all steps are
+   * executed by the same {@link FormulaExecutorComponentVisitor}, which is the last of the returned visitors.
+   */
+  static List<ComponentVisitor> createVisitors(MetricRepository metricRepository, MeasureRepository measureRepository,
+    @Nullable PeriodsHolder periodsHolder, Iterable<? extends AbstractFormulaComputationStep> steps) {
+    List<ComponentVisitor> visitors = new ArrayList<>();
+    List<Formula> formulas = new ArrayList<>();
+    for (AbstractFormulaComputationStep step : steps) {
+      visitors.addAll(step.getVisitors());
+      formulas.addAll(step.getFormulas());
+    }
+    FormulaExecutorComponentVisitor.Builder builder = FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository);
+    if (periodsHolder != null) {
+      builder.withVariationSupport(periodsHolder);
+    }
+    visitors.add(builder.buildFor(formulas));
+    return visitors;
+  }
+}
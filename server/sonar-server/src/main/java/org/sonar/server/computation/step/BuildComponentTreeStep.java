@@ -19,10 +19,7 @@
  */
 package org.sonar.server.computation.step;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
 import javax.annotation.CheckForNull;
-import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.component.ComponentKeys;
@@ -32,20 +29,19 @@ import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.component.SnapshotQuery;
 import org.sonar.server.computation.analysis.MutableAnalysisMetadataHolder;
 import org.sonar.server.computation.batch.BatchReportReader;
+import org.sonar.server.computation.component.CompactComponentTree;
 import org.sonar.server.computation.component.Component;
-import org.sonar.server.computation.component.ComponentImpl;
 import org.sonar.server.computation.component.MutableTreeRootHolder;
 import org.sonar.server.computation.component.UuidFactory;
 import org.sonar.server.computation.snapshot.Snapshot;
 
-import static com.google.common.collect.Iterables.toArray;
-import static org.sonar.server.computation.component.ComponentImpl.builder;
-
 /**
  * Populates the {@link MutableTreeRootHolder} and {@link MutableAnalysisMetadataHolder} from the {@link BatchReportReader}
  */
 public class BuildComponentTreeStep implements ComputationStep {
 
+  private static final int NO_PARENT = -1;
+
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final MutableTreeRootHolder treeRootHolder;
@@ -99,6 +95,8 @@ public class BuildComponentTreeStep implements ComputationStep {
     @CheckForNull
     private final String branch;
 
+    private final CompactComponentTree.Builder treeBuilder = CompactComponentTree.builder();
+
     public ComponentRootBuilder(BatchReport.Component reportProject, UuidFactory uuidFactory, @Nullable String branch) {
       this.reportProject = reportProject;
       this.uuidFactory = uuidFactory;
@@ -106,41 +104,34 @@ public class BuildComponentTreeStep implements ComputationStep {
     }
 
     private Component build() {
-      return buildComponent(reportProject, moduleKey(reportProject, branch));
+      addComponent(reportProject, NO_PARENT, moduleKey(reportProject, branch));
+      return treeBuilder.build().getRoot();
     }
 
-    private ComponentImpl buildComponent(BatchReport.Component reportComponent, String latestModuleKey) {
+    /**
+     * Report components are read one at a time and only their compact representation is kept in memory
+     */
+    private void addComponent(BatchReport.Component reportComponent, int parentIndex, String latestModuleKey) {
+      int index;
+      String moduleKey;
       switch (reportComponent.getType()) {
         case PROJECT:
         case MODULE:
-          String moduleKey = moduleKey(reportComponent, branch);
-          return buildComponent(reportComponent, moduleKey, moduleKey);
+          moduleKey = moduleKey(reportComponent, branch);
+          index = treeBuilder.addModule(reportComponent, parentIndex, moduleKey, uuidFactory.getOrCreateForKey(moduleKey));
+          break;
         case DIRECTORY:
         case FILE:
-          return buildComponent(reportComponent, ComponentKeys.createEffectiveKey(latestModuleKey, reportComponent.getPath()), latestModuleKey);
+          moduleKey = latestModuleKey;
+          String componentKey = ComponentKeys.createEffectiveKey(latestModuleKey, reportComponent.getPath());
+          index = treeBuilder.addDirectoryOrFile(reportComponent, parentIndex, uuidFactory.getOrCreateForKey(componentKey));
+          break;
         default:
           throw new IllegalStateException(String.format("Unsupported component type '%s'", reportComponent.getType()));
       }
-    }
-
-    private ComponentImpl buildComponent(BatchReport.Component reportComponent, String componentKey, String latestModuleKey) {
-      return builder(reportComponent)
-        .addChildren(toArray(buildChildren(reportComponent, latestModuleKey), Component.class))
-        .setKey(componentKey)
-        .setUuid(uuidFactory.getOrCreateForKey(componentKey))
-        .build();
-    }
-
-    private Iterable<Component> buildChildren(BatchReport.Component component, final String latestModuleKey) {
-      return Iterables.transform(
-        component.getChildRefList(),
-        new Function<Integer, Component>() {
-          @Override
-          public Component apply(@Nonnull Integer componentRef) {
-            return buildComponent(reportReader.readComponent(componentRef), latestModuleKey);
-          }
-        }
-        );
+      for (Integer childRef : reportComponent.getChildRefList()) {
+        addComponent(reportReader.readComponent(childRef), index, moduleKey);
+      }
     }
   }
 
@@ -21,14 +21,13 @@ package org.sonar.server.computation.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
-import org.sonar.server.computation.component.PathAwareCrawler;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.Counter;
 import org.sonar.server.computation.formula.CounterInitializationContext;
 import org.sonar.server.computation.formula.CreateMeasureContext;
 import org.sonar.server.computation.formula.Formula;
-import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.formula.counter.IntSumCounter;
 import org.sonar.server.computation.formula.counter.SumCounter;
 import org.sonar.server.computation.measure.Measure;
@@ -48,15 +47,14 @@ import static org.sonar.server.computation.formula.SumFormula.createIntSumFormul
 /**
  * Computes comments measures on files and then aggregates them on higher components.
  */
-public class CommentMeasuresStep implements ComputationStep {
+public class CommentMeasuresStep extends AbstractFormulaComputationStep {
 
-  private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
   private final ImmutableList<Formula> formulas;
 
   public CommentMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
-    this.treeRootHolder = treeRootHolder;
+    super(treeRootHolder, metricRepository, measureRepository, null);
     this.metricRepository = metricRepository;
     this.measureRepository = measureRepository;
     this.formulas = ImmutableList.<Formula>of(
@@ -66,10 +64,8 @@ public class CommentMeasuresStep implements ComputationStep {
   }
 
   @Override
-  public void execute() {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
-        .visit(treeRootHolder.getRoot());
+  public List<Formula> getFormulas() {
+    return formulas;
   }
 
   private class CommentDensityFormula implements Formula<IntSumCounter> {
@@ -20,12 +20,11 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableList;
-import org.sonar.server.computation.component.PathAwareCrawler;
+import java.util.List;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.AverageFormula;
 import org.sonar.server.computation.formula.DistributionFormula;
 import org.sonar.server.computation.formula.Formula;
-import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.measure.MeasureRepository;
 import org.sonar.server.computation.metric.MetricRepository;
 
@@ -46,7 +45,7 @@ import static org.sonar.server.computation.formula.SumFormula.createIntSumFormul
 /**
  * Computes complexity measures on files and then aggregates them on higher components.
  */
-public class ComplexityMeasuresStep implements ComputationStep {
+public class ComplexityMeasuresStep extends AbstractFormulaComputationStep {
 
   private static final ImmutableList<Formula> FORMULAS = ImmutableList.<Formula>of(
     createIntSumFormula(COMPLEXITY_KEY),
@@ -68,21 +67,13 @@ public class ComplexityMeasuresStep implements ComputationStep {
       .setByMetricKey(FUNCTIONS_KEY)
       .build());
 
-  private final TreeRootHolder treeRootHolder;
-  private final MetricRepository metricRepository;
-  private final MeasureRepository measureRepository;
-
   public ComplexityMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
-    this.treeRootHolder = treeRootHolder;
-    this.metricRepository = metricRepository;
-    this.measureRepository = measureRepository;
+    super(treeRootHolder, metricRepository, measureRepository, null);
   }
 
   @Override
-  public void execute() {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
-      .visit(treeRootHolder.getRoot());
+  public List<Formula> getFormulas() {
+    return FORMULAS;
   }
 
   @Override
@@ -22,22 +22,34 @@ package org.sonar.server.computation.step;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
+import org.sonar.server.computation.stats.ThreadResourceUsage;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
   private final ComputationSteps steps;
+  private final TaskStatsRecorder statsRecorder;
 
-  public ComputationStepExecutor(ComputationSteps steps) {
+  public ComputationStepExecutor(ComputationSteps steps, TaskStatsRecorder statsRecorder) {
     this.steps = steps;
+    this.statsRecorder = statsRecorder;
   }
 
   public void execute() {
     Profiler stepProfiler = Profiler.create(LOGGER);
     for (ComputationStep step : steps.instances()) {
       stepProfiler.start();
-      step.execute();
-      stepProfiler.stopInfo(step.getDescription());
+      ThreadResourceUsage start = ThreadResourceUsage.current();
+      String description;
+      try {
+        step.execute();
+      } finally {
+        // resources consumed by a failing step are recorded too
+        description = step.getDescription();
+        statsRecorder.addStep(ThreadResourceUsage.current().since(description, start));
+      }
+      stepProfiler.stopInfo(description);
     }
   }
 }
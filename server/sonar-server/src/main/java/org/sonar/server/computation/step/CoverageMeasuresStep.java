@@ -20,10 +20,9 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableList;
-import org.sonar.server.computation.component.PathAwareCrawler;
+import java.util.List;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.Formula;
-import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.formula.coverage.LinesAndConditionsWithUncoveredFormula;
 import org.sonar.server.computation.formula.coverage.LinesAndConditionsWithUncoveredMetricKeys;
 import org.sonar.server.computation.formula.coverage.SingleWithUncoveredFormula;
@@ -57,7 +56,7 @@ import static org.sonar.server.computation.formula.SumFormula.createIntSumFormul
 /**
  * Computes coverage measures on files and then aggregates them on higher components.
  */
-public class CoverageMeasuresStep implements ComputationStep {
+public class CoverageMeasuresStep extends AbstractFormulaComputationStep {
   private static final ImmutableList<Formula> COVERAGE_FORMULAS = ImmutableList.<Formula>of(
     // unit test
     createIntSumFormula(LINES_TO_COVER_KEY),
@@ -84,21 +83,13 @@ public class CoverageMeasuresStep implements ComputationStep {
     new OverallBranchCoverageFormula(),
     new OverallLineCoverageFormula());
 
-  private final TreeRootHolder treeRootHolder;
-  private final MetricRepository metricRepository;
-  private final MeasureRepository measureRepository;
-
   public CoverageMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
-    this.treeRootHolder = treeRootHolder;
-    this.metricRepository = metricRepository;
-    this.measureRepository = measureRepository;
+    super(treeRootHolder, metricRepository, measureRepository, null);
   }
 
   @Override
-  public void execute() {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(COVERAGE_FORMULAS))
-        .visit(treeRootHolder.getRoot());
+  public List<Formula> getFormulas() {
+    return COVERAGE_FORMULAS;
   }
 
   private static class CodeCoverageFormula extends LinesAndConditionsWithUncoveredFormula {
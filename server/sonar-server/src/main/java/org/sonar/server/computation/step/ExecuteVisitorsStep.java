@@ -19,24 +19,54 @@
  */
 package org.sonar.server.computation.step;
 
+import com.google.common.collect.ImmutableList;
 import java.util.List;
 import java.util.Map;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.component.ComponentVisitor;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.component.VisitorsCrawler;
+import org.sonar.server.computation.measure.MeasureRepository;
+import org.sonar.server.computation.metric.MetricRepository;
+import org.sonar.server.computation.period.PeriodsHolder;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 
+/**
+ * Executes the component visitors in a single traversal of the component tree. When processing a report, the formulas
+ * of the {@link AbstractFormulaComputationStep}s are executed during the same traversal, before the visitors, so that
+ * visitors can use the measures computed by formulas.
+ */
 public class ExecuteVisitorsStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(ExecuteVisitorsStep.class);
 
   private final TreeRootHolder treeRootHolder;
   private final List<ComponentVisitor> visitors;
+  private final TaskStatsRecorder statsRecorder;
 
-  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors) {
+  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors, TaskStatsRecorder statsRecorder) {
     this.treeRootHolder = treeRootHolder;
     this.visitors = visitors;
+    this.statsRecorder = statsRecorder;
+  }
+
+  /**
+   * Constructor used by Pico when processing a report. Formula steps are executed in the order defined by
+   * {@link ReportComputationSteps#orderedFormulaStepClasses()}.
+   */
+  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    PeriodsHolder periodsHolder, ReportComputationSteps reportComputationSteps, List<ComponentVisitor> visitors, TaskStatsRecorder statsRecorder) {
+    this(treeRootHolder, metricRepository, measureRepository, periodsHolder, reportComputationSteps.formulaStepInstances(), visitors, statsRecorder);
+  }
+
+  ExecuteVisitorsStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    PeriodsHolder periodsHolder, List<AbstractFormulaComputationStep> formulaSteps, List<ComponentVisitor> visitors, TaskStatsRecorder statsRecorder) {
+    this(treeRootHolder, ImmutableList.<ComponentVisitor>builder()
+      .addAll(AbstractFormulaComputationStep.createVisitors(metricRepository, measureRepository, periodsHolder, formulaSteps))
+      .addAll(visitors)
+      .build(), statsRecorder);
   }
 
   @Override
@@ -46,16 +76,27 @@ public class ExecuteVisitorsStep implements ComputationStep {
 
   @Override
   public void execute() {
-    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors);
+    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, true);
     visitorsCrawler.visit(treeRootHolder.getRoot());
-    logVisitorExecutionDurations(visitors, visitorsCrawler);
+    recordVisitorExecutionDurations(visitorsCrawler);
   }
 
-  private static void logVisitorExecutionDurations(List<ComponentVisitor> visitors, VisitorsCrawler visitorsCrawler) {
-    LOGGER.info("  Execution time for each component visitor:");
+  /**
+   * Only the wall time is recorded for visitors, as they are interleaved on each component of the tree
+   */
+  private void recordVisitorExecutionDurations(VisitorsCrawler visitorsCrawler) {
+    boolean logDurations = LOGGER.isDebugEnabled();
+    if (logDurations) {
+      LOGGER.debug("  Execution time for each component visitor:");
+    }
     Map<ComponentVisitor, Long> cumulativeDurations = visitorsCrawler.getCumulativeDurations();
     for (ComponentVisitor visitor : visitors) {
-      LOGGER.info("  - {} | time={}ms", visitor.getClass().getSimpleName(), cumulativeDurations.get(visitor));
+      String visitorName = visitor.getClass().getSimpleName();
+      Long duration = cumulativeDurations.get(visitor);
+      statsRecorder.addVisitor(DbCe.Stat.newBuilder().setName(visitorName).setWallTimeMs(duration).build());
+      if (logDurations) {
+        LOGGER.debug("  - {} | time={}ms", visitorName, duration);
+      }
     }
   }
 }
@@ -20,27 +20,35 @@
 package org.sonar.server.computation.step;
 
 import org.sonar.db.component.ResourceIndexDao;
+import org.sonar.server.component.index.ComponentIndexer;
+import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.DbIdsRepository;
 import org.sonar.server.computation.component.TreeRootHolder;
 
 /**
- * Components are currently indexed in db table RESOURCE_INDEX, not in Elasticsearch
+ * Components are indexed in Elasticsearch, which is used by web service api/components/search.
+ * They are still indexed in db table RESOURCE_INDEX too, as long as it's used by the other searches of components.
  */
 public class IndexComponentsStep implements ComputationStep {
 
   private final ResourceIndexDao resourceIndexDao;
   private final DbIdsRepository dbIdsRepository;
   private final TreeRootHolder treeRootHolder;
+  private final ComponentIndexer componentIndexer;
 
-  public IndexComponentsStep(ResourceIndexDao resourceIndexDao, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder) {
+  public IndexComponentsStep(ResourceIndexDao resourceIndexDao, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
+    ComponentIndexer componentIndexer) {
     this.resourceIndexDao = resourceIndexDao;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
+    this.componentIndexer = componentIndexer;
   }
 
   @Override
   public void execute() {
-    resourceIndexDao.indexProject(dbIdsRepository.getComponentId(treeRootHolder.getRoot()));
+    Component root = treeRootHolder.getRoot();
+    resourceIndexDao.indexProject(dbIdsRepository.getComponentId(root));
+    componentIndexer.index(root.getUuid());
   }
 
   @Override
@@ -33,12 +33,10 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.component.Component;
-import org.sonar.server.computation.component.PathAwareCrawler;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.CounterInitializationContext;
 import org.sonar.server.computation.formula.CreateMeasureContext;
 import org.sonar.server.computation.formula.Formula;
-import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.formula.VariationSumFormula;
 import org.sonar.server.computation.formula.counter.IntVariationValue;
 import org.sonar.server.computation.formula.coverage.LinesAndConditionsWithUncoveredMetricKeys;
@@ -61,7 +59,7 @@ import static org.sonar.server.computation.period.PeriodPredicates.viewsRestrict
 /**
  * Computes measures related to the New Coverage. These measures do not have values, only variations.
  */
-public class NewCoverageMeasuresStep implements ComputationStep {
+public class NewCoverageMeasuresStep extends AbstractFormulaComputationStep {
 
   private static final List<Formula> FORMULAS = ImmutableList.<Formula>of(
     // UT coverage
@@ -77,10 +75,6 @@ public class NewCoverageMeasuresStep implements ComputationStep {
     new NewOverallBranchCoverageFormula(),
     new NewOverallLineCoverageFormula());
 
-  private final TreeRootHolder treeRootHolder;
-  private final PeriodsHolder periodsHolder;
-  private final MetricRepository metricRepository;
-  private final MeasureRepository measureRepository;
   @CheckForNull
   private final ScmInfoRepository scmInfoRepository;
 
@@ -89,10 +83,7 @@ public class NewCoverageMeasuresStep implements ComputationStep {
    */
   public NewCoverageMeasuresStep(TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder,
     MeasureRepository measureRepository, final MetricRepository metricRepository, ScmInfoRepository scmInfoRepository) {
-    this.treeRootHolder = treeRootHolder;
-    this.periodsHolder = periodsHolder;
-    this.metricRepository = metricRepository;
-    this.measureRepository = measureRepository;
+    super(treeRootHolder, metricRepository, measureRepository, periodsHolder);
     this.scmInfoRepository = scmInfoRepository;
   }
 
@@ -101,25 +92,18 @@ public class NewCoverageMeasuresStep implements ComputationStep {
    */
   public NewCoverageMeasuresStep(TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder,
     MeasureRepository measureRepository, final MetricRepository metricRepository) {
-    this.treeRootHolder = treeRootHolder;
-    this.periodsHolder = periodsHolder;
-    this.metricRepository = metricRepository;
-    this.measureRepository = measureRepository;
+    super(treeRootHolder, metricRepository, measureRepository, periodsHolder);
     this.scmInfoRepository = null;
   }
 
   @Override
-  public void execute() {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
-        .withVariationSupport(periodsHolder)
-        .buildFor(
-          Iterables.concat(
-            NewLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            NewItLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            NewOverallLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            FORMULAS)))
-      .visit(treeRootHolder.getRoot());
+  public List<Formula> getFormulas() {
+    return ImmutableList.<Formula>copyOf(
+      Iterables.<Formula>concat(
+        NewLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+        NewItLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+        NewOverallLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+        FORMULAS));
   }
 
   @Override
@@ -21,16 +21,27 @@ package org.sonar.server.computation.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.MDC;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.util.CloseableIterator;
@@ -59,11 +70,26 @@ import org.sonar.server.computation.source.RangeOffsetConverter;
 import org.sonar.server.computation.source.ScmLineReader;
 import org.sonar.server.computation.source.SourceLinesRepository;
 import org.sonar.server.computation.source.SymbolsLineReader;
+import org.sonar.server.source.HtmlSourceCache;
 
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
 
+/**
+ * Merges source lines of each file with its coverage, SCM, highlighting, symbols and duplications, then persists the
+ * result in table FILE_SOURCES.
+ * <p>
+ * Merging is CPU bound on big files, so it is done by a pool of threads while the thread of the step reads the report
+ * and writes to DB, in the order of the component tree. The number of threads is defined by property
+ * {@link #THREAD_COUNT_PROPERTY} and defaults to {@link #DEFAULT_THREAD_COUNT}. At most two files per thread are merged
+ * but not persisted yet, in order to keep memory under control.
+ * </p>
+ */
 public class PersistFileSourcesStep implements ComputationStep {
 
+  private static final String THREAD_NAME_PREFIX = "ce-file-sources-";
+  public static final String THREAD_COUNT_PROPERTY = "sonar.ce.fileSourcesThreadCount";
+  static final int DEFAULT_THREAD_COUNT = Math.min(4, Runtime.getRuntime().availableProcessors());
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
@@ -71,9 +97,12 @@ public class PersistFileSourcesStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
+  private final HtmlSourceCache htmlSourceCache;
+  private final int threadCount;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
-    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, HtmlSourceCache htmlSourceCache,
+    Settings settings) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
@@ -81,30 +110,67 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.sourceLinesRepository = sourceLinesRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
+    this.htmlSourceCache = htmlSourceCache;
+    int threadCountSetting = settings.getInt(THREAD_COUNT_PROPERTY);
+    this.threadCount = threadCountSetting > 0 ? threadCountSetting : DEFAULT_THREAD_COUNT;
   }
 
   @Override
   public void execute() {
     // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
     DbSession session = dbClient.openSession(false);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+    FileSourceVisitor visitor = new FileSourceVisitor(session, executor, 2 * threadCount);
     try {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      visitor.persistPendingFiles();
     } finally {
+      visitor.cancelPendingFiles();
+      shutdown(executor);
+      visitor.closePendingFiles();
       MyBatis.closeQuietly(session);
     }
   }
 
+  /**
+   * Waits for the end of the merges which are running. They do not check the interrupted status of the thread, so
+   * there is no timeout: the report files they read must not be closed before they finish.
+   */
+  private static void shutdown(ExecutorService executor) {
+    executor.shutdown();
+    boolean interrupted = false;
+    while (!executor.isTerminated()) {
+      try {
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
+    private final ExecutorService executor;
+    private final int maxPendingFiles;
+    private final Deque<PendingFile> pendingFiles = new ArrayDeque<>();
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, ExecutorService executor, int maxPendingFiles) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.executor = executor;
+      this.maxPendingFiles = maxPendingFiles;
     }
 
     @Override
@@ -122,19 +188,61 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      if (file.getFileAttributes().isReusePrevious() && previousFileSourcesByUuid.containsKey(file.getUuid())) {
+        // file has not been processed by the scanner, previous sources, highlighting, coverage... are kept as is
+        return;
+      }
       int fileRef = file.getReportAttributes().getRef();
       BatchReport.Component component = reportReader.readComponent(fileRef);
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
+      ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
+      pendingFiles.add(new PendingFile(file, linesIterator, lineReaders, executor.submit(new ComputeFileSourceDataTask(computeFileSourceData))));
+      while (pendingFiles.size() > maxPendingFiles) {
+        persistOldestPendingFile();
+      }
+    }
+
+    private void persistPendingFiles() {
+      while (!pendingFiles.isEmpty()) {
+        persistOldestPendingFile();
+      }
+    }
+
+    private void persistOldestPendingFile() {
+      PendingFile pendingFile = pendingFiles.remove();
       try {
-        ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
+        ComputeFileSourceData.Data fileSourceData = pendingFile.computedData.get();
+        persistSource(fileSourceData, pendingFile.file.getUuid(), pendingFile.lineReaders.getLatestChange());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(String.format("Interrupted while persisting sources of %s", pendingFile.file.getKey()), e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", pendingFile.file.getKey()), e.getCause());
       } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", pendingFile.file.getKey()), e);
       } finally {
-        linesIterator.close();
-        lineReaders.close();
+        pendingFile.close();
+      }
+    }
+
+    /**
+     * Prevents the merges of the files which have not been persisted because of a failure from starting. The merges
+     * already started are not stopped.
+     */
+    private void cancelPendingFiles() {
+      for (PendingFile pendingFile : pendingFiles) {
+        pendingFile.computedData.cancel(false);
+      }
+    }
+
+    /**
+     * Releases the report files of the files which have not been persisted because of a failure. Must be called once
+     * the executor is terminated, so that no merge is still reading them.
+     */
+    private void closePendingFiles() {
+      while (!pendingFiles.isEmpty()) {
+        pendingFiles.remove().close();
       }
     }
 
@@ -177,6 +285,9 @@ public class PersistFileSourcesStep implements ComputationStep {
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(previousDto);
           session.commit();
+          if (binaryDataUpdated) {
+            htmlSourceCache.invalidate(componentUuid);
+          }
         }
       }
     }
@@ -198,6 +309,52 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  private static class PendingFile {
+    private final Component file;
+    private final CloseableIterator<String> linesIterator;
+    private final LineReaders lineReaders;
+    private final Future<ComputeFileSourceData.Data> computedData;
+
+    PendingFile(Component file, CloseableIterator<String> linesIterator, LineReaders lineReaders, Future<ComputeFileSourceData.Data> computedData) {
+      this.file = file;
+      this.linesIterator = linesIterator;
+      this.lineReaders = lineReaders;
+      this.computedData = computedData;
+    }
+
+    void close() {
+      linesIterator.close();
+      lineReaders.close();
+    }
+  }
+
+  /**
+   * Runs {@link ComputeFileSourceData#compute()} in a thread of the pool, with the logging context of the Compute Engine
+   * task so that warnings of the line readers are written to the log of the task.
+   */
+  private static class ComputeFileSourceDataTask implements Callable<ComputeFileSourceData.Data> {
+    private final ComputeFileSourceData computeFileSourceData;
+    @CheckForNull
+    private final Map<String, String> loggingContext;
+
+    ComputeFileSourceDataTask(ComputeFileSourceData computeFileSourceData) {
+      this.computeFileSourceData = computeFileSourceData;
+      this.loggingContext = MDC.getCopyOfContextMap();
+    }
+
+    @Override
+    public ComputeFileSourceData.Data call() {
+      if (loggingContext != null) {
+        MDC.setContextMap(loggingContext);
+      }
+      try {
+        return computeFileSourceData.compute();
+      } finally {
+        MDC.clear();
+      }
+    }
+  }
+
   private static class LineReaders {
     private final List<LineReader> readers = new ArrayList<>();
     private final List<CloseableIterator<?>> closeables = new ArrayList<>();
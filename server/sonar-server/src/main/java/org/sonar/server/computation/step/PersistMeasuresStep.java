@@ -20,16 +20,16 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nonnull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureBulkInserter;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
 import org.sonar.server.computation.component.DepthTraversalTypeAwareCrawler;
@@ -42,7 +42,6 @@ import org.sonar.server.computation.measure.MeasureToMeasureDto;
 import org.sonar.server.computation.metric.Metric;
 import org.sonar.server.computation.metric.MetricRepository;
 
-import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY;
@@ -50,6 +49,8 @@ import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_
 
 public class PersistMeasuresStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistMeasuresStep.class);
+
   /**
    * List of metrics that should not be persisted on file measure (Waiting for SONAR-6688 to be implemented)
    */
@@ -80,21 +81,28 @@ public class PersistMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    DbSession dbSession = dbClient.openSession(true);
+    DbSession dbSession = dbClient.openSession(false);
     try {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
-      dbSession.commit();
+      MeasureBulkInserter inserter = dbClient.measureDao().openBulkInserter(dbSession);
+      try {
+        new DepthTraversalTypeAwareCrawler(new MeasureVisitor(inserter)).visit(treeRootHolder.getRoot());
+      } finally {
+        inserter.close();
+      }
+      // statements are executed through JDBC, so MyBatis does not know that the session is dirty
+      dbSession.commit(true);
+      LOGGER.debug("{} measures persisted", inserter.getCount());
     } finally {
       dbSession.close();
     }
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
-    private final DbSession session;
+    private final MeasureBulkInserter inserter;
 
-    private MeasureVisitor(DbSession session) {
+    private MeasureVisitor(MeasureBulkInserter inserter) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
-      this.session = session;
+      this.inserter = inserter;
     }
 
     @Override
@@ -111,23 +119,19 @@ public class PersistMeasuresStep implements ComputationStep {
         }
 
         Metric metric = metricRepository.getByKey(metricKey);
-        Predicate<Measure> notBestValueOptimized = Predicates.not(BestValueOptimization.from(metric, component));
-        for (Measure measure : from(measures.getValue()).filter(NonEmptyMeasure.INSTANCE).filter(notBestValueOptimized)) {
-          MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-          dbClient.measureDao().insert(session, measureDto);
+        Predicate<Measure> bestValueOptimized = BestValueOptimization.from(metric, component);
+        for (Measure measure : measures.getValue()) {
+          if (isNotEmpty(measure) && !bestValueOptimized.apply(measure)) {
+            inserter.insert(measureToMeasureDto.toMeasureDto(measure, metric, component));
+          }
         }
       }
     }
 
   }
 
-  private enum NonEmptyMeasure implements Predicate<Measure> {
-    INSTANCE;
-
-    @Override
-    public boolean apply(@Nonnull Measure input) {
-      return input.getValueType() != Measure.ValueType.NO_VALUE || input.hasVariations() || input.getData() != null;
-    }
+  private static boolean isNotEmpty(Measure measure) {
+    return measure.getValueType() != Measure.ValueType.NO_VALUE || measure.hasVariations() || measure.getData() != null;
   }
 
 }
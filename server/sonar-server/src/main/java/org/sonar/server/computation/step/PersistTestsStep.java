@@ -26,7 +26,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Table;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +44,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.CoveredLines;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
 import org.sonar.server.computation.batch.BatchReportReader;
@@ -123,7 +124,7 @@ public class PersistTestsStep implements ComputationStep {
 
     private void persistTestResults(Component component) {
       Multimap<String, DbFileSources.Test.Builder> testsByName = buildDbTests(component.getReportAttributes().getRef());
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName = loadCoverageDetails(component.getReportAttributes().getRef());
+      Table<String, String, BitSet> coveredFilesByName = loadCoverageDetails(component.getReportAttributes().getRef());
       List<DbFileSources.Test> tests = addCoveredFilesToTests(testsByName, coveredFilesByName);
       if (checkIfThereAreUnprocessedCoverageDetails(testsByName, coveredFilesByName, component.getKey())) {
         hasUnprocessedCoverageDetails = true;
@@ -156,7 +157,7 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     private boolean checkIfThereAreUnprocessedCoverageDetails(Multimap<String, DbFileSources.Test.Builder> testsByName,
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName, String componentKey) {
+      Table<String, String, BitSet> coveredFilesByName, String componentKey) {
       Set<String> unprocessedCoverageDetailNames = new HashSet<>(coveredFilesByName.rowKeySet());
       unprocessedCoverageDetailNames.removeAll(testsByName.keySet());
       boolean hasUnprocessedCoverage = !unprocessedCoverageDetailNames.isEmpty();
@@ -167,14 +168,12 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     private List<DbFileSources.Test> addCoveredFilesToTests(Multimap<String, DbFileSources.Test.Builder> testsByName,
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName) {
+      Table<String, String, BitSet> coveredFilesByName) {
       List<DbFileSources.Test> tests = new ArrayList<>();
       for (DbFileSources.Test.Builder test : testsByName.values()) {
-        Collection<DbFileSources.Test.CoveredFile.Builder> coveredFiles = coveredFilesByName.row(test.getName()).values();
-        if (!coveredFiles.isEmpty()) {
-          for (DbFileSources.Test.CoveredFile.Builder coveredFile : coveredFiles) {
-            test.addCoveredFile(coveredFile);
-          }
+        for (Map.Entry<String, BitSet> coveredFile : coveredFilesByName.row(test.getName()).entrySet()) {
+          test.addCoveredFile(CoveredLines.setLines(DbFileSources.Test.CoveredFile.newBuilder()
+            .setFileUuid(coveredFile.getKey()), coveredFile.getValue()));
         }
         tests.add(test.build());
       }
@@ -212,10 +211,11 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     /**
-     * returns a Table of (test name, main file uuid, covered file)
+     * returns a Table of (test name, main file uuid, covered lines). Covered lines are stored in bitmaps, which
+     * are much smaller than lists of boxed integers and which merge the lines reported several times.
      */
-    private Table<String, String, DbFileSources.Test.CoveredFile.Builder> loadCoverageDetails(int testFileRef) {
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> nameToCoveredFiles = HashBasedTable.create();
+    private Table<String, String, BitSet> loadCoverageDetails(int testFileRef) {
+      Table<String, String, BitSet> nameToCoveredFiles = HashBasedTable.create();
 
       try (CloseableIterator<BatchReport.CoverageDetail> coverageIterator = reportReader.readCoverageDetails(testFileRef)) {
         while (coverageIterator.hasNext()) {
@@ -223,17 +223,13 @@ public class PersistTestsStep implements ComputationStep {
           for (BatchReport.CoverageDetail.CoveredFile batchCoveredFile : batchCoverageDetail.getCoveredFileList()) {
             String testName = batchCoverageDetail.getTestName();
             String mainFileUuid = getUuid(batchCoveredFile.getFileRef());
-            DbFileSources.Test.CoveredFile.Builder existingDbCoveredFile = nameToCoveredFiles.get(testName, mainFileUuid);
-            List<Integer> batchCoveredLines = batchCoveredFile.getCoveredLineList();
-            if (existingDbCoveredFile == null) {
-              DbFileSources.Test.CoveredFile.Builder dbCoveredFile = DbFileSources.Test.CoveredFile.newBuilder()
-                .setFileUuid(getUuid(batchCoveredFile.getFileRef()))
-                .addAllCoveredLine(batchCoveredLines);
-              nameToCoveredFiles.put(testName, mainFileUuid, dbCoveredFile);
-            } else {
-              List<Integer> remainingBatchCoveredLines = new ArrayList<>(batchCoveredLines);
-              remainingBatchCoveredLines.removeAll(existingDbCoveredFile.getCoveredLineList());
-              existingDbCoveredFile.addAllCoveredLine(batchCoveredLines);
+            BitSet coveredLines = nameToCoveredFiles.get(testName, mainFileUuid);
+            if (coveredLines == null) {
+              coveredLines = new BitSet();
+              nameToCoveredFiles.put(testName, mainFileUuid, coveredLines);
+            }
+            for (Integer line : batchCoveredFile.getCoveredLineList()) {
+              coveredLines.set(line);
             }
           }
         }
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.step;
 
+import org.sonar.server.batch.ProjectFilesCache;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -30,7 +31,7 @@ import org.sonar.server.computation.component.SettingsRepository;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
 
-import static org.sonar.server.computation.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.component.Component.Type.MODULE;
 import static org.sonar.server.computation.component.Component.Type.VIEW;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
 import static org.sonar.server.computation.component.CrawlerDepthLimit.reportMaxDepth;
@@ -42,23 +43,33 @@ public class PurgeDatastoresStep implements ComputationStep {
   private final DbIdsRepository dbIdsRepository;
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
+  private final ProjectFilesCache projectFilesCache;
 
   public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    SettingsRepository settingsRepository) {
+    SettingsRepository settingsRepository, ProjectFilesCache projectFilesCache) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.settingsRepository = settingsRepository;
+    this.projectFilesCache = projectFilesCache;
   }
 
   @Override
   public void execute() {
     new DepthTraversalTypeAwareCrawler(
-      new TypeAwareVisitorAdapter(reportMaxDepth(PROJECT).withViewsMaxDepth(VIEW), PRE_ORDER) {
+      new TypeAwareVisitorAdapter(reportMaxDepth(MODULE).withViewsMaxDepth(VIEW), PRE_ORDER) {
         @Override
         public void visitProject(Component project) {
           execute(project);
+          projectFilesCache.invalidate(project.getUuid());
+        }
+
+        @Override
+        public void visitModule(Component module) {
+          // files may have been cached by scanners requesting the project between the switch of snapshot and the purge,
+          // which disables the files removed by the analysis
+          projectFilesCache.invalidate(module.getUuid());
         }
 
         @Override
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.queue.CeTask;
+
+import static java.lang.String.format;
+
+/**
+ * Renews the lease of the task before the new snapshot is made visible by {@link SwitchSnapshotStep}. If the lease
+ * expired and the task has been peeked by another Compute Engine node in the meantime, the processing is aborted
+ * so that the analysis is not switched twice.
+ */
+public class RenewTaskLeaseStep implements ComputationStep {
+
+  private final DbClient dbClient;
+  private final CeTask task;
+  private final CeConfiguration ceConfiguration;
+
+  public RenewTaskLeaseStep(DbClient dbClient, CeTask task, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.task = task;
+    this.ceConfiguration = ceConfiguration;
+  }
+
+  @Override
+  public void execute() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      boolean renewed = dbClient.ceQueueDao().renewLease(dbSession, task.getUuid(), ceConfiguration.getNodeUuid(), ceConfiguration.getLeaseDuration());
+      dbSession.commit();
+      if (!renewed) {
+        throw new IllegalStateException(format("Lease of task %s has expired, it is now processed by another Compute Engine node", task.getUuid()));
+      }
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+
+  @Override
+  public String getDescription() {
+    return "Renew lease of task";
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.base.Predicate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.annotation.Nonnull;
@@ -52,19 +53,12 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     LoadDuplicationsFromReportStep.class,
     LoadCrossProjectDuplicationsRepositoryStep.class,
 
-    // data computation
-    SizeMeasuresStep.class,
-    NewCoverageMeasuresStep.class,
-    CoverageMeasuresStep.class,
-    CommentMeasuresStep.class,
+    // data computation, independent of the measures computed by formula steps
     CustomMeasuresCopyStep.class,
-    DuplicationMeasuresStep.class,
     DuplicationDataMeasuresStep.class,
-    LanguageDistributionMeasuresStep.class,
-    UnitTestMeasuresStep.class,
-    ComplexityMeasuresStep.class,
 
     LoadMeasureComputersStep.class,
+    // Executes the formula steps of FORMULA_STEPS and the visitors in a single traversal of the component tree
     ExecuteVisitorsStep.class,
 
     // Must be executed after computation of all measures
@@ -91,7 +85,8 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PersistTestsStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
 
-    // Switch snapshot and purge
+    // Switch snapshot and purge, only if the task is still processed by this node
+    RenewTaskLeaseStep.class,
     SwitchSnapshotStep.class,
     IndexComponentsStep.class,
     PurgeDatastoresStep.class,
@@ -100,6 +95,7 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     // ES indexing is done after all db changes
     IndexIssuesStep.class,
     IndexTestsStep.class,
+    IndexProjectMeasuresStep.class,
 
     // notifications are sent at the end, so that webapp displays up-to-date information
     SendIssueNotificationsStep.class,
@@ -107,6 +103,20 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PublishTaskResultStep.class
     );
 
+  /**
+   * Formula steps, executed in this order by {@link ExecuteVisitorsStep}
+   */
+  private static final List<Class<? extends AbstractFormulaComputationStep>> FORMULA_STEPS = Arrays.<Class<? extends AbstractFormulaComputationStep>>asList(
+    SizeMeasuresStep.class,
+    NewCoverageMeasuresStep.class,
+    CoverageMeasuresStep.class,
+    CommentMeasuresStep.class,
+    DuplicationMeasuresStep.class,
+    LanguageDistributionMeasuresStep.class,
+    UnitTestMeasuresStep.class,
+    ComplexityMeasuresStep.class
+    );
+
   private final ComputeEngineContainer computeEngineContainer;
 
   public ReportComputationSteps(ComputeEngineContainer computeEngineContainer) {
@@ -125,6 +135,25 @@ public class ReportComputationSteps extends AbstractComputationSteps {
       .toList();
   }
 
+  /**
+   * List of all {@link AbstractFormulaComputationStep}, ordered by execution sequence.
+   */
+  public List<Class<? extends AbstractFormulaComputationStep>> orderedFormulaStepClasses() {
+    return FORMULA_STEPS;
+  }
+
+  public List<AbstractFormulaComputationStep> formulaStepInstances() {
+    List<AbstractFormulaComputationStep> instances = new ArrayList<>();
+    for (Class<? extends AbstractFormulaComputationStep> stepClass : FORMULA_STEPS) {
+      AbstractFormulaComputationStep step = computeEngineContainer.getComponentByType(stepClass);
+      if (step == null) {
+        throw new IllegalStateException(String.format("Component not found: %s", stepClass));
+      }
+      instances.add(step);
+    }
+    return instances;
+  }
+
   private class AllowPersistDevelopersStepIfDevCockpitPluginInstalled implements Predicate<Class<? extends ComputationStep>> {
 
     private final boolean devCockpitIsInstalled = computeEngineContainer.getComponentByType(DevCockpitBridge.class) != null;
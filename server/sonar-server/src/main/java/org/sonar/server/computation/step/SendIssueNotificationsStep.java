@@ -20,7 +20,9 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.sonar.core.issue.DefaultIssue;
@@ -48,6 +50,11 @@ public class SendIssueNotificationsStep implements ComputationStep {
    */
   static final Set<String> NOTIF_TYPES = ImmutableSet.of(IssueChangeNotification.TYPE, NewIssuesNotification.TYPE, MyNewIssuesNotification.MY_NEW_ISSUES_NOTIF_TYPE);
 
+  /**
+   * Maximum number of issue change notifications kept in memory before being delivered
+   */
+  private static final int NOTIFICATIONS_BATCH_SIZE = 100;
+
   private final IssueCache issueCache;
   private final RuleRepository rules;
   private final TreeRootHolder treeRootHolder;
@@ -90,22 +97,30 @@ public class SendIssueNotificationsStep implements ComputationStep {
   }
 
   private void processIssues(NewIssuesStatistics newIssuesStats, CloseableIterator<DefaultIssue> issues, Component project) {
+    List<IssueChangeNotification> changeNotifications = new ArrayList<>();
     while (issues.hasNext()) {
       DefaultIssue issue = issues.next();
       if (issue.isNew() && issue.resolution() == null) {
         newIssuesStats.add(issue);
       } else if (issue.isChanged() && issue.mustSendNotifications()) {
-        sendIssueChangeNotification(issue, project);
+        changeNotifications.add(newIssueChangeNotification(issue, project));
+        if (changeNotifications.size() >= NOTIFICATIONS_BATCH_SIZE) {
+          service.deliver(changeNotifications);
+          changeNotifications.clear();
+        }
       }
     }
+    if (!changeNotifications.isEmpty()) {
+      service.deliver(changeNotifications);
+    }
   }
 
-  private void sendIssueChangeNotification(DefaultIssue issue, Component project) {
+  private IssueChangeNotification newIssueChangeNotification(DefaultIssue issue, Component project) {
     IssueChangeNotification changeNotification = new IssueChangeNotification();
     changeNotification.setRuleName(rules.getByKey(issue.ruleKey()).getName());
     changeNotification.setIssue(issue);
     changeNotification.setProject(project.getKey(), project.getName());
-    service.deliver(changeNotification);
+    return changeNotification;
   }
 
   private void sendNewIssuesNotification(NewIssuesStatistics statistics, Component project, long analysisDate) {
@@ -121,6 +136,7 @@ public class SendIssueNotificationsStep implements ComputationStep {
 
   private void sendNewIssuesNotificationToAssignees(NewIssuesStatistics statistics, Component project, long analysisDate) {
     // send email to each user having issues
+    List<MyNewIssuesNotification> notifications = new ArrayList<>();
     for (Map.Entry<String, NewIssuesStatistics.Stats> assigneeAndStatisticsTuple : statistics.assigneesStatistics().entrySet()) {
       String assignee = assigneeAndStatisticsTuple.getKey();
       NewIssuesStatistics.Stats assigneeStatistics = assigneeAndStatisticsTuple.getValue();
@@ -133,8 +149,9 @@ public class SendIssueNotificationsStep implements ComputationStep {
         .setStatistics(project.getName(), assigneeStatistics)
         .setDebt(assigneeStatistics.debt());
 
-      service.deliver(myNewIssuesNotification);
+      notifications.add(myNewIssuesNotification);
     }
+    service.deliver(notifications);
   }
 
   @Override
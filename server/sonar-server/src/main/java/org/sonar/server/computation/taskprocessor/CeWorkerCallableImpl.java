@@ -28,6 +28,7 @@ import org.sonar.server.computation.log.CeLogging;
 import org.sonar.server.computation.queue.CeQueue;
 import org.sonar.server.computation.queue.CeTask;
 import org.sonar.server.computation.queue.CeTaskResult;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 
 import static java.lang.String.format;
 
@@ -38,11 +39,13 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
   private final CeQueue queue;
   private final CeLogging ceLogging;
   private final CeTaskProcessorRepository taskProcessorRepository;
+  private final TaskStatsRecorder statsRecorder;
 
-  public CeWorkerCallableImpl(CeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository) {
+  public CeWorkerCallableImpl(CeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository, TaskStatsRecorder statsRecorder) {
     this.queue = queue;
     this.ceLogging = ceLogging;
     this.taskProcessorRepository = taskProcessorRepository;
+    this.statsRecorder = statsRecorder;
   }
 
   @Override
@@ -70,6 +73,7 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
     Profiler regularProfiler = startProfiler(task);
     ceLogging.initForTask(task);
     Profiler ceProfiler = startProfiler(task);
+    statsRecorder.initForTask();
 
     CeActivityDto.Status status = CeActivityDto.Status.FAILED;
     CeTaskResult process = null;
@@ -86,7 +90,7 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
     } catch (Throwable e) {
       LOG.error(format("Failed to execute task %s", task.getUuid()), e);
     } finally {
-      queue.remove(task, status, process);
+      queue.remove(task, status, process, statsRecorder.clearForTask());
       // logging twice: once in sonar.log and once in CE appender
       stopProfiler(ceProfiler, task, status);
       ceLogging.clearForTask();
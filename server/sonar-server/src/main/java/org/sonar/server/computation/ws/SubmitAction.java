@@ -29,12 +29,16 @@ import org.sonar.server.computation.queue.report.ReportSubmitter;
 import org.sonar.server.ws.WsUtils;
 import org.sonarqube.ws.WsCe;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class SubmitAction implements CeWsAction {
 
   public static final String PARAM_PROJECT_KEY = "projectKey";
   public static final String PARAM_PROJECT_BRANCH = "projectBranch";
   public static final String PARAM_PROJECT_NAME = "projectName";
   public static final String PARAM_REPORT_DATA = "report";
+  public static final String PARAM_UPLOAD_ID = "uploadId";
+  public static final String PARAM_CHECKSUM = "checksum";
 
   private final ReportSubmitter reportSubmitter;
 
@@ -72,8 +76,20 @@ public class SubmitAction implements CeWsAction {
 
     action
       .createParam(PARAM_REPORT_DATA)
-      .setRequired(true)
-      .setDescription("Report file. Format is not an API, it changes among SonarQube versions.");
+      .setDescription("Report file. Format is not an API, it changes among SonarQube versions. " +
+        "Required if the parameter '" + PARAM_UPLOAD_ID + "' is not set.");
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setSince("5.5")
+      .setDescription("Id of the report uploaded by parts with the web service 'upload_part'. Can't be set with the parameter '" + PARAM_REPORT_DATA + "'.")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action
+      .createParam(PARAM_CHECKSUM)
+      .setSince("5.5")
+      .setDescription("MD5 checksum of the whole report uploaded by parts, in hexadecimal. Required if the parameter '" + PARAM_UPLOAD_ID + "' is set.")
+      .setExampleValue("4b8c6a8b1e0a2e4b7c2b0f5a8b2c8e3d");
   }
 
   @Override
@@ -81,9 +97,17 @@ public class SubmitAction implements CeWsAction {
     String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
     String projectBranch = wsRequest.param(PARAM_PROJECT_BRANCH);
     String projectName = StringUtils.defaultIfBlank(wsRequest.param(PARAM_PROJECT_NAME), projectKey);
+    String uploadId = wsRequest.param(PARAM_UPLOAD_ID);
     InputStream reportInput = wsRequest.paramAsInputStream(PARAM_REPORT_DATA);
+    checkArgument(reportInput == null || uploadId == null, "Parameters '%s' and '%s' can't be set together", PARAM_REPORT_DATA, PARAM_UPLOAD_ID);
 
-    CeTask task = reportSubmitter.submit(projectKey, projectBranch, projectName, reportInput);
+    CeTask task;
+    if (uploadId == null) {
+      checkArgument(reportInput != null, "Parameter '%s' or '%s' is required", PARAM_REPORT_DATA, PARAM_UPLOAD_ID);
+      task = reportSubmitter.submit(projectKey, projectBranch, projectName, reportInput);
+    } else {
+      task = reportSubmitter.submitUpload(projectKey, projectBranch, projectName, uploadId, wsRequest.mandatoryParam(PARAM_CHECKSUM));
+    }
 
     WsCe.SubmitResponse submitResponse = WsCe.SubmitResponse.newBuilder()
       .setTaskId(task.getUuid())
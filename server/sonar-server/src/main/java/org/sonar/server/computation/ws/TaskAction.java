@@ -20,6 +20,7 @@
 package org.sonar.server.computation.ws;
 
 import com.google.common.base.Optional;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -42,6 +43,8 @@ public class TaskAction implements CeWsAction {
 
   public static final String ACTION = "task";
   public static final String PARAM_TASK_UUID = "id";
+  public static final String PARAM_ADDITIONAL_FIELDS = "additionalFields";
+  public static final String ADDITIONAL_STATS = "stats";
 
   private final DbClient dbClient;
   private final TaskFormatter wsTaskFormatter;
@@ -67,11 +70,21 @@ public class TaskAction implements CeWsAction {
       .setRequired(true)
       .setDescription("Id of task")
       .setExampleValue(Uuids.UUID_EXAMPLE_01);
+
+    action
+      .createParam(PARAM_ADDITIONAL_FIELDS)
+      .setDescription("Comma-separated list of additional fields that can be returned in the response. " +
+        "Value 'stats' returns the time and resources consumed by each computation step and component visitor " +
+        "of a processed task.")
+      .setPossibleValues(ADDITIONAL_STATS)
+      .setExampleValue(ADDITIONAL_STATS)
+      .setSince("5.5");
   }
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
     String taskUuid = wsRequest.mandatoryParam(PARAM_TASK_UUID);
+    List<String> additionalFields = wsRequest.paramAsStrings(PARAM_ADDITIONAL_FIELDS);
     DbSession dbSession = dbClient.openSession(false);
     try {
       WsCe.TaskResponse.Builder wsTaskResponse = WsCe.TaskResponse.newBuilder();
@@ -83,7 +96,11 @@ public class TaskAction implements CeWsAction {
         Optional<CeActivityDto> activityDto = dbClient.ceActivityDao().selectByUuid(dbSession, taskUuid);
         if (activityDto.isPresent()) {
           checkPermission(activityDto.get().getComponentUuid());
-          wsTaskResponse.setTask(wsTaskFormatter.formatActivity(dbSession, activityDto.get()));
+          WsCe.Task task = wsTaskFormatter.formatActivity(dbSession, activityDto.get());
+          if (additionalFields != null && additionalFields.contains(ADDITIONAL_STATS)) {
+            task = addStats(task, activityDto.get());
+          }
+          wsTaskResponse.setTask(task);
         } else {
           throw new NotFoundException();
         }
@@ -95,6 +112,14 @@ public class TaskAction implements CeWsAction {
     }
   }
 
+  private WsCe.Task addStats(WsCe.Task task, CeActivityDto activityDto) {
+    Optional<WsCe.TaskStats> stats = wsTaskFormatter.formatStats(activityDto);
+    if (stats.isPresent()) {
+      return task.toBuilder().setStats(stats.get()).build();
+    }
+    return task;
+  }
+
   private void checkPermission(@Nullable String projectUuid) {
     if (!userSession.hasPermission(SYSTEM_ADMIN)
       && !userSession.hasPermission(SCAN_EXECUTION)
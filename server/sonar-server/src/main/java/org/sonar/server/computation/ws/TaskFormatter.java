@@ -22,6 +22,7 @@ package org.sonar.server.computation.ws;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentDtoFunctions;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.log.CeLogging;
 import org.sonar.server.computation.log.LogFileRef;
 import org.sonarqube.ws.WsCe;
@@ -134,6 +136,50 @@ public class TaskFormatter {
     return builder.build();
   }
 
+  /**
+   * Statistics of the processing of the task. They are available only if the activity has been
+   * loaded by {@link org.sonar.db.ce.CeActivityDao#selectByUuid(DbSession, String)}.
+   */
+  public Optional<WsCe.TaskStats> formatStats(CeActivityDto dto) {
+    byte[] data = dto.getStats();
+    if (data == null) {
+      return Optional.absent();
+    }
+    DbCe.TaskStats stats;
+    try {
+      stats = DbCe.TaskStats.parseFrom(data);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Fail to deserialize stats of task " + dto.getUuid(), e);
+    }
+    WsCe.TaskStats.Builder builder = WsCe.TaskStats.newBuilder();
+    for (DbCe.Stat step : stats.getStepList()) {
+      builder.addSteps(formatStat(step));
+    }
+    for (DbCe.Stat visitor : stats.getVisitorList()) {
+      builder.addVisitors(formatStat(visitor));
+    }
+    return Optional.of(builder.build());
+  }
+
+  private static WsCe.TaskStat formatStat(DbCe.Stat stat) {
+    WsCe.TaskStat.Builder builder = WsCe.TaskStat.newBuilder()
+      .setName(stat.getName())
+      .setWallTimeMs(stat.getWallTimeMs());
+    if (stat.hasCpuTimeMs()) {
+      builder.setCpuTimeMs(stat.getCpuTimeMs());
+    }
+    if (stat.hasAllocatedBytes()) {
+      builder.setAllocatedBytes(stat.getAllocatedBytes());
+    }
+    if (stat.hasWrittenRows()) {
+      builder.setWrittenRows(stat.getWrittenRows());
+    }
+    if (stat.hasReportBytesRead()) {
+      builder.setReportBytesRead(stat.getReportBytesRead());
+    }
+    return builder.build();
+  }
+
   private static void buildComponent(WsCe.Task.Builder builder, @Nullable ComponentDto componentDto) {
     if (componentDto != null) {
       builder.setComponentKey(componentDto.getKey());
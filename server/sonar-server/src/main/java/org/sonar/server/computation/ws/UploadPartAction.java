@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.ws;
+
+import java.io.InputStream;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.report.ReportSubmitter;
+import org.sonar.server.ws.WsUtils;
+import org.sonarqube.ws.WsCe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class UploadPartAction implements CeWsAction {
+
+  public static final String ACTION = "upload_part";
+  public static final String PARAM_PROJECT_KEY = "projectKey";
+  public static final String PARAM_PROJECT_BRANCH = "projectBranch";
+  public static final String PARAM_UPLOAD_ID = "uploadId";
+  public static final String PARAM_OFFSET = "offset";
+  public static final String PARAM_CHECKSUM = "checksum";
+  public static final String PARAM_PART_DATA = "part";
+
+  private final ReportSubmitter reportSubmitter;
+
+  public UploadPartAction(ReportSubmitter reportSubmitter) {
+    this.reportSubmitter = reportSubmitter;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction(ACTION)
+      .setDescription("Uploads a part of a scanner report. Parts are appended at the given offset, so that a part which failed " +
+        "can be sent again. The report is submitted with the web service 'submit' once all parts are uploaded. " +
+        "Requires analysis permission.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("5.5")
+      .setHandler(this);
+
+    action
+      .createParam(PARAM_PROJECT_KEY)
+      .setRequired(true)
+      .setDescription("Key of project")
+      .setExampleValue("my_project");
+
+    action
+      .createParam(PARAM_PROJECT_BRANCH)
+      .setDescription("Optional branch of project")
+      .setExampleValue("branch-1.x");
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload, generated by client. Only letters, digits, '-' and '_' are allowed, up to 40 characters.")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action
+      .createParam(PARAM_OFFSET)
+      .setRequired(true)
+      .setDescription("Position of the part in the report, in bytes. It can't be greater than the number of bytes already uploaded.")
+      .setExampleValue("10485760");
+
+    action
+      .createParam(PARAM_CHECKSUM)
+      .setRequired(true)
+      .setDescription("MD5 checksum of the part, in hexadecimal")
+      .setExampleValue("4b8c6a8b1e0a2e4b7c2b0f5a8b2c8e3d");
+
+    action
+      .createParam(PARAM_PART_DATA)
+      .setRequired(true)
+      .setDescription("Part of the report file");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
+    String projectBranch = wsRequest.param(PARAM_PROJECT_BRANCH);
+    String uploadId = wsRequest.mandatoryParam(PARAM_UPLOAD_ID);
+    long offset = wsRequest.mandatoryParamAsLong(PARAM_OFFSET);
+    checkArgument(offset >= 0, "Parameter '%s' must be positive", PARAM_OFFSET);
+    String checksum = wsRequest.mandatoryParam(PARAM_CHECKSUM);
+    InputStream partInput = wsRequest.paramAsInputStream(PARAM_PART_DATA);
+    checkArgument(partInput != null, "Parameter '%s' is missing", PARAM_PART_DATA);
+
+    long uploadedBytes = reportSubmitter.appendPart(projectKey, projectBranch, uploadId, offset, partInput, checksum);
+
+    WsCe.UploadPartResponse response = WsCe.UploadPartResponse.newBuilder()
+      .setUploadedBytes(uploadedBytes)
+      .build();
+    WsUtils.writeProtobuf(response, wsRequest, wsResponse);
+  }
+}
@@ -213,6 +213,7 @@ public class IssueIndex extends BaseIndex {
 
     configureSorting(query, requestBuilder);
     configurePagination(options, requestBuilder);
+    configureRouting(query, options, requestBuilder);
 
     QueryBuilder esQuery = QueryBuilders.matchAllQuery();
     BoolFilterBuilder esFilter = FilterBuilders.boolFilter();
@@ -232,6 +233,18 @@ public class IssueIndex extends BaseIndex {
     return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
   }
 
+  /**
+   * Issues are routed by project (see {@link IssueIndexer}), so only the shards hosting the requested projects
+   * have to be searched. That's not the case when the facet on projects is requested, as it also counts the
+   * issues of the other projects.
+   */
+  private static void configureRouting(IssueQuery query, SearchOptions options, SearchRequestBuilder esRequest) {
+    Collection<String> projectUuids = query.projectUuids();
+    if (!projectUuids.isEmpty() && !options.getFacets().contains(PROJECT_UUIDS)) {
+      esRequest.setRouting(projectUuids.toArray(new String[projectUuids.size()]));
+    }
+  }
+
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
     String sortField = query.sort();
     if (sortField != null) {
@@ -728,7 +741,7 @@ public class IssueIndex extends BaseIndex {
       QueryBuilders.matchAllQuery(),
       FilterBuilders.andFilter(projectFilter, dateFilter));
 
-    getClient().prepareDeleteByQuery(IssueIndexDefinition.INDEX).setQuery(queryBuilder).get();
+    getClient().prepareDeleteByQuery(IssueIndexDefinition.INDEX).setRouting(projectUuid).setQuery(queryBuilder).get();
   }
 
   private BoolFilterBuilder createBoolFilter(IssueQuery query) {
@@ -756,9 +769,22 @@ public class IssueIndex extends BaseIndex {
    * Only fields needed for the batch are returned.
    */
   public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
+    return selectIssuesForBatch(component, null);
+  }
+
+  /**
+   * Same as {@link #selectIssuesForBatch(ComponentDto)}, but when {@code since} is set, only the issues changed since
+   * this date are returned, including the issues closed in the meantime, so that the batch can remove them
+   * from its own copy.
+   */
+  public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component, @Nullable Date since) {
     BoolFilterBuilder filter = FilterBuilders.boolFilter()
-      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()))
-      .mustNot(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()));
+    if (since == null) {
+      filter.mustNot(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+    } else {
+      filter.must(FilterBuilders.rangeFilter(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT).gte(since.getTime()).cache(false));
+    }
 
     switch (component.scope()) {
       case Scopes.PROJECT:
@@ -774,6 +800,7 @@ public class IssueIndex extends BaseIndex {
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
       .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setRouting(component.projectUuid())
       .setSearchType(SearchType.SCAN)
       .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
       .setSize(10000)
@@ -20,35 +20,71 @@
 package org.sonar.server.measure;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.Database;
 import org.sonar.db.MyBatis;
 import org.sonar.db.component.ResourceDao;
-
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.util.Collections;
-import java.util.List;
+import org.sonar.server.measure.index.ProjectMeasuresDoc;
+import org.sonar.server.measure.index.ProjectMeasuresIndex;
+import org.sonar.server.measure.index.ProjectMeasuresQuery;
 
 @ServerSide
 public class MeasureFilterExecutor {
 
+  /**
+   * Qualifiers of the root components which are stored in index "projectmeasures"
+   */
+  private static final Set<String> INDEXED_QUALIFIERS = ImmutableSet.of(Qualifiers.PROJECT, Qualifiers.VIEW);
+
+  private static final Map<MeasureFilterCondition.Operator, ProjectMeasuresQuery.Operator> INDEXED_OPERATORS = ImmutableMap.of(
+    MeasureFilterCondition.Operator.EQUALS, ProjectMeasuresQuery.Operator.EQ,
+    MeasureFilterCondition.Operator.GREATER, ProjectMeasuresQuery.Operator.GT,
+    MeasureFilterCondition.Operator.GREATER_OR_EQUALS, ProjectMeasuresQuery.Operator.GTE,
+    MeasureFilterCondition.Operator.LESS, ProjectMeasuresQuery.Operator.LT,
+    MeasureFilterCondition.Operator.LESS_OR_EQUALS, ProjectMeasuresQuery.Operator.LTE);
+
   private MyBatis mybatis;
   private Database database;
   private ResourceDao resourceDao;
+  private ProjectMeasuresIndex projectMeasuresIndex;
 
-  public MeasureFilterExecutor(MyBatis mybatis, Database database, ResourceDao resourceDao) {
+  public MeasureFilterExecutor(MyBatis mybatis, Database database, ResourceDao resourceDao, @Nullable ProjectMeasuresIndex projectMeasuresIndex) {
     this.mybatis = mybatis;
     this.database = database;
     this.resourceDao = resourceDao;
+    this.projectMeasuresIndex = projectMeasuresIndex;
+  }
+
+  /**
+   * Filters are executed on database only
+   */
+  public MeasureFilterExecutor(MyBatis mybatis, Database database, ResourceDao resourceDao) {
+    this(mybatis, database, resourceDao, null);
   }
 
   public List<MeasureFilterRow> execute(MeasureFilter filter, MeasureFilterContext context) throws SQLException {
     if (filter.isEmpty()) {
       return Collections.emptyList();
     }
+    if (projectMeasuresIndex != null && isSupportedByIndex(filter)) {
+      return executeOnIndex(filter);
+    }
 
     List<MeasureFilterRow> rows;
     SqlSession session = null;
@@ -74,6 +110,16 @@ public class MeasureFilterExecutor {
     return rows;
   }
 
+  private List<MeasureFilterRow> executeOnIndex(MeasureFilter filter) {
+    List<ProjectMeasuresDoc> docs = projectMeasuresIndex.searchAll(toProjectMeasuresQuery(filter));
+    List<MeasureFilterRow> rows = new ArrayList<>(docs.size());
+    for (ProjectMeasuresDoc doc : docs) {
+      // indexed components are roots
+      rows.add(new MeasureFilterRow(doc.snapshotId(), doc.id(), doc.id()));
+    }
+    return rows;
+  }
+
   private void prepareContext(MeasureFilterContext context, MeasureFilter filter, SqlSession session) {
     if (filter.getBaseResourceKey() != null) {
       context.setBaseSnapshot(resourceDao.getLastSnapshot(filter.getBaseResourceKey(), session));
@@ -112,4 +158,71 @@ public class MeasureFilterExecutor {
     }
     return valid;
   }
+
+  /**
+   * The filters on the numeric measures of projects and views can be executed on the index "projectmeasures",
+   * which avoids the dynamic joins on table PROJECT_MEASURES. Other filters are executed on database.
+   */
+  static boolean isSupportedByIndex(MeasureFilter filter) {
+    boolean supported = Strings.isNullOrEmpty(filter.getBaseResourceKey())
+      && !filter.isOnFavourites()
+      && StringUtils.isBlank(filter.getResourceKey())
+      && StringUtils.isBlank(filter.getResourceName())
+      && !filter.getResourceQualifiers().isEmpty()
+      && INDEXED_QUALIFIERS.containsAll(filter.getResourceQualifiers())
+      && (filter.getResourceScopes().isEmpty() || Collections.singletonList(Scopes.PROJECT).equals(filter.getResourceScopes()));
+    for (MeasureFilterCondition condition : filter.getMeasureConditions()) {
+      supported &= condition.textValue() == null
+        && INDEXED_OPERATORS.containsKey(condition.operator())
+        && isIndexedMeasure(condition.metric(), condition.period());
+    }
+    return supported && isSortSupportedByIndex(filter.sort());
+  }
+
+  private static boolean isSortSupportedByIndex(MeasureFilterSort sort) {
+    switch (sort.field()) {
+      case NAME:
+      case KEY:
+      case DATE:
+        return true;
+      case METRIC:
+        return isIndexedMeasure(sort.metric(), sort.period());
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Only numeric values and their variations on first period are indexed
+   */
+  private static boolean isIndexedMeasure(@Nullable Metric metric, @Nullable Integer period) {
+    return metric != null && metric.isNumericType() && (period == null || period == 1);
+  }
+
+  static ProjectMeasuresQuery toProjectMeasuresQuery(MeasureFilter filter) {
+    ProjectMeasuresQuery query = new ProjectMeasuresQuery()
+      .setQualifiers(filter.getResourceQualifiers())
+      .setFromDate(filter.getFromDate())
+      .setToDate(filter.getToDate())
+      .setAsc(filter.sort().isAsc());
+    for (MeasureFilterCondition condition : filter.getMeasureConditions()) {
+      query.addMetricCriterion(new ProjectMeasuresQuery.MetricCriterion(condition.metric().getKey(), INDEXED_OPERATORS.get(condition.operator()),
+        condition.value(), condition.period() != null));
+    }
+    MeasureFilterSort sort = filter.sort();
+    switch (sort.field()) {
+      case KEY:
+        query.setSort(ProjectMeasuresQuery.Sort.KEY);
+        break;
+      case DATE:
+        query.setSort(ProjectMeasuresQuery.Sort.ANALYSIS_DATE);
+        break;
+      case METRIC:
+        query.setSortOnMetric(sort.metric().getKey(), sort.period() != null);
+        break;
+      default:
+        query.setSort(ProjectMeasuresQuery.Sort.NAME);
+    }
+    return query;
+  }
 }
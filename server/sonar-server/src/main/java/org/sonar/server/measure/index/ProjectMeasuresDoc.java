@@ -0,0 +1,156 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.server.search.BaseDoc;
+
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_ANALYSED_AT;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_ID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VALUE;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VARIATION;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_NAME;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALIFIER;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_SNAPSHOT_ID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_UUID;
+
+public class ProjectMeasuresDoc extends BaseDoc {
+
+  public ProjectMeasuresDoc(Map<String, Object> fields) {
+    super(fields);
+  }
+
+  public ProjectMeasuresDoc() {
+    this(Maps.<String, Object>newHashMapWithExpectedSize(8));
+    setField(FIELD_MEASURES, new ArrayList<Map<String, Object>>());
+  }
+
+  public String uuid() {
+    return getField(FIELD_UUID);
+  }
+
+  public long id() {
+    return ((Number) getField(FIELD_ID)).longValue();
+  }
+
+  public long snapshotId() {
+    return ((Number) getField(FIELD_SNAPSHOT_ID)).longValue();
+  }
+
+  public String key() {
+    return getField(FIELD_KEY);
+  }
+
+  public String name() {
+    return getField(FIELD_NAME);
+  }
+
+  public String qualifier() {
+    return getField(FIELD_QUALIFIER);
+  }
+
+  public Date analysedAt() {
+    return getFieldAsDate(FIELD_ANALYSED_AT);
+  }
+
+  public List<Map<String, Object>> measures() {
+    return getField(FIELD_MEASURES);
+  }
+
+  /**
+   * Value of the measure, or {@code null} if the document does not contain it.
+   */
+  @CheckForNull
+  public Double value(String metricKey) {
+    return measureField(metricKey, FIELD_MEASURES_VALUE);
+  }
+
+  /**
+   * Variation on period 1 of the measure, or {@code null} if the document does not contain it.
+   */
+  @CheckForNull
+  public Double variation(String metricKey) {
+    return measureField(metricKey, FIELD_MEASURES_VARIATION);
+  }
+
+  @CheckForNull
+  private Double measureField(String metricKey, String field) {
+    for (Map<String, Object> measure : measures()) {
+      if (metricKey.equals(measure.get(FIELD_MEASURES_KEY))) {
+        Number value = (Number) measure.get(field);
+        return value == null ? null : value.doubleValue();
+      }
+    }
+    return null;
+  }
+
+  public ProjectMeasuresDoc setUuid(String s) {
+    setField(FIELD_UUID, s);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setId(long l) {
+    setField(FIELD_ID, l);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setSnapshotId(long l) {
+    setField(FIELD_SNAPSHOT_ID, l);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setKey(String s) {
+    setField(FIELD_KEY, s);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setName(@Nullable String s) {
+    setField(FIELD_NAME, s);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setQualifier(String s) {
+    setField(FIELD_QUALIFIER, s);
+    return this;
+  }
+
+  public ProjectMeasuresDoc setAnalysedAt(Date d) {
+    setField(FIELD_ANALYSED_AT, d);
+    return this;
+  }
+
+  public ProjectMeasuresDoc addMeasure(String metricKey, @Nullable Double value, @Nullable Double variation) {
+    Map<String, Object> measure = Maps.newHashMapWithExpectedSize(3);
+    measure.put(FIELD_MEASURES_KEY, metricKey);
+    measure.put(FIELD_MEASURES_VALUE, value);
+    measure.put(FIELD_MEASURES_VARIATION, variation);
+    measures().add(measure);
+    return this;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import com.google.common.base.Function;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeFilterBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.core.util.NonNullInputFunction;
+import org.sonar.server.es.BaseIndex;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.es.SearchResult;
+
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_ANALYSED_AT;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_ID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VALUE;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VARIATION;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_NAME;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALIFIER;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_SNAPSHOT_ID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_UUID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+
+public class ProjectMeasuresIndex extends BaseIndex {
+
+  public static final String FACET_QUALIFIERS = "qualifiers";
+
+  private static final int SCROLL_SIZE = 500;
+
+  private static final Function<Map<String, Object>, ProjectMeasuresDoc> CONVERTER = new NonNullInputFunction<Map<String, Object>, ProjectMeasuresDoc>() {
+    @Override
+    protected ProjectMeasuresDoc doApply(Map<String, Object> fields) {
+      return new ProjectMeasuresDoc(fields);
+    }
+  };
+
+  public ProjectMeasuresIndex(EsClient client) {
+    super(client);
+  }
+
+  public SearchResult<ProjectMeasuresDoc> search(ProjectMeasuresQuery query, SearchOptions searchOptions) {
+    SearchRequestBuilder request = newSearchRequest(query)
+      .setFrom(searchOptions.getOffset())
+      .setSize(searchOptions.getLimit());
+    if (searchOptions.getFacets().contains(FACET_QUALIFIERS)) {
+      request.addAggregation(AggregationBuilders.terms(FACET_QUALIFIERS).field(FIELD_QUALIFIER));
+    }
+    return new SearchResult<>(request.get(), CONVERTER);
+  }
+
+  /**
+   * Returns all the documents matching the query, in the requested order. Documents are loaded by pages and
+   * contain only the fields {@link ProjectMeasuresIndexDefinition#FIELD_UUID}, {@link ProjectMeasuresIndexDefinition#FIELD_ID}
+   * and {@link ProjectMeasuresIndexDefinition#FIELD_SNAPSHOT_ID}.
+   */
+  public List<ProjectMeasuresDoc> searchAll(ProjectMeasuresQuery query) {
+    SearchRequestBuilder request = newSearchRequest(query)
+      .setFetchSource(new String[] {FIELD_UUID, FIELD_ID, FIELD_SNAPSHOT_ID}, null)
+      .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+      .setSize(SCROLL_SIZE);
+
+    List<ProjectMeasuresDoc> result = new ArrayList<>();
+    SearchResponse response = request.get();
+    while (response.getHits().getHits().length > 0) {
+      for (SearchHit hit : response.getHits().getHits()) {
+        result.add(CONVERTER.apply(hit.getSource()));
+      }
+      response = getClient().prepareSearchScroll(response.getScrollId())
+        .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+        .get();
+    }
+    return result;
+  }
+
+  private SearchRequestBuilder newSearchRequest(ProjectMeasuresQuery query) {
+    SearchRequestBuilder request = getClient().prepareSearch(INDEX)
+      .setTypes(TYPE_PROJECT_MEASURES)
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), createFilter(query)));
+    addSorts(request, query);
+    return request;
+  }
+
+  private static FilterBuilder createFilter(ProjectMeasuresQuery query) {
+    BoolFilterBuilder filter = FilterBuilders.boolFilter().must(FilterBuilders.matchAllFilter());
+    if (!query.getQualifiers().isEmpty()) {
+      filter.must(FilterBuilders.termsFilter(FIELD_QUALIFIER, query.getQualifiers()));
+    }
+    Date fromDate = query.getFromDate();
+    Date toDate = query.getToDate();
+    if (fromDate != null || toDate != null) {
+      RangeFilterBuilder dateFilter = FilterBuilders.rangeFilter(FIELD_ANALYSED_AT);
+      if (fromDate != null) {
+        dateFilter.gte(fromDate.getTime());
+      }
+      if (toDate != null) {
+        dateFilter.lte(toDate.getTime());
+      }
+      filter.must(dateFilter);
+    }
+    for (ProjectMeasuresQuery.MetricCriterion criterion : query.getMetricCriteria()) {
+      filter.must(createMetricFilter(criterion));
+    }
+    return filter;
+  }
+
+  private static FilterBuilder createMetricFilter(ProjectMeasuresQuery.MetricCriterion criterion) {
+    String field = measureField(criterion.isOnVariation());
+    double value = criterion.getValue();
+    FilterBuilder valueFilter;
+    switch (criterion.getOperator()) {
+      case EQ:
+        valueFilter = FilterBuilders.termFilter(field, value);
+        break;
+      case GT:
+        valueFilter = FilterBuilders.rangeFilter(field).gt(value);
+        break;
+      case GTE:
+        valueFilter = FilterBuilders.rangeFilter(field).gte(value);
+        break;
+      case LT:
+        valueFilter = FilterBuilders.rangeFilter(field).lt(value);
+        break;
+      case LTE:
+        valueFilter = FilterBuilders.rangeFilter(field).lte(value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported operator: " + criterion.getOperator());
+    }
+    return FilterBuilders.nestedFilter(FIELD_MEASURES, FilterBuilders.boolFilter()
+      .must(FilterBuilders.termFilter(FIELD_MEASURES + "." + FIELD_MEASURES_KEY, criterion.getMetricKey()))
+      .must(valueFilter));
+  }
+
+  private static void addSorts(SearchRequestBuilder request, ProjectMeasuresQuery query) {
+    SortOrder order = query.isAsc() ? SortOrder.ASC : SortOrder.DESC;
+    switch (query.getSort()) {
+      case KEY:
+        request.addSort(sortableField(FIELD_KEY), order);
+        break;
+      case ANALYSIS_DATE:
+        request.addSort(FIELD_ANALYSED_AT, order);
+        break;
+      case METRIC:
+        FieldSortBuilder metricSort = SortBuilders.fieldSort(measureField(query.isSortOnVariation()))
+          .setNestedPath(FIELD_MEASURES)
+          .setNestedFilter(FilterBuilders.termFilter(FIELD_MEASURES + "." + FIELD_MEASURES_KEY, query.getSortMetricKey()))
+          .missing("_last")
+          .order(order);
+        request.addSort(metricSort);
+        break;
+      case NAME:
+        // name is always used to break ties, see below
+        request.addSort(sortableField(FIELD_NAME), order);
+        return;
+      default:
+        throw new IllegalArgumentException("Unsupported sort: " + query.getSort());
+    }
+    request.addSort(sortableField(FIELD_NAME), SortOrder.ASC);
+  }
+
+  private static String measureField(boolean onVariation) {
+    return FIELD_MEASURES + "." + (onVariation ? FIELD_MEASURES_VARIATION : FIELD_MEASURES_VALUE);
+  }
+
+  private static String sortableField(String field) {
+    return field + "." + SORT_SUFFIX;
+  }
+}
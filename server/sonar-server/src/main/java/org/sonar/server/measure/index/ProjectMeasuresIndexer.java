@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.index.IndexRequest;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.es.BaseIndexer;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsClient;
+
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_ANALYSED_AT;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+
+public class ProjectMeasuresIndexer extends BaseIndexer {
+
+  private final DbClient dbClient;
+
+  public ProjectMeasuresIndexer(DbClient dbClient, EsClient esClient) {
+    super(esClient, 300, INDEX, TYPE_PROJECT_MEASURES, FIELD_ANALYSED_AT);
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Index the measures of the last analysis of the given root component, whatever
+   * the date of the analysis.
+   */
+  public void index(final String projectUuid) {
+    super.index(new IndexerTask() {
+      @Override
+      public long index(long lastUpdatedAt) {
+        return doIndex(0L, projectUuid);
+      }
+    });
+  }
+
+  @Override
+  protected long doIndex(long lastUpdatedAt) {
+    return doIndex(lastUpdatedAt, null);
+  }
+
+  private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
+    final BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
+    bulk.setLarge(lastUpdatedAt == 0L && projectUuid == null);
+
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      ProjectMeasuresResultSetIterator rowIt = ProjectMeasuresResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid);
+      try {
+        return doIndex(bulk, rowIt);
+      } finally {
+        // releases the JDBC statement and result set even if indexing fails
+        rowIt.close();
+      }
+    } finally {
+      dbSession.close();
+    }
+  }
+
+  private static long doIndex(BulkIndexer bulk, Iterator<ProjectMeasuresDoc> docs) {
+    long maxUpdatedAt = 0L;
+    bulk.start();
+    while (docs.hasNext()) {
+      ProjectMeasuresDoc doc = docs.next();
+      bulk.add(newIndexRequest(doc));
+      maxUpdatedAt = Math.max(maxUpdatedAt, doc.analysedAt().getTime());
+    }
+    bulk.stop();
+    return maxUpdatedAt;
+  }
+
+  public void deleteProject(String uuid) {
+    esClient
+      .prepareDelete(INDEX, TYPE_PROJECT_MEASURES, uuid)
+      .setRefresh(true)
+      .get();
+  }
+
+  private static IndexRequest newIndexRequest(ProjectMeasuresDoc doc) {
+    return new IndexRequest(INDEX, TYPE_PROJECT_MEASURES, doc.uuid())
+      .source(doc.getFields());
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Query on index "projectmeasures". By default all the documents are returned, sorted by name.
+ */
+public class ProjectMeasuresQuery {
+
+  public enum Operator {
+    EQ, GT, GTE, LT, LTE
+  }
+
+  public enum Sort {
+    NAME, KEY, ANALYSIS_DATE, METRIC
+  }
+
+  private List<String> qualifiers = Collections.emptyList();
+  private final List<MetricCriterion> metricCriteria = Lists.newArrayList();
+  private Date fromDate = null;
+  private Date toDate = null;
+  private Sort sort = Sort.NAME;
+  private String sortMetricKey = null;
+  private boolean sortOnVariation = false;
+  private boolean asc = true;
+
+  public List<String> getQualifiers() {
+    return qualifiers;
+  }
+
+  /**
+   * Empty or {@code null} list means that all qualifiers are accepted
+   */
+  public ProjectMeasuresQuery setQualifiers(@Nullable List<String> l) {
+    this.qualifiers = l == null ? Collections.<String>emptyList() : l;
+    return this;
+  }
+
+  public List<MetricCriterion> getMetricCriteria() {
+    return metricCriteria;
+  }
+
+  public ProjectMeasuresQuery addMetricCriterion(MetricCriterion criterion) {
+    this.metricCriteria.add(criterion);
+    return this;
+  }
+
+  @CheckForNull
+  public Date getFromDate() {
+    return fromDate;
+  }
+
+  public ProjectMeasuresQuery setFromDate(@Nullable Date d) {
+    this.fromDate = d;
+    return this;
+  }
+
+  @CheckForNull
+  public Date getToDate() {
+    return toDate;
+  }
+
+  public ProjectMeasuresQuery setToDate(@Nullable Date d) {
+    this.toDate = d;
+    return this;
+  }
+
+  public Sort getSort() {
+    return sort;
+  }
+
+  public ProjectMeasuresQuery setSort(Sort sort) {
+    checkArgument(sort != Sort.METRIC, "Use setSortOnMetric() to sort on measures");
+    this.sort = sort;
+    this.sortMetricKey = null;
+    this.sortOnVariation = false;
+    return this;
+  }
+
+  public ProjectMeasuresQuery setSortOnMetric(String metricKey, boolean onVariation) {
+    this.sort = Sort.METRIC;
+    this.sortMetricKey = metricKey;
+    this.sortOnVariation = onVariation;
+    return this;
+  }
+
+  @CheckForNull
+  public String getSortMetricKey() {
+    return sortMetricKey;
+  }
+
+  public boolean isSortOnVariation() {
+    return sortOnVariation;
+  }
+
+  public boolean isAsc() {
+    return asc;
+  }
+
+  public ProjectMeasuresQuery setAsc(boolean asc) {
+    this.asc = asc;
+    return this;
+  }
+
+  public static class MetricCriterion {
+    private final String metricKey;
+    private final Operator operator;
+    private final double value;
+    private final boolean onVariation;
+
+    public MetricCriterion(String metricKey, Operator operator, double value, boolean onVariation) {
+      this.metricKey = metricKey;
+      this.operator = operator;
+      this.value = value;
+      this.onVariation = onVariation;
+    }
+
+    public String getMetricKey() {
+      return metricKey;
+    }
+
+    public Operator getOperator() {
+      return operator;
+    }
+
+    public double getValue() {
+      return value;
+    }
+
+    /**
+     * Whether the criterion applies on the variation on period 1 instead of the value of the measure
+     */
+    public boolean isOnVariation() {
+      return onVariation;
+    }
+  }
+}
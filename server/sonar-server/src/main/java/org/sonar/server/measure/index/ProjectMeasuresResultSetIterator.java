@@ -0,0 +1,194 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.measures.Metric;
+import org.sonar.db.DatabaseUtils;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ResultSetIterator;
+
+/**
+ * Scrolls over the last snapshots of root components and over their numeric measures, and reads
+ * documents to populate the index "projectmeasures". A single request is executed, ordered by snapshot,
+ * so that only the measures of a single project are in memory at a time.
+ */
+class ProjectMeasuresResultSetIterator implements Iterator<ProjectMeasuresDoc>, Closeable {
+
+  private static final Set<String> NUMERIC_VALUE_TYPES = ImmutableSet.of(
+    Metric.ValueType.INT.name(),
+    Metric.ValueType.FLOAT.name(),
+    Metric.ValueType.PERCENT.name(),
+    Metric.ValueType.BOOL.name(),
+    Metric.ValueType.MILLISEC.name(),
+    Metric.ValueType.RATING.name(),
+    Metric.ValueType.WORK_DUR.name());
+
+  private static final String[] FIELDS = {
+    // column 1
+    "s.id",
+    "p.id",
+    "p.uuid",
+    "p.kee",
+    "p.long_name",
+    "p.qualifier",
+    "s.created_at",
+    "m.name",
+    "m.val_type",
+    // column 10
+    "pm.value",
+    "pm.variation_value_1",
+  };
+
+  private static final String SQL_ALL = "select " + StringUtils.join(FIELDS, ",") + " from snapshots s " +
+    "inner join projects p on p.id=s.project_id " +
+    "left outer join project_measures pm on pm.snapshot_id=s.id and pm.rule_id is null and pm.rule_priority is null " +
+    "and pm.characteristic_id is null and pm.person_id is null and (pm.value is not null or pm.variation_value_1 is not null) " +
+    "left outer join metrics m on m.id=pm.metric_id " +
+    "where s.islast=? and s.status='P' and s.scope='PRJ' and s.parent_snapshot_id is null and p.enabled=? and p.copy_resource_id is null";
+
+  private static final String SQL_ORDER = " order by s.id";
+
+  private final ResultSetIterator<Row> rows;
+  private final PeekingIterator<Row> peekingRows;
+
+  private ProjectMeasuresResultSetIterator(ResultSetIterator<Row> rows) {
+    this.rows = rows;
+    this.peekingRows = Iterators.peekingIterator(rows);
+  }
+
+  static ProjectMeasuresResultSetIterator create(DbClient dbClient, DbSession session, long afterDate, @Nullable String projectUuid) {
+    String sql = SQL_ALL;
+    sql += afterDate > 0L ? " and s.created_at>?" : "";
+    sql += projectUuid != null ? " and p.uuid=?" : "";
+    sql += SQL_ORDER;
+    PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+    try {
+      int index = 1;
+      stmt.setBoolean(index, true);
+      index++;
+      stmt.setBoolean(index, true);
+      index++;
+      if (afterDate > 0L) {
+        stmt.setLong(index, afterDate);
+        index++;
+      }
+      if (projectUuid != null) {
+        stmt.setString(index, projectUuid);
+      }
+      return new ProjectMeasuresResultSetIterator(new RowIterator(stmt));
+    } catch (SQLException e) {
+      DatabaseUtils.closeQuietly(stmt);
+      throw new IllegalStateException("Fail to prepare SQL request to select measures of projects", e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return peekingRows.hasNext();
+  }
+
+  @Override
+  public ProjectMeasuresDoc next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Row first = peekingRows.next();
+    ProjectMeasuresDoc doc = new ProjectMeasuresDoc()
+      .setSnapshotId(first.snapshotId)
+      .setId(first.projectId)
+      .setUuid(first.projectUuid)
+      .setKey(first.projectKey)
+      .setName(first.projectName)
+      .setQualifier(first.qualifier)
+      .setAnalysedAt(new Date(first.analysedAt));
+    addMeasure(doc, first);
+    while (peekingRows.hasNext() && peekingRows.peek().snapshotId == first.snapshotId) {
+      addMeasure(doc, peekingRows.next());
+    }
+    return doc;
+  }
+
+  private static void addMeasure(ProjectMeasuresDoc doc, Row row) {
+    if (row.metricKey != null && NUMERIC_VALUE_TYPES.contains(row.metricValueType)) {
+      doc.addMeasure(row.metricKey, row.value, row.variation);
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close() {
+    rows.close();
+  }
+
+  private static class Row {
+    private long snapshotId;
+    private long projectId;
+    private String projectUuid;
+    private String projectKey;
+    private String projectName;
+    private String qualifier;
+    private long analysedAt;
+    private String metricKey;
+    private String metricValueType;
+    private Double value;
+    private Double variation;
+  }
+
+  private static class RowIterator extends ResultSetIterator<Row> {
+    private RowIterator(PreparedStatement stmt) throws SQLException {
+      super(stmt);
+    }
+
+    @Override
+    protected Row read(ResultSet rs) throws SQLException {
+      Row row = new Row();
+      row.snapshotId = rs.getLong(1);
+      row.projectId = rs.getLong(2);
+      row.projectUuid = rs.getString(3);
+      row.projectKey = rs.getString(4);
+      row.projectName = rs.getString(5);
+      row.qualifier = rs.getString(6);
+      row.analysedAt = rs.getLong(7);
+      row.metricKey = rs.getString(8);
+      row.metricValueType = rs.getString(9);
+      row.value = DatabaseUtils.getDouble(rs, 10);
+      row.variation = DatabaseUtils.getDouble(rs, 11);
+      return row;
+    }
+  }
+}
@@ -27,8 +27,13 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -51,6 +56,12 @@ public class DefaultNotificationManager implements NotificationManager {
 
   private boolean alreadyLoggedDeserializationIssue = false;
 
+  /**
+   * Subscribers found during the delivery of a batch of notifications, by query. Only set between
+   * {@link #startBatch()} and {@link #endBatch()}.
+   */
+  private final ThreadLocal<Map<List<String>, List<String>>> subscribersCache = new ThreadLocal<>();
+
   /**
    * Default constructor used by Pico
    */
@@ -100,10 +111,44 @@ public class DefaultNotificationManager implements NotificationManager {
     return convertToNotification(notificationDtos);
   }
 
+  /**
+   * Give at most {@code batchSize} notifications of the queue so that they can be processed. They are kept in
+   * queue until {@link #removeFromQueue(Batch)} is called, so that they are not lost if the server stops before
+   * their delivery. Notifications which can't be read anymore are ignored, and removed with the batch.
+   */
+  public Batch getFromQueue(int batchSize) {
+    List<NotificationQueueDto> notificationDtos = notificationQueueDao.selectOldest(batchSize);
+    if (notificationDtos.isEmpty()) {
+      return new Batch(Collections.<NotificationQueueDto>emptyList(), Collections.<Notification>emptyList());
+    }
+
+    List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+    for (NotificationQueueDto notificationDto : notificationDtos) {
+      Notification notification = convertToNotificationOfBatch(notificationDto);
+      if (notification != null) {
+        notifications.add(notification);
+      }
+    }
+    return new Batch(notificationDtos, notifications);
+  }
+
+  /**
+   * Removes from queue the notifications of a batch once delivered
+   */
+  public void removeFromQueue(Batch batch) {
+    if (!batch.isEmpty()) {
+      notificationQueueDao.delete(batch.dtos);
+    }
+  }
+
   private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+    // If batchSize is increased then we should return a list instead of a single element
+    return convertToNotification(notifications.get(0));
+  }
+
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -116,6 +161,20 @@ public class DefaultNotificationManager implements NotificationManager {
     }
   }
 
+  /**
+   * Unlike {@link #convertToNotification(NotificationQueueDto)}, does not fail when the notification can't be read, as
+   * it would be read again from queue and would block the delivery of the next notifications.
+   */
+  @CheckForNull
+  private Notification convertToNotificationOfBatch(NotificationQueueDto notification) {
+    try {
+      return convertToNotification(notification);
+    } catch (SonarException e) {
+      LOG.warn(UNABLE_TO_READ_NOTIFICATION + ". It will be ignored.", e);
+      return null;
+    }
+  }
+
   @VisibleForTesting
   void logDeserializationIssue() {
     LOG.warn("It is impossible to send pending notifications which existed prior to the upgrade of SonarQube. They will be ignored.");
@@ -125,6 +184,18 @@ public class DefaultNotificationManager implements NotificationManager {
     return notificationQueueDao.count();
   }
 
+  /**
+   * Until {@link #endBatch()} is called, the subscribers found by the dispatchers executed in the current thread are
+   * cached, so that they are read only once per dispatcher, channel and project when delivering a batch of notifications.
+   */
+  public void startBatch() {
+    subscribersCache.set(new HashMap<List<String>, List<String>>());
+  }
+
+  public void endBatch() {
+    subscribersCache.remove();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -138,11 +209,11 @@ public class DefaultNotificationManager implements NotificationManager {
       String channelKey = channel.getKey();
 
       // Find users subscribed globally to the dispatcher (i.e. not on a specific project)
-      addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, null), recipients, channel);
+      addUsersToRecipientListForChannel(selectUsersForNotification(dispatcherKey, channelKey, null), recipients, channel);
 
       if (projectUuid != null) {
         // Find users subscribed to the dispatcher specifically for the project
-        addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, projectUuid), recipients, channel);
+        addUsersToRecipientListForChannel(selectUsersForNotification(dispatcherKey, channelKey, projectUuid), recipients, channel);
       }
     }
 
@@ -155,12 +226,45 @@ public class DefaultNotificationManager implements NotificationManager {
 
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationChannel channel : notificationChannels) {
-      addUsersToRecipientListForChannel(propertiesDao.selectNotificationSubscribers(dispatcherKey, channel.getKey(), componentKey), recipients, channel);
+      addUsersToRecipientListForChannel(selectNotificationSubscribers(dispatcherKey, channel.getKey(), componentKey), recipients, channel);
     }
 
     return recipients;
   }
 
+  private List<String> selectUsersForNotification(String dispatcherKey, String channelKey, @Nullable String projectUuid) {
+    List<String> cacheKey = Arrays.asList("usersForNotification", dispatcherKey, channelKey, projectUuid);
+    List<String> users = getCachedSubscribers(cacheKey);
+    if (users == null) {
+      users = propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, projectUuid);
+      cacheSubscribers(cacheKey, users);
+    }
+    return users;
+  }
+
+  private List<String> selectNotificationSubscribers(String dispatcherKey, String channelKey, @Nullable String componentKey) {
+    List<String> cacheKey = Arrays.asList("notificationSubscribers", dispatcherKey, channelKey, componentKey);
+    List<String> users = getCachedSubscribers(cacheKey);
+    if (users == null) {
+      users = propertiesDao.selectNotificationSubscribers(dispatcherKey, channelKey, componentKey);
+      cacheSubscribers(cacheKey, users);
+    }
+    return users;
+  }
+
+  @CheckForNull
+  private List<String> getCachedSubscribers(List<String> cacheKey) {
+    Map<List<String>, List<String>> cache = subscribersCache.get();
+    return cache == null ? null : cache.get(cacheKey);
+  }
+
+  private void cacheSubscribers(List<String> cacheKey, List<String> users) {
+    Map<List<String>, List<String>> cache = subscribersCache.get();
+    if (cache != null) {
+      cache.put(cacheKey, users);
+    }
+  }
+
   @VisibleForTesting
   protected List<NotificationChannel> getChannels() {
     return Arrays.asList(notificationChannels);
@@ -172,4 +276,29 @@ public class DefaultNotificationManager implements NotificationManager {
     }
   }
 
+  /**
+   * Notifications read from queue, see {@link #getFromQueue(int)}
+   */
+  public static class Batch {
+    private final List<NotificationQueueDto> dtos;
+    private final List<Notification> notifications;
+
+    @VisibleForTesting
+    Batch(List<NotificationQueueDto> dtos, List<Notification> notifications) {
+      this.dtos = dtos;
+      this.notifications = notifications;
+    }
+
+    /**
+     * The notifications to be delivered. Can be empty even if {@link #isEmpty()} is false, when
+     * none of the notifications of the batch can be read.
+     */
+    public List<Notification> getNotifications() {
+      return notifications;
+    }
+
+    public boolean isEmpty() {
+      return dtos.isEmpty();
+    }
+  }
 }
@@ -27,12 +27,17 @@ import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
@@ -57,30 +62,55 @@ import org.sonar.db.DbClient;
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
     project = false,
+    global = false),
+  @Property(
+    key = NotificationService.PROPERTY_WORKERS,
+    defaultValue = "4",
+    name = "Number of threads delivering notifications",
+    project = false,
     global = false)
 })
 @ServerSide
 public class NotificationService implements Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  private static final String WORKER_THREAD_NAME_PREFIX = "sq-notification-worker-";
 
   private static final Logger LOG = Loggers.get(NotificationService.class);
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_WORKERS = "sonar.notifications.workers";
+  static final int DEFAULT_WORKERS = 4;
+
+  /**
+   * Maximum number of notifications read at once from the DB queue
+   */
+  @VisibleForTesting
+  static final int BATCH_SIZE = 100;
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int workers;
   private final DefaultNotificationManager manager;
   private final List<NotificationDispatcher> dispatchers;
   private final DbClient dbClient;
+  private final AtomicLong pendingDeliveries = new AtomicLong(0L);
+  private final AtomicLong successCount = new AtomicLong(0L);
+  private final AtomicLong errorCount = new AtomicLong(0L);
+  private final AtomicLong processingTime = new AtomicLong(0L);
 
   private ScheduledExecutorService executorService;
+  private ExecutorService deliveryExecutorService;
   private boolean stopping = false;
 
   public NotificationService(Settings settings, DefaultNotificationManager manager, DbClient dbClient,
     NotificationDispatcher[] dispatchers) {
     this.delayInSeconds = settings.getLong(PROPERTY_DELAY);
     this.delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    this.workers = settings.hasKey(PROPERTY_WORKERS) ? settings.getInt(PROPERTY_WORKERS) : DEFAULT_WORKERS;
+    if (workers < 1) {
+      throw new IllegalArgumentException(String.format("Property %s must be strictly positive. Got: %d", PROPERTY_WORKERS, workers));
+    }
     this.manager = manager;
     this.dbClient = dbClient;
     this.dispatchers = ImmutableList.copyOf(dispatchers);
@@ -95,6 +125,12 @@ public class NotificationService implements Startable {
 
   @Override
   public void start() {
+    deliveryExecutorService = Executors.newFixedThreadPool(workers,
+      new ThreadFactoryBuilder()
+        .setNameFormat(WORKER_THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .setDaemon(true)
+        .build());
     executorService =
       Executors.newSingleThreadScheduledExecutor(
         new ThreadFactoryBuilder()
@@ -111,7 +147,7 @@ public class NotificationService implements Startable {
         }
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., {} workers)", delayInSeconds, workers);
   }
 
   @Override
@@ -120,8 +156,11 @@ public class NotificationService implements Startable {
       stopping = true;
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      deliveryExecutorService.shutdown();
+      deliveryExecutorService.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
+      Thread.currentThread().interrupt();
     }
     LOG.info("Notification service stopped");
   }
@@ -132,10 +171,14 @@ public class NotificationService implements Startable {
     long lastLog = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      deliver(notifToSend);
-      notifSentCount++;
+    DefaultNotificationManager.Batch batch = manager.getFromQueue(BATCH_SIZE);
+    while (!batch.isEmpty()) {
+      if (!deliverAll(batch.getNotifications())) {
+        // interrupted, the batch is kept in queue and will be delivered again
+        break;
+      }
+      manager.removeFromQueue(batch);
+      notifSentCount += batch.getNotifications().size();
       if (stopping) {
         break;
       }
@@ -146,7 +189,7 @@ public class NotificationService implements Startable {
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      batch = manager.getFromQueue(BATCH_SIZE);
     }
   }
 
@@ -162,7 +205,36 @@ public class NotificationService implements Startable {
   }
 
   public void deliver(Notification notification) {
-    final SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
+    deliver(Collections.singletonList(notification));
+  }
+
+  /**
+   * Delivers the notifications through the channels of their recipients. Subscribers are looked up once
+   * for all the notifications, then deliveries are executed in parallel by the workers of the service.
+   * This method returns when all the deliveries are done.
+   */
+  public void deliver(Collection<? extends Notification> notifications) {
+    deliverAll(notifications);
+  }
+
+  /**
+   * @return false if the current thread has been interrupted before the end of the deliveries
+   */
+  private boolean deliverAll(Collection<? extends Notification> notifications) {
+    List<Delivery> deliveries = new ArrayList<>();
+    manager.startBatch();
+    try {
+      for (Notification notification : notifications) {
+        addDeliveries(notification, dispatch(notification), deliveries);
+      }
+    } finally {
+      manager.endBatch();
+    }
+    return execute(deliveries);
+  }
+
+  private SetMultimap<String, NotificationChannel> dispatch(Notification notification) {
+    SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
       NotificationDispatcher.Context context = new ContextImpl(recipients);
       try {
@@ -172,25 +244,75 @@ public class NotificationService implements Startable {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
+    return recipients;
   }
 
-  private void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
+  private void addDeliveries(Notification notification, SetMultimap<String, NotificationChannel> recipients, List<Delivery> deliveries) {
     for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
       String username = entry.getKey();
       Collection<NotificationChannel> userChannels = entry.getValue();
       LOG.debug("For user {} via {}", username, userChannels);
       for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+        deliveries.add(new Delivery(notification, username, channel));
+      }
+    }
+  }
+
+  private boolean execute(List<Delivery> deliveries) {
+    if (deliveries.isEmpty()) {
+      return true;
+    }
+    pendingDeliveries.addAndGet(deliveries.size());
+    try {
+      if (deliveryExecutorService == null) {
+        // service is not started
+        for (Delivery delivery : deliveries) {
+          delivery.call();
         }
+      } else {
+        deliveryExecutorService.invokeAll(deliveries);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted while delivering notifications", e);
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      // deliveries cancelled on interruption or rejected by a stopped executor are not pending anymore
+      for (Delivery delivery : deliveries) {
+        delivery.cancelIfNotStarted();
       }
     }
   }
 
+  /**
+   * Number of notifications waiting to be delivered, either in the DB queue or being delivered
+   */
+  public long getPendingCount() {
+    return manager.count() + pendingDeliveries.get();
+  }
+
+  /**
+   * Number of notifications delivered to a recipient through a channel since startup
+   */
+  public long getSuccessCount() {
+    return successCount.get();
+  }
+
+  /**
+   * Number of notifications which failed to be delivered to a recipient through a channel since startup
+   */
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /**
+   * Time spent in channels delivering notifications since startup, in milliseconds
+   */
+  public long getProcessingTime() {
+    return processingTime.get();
+  }
+
   @VisibleForTesting
   protected List<NotificationDispatcher> getDispatchers() {
     return dispatchers;
@@ -211,6 +333,46 @@ public class NotificationService implements Startable {
     return dbClient.propertiesDao().hasProjectNotificationSubscribersForDispatchers(projectUuid, dispatcherKeys);
   }
 
+  private class Delivery implements Callable<Void> {
+    private final Notification notification;
+    private final String username;
+    private final NotificationChannel channel;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private Delivery(Notification notification, String username, NotificationChannel channel) {
+      this.notification = notification;
+      this.username = username;
+      this.channel = channel;
+    }
+
+    @Override
+    public Void call() {
+      if (!started.compareAndSet(false, true)) {
+        // cancelled
+        return null;
+      }
+      long start = System.currentTimeMillis();
+      try {
+        channel.deliver(notification, username);
+        successCount.incrementAndGet();
+      } catch (Exception e) {
+        // catch all exceptions in order to deliver via other channels
+        errorCount.incrementAndGet();
+        LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+      } finally {
+        processingTime.addAndGet(System.currentTimeMillis() - start);
+        pendingDeliveries.decrementAndGet();
+      }
+      return null;
+    }
+
+    private void cancelIfNotStarted() {
+      if (started.compareAndSet(false, true)) {
+        pendingDeliveries.decrementAndGet();
+      }
+    }
+  }
+
   private static class ContextImpl implements NotificationDispatcher.Context {
     private final Multimap<String, NotificationChannel> recipients;
 
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.sonar.server.notification.NotificationService;
+
+public class NotificationMonitor extends BaseMonitorMBean implements NotificationMonitorMBean {
+  private final NotificationService notificationService;
+
+  public NotificationMonitor(NotificationService notificationService) {
+    this.notificationService = notificationService;
+  }
+
+  @Override
+  public String name() {
+    return "Notifications";
+  }
+
+  @Override
+  public LinkedHashMap<String, Object> attributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Pending", getPendingCount());
+    attributes.put("Successfully delivered", getSuccessCount());
+    attributes.put("Delivered with error", getErrorCount());
+    attributes.put("Processing time", getProcessingTime());
+    return attributes;
+  }
+
+  @Override
+  public long getPendingCount() {
+    return notificationService.getPendingCount();
+  }
+
+  @Override
+  public long getSuccessCount() {
+    return notificationService.getSuccessCount();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return notificationService.getErrorCount();
+  }
+
+  @Override
+  public long getProcessingTime() {
+    return notificationService.getProcessingTime();
+  }
+}
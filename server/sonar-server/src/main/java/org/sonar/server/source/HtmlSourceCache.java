@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+
+/**
+ * LRU cache of the lines of source files decorated as HTML by {@link HtmlSourceDecorator}, so that files
+ * which are frequently displayed are not decorated on each request.
+ * <p/>
+ * Lines are cached per file, along with the hash of the data they have been computed from (column FILE_SOURCES.DATA_HASH).
+ * Lines of a previous version of the file are never returned, even if {@link #invalidate(String)} has not been called.
+ * <p/>
+ * Size of the cache is bounded by the total number of lines of the cached files, so that a few huge files can't
+ * exhaust memory.
+ */
+public class HtmlSourceCache {
+
+  static final int MAX_LINES = 500_000;
+
+  private final Cache<String, DecoratedLines> linesByFileUuid = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_LINES)
+    .weigher(DecoratedLinesWeigher.INSTANCE)
+    .expireAfterAccess(1, TimeUnit.HOURS)
+    .build();
+
+  /**
+   * @return the decorated lines of range [{@code from}, {@code toInclusive}], or null if some of them are not cached.
+   * The returned list is shorter than the range if the file has less than {@code toInclusive} lines.
+   */
+  @CheckForNull
+  public List<String> get(String fileUuid, String dataHash, int from, int toInclusive) {
+    DecoratedLines lines = linesByFileUuid.getIfPresent(fileUuid);
+    if (lines == null || !lines.dataHash.equals(dataHash)) {
+      return null;
+    }
+    return lines.get(from, toInclusive);
+  }
+
+  public void put(String fileUuid, String dataHash, int lineCount, int line, String html) {
+    DecoratedLines lines = linesByFileUuid.getIfPresent(fileUuid);
+    if (lines == null || !lines.dataHash.equals(dataHash)) {
+      lines = new DecoratedLines(dataHash, lineCount);
+      linesByFileUuid.put(fileUuid, lines);
+    }
+    lines.htmlByLine.put(line, html);
+  }
+
+  /**
+   * Releases the lines of a file which sources have been updated
+   */
+  public void invalidate(String fileUuid) {
+    linesByFileUuid.invalidate(fileUuid);
+  }
+
+  long size() {
+    return linesByFileUuid.size();
+  }
+
+  /**
+   * Weight is computed when the file is added to cache, before its lines are decorated, so it's the number of lines
+   * of the file rather than the number of lines actually cached.
+   */
+  private enum DecoratedLinesWeigher implements Weigher<String, DecoratedLines> {
+    INSTANCE;
+
+    @Override
+    public int weigh(String fileUuid, DecoratedLines lines) {
+      return lines.lineCount + 1;
+    }
+  }
+
+  private static class DecoratedLines {
+    private final String dataHash;
+    private final int lineCount;
+    private final ConcurrentMap<Integer, String> htmlByLine = new ConcurrentHashMap<>();
+
+    private DecoratedLines(String dataHash, int lineCount) {
+      this.dataHash = dataHash;
+      this.lineCount = lineCount;
+    }
+
+    @CheckForNull
+    private List<String> get(int from, int toInclusive) {
+      int to = Math.min(toInclusive, lineCount);
+      if (from > to) {
+        return Collections.emptyList();
+      }
+      List<String> result = new ArrayList<>(to - from + 1);
+      for (int line = from; line <= to; line++) {
+        String html = htmlByLine.get(line);
+        if (html == null) {
+          return null;
+        }
+        result.add(html);
+      }
+      return result;
+    }
+  }
+}
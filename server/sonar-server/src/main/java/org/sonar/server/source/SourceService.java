@@ -25,6 +25,8 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nonnull;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -35,10 +37,12 @@ public class SourceService {
 
   private final DbClient dbClient;
   private final HtmlSourceDecorator htmlDecorator;
+  private final HtmlSourceCache htmlCache;
 
-  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator) {
+  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator, HtmlSourceCache htmlCache) {
     this.dbClient = dbClient;
     this.htmlDecorator = htmlDecorator;
+    this.htmlCache = htmlCache;
   }
 
   /**
@@ -58,8 +62,36 @@ public class SourceService {
     return getLines(dbSession, fileUuid, from, toInclusive, LineToRaw.INSTANCE);
   }
 
+  /**
+   * Returns a range of lines decorated as HTML. Lines are loaded from {@link HtmlSourceCache} when
+   * the sources of the file have not changed since they have been decorated.
+   * @see #getLines(DbSession, String, int, int)
+   */
   public Optional<Iterable<String>> getLinesAsHtml(DbSession dbSession, String fileUuid, int from, int toInclusive) {
-    return getLines(dbSession, fileUuid, from, toInclusive, lineToHtml());
+    verifyRange(from, toInclusive);
+    String dataHash = dbClient.fileSourceDao().selectDataHashByFileUuid(dbSession, fileUuid);
+    if (dataHash != null) {
+      List<String> cachedLines = htmlCache.get(fileUuid, dataHash, from, toInclusive);
+      if (cachedLines != null) {
+        return Optional.<Iterable<String>>of(cachedLines);
+      }
+    }
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+    if (dto == null) {
+      return Optional.absent();
+    }
+    DbFileSources.Data data = dto.getSourceData();
+    List<String> htmlLines = new ArrayList<>();
+    for (DbFileSources.Line line : FluentIterable.from(data.getLinesList())
+      .filter(new IsGreaterOrEqualThanLine(from))
+      .limit(toInclusive - from + 1)) {
+      String html = htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
+      if (html != null && dto.getDataHash() != null) {
+        htmlCache.put(fileUuid, dto.getDataHash(), data.getLinesCount(), line.getLine(), html);
+      }
+      htmlLines.add(html);
+    }
+    return Optional.<Iterable<String>>of(htmlLines);
   }
 
   /**
@@ -80,8 +112,7 @@ public class SourceService {
   }
 
   private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
-    verifyLine(from);
-    Preconditions.checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
+    verifyRange(from, toInclusive);
     FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
     if (dto == null) {
       return Optional.absent();
@@ -93,17 +124,13 @@ public class SourceService {
       .transform(function));
   }
 
-  private static void verifyLine(int line) {
-    Preconditions.checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
+  private static void verifyRange(int from, int toInclusive) {
+    verifyLine(from);
+    Preconditions.checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
   }
 
-  private Function<DbFileSources.Line, String> lineToHtml() {
-    return new Function<DbFileSources.Line, String>() {
-      @Override
-      public String apply(@Nonnull DbFileSources.Line line) {
-        return htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
-      }
-    };
+  private static void verifyLine(int line) {
+    Preconditions.checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
   }
 
   private enum LineToRaw implements Function<DbFileSources.Line, String> {
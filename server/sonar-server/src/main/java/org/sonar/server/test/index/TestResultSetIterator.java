@@ -34,6 +34,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ResultSetIterator;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.CoveredLines;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper.Row;
@@ -105,7 +106,7 @@ public class TestResultSetIterator extends ResultSetIterator<Row> {
       for (DbFileSources.Test.CoveredFile coveredFile : test.getCoveredFileList()) {
         writer.beginObject();
         writer.prop(FIELD_COVERED_FILE_UUID, coveredFile.getFileUuid());
-        writer.name(FIELD_COVERED_FILE_LINES).valueObject(coveredFile.getCoveredLineList());
+        writer.name(FIELD_COVERED_FILE_LINES).valueObject(CoveredLines.getLineList(coveredFile));
         writer.endObject();
       }
       writer.endArray();
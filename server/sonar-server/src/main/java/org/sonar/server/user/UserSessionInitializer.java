@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Optional;
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.usertoken.UserTokenAuthenticator;
+
+/**
+ * Initializes the user session of the requests that are not processed by Ruby on Rails. Only anonymous requests and
+ * requests authenticated by an access token are supported, as other authentication methods are implemented by Rails.
+ * See authenticated_system.rb
+ */
+@ServerSide
+public class UserSessionInitializer {
+
+  private static final String AUTHORIZATION_HEADER = "Authorization";
+  private static final String BASIC_AUTHORIZATION_PREFIX = "BASIC ";
+  private static final String REMEMBER_ME_COOKIE = "auth_token";
+
+  private final DbClient dbClient;
+  private final ThreadLocalUserSession threadLocalSession;
+  private final UserTokenAuthenticator tokenAuthenticator;
+  private final Settings settings;
+
+  public UserSessionInitializer(DbClient dbClient, ThreadLocalUserSession threadLocalSession, UserTokenAuthenticator tokenAuthenticator,
+    Settings settings) {
+    this.dbClient = dbClient;
+    this.threadLocalSession = threadLocalSession;
+    this.tokenAuthenticator = tokenAuthenticator;
+    this.settings = settings;
+  }
+
+  /**
+   * @return false if the user session can not be initialized in Java, so the request must be processed by Rails.
+   */
+  public boolean initUserSession(HttpServletRequest request) {
+    if (request.getSession(false) != null || hasCookie(request, REMEMBER_ME_COOKIE)) {
+      // user may be logged in through the web application
+      return false;
+    }
+    String authorization = request.getHeader(AUTHORIZATION_HEADER);
+    if (authorization == null) {
+      if (settings.getBoolean(CoreProperties.CORE_FORCE_AUTHENTICATION_PROPERTY)) {
+        return false;
+      }
+      threadLocalSession.set(newSession(request));
+      return true;
+    }
+    String token = getAccessToken(authorization);
+    if (token == null) {
+      return false;
+    }
+    Optional<String> login = tokenAuthenticator.authenticate(token);
+    return login.isPresent() && initAuthenticatedSession(request, login.get());
+  }
+
+  private boolean initAuthenticatedSession(HttpServletRequest request, String login) {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      UserDto user = dbClient.userDao().selectActiveUserByLogin(dbSession, login);
+      if (user == null) {
+        return false;
+      }
+      List<GroupDto> groups = dbClient.groupDao().selectByUserLogin(dbSession, login);
+      String[] groupNames = new String[groups.size()];
+      for (int i = 0; i < groupNames.length; i++) {
+        groupNames[i] = groups.get(i).getName();
+      }
+      threadLocalSession.set(newSession(request)
+        .setLogin(user.getLogin())
+        .setName(user.getName())
+        .setUserId(user.getId().intValue())
+        .setUserGroups(groupNames));
+      return true;
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+
+  private ServerUserSession newSession(HttpServletRequest request) {
+    return new ServerUserSession(dbClient.authorizationDao(), dbClient.resourceDao())
+      .setLocale(request.getLocale());
+  }
+
+  /**
+   * The access token is sent as the login of Basic authentication, with an empty password
+   */
+  @CheckForNull
+  private static String getAccessToken(String authorization) {
+    if (!authorization.toUpperCase().startsWith(BASIC_AUTHORIZATION_PREFIX)) {
+      return null;
+    }
+    String credentials;
+    try {
+      credentials = new String(BaseEncoding.base64().decode(authorization.substring(BASIC_AUTHORIZATION_PREFIX.length()).trim()), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    int separator = credentials.indexOf(':');
+    if (separator <= 0 || separator != credentials.length() - 1) {
+      return null;
+    }
+    return credentials.substring(0, separator);
+  }
+
+  private static boolean hasCookie(HttpServletRequest request, String name) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (name.equals(cookie.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
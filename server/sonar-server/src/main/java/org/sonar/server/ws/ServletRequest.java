@@ -59,6 +59,12 @@ public class ServletRequest extends ValidatingRequest {
         MediaTypes.DEFAULT));
   }
 
+  @Override
+  @CheckForNull
+  public String header(String name) {
+    return source.getHeader(name);
+  }
+
   @Override
   public boolean hasParam(String key) {
     return source.getParameterMap().containsKey(key) || params.keySet().contains(key);
@@ -20,6 +20,7 @@
 package org.sonar.server.ws;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
@@ -27,19 +28,51 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletResponse;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.api.utils.text.XmlWriter;
 import org.sonarqube.ws.MediaTypes;
 
+import static com.google.common.base.Preconditions.checkState;
+
 public class ServletResponse implements Response {
 
   private Map<String, String> headers = new HashMap<>();
 
+  @Nullable
+  private final HttpServletResponse target;
+
+  private final ServletStream stream;
+
+  /**
+   * Response buffered in memory, to be written by Rails. See java_ws_controller.rb
+   */
+  public ServletResponse() {
+    this(null);
+  }
+
+  /**
+   * Response directly written to {@code target}. Status, media type and headers must be set before
+   * writing to output.
+   * @since 5.5
+   */
+  public ServletResponse(@Nullable HttpServletResponse target) {
+    this.target = target;
+    this.stream = new ServletStream(target);
+  }
+
   public static class ServletStream implements Stream {
     private String mediaType;
     private int httpStatus = 200;
     private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    @Nullable
+    private final HttpServletResponse target;
+
+    private ServletStream(@Nullable HttpServletResponse target) {
+      this.target = target;
+    }
 
     @CheckForNull
     public String mediaType() {
@@ -53,32 +86,51 @@ public class ServletResponse implements Response {
     @Override
     public ServletStream setMediaType(String s) {
       this.mediaType = s;
+      if (target != null) {
+        target.setContentType(s);
+      }
       return this;
     }
 
     @Override
     public ServletStream setStatus(int httpStatus) {
       this.httpStatus = httpStatus;
+      if (target != null) {
+        target.setStatus(httpStatus);
+      }
       return this;
     }
 
     @Override
     public OutputStream output() {
-      return output;
+      if (target == null) {
+        return output;
+      }
+      try {
+        return target.getOutputStream();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to get output stream of response", e);
+      }
     }
 
     public String outputAsString() {
+      checkState(target == null, "Output of streamed response can not be read");
       return new String(output.toByteArray(), StandardCharsets.UTF_8);
     }
 
+    /**
+     * @throws IllegalStateException if the response is streamed and is already committed
+     */
     public ServletStream reset() {
-      output.reset();
+      if (target == null) {
+        output.reset();
+      } else {
+        target.resetBuffer();
+      }
       return this;
     }
   }
 
-  private final ServletStream stream = new ServletStream();
-
   @Override
   public JsonWriter newJsonWriter() {
     stream.setMediaType(MediaTypes.JSON);
@@ -105,6 +157,9 @@ public class ServletResponse implements Response {
   @Override
   public Response setHeader(String name, String value) {
     headers.put(name, value);
+    if (target != null) {
+      target.setHeader(name, value);
+    }
     return this;
   }
 
@@ -21,10 +21,14 @@ package org.sonar.server.ws;
 
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.picocontainer.Startable;
 import org.sonar.api.i18n.I18n;
 import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.RailsHandler;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
 import org.sonar.api.utils.log.Loggers;
@@ -48,6 +52,7 @@ public class WebServiceEngine implements Startable {
   private final WebService.Context context;
   private final I18n i18n;
   private final UserSession userSession;
+  private final Map<String, WebService.Action> javaActionsByPath = new HashMap<>();
 
   public WebServiceEngine(WebService[] webServices, I18n i18n, UserSession userSession) {
     this.userSession = userSession;
@@ -55,6 +60,13 @@ public class WebServiceEngine implements Startable {
     for (WebService webService : webServices) {
       webService.define(context);
     }
+    for (WebService.Controller controller : context.controllers()) {
+      for (WebService.Action action : controller.actions()) {
+        if (!(action.handler() instanceof RailsHandler)) {
+          javaActionsByPath.put(action.path(), action);
+        }
+      }
+    }
     this.i18n = i18n;
   }
 
@@ -76,6 +88,23 @@ public class WebServiceEngine implements Startable {
     return context.controllers();
   }
 
+  /**
+   * Action implemented in Java and requested by the given path, for example "api/issues/search" or
+   * "api/issues/search.protobuf". Returns null if the path does not relate to such an action.
+   * @since 5.5
+   */
+  @CheckForNull
+  public WebService.Action getJavaAction(String path) {
+    WebService.Action action = javaActionsByPath.get(path);
+    if (action == null) {
+      int formatSeparator = path.lastIndexOf('.');
+      if (formatSeparator > path.lastIndexOf('/')) {
+        action = javaActionsByPath.get(path.substring(0, formatSeparator));
+      }
+    }
+    return action;
+  }
+
   public void execute(ValidatingRequest request, ServletResponse response,
     String controllerPath, String actionKey) {
     try {
@@ -114,7 +143,13 @@ public class WebServiceEngine implements Startable {
 
   private void sendErrors(ServletResponse response, int status, Errors errors) {
     ServletResponse.ServletStream stream = response.stream();
-    stream.reset();
+    try {
+      stream.reset();
+    } catch (IllegalStateException e) {
+      // response is streamed and has already been partially sent
+      Loggers.get(getClass()).error("Fail to send errors with status " + status + ", response is already committed", e);
+      return;
+    }
     stream.setStatus(status);
     stream.setMediaType(MediaTypes.JSON);
     JsonWriter json = JsonWriter.of(new OutputStreamWriter(stream.output(), StandardCharsets.UTF_8));
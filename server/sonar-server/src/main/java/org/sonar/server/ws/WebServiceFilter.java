@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.util.Collections;
+import javax.annotation.CheckForNull;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.platform.Platform;
+import org.sonar.server.user.UserSessionInitializer;
+
+/**
+ * Executes the web services implemented in Java without going through Ruby on Rails, so that responses are
+ * streamed instead of being buffered. Requests that can't be processed in Java are forwarded to Rails
+ * (see Api::JavaWsController): web services implemented in Rails, multipart requests and requests that
+ * must be authenticated by Rails.
+ *
+ * @since 5.5
+ */
+public class WebServiceFilter implements Filter {
+
+  private static final String INDEX_ACTION = "index";
+
+  private final Platform platform;
+
+  public WebServiceFilter() {
+    this.platform = Platform.getInstance();
+  }
+
+  @VisibleForTesting
+  WebServiceFilter(Platform platform) {
+    this.platform = platform;
+  }
+
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    // nothing to do
+  }
+
+  @Override
+  public void destroy() {
+    // nothing to do
+  }
+
+  @Override
+  public void doFilter(javax.servlet.ServletRequest servletRequest, javax.servlet.ServletResponse servletResponse, FilterChain chain)
+    throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    ComponentContainer container = platform.getContainer();
+    WebServiceEngine engine = container.getComponentByType(WebServiceEngine.class);
+    UserSessionInitializer userSessionInitializer = container.getComponentByType(UserSessionInitializer.class);
+
+    WebService.Action action = null;
+    if (engine != null && userSessionInitializer != null && !isMultipart(request)) {
+      action = getAction(engine, request);
+    }
+    if (action == null || !userSessionInitializer.initUserSession(request)) {
+      chain.doFilter(servletRequest, servletResponse);
+      return;
+    }
+
+    String controllerPath = StringUtils.removeEnd(action.path(), "/" + action.key());
+    engine.execute(new ServletRequest(request, Collections.<String, Object>emptyMap()),
+      new ServletResponse((HttpServletResponse) servletResponse), controllerPath, action.key());
+  }
+
+  @CheckForNull
+  private static WebService.Action getAction(WebServiceEngine engine, HttpServletRequest request) {
+    String path = StringUtils.removeStart(StringUtils.removeStart(request.getRequestURI(), request.getContextPath()), "/");
+    WebService.Action action = engine.getJavaAction(path);
+    if (action == null) {
+      // the action "index" can be requested with the path of its controller
+      action = engine.getJavaAction(path + "/" + INDEX_ACTION);
+    }
+    return action;
+  }
+
+  private static boolean isMultipart(HttpServletRequest request) {
+    String contentType = request.getContentType();
+    return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+  }
+}
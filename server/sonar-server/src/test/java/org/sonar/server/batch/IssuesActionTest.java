@@ -20,7 +20,13 @@
 package org.sonar.server.batch;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -34,7 +40,9 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.batch.protocol.Constants.Severity;
 import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.component.ComponentFinder;
@@ -47,12 +55,17 @@ import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.properties.ProjectSettingsFactory;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
 import org.sonar.server.ws.WsTester;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class IssuesActionTest {
@@ -66,6 +79,9 @@ public class IssuesActionTest {
   final static String FILE_KEY = "Action.java";
   static final String FILE_UUID = "CDEF";
 
+  static final long NOW = 1_500_000_000_000L;
+  static final long DAY = 24 * 60 * 60 * 1_000L;
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -78,6 +94,8 @@ public class IssuesActionTest {
   @Rule
   public UserSessionRule userSessionRule = UserSessionRule.standalone();
 
+  System2 system2 = mock(System2.class);
+  Settings settings = new Settings();
   IssueIndex issueIndex;
   IssueIndexer issueIndexer;
   IssueAuthorizationIndexer issueAuthorizationIndexer;
@@ -94,7 +112,10 @@ public class IssuesActionTest {
     issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule);
     issueIndexer = new IssueIndexer(null, es.client());
     issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, es.client());
-    issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()));
+    when(system2.now()).thenReturn(NOW);
+    settings.setProperty(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES, 30);
+    issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()),
+      new ProjectSettingsFactory(settings, db.getDbClient().propertiesDao()), system2);
 
     tester = new WsTester(new BatchWs(new BatchIndex(mock(Server.class)), issuesAction));
   }
@@ -317,6 +338,119 @@ public class IssuesActionTest {
     assertThat(serverIssue.getModuleKey()).isEqualTo(MODULE_KEY);
   }
 
+  @Test
+  public void return_only_issues_changed_since_date_including_closed_issues() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+
+    indexIssues(
+      IssueTesting.newDoc("OLD", file).setTechnicalUpdateDate(new Date(NOW - 3 * DAY)),
+      IssueTesting.newDoc("UPDATED", file).setTechnicalUpdateDate(new Date(NOW - DAY)),
+      IssueTesting.newDoc("CLOSED", file).setStatus("CLOSED").setResolution("FIXED").setTechnicalUpdateDate(new Date(NOW - DAY)));
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    TestResponse response = new WsActionTester(issuesAction).newRequest()
+      .setParam("key", PROJECT_KEY)
+      .setParam("since", String.valueOf(NOW - 2 * DAY))
+      .execute();
+
+    assertThat(response.getHeader("Sonar-Incremental")).isEqualTo("true");
+    assertThat(readStatusByKey(response.getInputStream())).containsOnly(entry("UPDATED", "OPEN"), entry("CLOSED", "CLOSED"));
+  }
+
+  @Test
+  public void return_all_issues_if_closed_issues_changed_since_date_may_have_been_purged() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+    settings.setProperty(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES, 5);
+
+    indexIssues(
+      IssueTesting.newDoc("OLD", file).setTechnicalUpdateDate(new Date(NOW - 10 * DAY)),
+      IssueTesting.newDoc("UPDATED", file).setTechnicalUpdateDate(new Date(NOW - DAY)),
+      IssueTesting.newDoc("CLOSED", file).setStatus("CLOSED").setResolution("FIXED").setTechnicalUpdateDate(new Date(NOW - DAY)));
+    addBrowsePermissionOnComponent(MODULE_KEY);
+
+    TestResponse response = new WsActionTester(issuesAction).newRequest()
+      .setParam("key", MODULE_KEY)
+      .setParam("since", String.valueOf(NOW - 6 * DAY))
+      .execute();
+
+    assertThat(response.getHeader("Sonar-Incremental")).isEqualTo("false");
+    assertThat(readStatusByKey(response.getInputStream())).containsOnly(entry("OLD", "OPEN"), entry("UPDATED", "OPEN"));
+  }
+
+  @Test
+  public void compress_response_if_accepted_by_client() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+    indexIssues(IssueTesting.newDoc("EFGH", file));
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsActionTester actionTester = new WsActionTester(issuesAction);
+
+    TestResponse response = actionTester.newRequest()
+      .setParam("key", PROJECT_KEY)
+      .setHeader("Accept-Encoding", "gzip, deflate")
+      .execute();
+
+    assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(new GZIPInputStream(response.getInputStream()));
+    assertThat(serverIssue.getKey()).isEqualTo("EFGH");
+  }
+
+  @Test
+  public void do_not_compress_response_if_not_accepted_by_client() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+    indexIssues(IssueTesting.newDoc("EFGH", file));
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsActionTester actionTester = new WsActionTester(issuesAction);
+
+    TestResponse response = actionTester.newRequest().setParam("key", PROJECT_KEY).execute();
+
+    assertThat(response.getHeader("Content-Encoding")).isNull();
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(response.getInputStream());
+    assertThat(serverIssue.getKey()).isEqualTo("EFGH");
+  }
+
+  @Test
+  public void return_date_of_next_incremental_request() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project);
+    db.getSession().commit();
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    TestResponse response = new WsActionTester(issuesAction).newRequest().setParam("key", PROJECT_KEY).execute();
+
+    assertThat(response.getHeader("Sonar-Next-Since")).isEqualTo(String.valueOf(NOW));
+  }
+
+  @Test
+  public void next_incremental_request_returns_issues_changed_by_task_in_progress() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project);
+    insertCeTask("TASK_1", PROJECT_UUID, CeQueueDto.Status.IN_PROGRESS, NOW - 5_000L);
+    insertCeTask("TASK_2", PROJECT_UUID, CeQueueDto.Status.PENDING, null);
+    insertCeTask("TASK_3", "OTHER_PROJECT", CeQueueDto.Status.IN_PROGRESS, NOW - 10_000L);
+    db.getSession().commit();
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    TestResponse response = new WsActionTester(issuesAction).newRequest().setParam("key", PROJECT_KEY).execute();
+
+    assertThat(response.getHeader("Sonar-Next-Since")).isEqualTo(String.valueOf(NOW - 5_000L));
+  }
+
   @Test
   public void fail_without_browse_permission_on_file() throws Exception {
     addBrowsePermissionOnComponent(PROJECT_KEY);
@@ -325,6 +459,25 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", "Other component key").execute();
   }
 
+  private static Map<String, String> readStatusByKey(InputStream input) throws IOException {
+    Map<String, String> statusByKey = new HashMap<>();
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(input);
+    while (serverIssue != null) {
+      statusByKey.put(serverIssue.getKey(), serverIssue.getStatus());
+      serverIssue = ServerIssue.parseDelimitedFrom(input);
+    }
+    return statusByKey;
+  }
+
+  private void insertCeTask(String uuid, String componentUuid, CeQueueDto.Status status, @Nullable Long startedAt) {
+    db.getDbClient().ceQueueDao().insert(db.getSession(), new CeQueueDto()
+      .setUuid(uuid)
+      .setTaskType("REPORT")
+      .setComponentUuid(componentUuid)
+      .setStatus(status)
+      .setStartedAt(startedAt));
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
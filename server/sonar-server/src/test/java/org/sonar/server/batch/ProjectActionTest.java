@@ -19,11 +19,13 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.sonar.batch.protocol.input.FileData;
 import org.sonar.batch.protocol.input.ProjectRepositories;
+import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
@@ -87,4 +89,29 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void return_not_modified_if_etag_matches() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories().addFileData("module-1", "src/Foo.java", new FileData("hash", "rev"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    TestResponse firstResponse = newProtobufRequest().execute();
+    String etag = firstResponse.getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotEmpty();
+    assertThat(WsProjectResponse.parseFrom(firstResponse.getInputStream()).getFileDataByModuleAndPath()).hasSize(1);
+
+    TestResponse notModifiedResponse = newProtobufRequest().setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    assertThat(notModifiedResponse.getStatus()).isEqualTo(304);
+    assertThat(notModifiedResponse.getInput()).isEmpty();
+
+    TestResponse modifiedResponse = newProtobufRequest().setHeader(HttpHeaders.IF_NONE_MATCH, "\"outdated\"").execute();
+    assertThat(modifiedResponse.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+    assertThat(WsProjectResponse.parseFrom(modifiedResponse.getInputStream()).getFileDataByModuleAndPath()).hasSize(1);
+  }
+
+  private TestRequest newProtobufRequest() {
+    return ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar");
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.db.component.FilePathWithHashDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectFilesCacheTest {
+
+  private static final String PROJECT_UUID = "PROJECT_UUID";
+  private static final long SNAPSHOT_ID = 10L;
+
+  ProjectFilesCache underTest = new ProjectFilesCache();
+
+  @Test
+  public void get_cached_files_of_snapshot() {
+    List<FilePathWithHashDto> files = Arrays.asList(newFile("src/Foo.java"), newFile("src/Bar.java"));
+    underTest.put(PROJECT_UUID, SNAPSHOT_ID, files);
+
+    assertThat(underTest.get(PROJECT_UUID, SNAPSHOT_ID)).isSameAs(files);
+    assertThat(underTest.get("OTHER_PROJECT", SNAPSHOT_ID)).isNull();
+  }
+
+  @Test
+  public void files_of_previous_snapshot_are_not_returned() {
+    underTest.put(PROJECT_UUID, SNAPSHOT_ID, Arrays.asList(newFile("src/Foo.java")));
+
+    assertThat(underTest.get(PROJECT_UUID, SNAPSHOT_ID + 1)).isNull();
+  }
+
+  @Test
+  public void invalidate_project() {
+    underTest.put(PROJECT_UUID, SNAPSHOT_ID, Arrays.asList(newFile("src/Foo.java")));
+    underTest.put("OTHER_PROJECT", SNAPSHOT_ID, Collections.<FilePathWithHashDto>emptyList());
+
+    underTest.invalidate(PROJECT_UUID);
+
+    assertThat(underTest.get(PROJECT_UUID, SNAPSHOT_ID)).isNull();
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_keep_project_with_too_many_files() {
+    underTest.put(PROJECT_UUID, SNAPSHOT_ID, Collections.nCopies((int) ProjectFilesCache.MAX_FILES, newFile("src/Foo.java")));
+
+    assertThat(underTest.get(PROJECT_UUID, SNAPSHOT_ID)).isNull();
+  }
+
+  private static FilePathWithHashDto newFile(String path) {
+    FilePathWithHashDto file = new FilePathWithHashDto();
+    file.setPath(path);
+    return file;
+  }
+}
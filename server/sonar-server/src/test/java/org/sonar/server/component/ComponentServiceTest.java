@@ -40,6 +40,7 @@ import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.component.ResourceIndexDao;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
@@ -71,13 +72,14 @@ public class ComponentServiceTest {
   DbClient dbClient = dbTester.getDbClient();
   DbSession session = dbTester.getSession();
   I18n i18n = mock(I18n.class);
+  ComponentIndexer componentIndexer = mock(ComponentIndexer.class);
   ComponentService service;
 
   @Before
   public void setUp() {
     dbTester.truncateTables();
     when(i18n.message(Locale.getDefault(), "qualifier.TRK", "Project")).thenReturn("Project");
-    service = new ComponentService(dbClient, i18n, userSessionRule, System2.INSTANCE, new ComponentFinder(dbClient));
+    service = new ComponentService(dbClient, i18n, userSessionRule, System2.INSTANCE, new ComponentFinder(dbClient), componentIndexer);
   }
 
   @Test
@@ -125,6 +127,8 @@ public class ComponentServiceTest {
     // Check file key has been updated
     assertThat(service.getNullableByKey(file.key())).isNull();
     assertThat(service.getNullableByKey("sample2:root:src/File.xoo")).isNotNull();
+
+    verify(componentIndexer).index(project.uuid());
   }
 
   @Test
@@ -248,6 +252,8 @@ public class ComponentServiceTest {
     // Check file key has been updated
     assertThat(service.getNullableByKey(file.key())).isNull();
     assertThat(service.getNullableByKey("sample2:root:module:src/File.xoo")).isNotNull();
+
+    verify(componentIndexer).index(project.uuid());
   }
 
   @Test
@@ -291,6 +297,7 @@ public class ComponentServiceTest {
     assertThat(project.scope()).isEqualTo("PRJ");
     assertThat(project.qualifier()).isEqualTo("TRK");
     assertThat(project.getCreatedAt()).isNotNull();
+    verify(componentIndexer).index(project.uuid());
   }
 
   @Test
@@ -417,7 +424,7 @@ public class ComponentServiceTest {
       ComponentTesting.newProjectDto().setId(3L).setKey(projectKey)
     ));
 
-    service = new ComponentService(dbClient, i18n, userSessionRule, System2.INSTANCE, new ComponentFinder(dbClient));
+    service = new ComponentService(dbClient, i18n, userSessionRule, System2.INSTANCE, new ComponentFinder(dbClient), componentIndexer);
     service.create(NewComponent.create(projectKey, projectKey));
 
     verify(componentDao).delete(session, 2L);
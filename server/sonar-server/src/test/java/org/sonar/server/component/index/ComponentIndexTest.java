@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.SearchIdResult;
+import org.sonar.server.es.SearchOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.component.index.ComponentIndexDefinition.INDEX;
+import static org.sonar.server.component.index.ComponentIndexDefinition.TYPE_COMPONENT;
+
+public class ComponentIndexTest {
+
+  @ClassRule
+  public static EsTester es = new EsTester().addDefinitions(new ComponentIndexDefinition(new Settings()));
+
+  ComponentIndex underTest = new ComponentIndex(es.client());
+
+  @Before
+  public void setUp() throws Exception {
+    es.truncateIndices();
+    es.putDocuments(INDEX, TYPE_COMPONENT,
+      newDoc("P1", "P1", "org.apache:struts", "Apache Struts", null, "TRK", null),
+      newDoc("F1", "P1", "org.apache:struts:src/main/java/org/apache/struts/Action.java", "Action.java", "src/main/java/org/apache/struts/Action.java", "FIL", "java"),
+      newDoc("F2", "P1", "org.apache:struts:src/main/js/action.js", "action.js", "src/main/js/action.js", "FIL", "js"),
+      newDoc("P2", "P2", "org.codehaus.sonar:sonar", "SonarQube", null, "TRK", null),
+      newDoc("F3", "P1", "org.apache:struts:src/main/java/org/apache/struts/Removed.java", "Removed.java", "src/main/java/org/apache/struts/Removed.java", "FIL", "java")
+        .setEnabled(false));
+  }
+
+  @Test
+  public void sort_by_name_by_default() {
+    assertThat(search(new ComponentIndexQuery())).containsExactly("F1", "F2", "P1", "P2");
+  }
+
+  @Test
+  public void filter_on_qualifiers() {
+    assertThat(search(new ComponentIndexQuery().setQualifiers(Arrays.asList("TRK")))).containsExactly("P1", "P2");
+    assertThat(search(new ComponentIndexQuery().setQualifiers(Arrays.asList("FIL", "TRK")))).containsExactly("F1", "F2", "P1", "P2");
+  }
+
+  @Test
+  public void filter_on_language() {
+    assertThat(search(new ComponentIndexQuery().setLanguage("js"))).containsExactly("F2");
+  }
+
+  @Test
+  public void search_any_part_of_name() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("SONARQ"))).containsExactly("P2");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("qube"))).containsExactly("P2");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("he stru"))).containsExactly("P1");
+  }
+
+  @Test
+  public void search_any_part_of_key_or_path() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("apache:str"))).containsExactly("F1", "F2", "P1");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("haus.son"))).containsExactly("P2");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("main/js/"))).containsExactly("F2");
+  }
+
+  @Test
+  public void search_single_character() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("Q"))).containsExactly("P2");
+  }
+
+  @Test
+  public void search_text_longer_than_ngrams() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("java/org/apache/struts/ACTION"))).containsExactly("F1");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("codehaus.sonar:sonar"))).containsExactly("P2");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("codehaus.sonar:*"))).isEmpty();
+  }
+
+  @Test
+  public void search_beginning_of_key_or_path() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("org.codehaus"))).containsExactly("P2");
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("src/main/js"))).containsExactly("F2");
+  }
+
+  @Test
+  public void search_exact_key() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("org.apache:struts:src/main/js/action.js"))).containsExactly("F2");
+  }
+
+  @Test
+  public void ignore_disabled_components() {
+    assertThat(search(new ComponentIndexQuery().setNameOrKeyQuery("removed"))).isEmpty();
+    assertThat(underTest.search(new ComponentIndexQuery(), new SearchOptions()).getTotal()).isEqualTo(4);
+  }
+
+  @Test
+  public void paginate_results() {
+    SearchIdResult<String> result = underTest.search(new ComponentIndexQuery(), new SearchOptions().setPage(2, 3));
+
+    assertThat(result.getIds()).containsExactly("P2");
+    assertThat(result.getTotal()).isEqualTo(4);
+  }
+
+  private List<String> search(ComponentIndexQuery query) {
+    return underTest.search(query, new SearchOptions()).getIds();
+  }
+
+  private static ComponentDoc newDoc(String uuid, String projectUuid, String key, String name, String path, String qualifier, String language) {
+    return new ComponentDoc()
+      .setUuid(uuid)
+      .setProjectUuid(projectUuid)
+      .setKey(key)
+      .setName(name)
+      .setPath(path)
+      .setQualifier(qualifier)
+      .setLanguage(language)
+      .setEnabled(true);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.index;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.es.EsTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newModuleDto;
+import static org.sonar.db.component.ComponentTesting.newProjectDto;
+import static org.sonar.server.component.index.ComponentIndexDefinition.INDEX;
+import static org.sonar.server.component.index.ComponentIndexDefinition.TYPE_COMPONENT;
+
+public class ComponentIndexerTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new ComponentIndexDefinition(new Settings()));
+
+  ComponentDbTester componentDb = new ComponentDbTester(dbTester);
+
+  ComponentIndexer underTest = new ComponentIndexer(dbTester.getDbClient(), esTester.client());
+
+  @Before
+  public void setUp() {
+    dbTester.truncateTables();
+    esTester.truncateIndices();
+    underTest.setEnabled(true);
+  }
+
+  @Test
+  public void index_nothing() {
+    underTest.index();
+
+    assertThat(esTester.countDocuments(INDEX, TYPE_COMPONENT)).isZero();
+  }
+
+  @Test
+  public void index_all_components_if_index_is_empty() {
+    ComponentDto project = componentDb.insertComponent(newProjectDto("P1").setKey("org.struts:struts").setName("Struts"));
+    ComponentDto module = componentDb.insertComponent(newModuleDto("M1", project));
+    ComponentDto file = componentDb.insertComponent(newFileDto(module, "F1").setPath("src/Foo.java").setLanguage("java"));
+    componentDb.insertComponent(newFileDto(module, "F2").setEnabled(false));
+
+    underTest.index();
+
+    assertThat(esTester.getIds(INDEX, TYPE_COMPONENT)).containsOnly("P1", "M1", "F1", "F2");
+    assertThat(getDoc("F2").isEnabled()).isFalse();
+    ComponentDoc doc = getDoc("F1");
+    assertThat(doc.projectUuid()).isEqualTo("P1");
+    assertThat(doc.key()).isEqualTo(file.key());
+    assertThat(doc.name()).isEqualTo(file.name());
+    assertThat(doc.path()).isEqualTo("src/Foo.java");
+    assertThat(doc.qualifier()).isEqualTo("FIL");
+    assertThat(doc.language()).isEqualTo("java");
+    assertThat(doc.isEnabled()).isTrue();
+  }
+
+  @Test
+  public void do_not_reindex_if_index_is_not_empty() {
+    componentDb.insertComponent(newProjectDto("P1"));
+    underTest.index();
+    componentDb.insertComponent(newProjectDto("P2"));
+
+    underTest.index();
+
+    assertThat(esTester.getIds(INDEX, TYPE_COMPONENT)).containsOnly("P1");
+  }
+
+  @Test
+  public void index_components_of_project() {
+    ComponentDto project = componentDb.insertComponent(newProjectDto("P1"));
+    ComponentDto file = componentDb.insertComponent(newFileDto(project, "F1"));
+    componentDb.insertComponent(newProjectDto("P2"));
+    underTest.index();
+
+    // file is removed and a new file is added by analysis
+    dbTester.getDbClient().componentDao().update(dbTester.getSession(), file.setEnabled(false));
+    componentDb.insertComponent(newFileDto(project, "F2"));
+    underTest.index("P1");
+
+    assertThat(esTester.getIds(INDEX, TYPE_COMPONENT)).containsOnly("P1", "F1", "F2", "P2");
+    assertThat(getDoc("F1").isEnabled()).isFalse();
+    assertThat(getDoc("F2").isEnabled()).isTrue();
+  }
+
+  @Test
+  public void delete_project() {
+    ComponentDto project = componentDb.insertComponent(newProjectDto("P1"));
+    componentDb.insertComponent(newFileDto(project, "F1"));
+    componentDb.insertComponent(newProjectDto("P2"));
+    underTest.index();
+
+    underTest.deleteProject("P1");
+
+    assertThat(esTester.getIds(INDEX, TYPE_COMPONENT)).containsOnly("P2");
+  }
+
+  @Test
+  public void delete_component() {
+    ComponentDto project = componentDb.insertComponent(newProjectDto("P1"));
+    componentDb.insertComponent(newFileDto(project, "F1"));
+    componentDb.insertComponent(newFileDto(project, "F2"));
+    underTest.index();
+
+    underTest.deleteByComponent("F1");
+
+    assertThat(esTester.getIds(INDEX, TYPE_COMPONENT)).containsOnly("P1", "F2");
+  }
+
+  private ComponentDoc getDoc(String uuid) {
+    for (ComponentDoc doc : esTester.getDocuments(INDEX, TYPE_COMPONENT, ComponentDoc.class)) {
+      if (doc.uuid().equals(uuid)) {
+        return doc;
+      }
+    }
+    throw new IllegalArgumentException("Document not found: " + uuid);
+  }
+}
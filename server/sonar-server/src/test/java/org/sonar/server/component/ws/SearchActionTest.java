@@ -23,11 +23,13 @@ import com.google.common.base.Joiner;
 import java.io.IOException;
 import java.io.InputStream;
 import org.junit.Before;
+import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.server.ws.WebService.Param;
 import org.sonar.api.utils.System2;
@@ -36,6 +38,10 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ResourceTypesRule;
+import org.sonar.server.component.index.ComponentIndex;
+import org.sonar.server.component.index.ComponentIndexDefinition;
+import org.sonar.server.component.index.ComponentIndexer;
+import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.UnauthorizedException;
@@ -65,6 +71,8 @@ public class SearchActionTest {
   public UserSessionRule userSession = UserSessionRule.standalone();
   @Rule
   public DbTester db = DbTester.create(System2.INSTANCE);
+  @ClassRule
+  public static EsTester es = new EsTester().addDefinitions(new ComponentIndexDefinition(new Settings()));
   ComponentDbTester componentDb = new ComponentDbTester(db);
   I18nRule i18n = new I18nRule();
 
@@ -74,12 +82,13 @@ public class SearchActionTest {
 
   @Before
   public void setUp() {
+    es.truncateIndices();
     userSession.login().setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
     resourceTypes.setAllQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE, Qualifiers.DIRECTORY, Qualifiers.FILE);
     languages = mock(Languages.class);
     when(languages.all()).thenReturn(javaLanguage());
 
-    ws = new WsActionTester(new SearchAction(db.getDbClient(), resourceTypes, i18n, userSession, languages));
+    ws = new WsActionTester(new SearchAction(db.getDbClient(), new ComponentIndex(es.client()), resourceTypes, i18n, userSession, languages));
 
   }
 
@@ -105,6 +114,7 @@ public class SearchActionTest {
         .setLanguage("java")
         .setName("File Name"));
     db.commit();
+    indexComponents();
 
     String response = newRequest(Qualifiers.PROJECT, Qualifiers.MODULE, Qualifiers.DIRECTORY, Qualifiers.FILE)
       .setMediaType(MediaTypes.JSON)
@@ -122,6 +132,7 @@ public class SearchActionTest {
           .setName("Project Name " + i));
     }
     db.commit();
+    indexComponents();
 
     InputStream responseStream = newRequest(Qualifiers.PROJECT)
       .setParam(Param.PAGE, "2")
@@ -139,6 +150,7 @@ public class SearchActionTest {
     componentDb.insertComponent(newProjectDto().setKey("project-_%-key"));
     componentDb.insertComponent(newProjectDto().setKey("project-key-without-escaped-characters"));
     db.commit();
+    indexComponents();
 
     InputStream responseStream = newRequest(Qualifiers.PROJECT)
       .setParam(Param.TEXT_QUERY, "project-_%-key")
@@ -154,6 +166,7 @@ public class SearchActionTest {
     componentDb.insertComponent(newProjectDto().setKey("java-project").setLanguage("java"));
     componentDb.insertComponent(newProjectDto().setKey("cpp-project").setLanguage("cpp"));
     db.commit();
+    indexComponents();
 
     InputStream responseStream = newRequest(Qualifiers.PROJECT)
       .setParam(PARAM_LANGUAGE, "java")
@@ -188,6 +201,43 @@ public class SearchActionTest {
     newRequest(Qualifiers.PROJECT).execute();
   }
 
+  @Test
+  public void search_by_any_part_of_name() throws IOException {
+    componentDb.insertComponent(newProjectDto().setKey("struts").setName("Apache Struts"));
+    componentDb.insertComponent(newProjectDto().setKey("sonarqube").setName("SonarQube"));
+    db.commit();
+    indexComponents();
+
+    InputStream responseStream = newRequest(Qualifiers.PROJECT)
+      .setParam(Param.TEXT_QUERY, "TRUT")
+      .execute().getInputStream();
+    SearchWsResponse response = SearchWsResponse.parseFrom(responseStream);
+
+    assertThat(response.getPaging().getTotal()).isEqualTo(1);
+    assertThat(response.getComponentsList()).extracting("key").containsExactly("struts");
+  }
+
+  @Test
+  public void do_not_count_disabled_components() throws IOException {
+    for (int i = 1; i <= 4; i++) {
+      componentDb.insertComponent(newProjectDto("project-uuid-" + i).setName("Project Name " + i).setEnabled(i % 2 == 0));
+    }
+    db.commit();
+    indexComponents();
+
+    InputStream responseStream = newRequest(Qualifiers.PROJECT)
+      .setParam(Param.PAGE_SIZE, "1")
+      .execute().getInputStream();
+    SearchWsResponse response = SearchWsResponse.parseFrom(responseStream);
+
+    assertThat(response.getPaging().getTotal()).isEqualTo(2);
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("project-uuid-2");
+  }
+
+  private void indexComponents() {
+    new ComponentIndexer(db.getDbClient(), es.client()).setEnabled(true).index();
+  }
+
   private TestRequest newRequest(String... qualifiers) {
     return ws.newRequest()
       .setMediaType(MediaTypes.PROTOBUF)
@@ -0,0 +1,129 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.component;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.batch.protocol.Constants;
+import org.sonar.batch.protocol.output.BatchReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactComponentTreeTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  CompactComponentTree.Builder underTest = CompactComponentTree.builder();
+
+  @Test
+  public void build_tree_of_views() {
+    int project = underTest.addModule(BatchReport.Component.newBuilder()
+      .setRef(1).setType(Constants.ComponentType.PROJECT).setName("Project").setDescription("Desc").setVersion("1.0")
+      .addChildRef(2).build(), -1, "PROJECT_KEY", "PROJECT_UUID");
+    int module = underTest.addModule(BatchReport.Component.newBuilder()
+      .setRef(2).setType(Constants.ComponentType.MODULE).setName("Module").addChildRef(3).build(), project, "MODULE_KEY", "MODULE_UUID");
+    int dir = underTest.addDirectoryOrFile(BatchReport.Component.newBuilder()
+      .setRef(3).setType(Constants.ComponentType.DIRECTORY).setPath("src/main/java").addChildRef(4).addChildRef(5).build(), module, "DIR_UUID");
+    underTest.addDirectoryOrFile(BatchReport.Component.newBuilder()
+      .setRef(4).setType(Constants.ComponentType.FILE).setPath("src/main/java/Foo.java").setLanguage("java").build(), dir, "FILE_1_UUID");
+    underTest.addDirectoryOrFile(BatchReport.Component.newBuilder()
+      .setRef(5).setType(Constants.ComponentType.FILE).setPath("src/test/java/FooTest.java").setIsTest(true).setReusePrevious(true).build(), dir, "FILE_2_UUID");
+
+    CompactComponentTree tree = underTest.build();
+    assertThat(tree.size()).isEqualTo(5);
+
+    Component root = tree.getRoot();
+    assertThat(root.getType()).isEqualTo(Component.Type.PROJECT);
+    assertThat(root.getKey()).isEqualTo("PROJECT_KEY");
+    assertThat(root.getUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(root.getName()).isEqualTo("Project");
+    assertThat(root.getDescription()).isEqualTo("Desc");
+    assertThat(root.getReportAttributes().getRef()).isEqualTo(1);
+    assertThat(root.getReportAttributes().getVersion()).isEqualTo("1.0");
+    assertThat(root.getReportAttributes().getPath()).isNull();
+    assertThat(root.getChildren()).extracting("uuid").containsExactly("MODULE_UUID");
+
+    Component directory = root.getChildren().get(0).getChildren().get(0);
+    assertThat(directory.getType()).isEqualTo(Component.Type.DIRECTORY);
+    assertThat(directory.getKey()).isEqualTo("MODULE_KEY:src/main/java");
+    assertThat(directory.getName()).isEmpty();
+    assertThat(directory.getDescription()).isNull();
+    assertThat(directory.getChildren()).hasSize(2);
+
+    Component file1 = directory.getChildren().get(0);
+    assertThat(file1.getKey()).isEqualTo("MODULE_KEY:src/main/java/Foo.java");
+    assertThat(file1.getReportAttributes().getPath()).isEqualTo("src/main/java/Foo.java");
+    assertThat(file1.getFileAttributes().getLanguageKey()).isEqualTo("java");
+    assertThat(file1.getFileAttributes().isUnitTest()).isFalse();
+    assertThat(file1.getFileAttributes().isReusePrevious()).isFalse();
+    assertThat(file1.getChildren()).isEmpty();
+
+    // path not relative to the directory
+    Component file2 = directory.getChildren().get(1);
+    assertThat(file2.getKey()).isEqualTo("MODULE_KEY:src/test/java/FooTest.java");
+    assertThat(file2.getReportAttributes().getPath()).isEqualTo("src/test/java/FooTest.java");
+    assertThat(file2.getFileAttributes().getLanguageKey()).isNull();
+    assertThat(file2.getFileAttributes().isUnitTest()).isTrue();
+    assertThat(file2.getFileAttributes().isReusePrevious()).isTrue();
+  }
+
+  @Test
+  public void views_are_equal_if_they_have_same_uuid() {
+    underTest.addModule(BatchReport.Component.newBuilder().setRef(1).setType(Constants.ComponentType.PROJECT).build(), -1, "KEY", "UUID");
+    CompactComponentTree tree = underTest.build();
+
+    assertThat(tree.getRoot()).isEqualTo(tree.getRoot());
+    assertThat(tree.getRoot().hashCode()).isEqualTo(tree.getRoot().hashCode());
+    assertThat(tree.getRoot().toString()).contains("KEY");
+  }
+
+  @Test
+  public void fail_to_get_FileAttributes_of_directory() {
+    int project = underTest.addModule(BatchReport.Component.newBuilder().setRef(1).setType(Constants.ComponentType.PROJECT).addChildRef(2).build(),
+      -1, "KEY", "UUID");
+    underTest.addDirectoryOrFile(BatchReport.Component.newBuilder().setRef(2).setType(Constants.ComponentType.DIRECTORY).setPath("src").build(),
+      project, "DIR_UUID");
+    Component directory = underTest.build().getRoot().getChildren().get(0);
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Only component of type FILE have a FileAttributes object");
+
+    directory.getFileAttributes();
+  }
+
+  @Test
+  public void fail_to_build_if_children_are_missing() {
+    underTest.addModule(BatchReport.Component.newBuilder().setRef(1).setType(Constants.ComponentType.PROJECT).addChildRef(2).build(), -1, "KEY", "UUID");
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Missing children of component with ref 1");
+
+    underTest.build();
+  }
+
+  @Test
+  public void fail_to_add_file_without_parent() {
+    thrown.expect(IllegalArgumentException.class);
+
+    underTest.addDirectoryOrFile(BatchReport.Component.newBuilder().setRef(2).setType(Constants.ComponentType.FILE).build(), -1, "UUID");
+  }
+}
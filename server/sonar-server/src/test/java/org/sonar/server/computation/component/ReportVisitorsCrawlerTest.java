@@ -19,12 +19,15 @@
  */
 package org.sonar.server.computation.component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
@@ -102,6 +105,39 @@ public class ReportVisitorsCrawlerTest {
     inOrder.verify(spyPostOrderTypeAwareVisitor).visitProject(COMPONENT_TREE);
   }
 
+  @Test
+  public void path_of_visitor_is_not_changed_by_components_deeper_than_its_max_depth() throws Exception {
+    final List<Integer> currentPathElements = new ArrayList<>();
+    PathAwareVisitor<Integer> moduleVisitor = new TestPathAwareVisitor(CrawlerDepthLimit.MODULE, POST_ORDER) {
+      @Override
+      public void visitAny(Component component, Path<Integer> path) {
+        currentPathElements.add(path.current());
+      }
+    };
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.<ComponentVisitor>asList(moduleVisitor, spyPostOrderTypeAwareVisitor));
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(currentPathElements).containsExactly(3, 2, 1);
+  }
+
+  @Test
+  public void compute_cumulative_durations_when_requested() throws Exception {
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.<ComponentVisitor>asList(spyPreOrderTypeAwareVisitor, spyPathAwareVisitor), true);
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(underTest.getCumulativeDurations().keySet()).containsOnly(spyPreOrderTypeAwareVisitor, spyPathAwareVisitor);
+  }
+
+  @Test
+  public void fail_with_ISE_when_getting_durations_which_are_not_computed() throws Exception {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Durations of visitors are not computed");
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.<ComponentVisitor>asList(spyPreOrderTypeAwareVisitor));
+    underTest.visit(COMPONENT_TREE);
+    underTest.getCumulativeDurations();
+  }
+
   @Test
   public void fail_with_IAE_when_visitor_is_not_path_aware_or_type_aware() throws Exception {
     thrown.expect(IllegalArgumentException.class);
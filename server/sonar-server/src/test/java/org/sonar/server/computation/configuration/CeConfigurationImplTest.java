@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.configuration;
 
+import com.google.common.base.Strings;
 import java.util.Random;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,6 +29,8 @@ import org.sonar.api.utils.MessageException;
 
 import static java.lang.Math.abs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_NODE_UUID_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_SHARED_PATH_PROPERTY;
 import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_WORKERS_COUNT_PROPERTY;
 
 public class CeConfigurationImplTest {
@@ -102,6 +105,50 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void getNodeUuid_is_generated_when_node_property_is_not_defined() {
+    CeConfigurationImpl underTest = new CeConfigurationImpl(settings);
+
+    assertThat(underTest.getNodeUuid()).isNotEmpty();
+    assertThat(new CeConfigurationImpl(settings).getNodeUuid()).isNotEqualTo(underTest.getNodeUuid());
+  }
+
+  @Test
+  public void getNodeUuid_returns_value_of_node_property() {
+    settings.setProperty(CE_NODE_UUID_PROPERTY, " node1 ");
+
+    assertThat(new CeConfigurationImpl(settings).getNodeUuid()).isEqualTo("node1");
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_node_property_is_too_long() {
+    settings.setProperty(CE_NODE_UUID_PROPERTY, Strings.repeat("a", 41));
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("of property " + CE_NODE_UUID_PROPERTY + " is invalid. It must not be longer than 40 characters");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void isClustered_when_shared_path_property_is_defined() {
+    assertThat(new CeConfigurationImpl(settings).isClustered()).isFalse();
+
+    settings.setProperty(CE_SHARED_PATH_PROPERTY, "/mnt/sonarqube");
+
+    assertThat(new CeConfigurationImpl(settings).isClustered()).isTrue();
+  }
+
+  @Test
+  public void getLeaseDuration_returns_default() {
+    assertThat(new CeConfigurationImpl(settings).getLeaseDuration()).isEqualTo(CeConfigurationImpl.DEFAULT_LEASE_DURATION);
+  }
+
+  @Test
+  public void getMaxClockSkew_returns_default() {
+    assertThat(new CeConfigurationImpl(settings).getMaxClockSkew()).isEqualTo(CeConfigurationImpl.DEFAULT_MAX_CLOCK_SKEW);
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
@@ -29,6 +29,10 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
+  private String nodeUuid = "NODE_1";
+  private long leaseDuration = CeConfigurationImpl.DEFAULT_LEASE_DURATION;
+  private long maxClockSkew = CeConfigurationImpl.DEFAULT_MAX_CLOCK_SKEW;
+  private boolean clustered = false;
 
   @Override
   public int getWorkerCount() {
@@ -50,4 +54,46 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(queuePollingDelay > 0, "Queue polling delay must be >= 0");
     this.queuePollingDelay = queuePollingDelay;
   }
+
+  @Override
+  public String getNodeUuid() {
+    return nodeUuid;
+  }
+
+  public CeConfigurationRule setNodeUuid(String nodeUuid) {
+    this.nodeUuid = nodeUuid;
+    return this;
+  }
+
+  @Override
+  public long getLeaseDuration() {
+    return leaseDuration;
+  }
+
+  public CeConfigurationRule setLeaseDuration(long leaseDuration) {
+    checkArgument(leaseDuration > 0, "Lease duration must be > 0");
+    this.leaseDuration = leaseDuration;
+    return this;
+  }
+
+  @Override
+  public long getMaxClockSkew() {
+    return maxClockSkew;
+  }
+
+  public CeConfigurationRule setMaxClockSkew(long maxClockSkew) {
+    checkArgument(maxClockSkew >= 0, "Max clock skew must be >= 0");
+    this.maxClockSkew = maxClockSkew;
+    return this;
+  }
+
+  @Override
+  public boolean isClustered() {
+    return clustered;
+  }
+
+  public CeConfigurationRule setClustered(boolean clustered) {
+    this.clustered = clustered;
+    return this;
+  }
 }
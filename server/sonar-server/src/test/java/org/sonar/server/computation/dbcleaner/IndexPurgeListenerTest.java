@@ -20,6 +20,7 @@
 package org.sonar.server.computation.dbcleaner;
 
 import org.junit.Test;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.test.index.TestIndexer;
 
 import static org.mockito.Mockito.mock;
@@ -30,11 +31,21 @@ public class IndexPurgeListenerTest {
   @Test
   public void call_test_indexer() {
     TestIndexer testIndexer = mock(TestIndexer.class);
-    IndexPurgeListener underTest = new IndexPurgeListener(testIndexer);
+    IndexPurgeListener underTest = new IndexPurgeListener(testIndexer, mock(ComponentIndexer.class));
 
     underTest.onComponentDisabling("123456");
 
     verify(testIndexer).deleteByFile("123456");
   }
 
+  @Test
+  public void call_component_indexer() {
+    ComponentIndexer componentIndexer = mock(ComponentIndexer.class);
+    IndexPurgeListener underTest = new IndexPurgeListener(mock(TestIndexer.class), componentIndexer);
+
+    underTest.onComponentDisabling("123456");
+
+    verify(componentIndexer).deleteByComponent("123456");
+  }
+
 }
@@ -43,8 +43,10 @@ import org.sonar.db.rule.RuleTesting;
 import org.sonar.server.computation.batch.BatchReportReaderRule;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.FileAttributes;
 import org.sonar.server.computation.component.TypeAwareVisitor;
 import org.sonar.server.computation.issue.commonrule.CommonRuleEngineImpl;
+import org.sonar.server.computation.qualityprofile.ActiveRule;
 import org.sonar.server.computation.qualityprofile.ActiveRulesHolderRule;
 import org.sonar.server.computation.source.SourceLinesRepositoryRule;
 import org.sonar.server.issue.IssueTesting;
@@ -119,7 +121,8 @@ public class IntegrateIssuesVisitorTest {
   public void setUp() throws Exception {
     treeRootHolder.setRoot(PROJECT);
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
-    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository);
+    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository,
+      activeRulesHolderRule);
   }
 
   @Test
@@ -240,6 +243,40 @@ public class IntegrateIssuesVisitorTest {
     assertThat(componentsWithUnprocessedIssues.getUuids()).isEmpty();
   }
 
+  @Test
+  public void keep_unmatched_base_issue_of_reused_file() throws Exception {
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    RuleKey ruleKey = RuleTesting.XOO_X1;
+    activeRulesHolderRule.put(new ActiveRule(ruleKey, Severity.MAJOR, Collections.<String, String>emptyMap()));
+    addBaseIssue(ruleKey);
+
+    // No issue in the report, file has not been analyzed by the scanner
+
+    underTest.visitAny(newReusedFile());
+
+    verify(issueLifecycle).doAutomaticTransition(defaultIssueCaptor.capture());
+    assertThat(defaultIssueCaptor.getValue().isBeingClosed()).isFalse();
+    List<DefaultIssue> issues = newArrayList(issueCache.traverse());
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).key()).isEqualTo("ISSUE");
+
+    assertThat(componentsWithUnprocessedIssues.getUuids()).isEmpty();
+  }
+
+  @Test
+  public void close_unmatched_base_issue_of_reused_file_if_rule_is_not_active_anymore() throws Exception {
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    RuleKey ruleKey = RuleTesting.XOO_X1;
+    addBaseIssue(ruleKey);
+
+    underTest.visitAny(newReusedFile());
+
+    verify(issueLifecycle).doAutomaticTransition(defaultIssueCaptor.capture());
+    assertThat(defaultIssueCaptor.getValue().isBeingClosed()).isTrue();
+    assertThat(defaultIssueCaptor.getValue().isOnDisabledRule()).isTrue();
+    assertThat(newArrayList(issueCache.traverse())).hasSize(1);
+  }
+
   @Test
   public void feed_component_issues_repo() throws Exception {
     componentsWithUnprocessedIssues.setUuids(Collections.<String>emptySet());
@@ -278,6 +315,14 @@ public class IntegrateIssuesVisitorTest {
     assertThat(componentIssuesRepository.getIssues(PROJECT)).isEmpty();
   }
 
+  private static Component newReusedFile() {
+    return builder(Component.Type.FILE, FILE_REF)
+      .setKey(FILE_KEY)
+      .setUuid(FILE_UUID)
+      .setFileAttributes(new FileAttributes(false, null, true))
+      .build();
+  }
+
   private void addBaseIssue(RuleKey ruleKey) {
     ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
     ComponentDto file = ComponentTesting.newFileDto(project, FILE_UUID).setKey(FILE_KEY);
@@ -41,11 +41,14 @@ import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.batch.BatchReportReaderRule;
+import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.FileAttributes;
 import org.sonar.server.computation.component.ReportComponent;
 import org.sonar.server.computation.metric.Metric;
 import org.sonar.server.computation.metric.MetricImpl;
@@ -54,10 +57,16 @@ import org.sonar.server.computation.metric.ReportMetricValidator;
 
 import static com.google.common.collect.FluentIterable.from;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -72,6 +81,8 @@ public class MeasureRepositoryImplTest {
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
@@ -93,11 +104,12 @@ public class MeasureRepositoryImplTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, treeRootHolder);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator,
+    treeRootHolder);
 
   private DbSession dbSession = dbTester.getSession();
 
@@ -159,6 +171,65 @@ public class MeasureRepositoryImplTest {
     assertThat(res).isAbsent();
   }
 
+  @Test
+  public void getRawMeasure_of_reused_file_returns_measure_of_previous_analysis_without_variations() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, LAST_SNAPSHOT_ID).setVariation(1, 2d));
+    dbSession.commit();
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1, metric2));
+    when(reportMetricValidator.validate(METRIC_KEY_1)).thenReturn(true);
+    when(reportMetricValidator.validate(METRIC_KEY_2)).thenReturn(true);
+    ReportComponent reusedFile = newReusedFile(3, FILE_COMPONENT_KEY);
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 10).addChildren(reusedFile).build());
+
+    Optional<Measure> res = underTest.getRawMeasure(reusedFile, metric1);
+
+    assertThat(res).isPresent();
+    assertThat(res.get().getStringValue()).isEqualTo(SOME_DATA);
+    assertThat(res.get().hasVariations()).isFalse();
+    assertThat(underTest.getRawMeasure(reusedFile, metric2)).isAbsent();
+  }
+
+  @Test
+  public void measures_of_previous_analysis_of_all_reused_files_are_loaded_at_once() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, LAST_SNAPSHOT_ID));
+    dbSession.commit();
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1));
+    when(reportMetricValidator.validate(METRIC_KEY_1)).thenReturn(true);
+    ReportComponent reusedFile = newReusedFile(3, FILE_COMPONENT_KEY);
+    ReportComponent otherReusedFile = newReusedFile(4, "other reused file key");
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 10).addChildren(reusedFile, otherReusedFile, OTHER_COMPONENT).build());
+    MeasureDao measureDao = spy(dbClient.measureDao());
+    DbClient spiedDbClient = spy(dbClient);
+    doReturn(measureDao).when(spiedDbClient).measureDao();
+    underTest = new MeasureRepositoryImpl(spiedDbClient, reportReader, metricRepository, reportMetricValidator, treeRootHolder);
+
+    assertThat(underTest.getRawMeasure(reusedFile, metric1)).isPresent();
+    assertThat(underTest.getRawMeasure(otherReusedFile, metric1)).isAbsent();
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric1)).isAbsent();
+
+    verify(measureDao).selectByComponentKeysAndMetricKeys(any(DbSession.class), eq(asList(FILE_COMPONENT_KEY, "other reused file key")), eq(asList(METRIC_KEY_1)));
+    verifyNoMoreInteractions(measureDao);
+  }
+
+  @Test
+  public void getRawMeasure_of_not_reused_file_does_not_return_measure_of_previous_analysis() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, LAST_SNAPSHOT_ID));
+    dbSession.commit();
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1));
+    when(reportMetricValidator.validate(METRIC_KEY_1)).thenReturn(true);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1)).isAbsent();
+  }
+
+  private static ReportComponent newReusedFile(int ref, String key) {
+    return ReportComponent.builder(Component.Type.FILE, ref).setKey(key)
+      .setFileAttributes(new FileAttributes(false, null, true))
+      .build();
+  }
+
   @Test
   public void getBaseMeasure_does_not_return_measure_with_rule() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -151,5 +151,25 @@ public class ComputeEngineQueueMonitorTest {
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
+
+    @Override
+    public String getNodeUuid() {
+      throw new UnsupportedOperationException("getNodeUuid is not implemented");
+    }
+
+    @Override
+    public long getLeaseDuration() {
+      throw new UnsupportedOperationException("getLeaseDuration is not implemented");
+    }
+
+    @Override
+    public long getMaxClockSkew() {
+      throw new UnsupportedOperationException("getMaxClockSkew is not implemented");
+    }
+
+    @Override
+    public boolean isClustered() {
+      throw new UnsupportedOperationException("isClustered is not implemented");
+    }
   }
 }
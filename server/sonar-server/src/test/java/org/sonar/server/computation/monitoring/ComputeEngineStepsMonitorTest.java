@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import org.junit.Test;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ComputeEngineStepsMonitorTest {
+
+  TaskStatsRecorder statsRecorder = new TaskStatsRecorder();
+  ComputeEngineStepsMonitor underTest = new ComputeEngineStepsMonitor(statsRecorder);
+
+  @Test
+  public void name_is_ComputeEngineSteps() {
+    assertThat(underTest.name()).isEqualTo("ComputeEngineSteps");
+  }
+
+  @Test
+  public void attributes_has_entry_for_each_step() {
+    recordTask();
+
+    assertThat(underTest.attributes()).containsExactly(
+      entry("Tasks", 1L),
+      entry("Persist issues", "time=50ms | cpu=40ms | allocated=2048B | rows=30 | reportRead=0B"),
+      entry("Extract report", "time=10ms | rows=0 | reportRead=500B"));
+  }
+
+  @Test
+  public void get_methods_delegate_to_TaskStatsRecorder() {
+    recordTask();
+
+    assertThat(underTest.getTaskCount()).isEqualTo(1L);
+    assertThat(underTest.getCumulatedStepStats()).containsExactly(
+      "Persist issues | time=50ms | cpu=40ms | allocated=2048B | rows=30 | reportRead=0B",
+      "Extract report | time=10ms | rows=0 | reportRead=500B");
+  }
+
+  private void recordTask() {
+    statsRecorder.initForTask();
+    statsRecorder.addStep(DbCe.Stat.newBuilder().setName("Extract report").setWallTimeMs(10L).setWrittenRows(0L).setReportBytesRead(500L).build());
+    statsRecorder.addStep(DbCe.Stat.newBuilder().setName("Persist issues").setWallTimeMs(50L).setCpuTimeMs(40L).setAllocatedBytes(2048L)
+      .setWrittenRows(30L).setReportBytesRead(0L).build());
+    statsRecorder.clearForTask();
+  }
+}
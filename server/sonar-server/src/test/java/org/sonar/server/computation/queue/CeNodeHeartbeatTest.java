@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeNodeHeartbeatTest {
+
+  private static final long NOW = 1_450_000_000_000L;
+  private static final long LEASE_DURATION = 60_000L;
+  private static final long MAX_CLOCK_SKEW = 10_000L;
+
+  TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester dbTester = DbTester.create(system2);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule().setLeaseDuration(LEASE_DURATION).setMaxClockSkew(MAX_CLOCK_SKEW);
+
+  CeNodeHeartbeat underTest = new CeNodeHeartbeat(dbTester.getDbClient(), ceConfiguration);
+
+  @Test
+  public void renew_leases_of_tasks_of_node() {
+    insertInProgress("TASK_1", ceConfiguration.getNodeUuid(), NOW);
+    insertInProgress("TASK_2", "NODE_2", NOW);
+
+    underTest.beat();
+
+    assertThat(selectByUuid("TASK_1").getLeaseExpiresAt()).isEqualTo(NOW + LEASE_DURATION);
+    assertThat(selectByUuid("TASK_2").getLeaseExpiresAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void reset_tasks_with_expired_lease_when_clustered() {
+    ceConfiguration.setClustered(true);
+    insertInProgress("TASK_1", "NODE_2", NOW - MAX_CLOCK_SKEW - 1L);
+    insertInProgress("TASK_2", "NODE_3", NOW + 1L);
+
+    underTest.beat();
+
+    assertThat(selectByUuid("TASK_1").getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+    assertThat(selectByUuid("TASK_1").getNodeUuid()).isNull();
+    assertThat(selectByUuid("TASK_2").getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+  }
+
+  @Test
+  public void do_not_reset_tasks_whose_lease_expired_for_less_than_max_clock_skew() {
+    ceConfiguration.setClustered(true);
+    // clock of NODE_2 may be late
+    insertInProgress("TASK_1", "NODE_2", NOW - MAX_CLOCK_SKEW + 1L);
+
+    underTest.beat();
+
+    assertThat(selectByUuid("TASK_1").getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+  }
+
+  @Test
+  public void do_not_reset_tasks_with_expired_lease_when_not_clustered() {
+    insertInProgress("TASK_1", "NODE_2", NOW - 1L);
+
+    underTest.beat();
+
+    assertThat(selectByUuid("TASK_1").getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+  }
+
+  @Test
+  public void start_and_stop() {
+    underTest.start();
+    underTest.stop();
+  }
+
+  private void insertInProgress(String taskUuid, String nodeUuid, long leaseExpiresAt) {
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setComponentUuid("PROJECT_" + taskUuid);
+    queueDto.setUuid(taskUuid);
+    queueDto.setStatus(CeQueueDto.Status.IN_PROGRESS);
+    queueDto.setNodeUuid(nodeUuid);
+    queueDto.setLeaseExpiresAt(leaseExpiresAt);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), queueDto);
+    dbTester.getSession().commit();
+  }
+
+  private CeQueueDto selectByUuid(String taskUuid) {
+    return dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), taskUuid).get();
+  }
+}
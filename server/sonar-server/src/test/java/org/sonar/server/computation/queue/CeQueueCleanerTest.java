@@ -31,13 +31,16 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.queue.report.ReportFiles;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,7 +55,9 @@ public class CeQueueCleanerTest {
   ServerUpgradeStatus serverUpgradeStatus = mock(ServerUpgradeStatus.class);
   ReportFiles reportFiles = mock(ReportFiles.class, Mockito.RETURNS_DEEP_STUBS);
   CeQueueImpl queue = mock(CeQueueImpl.class);
-  CeQueueCleaner underTest = new CeQueueCleaner(dbTester.getDbClient(), serverUpgradeStatus, reportFiles, queue);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+  CeQueueCleaner underTest = new CeQueueCleaner(dbTester.getDbClient(), serverUpgradeStatus, reportFiles, queue, ceConfiguration);
 
   @Test
   public void reset_in_progress_tasks_to_pending() throws IOException {
@@ -94,6 +99,53 @@ public class CeQueueCleanerTest {
     verify(reportFiles).deleteIfExists("TASK_2");
   }
 
+  @Test
+  public void delete_uploads_which_are_not_submitted() throws Exception {
+    underTest.clean(dbTester.getSession());
+
+    verify(reportFiles).deleteUploads();
+  }
+
+  @Test
+  public void reset_only_tasks_of_node_or_with_expired_lease_when_clustered() throws IOException {
+    ceConfiguration.setClustered(true);
+    insertInQueue("TASK_1", ceConfiguration.getNodeUuid(), Long.MAX_VALUE);
+    insertInQueue("TASK_2", "NODE_2", Long.MAX_VALUE);
+    insertInQueue("TASK_3", "NODE_2", 1L);
+
+    underTest.clean(dbTester.getSession());
+
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), "TASK_1").get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), "TASK_2").get().getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), "TASK_3").get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+  }
+
+  @Test
+  public void do_not_delete_report_files_nor_uploads_when_clustered() throws Exception {
+    ceConfiguration.setClustered(true);
+    insertInQueue("TASK_1", CeQueueDto.Status.PENDING, true);
+    when(reportFiles.listUuids()).thenReturn(asList("TASK_1", "TASK_2"));
+
+    underTest.clean(dbTester.getSession());
+
+    verify(reportFiles, never()).deleteIfExists(anyString());
+    verify(reportFiles, never()).deleteUploads();
+  }
+
+  private void insertInQueue(String taskUuid, String nodeUuid, long leaseExpiresAt) throws IOException {
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setComponentUuid("PROJECT_1");
+    queueDto.setUuid(taskUuid);
+    queueDto.setStatus(CeQueueDto.Status.IN_PROGRESS);
+    queueDto.setNodeUuid(nodeUuid);
+    queueDto.setLeaseExpiresAt(leaseExpiresAt);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), queueDto);
+    dbTester.getSession().commit();
+
+    when(reportFiles.fileForUuid(taskUuid)).thenReturn(tempFolder.newFile());
+  }
+
   private void insertInQueue(String taskUuid, CeQueueDto.Status status) throws IOException {
     insertInQueue(taskUuid, status, true);
   }
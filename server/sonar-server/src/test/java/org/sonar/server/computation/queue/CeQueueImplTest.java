@@ -20,7 +20,15 @@
 package org.sonar.server.computation.queue;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
@@ -36,6 +44,8 @@ import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.monitoring.CEQueueStatus;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
 
@@ -64,7 +74,9 @@ public class CeQueueImplTest {
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CEQueueStatus queueStatus = new CEQueueStatusImpl();
   CeQueueListener listener = mock(CeQueueListener.class);
-  CeQueue underTest = new CeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, new CeQueueListener[] {listener});
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+  CeQueue underTest = new CeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, ceConfiguration, new CeQueueListener[] {listener});
 
   @Before
   public void setUp() throws Exception {
@@ -162,7 +174,7 @@ public class CeQueueImplTest {
   public void test_remove() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, null);
 
     // queue is empty
     assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), task.getUuid()).isPresent()).isFalse();
@@ -182,7 +194,7 @@ public class CeQueueImplTest {
   public void remove_does_not_set_snapshotId_in_CeActivity_when_CeTaskResult_has_no_snapshot_id() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(null));
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(null), null);
 
     // available in history
     Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
@@ -196,7 +208,7 @@ public class CeQueueImplTest {
     long snapshotId = 663L;
 
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(snapshotId));
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(snapshotId), null);
 
     // available in history
     Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
@@ -204,14 +216,42 @@ public class CeQueueImplTest {
     assertThat(history.get().getSnapshotId()).isEqualTo(snapshotId);
   }
 
+  @Test
+  public void remove_stores_stats_in_CeActivity() throws Exception {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    DbCe.TaskStats stats = DbCe.TaskStats.newBuilder()
+      .addStep(DbCe.Stat.newBuilder().setName("Persist issues").setWallTimeMs(12L).setWrittenRows(5L))
+      .build();
+
+    Optional<CeTask> peek = underTest.peek();
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, stats);
+
+    Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
+    assertThat(DbCe.TaskStats.parseFrom(history.get().getStats())).isEqualTo(stats);
+  }
+
   @Test
   public void fail_to_remove_if_not_in_queue() throws Exception {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
-    underTest.remove(task, CeActivityDto.Status.SUCCESS, null);
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
 
     expectedException.expect(IllegalStateException.class);
 
-    underTest.remove(task, CeActivityDto.Status.SUCCESS, null);
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
+  }
+
+  @Test
+  public void fail_to_remove_if_task_is_processed_by_another_node() throws Exception {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    underTest.peek();
+    // lease expired and task has been peeked by another node
+    dbTester.getDbClient().ceQueueDao().resetToPendingForNode(session, ceConfiguration.getNodeUuid());
+    dbTester.getDbClient().ceQueueDao().peek(session, "NODE_2", ceConfiguration.getLeaseDuration());
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Task is processed by another Compute Engine node [node=NODE_2]");
+
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
   }
 
   @Test
@@ -223,6 +263,7 @@ public class CeQueueImplTest {
     assertThat(peek.get().getUuid()).isEqualTo(task.getUuid());
     assertThat(peek.get().getType()).isEqualTo(CeTaskTypes.REPORT);
     assertThat(peek.get().getComponentUuid()).isEqualTo("PROJECT_1");
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get().getNodeUuid()).isEqualTo(ceConfiguration.getNodeUuid());
 
     // no more pending tasks
     peek = underTest.peek();
@@ -231,6 +272,38 @@ public class CeQueueImplTest {
     verify(listener, never()).onRemoved(eq(task), any(CeActivityDto.Status.class));
   }
 
+  @Test
+  public void tasks_are_peeked_only_once_by_nodes_racing_on_the_queue() throws Exception {
+    int taskCount = 20;
+    for (int i = 0; i < taskCount; i++) {
+      submit(CeTaskTypes.REPORT, "PROJECT_" + i);
+    }
+    CeQueue otherNode = new CeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus,
+      new CeConfigurationRule().setNodeUuid("NODE_2"), new CeQueueListener[] {listener});
+
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger peekedCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<List<CeTask>> peekedByNode1 = executor.submit(new PeekAll(underTest, start, peekedCount, taskCount));
+      Future<List<CeTask>> peekedByNode2 = executor.submit(new PeekAll(otherNode, start, peekedCount, taskCount));
+      start.countDown();
+
+      List<String> peekedUuids = new ArrayList<>();
+      for (CeTask task : peekedByNode1.get(1, TimeUnit.MINUTES)) {
+        peekedUuids.add(task.getUuid());
+        assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get().getNodeUuid()).isEqualTo(ceConfiguration.getNodeUuid());
+      }
+      for (CeTask task : peekedByNode2.get(1, TimeUnit.MINUTES)) {
+        peekedUuids.add(task.getUuid());
+        assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get().getNodeUuid()).isEqualTo("NODE_2");
+      }
+      assertThat(peekedUuids).hasSize(taskCount).doesNotHaveDuplicates();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -307,6 +380,40 @@ public class CeQueueImplTest {
     assertThat(underTest.isPeekPaused()).isFalse();
   }
 
+  /**
+   * Peeks the queue of a node until all the tasks have been peeked by any node. A peek may return nothing while
+   * tasks are pending, when another node claims the same task at the same time.
+   */
+  private static class PeekAll implements Callable<List<CeTask>> {
+    private static final int MAX_ATTEMPTS = 1_000;
+
+    private final CeQueue queue;
+    private final CountDownLatch start;
+    private final AtomicInteger peekedCount;
+    private final int taskCount;
+
+    PeekAll(CeQueue queue, CountDownLatch start, AtomicInteger peekedCount, int taskCount) {
+      this.queue = queue;
+      this.start = start;
+      this.peekedCount = peekedCount;
+      this.taskCount = taskCount;
+    }
+
+    @Override
+    public List<CeTask> call() throws Exception {
+      start.await();
+      List<CeTask> peeked = new ArrayList<>();
+      for (int attempt = 0; attempt < MAX_ATTEMPTS && peekedCount.get() < taskCount; attempt++) {
+        Optional<CeTask> task = queue.peek();
+        if (task.isPresent()) {
+          peeked.add(task.get());
+          peekedCount.incrementAndGet();
+        }
+      }
+      return peeked;
+    }
+  }
+
   private void verifyCeTask(CeTaskSubmit taskSubmit, CeTask task, @Nullable ComponentDto componentDto) {
     assertThat(task.getUuid()).isEqualTo(taskSubmit.getUuid());
     assertThat(task.getComponentUuid()).isEqualTo(task.getComponentUuid());
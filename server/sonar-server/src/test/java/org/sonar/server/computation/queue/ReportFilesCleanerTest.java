@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.queue.report.ReportFiles;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportFilesCleanerTest {
+
+  private static final long NOW = 1_450_000_000_000L;
+
+  TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester dbTester = DbTester.create(system2);
+
+  ReportFiles reportFiles = mock(ReportFiles.class);
+  ReportFilesCleaner underTest = new ReportFilesCleaner(dbTester.getDbClient(), reportFiles, system2);
+
+  @Test
+  public void delete_uploads_not_modified_for_a_day() {
+    underTest.clean();
+
+    verify(reportFiles).deleteUploadsNotModifiedSince(NOW - ReportFilesCleaner.UPLOAD_EXPIRATION_MS);
+  }
+
+  @Test
+  public void delete_expired_reports_which_are_not_in_queue() {
+    insertPending("TASK_1");
+    when(reportFiles.listUuidsNotModifiedSince(NOW - ReportFilesCleaner.ORPHAN_REPORT_EXPIRATION_MS)).thenReturn(Arrays.asList("TASK_1", "TASK_2"));
+
+    underTest.clean();
+
+    verify(reportFiles, never()).deleteIfExists("TASK_1");
+    verify(reportFiles).deleteIfExists("TASK_2");
+  }
+
+  @Test
+  public void do_not_fail_if_files_can_not_be_deleted() {
+    doThrow(new IllegalStateException("BOOM")).when(reportFiles).deleteUploadsNotModifiedSince(NOW - ReportFilesCleaner.UPLOAD_EXPIRATION_MS);
+
+    underTest.clean();
+  }
+
+  @Test
+  public void start_and_stop() {
+    underTest.start();
+    underTest.stop();
+  }
+
+  private void insertPending(String taskUuid) {
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setComponentUuid("PROJECT_" + taskUuid);
+    queueDto.setUuid(taskUuid);
+    queueDto.setStatus(CeQueueDto.Status.PENDING);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), queueDto);
+    dbTester.getSession().commit();
+  }
+}
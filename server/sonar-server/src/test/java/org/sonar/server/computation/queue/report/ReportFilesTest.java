@@ -0,0 +1,230 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.report;
+
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
+import org.sonar.process.ProcessProperties;
+import org.sonar.server.computation.configuration.CeConfigurationImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ReportFilesTest {
+
+  static final String PROJECT_KEY = "my_project";
+  static final String LOGIN = "john";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  File dataDir;
+  Settings settings = new Settings();
+  ReportFiles underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    dataDir = temp.newFolder();
+    settings.setProperty(ProcessProperties.PATH_DATA, dataDir.getAbsolutePath());
+    underTest = new ReportFiles(settings);
+  }
+
+  @Test
+  public void store_reports_and_uploads_in_shared_directory_if_defined() throws Exception {
+    File sharedDir = temp.newFolder();
+    settings.setProperty(CeConfigurationImpl.CE_SHARED_PATH_PROPERTY, sharedDir.getAbsolutePath());
+
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+    assertThat(new File(sharedDir, "ce/uploads/UPLOAD_1.zip")).hasContent("foo");
+
+    underTest.saveUpload("TASK_1", "UPLOAD_1", PROJECT_KEY, LOGIN, md5("foo"));
+    assertThat(underTest.fileForUuid("TASK_1")).isEqualTo(new File(sharedDir, "ce/reports/TASK_1.zip"));
+    assertThat(underTest.listUuids()).containsOnly("TASK_1");
+    assertThat(new File(dataDir, "ce")).doesNotExist();
+  }
+
+  @Test
+  public void append_parts_then_save_upload() throws Exception {
+    assertThat(underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"))).isEqualTo(3L);
+    assertThat(underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 3, input("bar"), md5("bar"))).isEqualTo(6L);
+
+    underTest.saveUpload("TASK_1", "UPLOAD_1", PROJECT_KEY, LOGIN, md5("foobar"));
+
+    assertThat(FileUtils.readFileToString(underTest.fileForUuid("TASK_1"))).isEqualTo("foobar");
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).doesNotExist();
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.properties")).doesNotExist();
+  }
+
+  @Test
+  public void part_sent_again_replaces_the_end_of_upload() throws Exception {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 3, input("baz"), md5("baz"));
+
+    assertThat(underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 3, input("bar"), md5("bar"))).isEqualTo(6L);
+
+    underTest.saveUpload("TASK_1", "UPLOAD_1", PROJECT_KEY, LOGIN, md5("foobar"));
+    assertThat(FileUtils.readFileToString(underTest.fileForUuid("TASK_1"))).isEqualTo("foobar");
+  }
+
+  @Test
+  public void part_is_dropped_if_checksum_does_not_match() throws Exception {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+
+    try {
+      underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 3, input("bar"), md5("baz"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Checksum of part at offset 3 of upload UPLOAD_1 does not match");
+    }
+
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).hasContent("foo");
+  }
+
+  @Test
+  public void fail_if_offset_is_greater_than_upload_size() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Offset 10 is greater than the size of upload UPLOAD_1 (0 bytes)");
+
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 10, input("foo"), md5("foo"));
+  }
+
+  @Test
+  public void fail_if_invalid_upload_id() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Invalid upload id: ../foo");
+
+    underTest.appendPart("../foo", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+  }
+
+  @Test
+  public void upload_is_deleted_if_checksum_of_whole_report_does_not_match() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+
+    try {
+      underTest.saveUpload("TASK_1", "UPLOAD_1", PROJECT_KEY, LOGIN, md5("bar"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Checksum of upload UPLOAD_1 does not match");
+    }
+
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).doesNotExist();
+    assertThat(underTest.fileForUuid("TASK_1")).doesNotExist();
+  }
+
+  @Test
+  public void fail_to_append_part_to_upload_started_by_another_user() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+
+    try {
+      underTest.appendPart("UPLOAD_1", PROJECT_KEY, "another_user", 0, input("bar"), md5("bar"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Upload UPLOAD_1 has been started by another user or for another project");
+    }
+
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).hasContent("foo");
+  }
+
+  @Test
+  public void fail_to_save_upload_started_for_another_project() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+
+    try {
+      underTest.saveUpload("TASK_1", "UPLOAD_1", "another_project", LOGIN, md5("foo"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Upload UPLOAD_1 has been started by another user or for another project");
+    }
+
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).exists();
+    assertThat(underTest.fileForUuid("TASK_1")).doesNotExist();
+  }
+
+  @Test
+  public void anonymous_upload_can_not_be_submitted_by_authenticated_user() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, null, 0, input("foo"), md5("foo"));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Upload UPLOAD_1 has been started by another user or for another project");
+
+    underTest.saveUpload("TASK_1", "UPLOAD_1", PROJECT_KEY, LOGIN, md5("foo"));
+  }
+
+  @Test
+  public void delete_uploads_not_modified_since_date() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+    underTest.appendPart("UPLOAD_2", PROJECT_KEY, LOGIN, 0, input("bar"), md5("bar"));
+    File uploadDir = new File(dataDir, "ce/uploads");
+    long now = System.currentTimeMillis();
+    new File(uploadDir, "UPLOAD_1.zip").setLastModified(now - 10_000L);
+    new File(uploadDir, "UPLOAD_1.properties").setLastModified(now - 10_000L);
+    new File(uploadDir, "UPLOAD_2.properties").setLastModified(now - 10_000L);
+
+    underTest.deleteUploadsNotModifiedSince(now - 5_000L);
+
+    assertThat(new File(uploadDir, "UPLOAD_1.zip")).doesNotExist();
+    assertThat(new File(uploadDir, "UPLOAD_1.properties")).doesNotExist();
+    // last part of UPLOAD_2 has been received recently
+    assertThat(new File(uploadDir, "UPLOAD_2.zip")).exists();
+    assertThat(new File(uploadDir, "UPLOAD_2.properties")).exists();
+  }
+
+  @Test
+  public void list_uuids_of_reports_not_modified_since_date() throws Exception {
+    File reportDir = new File(dataDir, "ce/reports");
+    long now = System.currentTimeMillis();
+    FileUtils.touch(new File(reportDir, "TASK_1.zip"));
+    FileUtils.touch(new File(reportDir, "TASK_2.zip"));
+    FileUtils.touch(new File(reportDir, "something.else"));
+    new File(reportDir, "TASK_1.zip").setLastModified(now - 10_000L);
+    new File(reportDir, "something.else").setLastModified(now - 10_000L);
+
+    assertThat(underTest.listUuidsNotModifiedSince(now - 5_000L)).containsOnly("TASK_1");
+  }
+
+  @Test
+  public void delete_uploads() {
+    underTest.appendPart("UPLOAD_1", PROJECT_KEY, LOGIN, 0, input("foo"), md5("foo"));
+
+    underTest.deleteUploads();
+
+    assertThat(new File(dataDir, "ce/uploads/UPLOAD_1.zip")).doesNotExist();
+  }
+
+  private static ByteArrayInputStream input(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String md5(String s) {
+    return Hashing.md5().hashString(s, StandardCharsets.UTF_8).toString();
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.queue.report;
 
+import java.io.InputStream;
 import org.apache.commons.io.IOUtils;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
@@ -37,9 +38,13 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.permission.PermissionService;
 import org.sonar.server.tester.UserSessionRule;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -169,4 +174,62 @@ public class ReportSubmitterTest {
     underTest.submit(PROJECT_KEY, null, PROJECT_NAME, IOUtils.toInputStream("{binary}"));
   }
 
+  @Test
+  public void append_part_of_report_on_existing_project() {
+    userSession.login("john").addProjectPermissions(GlobalPermissions.SCAN_EXECUTION, PROJECT_KEY);
+    when(componentService.getNullableByKey(PROJECT_KEY)).thenReturn(new ComponentDto().setUuid(PROJECT_UUID));
+    InputStream part = IOUtils.toInputStream("{binary}");
+    when(reportFiles.appendPart("UPLOAD_1", PROJECT_KEY, "john", 0L, part, "abcdef")).thenReturn(8L);
+
+    assertThat(underTest.appendPart(PROJECT_KEY, null, "UPLOAD_1", 0L, part, "abcdef")).isEqualTo(8L);
+
+    verifyZeroInteractions(queue, permissionService);
+  }
+
+  @Test
+  public void do_not_provision_project_when_appending_part_of_report() {
+    userSession.login("john").setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+    when(componentService.getNullableByKey(PROJECT_KEY)).thenReturn(null);
+    InputStream part = IOUtils.toInputStream("{binary}");
+
+    underTest.appendPart(PROJECT_KEY, null, "UPLOAD_1", 0L, part, "abcdef");
+
+    verify(reportFiles).appendPart("UPLOAD_1", PROJECT_KEY, "john", 0L, part, "abcdef");
+    verify(componentService, never()).create(any(NewComponent.class));
+  }
+
+  @Test
+  public void fail_to_append_part_of_report_when_no_scan_permission() {
+    userSession.setGlobalPermissions(GlobalPermissions.DASHBOARD_SHARING);
+
+    thrown.expect(ForbiddenException.class);
+    underTest.appendPart(PROJECT_KEY, null, "UPLOAD_1", 0L, IOUtils.toInputStream("{binary}"), "abcdef");
+  }
+
+  @Test
+  public void submit_report_uploaded_by_parts() {
+    userSession.login("john").setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+    when(queue.prepareSubmit()).thenReturn(new CeTaskSubmit.Builder(TASK_UUID));
+    when(componentService.getNullableByKey(PROJECT_KEY)).thenReturn(new ComponentDto().setUuid(PROJECT_UUID));
+
+    underTest.submitUpload(PROJECT_KEY, null, PROJECT_NAME, "UPLOAD_1", "abcdef");
+
+    verify(reportFiles).saveUpload(TASK_UUID, "UPLOAD_1", PROJECT_KEY, "john", "abcdef");
+    verify(queue).submit(any(CeTaskSubmit.class));
+  }
+
+  @Test
+  public void do_not_submit_upload_if_checksum_does_not_match() {
+    userSession.setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+    when(queue.prepareSubmit()).thenReturn(new CeTaskSubmit.Builder(TASK_UUID));
+    when(componentService.getNullableByKey(PROJECT_KEY)).thenReturn(new ComponentDto().setUuid(PROJECT_UUID));
+    doThrow(new IllegalArgumentException("Checksum of upload UPLOAD_1 does not match")).when(reportFiles).saveUpload(TASK_UUID, "UPLOAD_1", PROJECT_KEY, null, "abcdef");
+
+    try {
+      underTest.submitUpload(PROJECT_KEY, null, PROJECT_NAME, "UPLOAD_1", "abcdef");
+      fail();
+    } catch (IllegalArgumentException e) {
+      verify(queue, never()).submit(any(CeTaskSubmit.class));
+    }
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.source;
+
+import org.junit.Test;
+import org.sonar.batch.protocol.output.BatchReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TextRangesPerLineTest {
+
+  @Test
+  public void no_entry_when_no_range() {
+    TextRangesPerLine underTest = TextRangesPerLine.builder().build();
+
+    assertThat(underTest.endEntry(1)).isEqualTo(underTest.firstEntry(1));
+  }
+
+  @Test
+  public void index_single_line_ranges() {
+    BatchReport.TextRange range1 = newTextRange(1, 1);
+    BatchReport.TextRange range2 = newTextRange(3, 3);
+    BatchReport.TextRange range3 = newTextRange(1, 1);
+
+    TextRangesPerLine underTest = TextRangesPerLine.builder()
+      .add(range1, 10)
+      .add(range2, 20)
+      .add(range3, 30)
+      .build();
+
+    assertThat(underTest.endEntry(1) - underTest.firstEntry(1)).isEqualTo(2);
+    assertThat(underTest.range(underTest.firstEntry(1))).isSameAs(range1);
+    assertThat(underTest.value(underTest.firstEntry(1))).isEqualTo(10);
+    assertThat(underTest.range(underTest.firstEntry(1) + 1)).isSameAs(range3);
+    assertThat(underTest.value(underTest.firstEntry(1) + 1)).isEqualTo(30);
+    assertThat(underTest.endEntry(2)).isEqualTo(underTest.firstEntry(2));
+    assertThat(underTest.endEntry(3) - underTest.firstEntry(3)).isEqualTo(1);
+    assertThat(underTest.value(underTest.firstEntry(3))).isEqualTo(20);
+  }
+
+  @Test
+  public void index_range_on_each_of_its_lines() {
+    BatchReport.TextRange range = newTextRange(2, 4);
+
+    TextRangesPerLine underTest = TextRangesPerLine.builder().add(range, 1).build();
+
+    assertThat(underTest.endEntry(1)).isEqualTo(underTest.firstEntry(1));
+    for (int line = 2; line <= 4; line++) {
+      assertThat(underTest.endEntry(line) - underTest.firstEntry(line)).isEqualTo(1);
+      assertThat(underTest.range(underTest.firstEntry(line))).isSameAs(range);
+    }
+  }
+
+  @Test
+  public void no_entry_for_lines_outside_of_ranges() {
+    TextRangesPerLine underTest = TextRangesPerLine.builder().add(newTextRange(1, 2), 1).build();
+
+    assertThat(underTest.endEntry(0)).isEqualTo(underTest.firstEntry(0));
+    assertThat(underTest.endEntry(3)).isEqualTo(underTest.firstEntry(3));
+    assertThat(underTest.endEntry(100)).isEqualTo(underTest.firstEntry(100));
+  }
+
+  private static BatchReport.TextRange newTextRange(int startLine, int endLine) {
+    return BatchReport.TextRange.newBuilder()
+      .setStartLine(startLine).setEndLine(endLine)
+      .setStartOffset(0).setEndOffset(1)
+      .build();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.stats;
+
+import org.junit.Test;
+import org.sonar.db.protobuf.DbCe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskStatsRecorderTest {
+
+  TaskStatsRecorder underTest = new TaskStatsRecorder();
+
+  @Test
+  public void record_stats_of_task_executed_by_current_thread() {
+    underTest.initForTask();
+    underTest.addStep(stat("step1", 10L));
+    underTest.addVisitor(stat("visitor1", 5L));
+    underTest.addStep(stat("step2", 20L));
+
+    DbCe.TaskStats stats = underTest.clearForTask();
+
+    assertThat(stats.getStepList()).extracting("name").containsExactly("step1", "step2");
+    assertThat(stats.getVisitorList()).extracting("name").containsExactly("visitor1");
+    assertThat(underTest.clearForTask()).isNull();
+  }
+
+  @Test
+  public void ignore_stats_if_task_is_not_initialized() {
+    underTest.addStep(stat("step1", 10L));
+    underTest.addVisitor(stat("visitor1", 5L));
+
+    assertThat(underTest.clearForTask()).isNull();
+    assertThat(underTest.getTaskCount()).isZero();
+    assertThat(underTest.getCumulatedStepStats()).isEmpty();
+  }
+
+  @Test
+  public void cumulate_stats_of_steps_by_descending_wall_time() {
+    underTest.initForTask();
+    underTest.addStep(stat("step1", 10L).toBuilder().setCpuTimeMs(8L).setAllocatedBytes(100L).build());
+    underTest.addStep(stat("step2", 20L));
+    underTest.clearForTask();
+    underTest.initForTask();
+    underTest.addStep(stat("step1", 15L).toBuilder().setCpuTimeMs(12L).build());
+    underTest.clearForTask();
+
+    assertThat(underTest.getTaskCount()).isEqualTo(2L);
+    assertThat(underTest.getCumulatedStepStats()).extracting("name").containsExactly("step1", "step2");
+    DbCe.Stat step1 = underTest.getCumulatedStepStats().get(0);
+    assertThat(step1.getWallTimeMs()).isEqualTo(25L);
+    assertThat(step1.getCpuTimeMs()).isEqualTo(20L);
+    assertThat(step1.getWrittenRows()).isEqualTo(6L);
+    // not supported by one of the executions
+    assertThat(step1.hasAllocatedBytes()).isFalse();
+  }
+
+  private static DbCe.Stat stat(String name, long wallTimeMs) {
+    return DbCe.Stat.newBuilder().setName(name).setWallTimeMs(wallTimeMs).setWrittenRows(3L).setReportBytesRead(0L).build();
+  }
+}
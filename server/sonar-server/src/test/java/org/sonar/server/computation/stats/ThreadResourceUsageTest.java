@@ -0,0 +1,41 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.stats;
+
+import org.junit.Test;
+import org.sonar.db.protobuf.DbCe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadResourceUsageTest {
+
+  @Test
+  public void measure_consumption_of_current_thread() {
+    ThreadResourceUsage start = ThreadResourceUsage.current();
+    ThreadResourceUsage.addReportBytesRead(1_000L);
+
+    DbCe.Stat stat = ThreadResourceUsage.current().since("foo", start);
+
+    assertThat(stat.getName()).isEqualTo("foo");
+    assertThat(stat.getWallTimeMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(stat.getReportBytesRead()).isEqualTo(1_000L);
+    assertThat(stat.getWrittenRows()).isZero();
+  }
+}
@@ -27,8 +27,11 @@ import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -40,13 +43,15 @@ public class ComputationStepExecutorTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
+  TaskStatsRecorder statsRecorder = new TaskStatsRecorder();
+
   @Test
   public void execute_call_execute_on_each_ComputationStep_in_order_returned_by_instances_method() {
     ComputationStep computationStep1 = mockComputationStep("step1");
     ComputationStep computationStep2 = mockComputationStep("step2");
     ComputationStep computationStep3 = mockComputationStep("step3");
 
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3))
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), statsRecorder)
       .execute();
 
     InOrder inOrder = inOrder(computationStep1, computationStep2, computationStep3);
@@ -68,7 +73,7 @@ public class ComputationStepExecutorTest {
       .when(computationStep)
       .execute();
 
-    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep));
+    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep), statsRecorder);
 
     expectedException.expect(RuntimeException.class);
     expectedException.expectMessage(message);
@@ -81,7 +86,7 @@ public class ComputationStepExecutorTest {
     ComputationStep computationStep1 = mockComputationStep("step1");
     ComputationStep computationStep2 = mockComputationStep("step2");
 
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2))
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), statsRecorder)
         .execute();
 
     List<String> infoLogs = logTester.logs(LoggerLevel.INFO);
@@ -90,6 +95,27 @@ public class ComputationStepExecutorTest {
     assertThat(infoLogs.get(1)).contains("step2 | time=");
   }
 
+  @Test
+  public void execute_records_stats_of_each_ComputationStep_including_failing_one() {
+    ComputationStep computationStep1 = mockComputationStep("step1");
+    ComputationStep computationStep2 = mockComputationStep("step2");
+    doThrow(new IllegalStateException("failure"))
+      .when(computationStep2)
+      .execute();
+    statsRecorder.initForTask();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), statsRecorder).execute();
+      fail();
+    } catch (IllegalStateException e) {
+      DbCe.TaskStats stats = statsRecorder.clearForTask();
+      assertThat(stats.getStepList()).extracting("name").containsExactly("step1", "step2");
+      assertThat(stats.getStep(0).hasWallTimeMs()).isTrue();
+      assertThat(stats.getStep(0).getWrittenRows()).isZero();
+      assertThat(stats.getStep(0).getReportBytesRead()).isZero();
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
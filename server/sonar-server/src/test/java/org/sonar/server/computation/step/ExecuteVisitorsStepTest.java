@@ -19,20 +19,27 @@
  */
 package org.sonar.server.computation.step;
 
+import com.google.common.collect.ImmutableList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.ComponentVisitor;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
 import org.sonar.server.computation.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.formula.Formula;
 import org.sonar.server.computation.measure.MeasureRepositoryRule;
 import org.sonar.server.computation.metric.Metric;
 import org.sonar.server.computation.metric.MetricImpl;
 import org.sonar.server.computation.metric.MetricRepositoryRule;
+import org.sonar.server.computation.period.PeriodsHolderRule;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.api.measures.CoreMetrics.NCLOC;
@@ -42,6 +49,7 @@ import static org.sonar.server.computation.component.Component.Type.FILE;
 import static org.sonar.server.computation.component.Component.Type.MODULE;
 import static org.sonar.server.computation.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.component.ReportComponent.builder;
+import static org.sonar.server.computation.formula.SumFormula.createIntSumFormula;
 import static org.sonar.server.computation.measure.Measure.newMeasureBuilder;
 
 public class ExecuteVisitorsStepTest {
@@ -65,6 +73,11 @@ public class ExecuteVisitorsStepTest {
   @Rule
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
 
+  @Rule
+  public PeriodsHolderRule periodsHolder = new PeriodsHolderRule();
+
+  TaskStatsRecorder statsRecorder = new TaskStatsRecorder();
+
   @Before
   public void setUp() throws Exception {
     treeRootHolder.setRoot(
@@ -83,7 +96,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_type_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, Arrays.<ComponentVisitor>asList(new TestTypeAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, Arrays.<ComponentVisitor>asList(new TestTypeAwareVisitor()), statsRecorder);
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(2));
@@ -102,7 +115,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_path_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, Arrays.<ComponentVisitor>asList(new TestPathAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, Arrays.<ComponentVisitor>asList(new TestPathAwareVisitor()), statsRecorder);
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
@@ -116,6 +129,58 @@ public class ExecuteVisitorsStepTest {
     assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
   }
 
+  @Test
+  public void execute_formulas_before_visitors_in_same_traversal() throws Exception {
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, metricRepository, measureRepository, periodsHolder,
+      Collections.singletonList(newNclocFormulaStep()),
+      Arrays.<ComponentVisitor>asList(new TestTypeAwareVisitor()), statsRecorder);
+
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(2));
+
+    underStep.execute();
+
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(3);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(3);
+    assertThat(measureRepository.getAddedRawMeasure(FILE_1_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(FILE_2_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(3);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(4);
+    assertThat(measureRepository.getAddedRawMeasure(MODULE_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(4);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(4);
+  }
+
+  @Test
+  public void record_duration_of_visitors() throws Exception {
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, Arrays.<ComponentVisitor>asList(new TestPathAwareVisitor()), statsRecorder);
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
+
+    statsRecorder.initForTask();
+    underStep.execute();
+
+    DbCe.TaskStats stats = statsRecorder.clearForTask();
+    assertThat(stats.getVisitorList()).extracting("name").containsExactly("TestPathAwareVisitor");
+    assertThat(stats.getVisitor(0).hasWallTimeMs()).isTrue();
+    assertThat(stats.getStepCount()).isZero();
+  }
+
+  /**
+   * Anonymous class, so that it is not considered as a step by {@link org.sonar.server.computation.container.StepsExplorer}
+   */
+  private AbstractFormulaComputationStep newNclocFormulaStep() {
+    return new AbstractFormulaComputationStep(treeRootHolder, metricRepository, measureRepository, null) {
+      @Override
+      public List<Formula> getFormulas() {
+        return ImmutableList.<Formula>of(createIntSumFormula(NCLOC_KEY));
+      }
+
+      @Override
+      public String getDescription() {
+        return "Compute ncloc";
+      }
+    };
+  }
+
   private class TestTypeAwareVisitor extends TypeAwareVisitorAdapter {
 
     public TestTypeAwareVisitor() {
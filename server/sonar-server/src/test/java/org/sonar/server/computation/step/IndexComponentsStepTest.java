@@ -22,6 +22,7 @@ package org.sonar.server.computation.step;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.db.component.ResourceIndexDao;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.computation.batch.BatchReportReaderRule;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
@@ -46,7 +47,8 @@ public class IndexComponentsStepTest extends BaseStepTest {
   public MutableDbIdsRepositoryRule dbIdsRepository = MutableDbIdsRepositoryRule.create(treeRootHolder);
 
   ResourceIndexDao resourceIndexDao = mock(ResourceIndexDao.class);
-  IndexComponentsStep underTest = new IndexComponentsStep(resourceIndexDao, dbIdsRepository, treeRootHolder);
+  ComponentIndexer componentIndexer = mock(ComponentIndexer.class);
+  IndexComponentsStep underTest = new IndexComponentsStep(resourceIndexDao, dbIdsRepository, treeRootHolder, componentIndexer);
 
   @Test
   public void call_indexProject_of_dao_for_project() {
@@ -57,6 +59,7 @@ public class IndexComponentsStepTest extends BaseStepTest {
     underTest.execute();
 
     verify(resourceIndexDao).indexProject(123L);
+    verify(componentIndexer).index("PROJECT_UUID");
   }
 
   @Test
@@ -68,6 +71,7 @@ public class IndexComponentsStepTest extends BaseStepTest {
     underTest.execute();
 
     verify(resourceIndexDao).indexProject(123L);
+    verify(componentIndexer).index("PROJECT_UUID");
   }
 
   @Override
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.Constants;
 import org.sonar.batch.protocol.output.BatchReport;
@@ -45,10 +46,13 @@ import org.sonar.server.computation.duplication.TextBlock;
 import org.sonar.server.computation.scm.Changeset;
 import org.sonar.server.computation.scm.ScmInfoRepositoryRule;
 import org.sonar.server.computation.source.SourceLinesRepositoryRule;
+import org.sonar.server.source.HtmlSourceCache;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -80,6 +84,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
+  private HtmlSourceCache htmlSourceCache = mock(HtmlSourceCache.class);
+  private Settings settings = new Settings();
 
   private PersistFileSourcesStep underTest;
 
@@ -87,7 +93,12 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   public void setup() {
     dbTester.truncateTables();
     when(system2.now()).thenReturn(NOW);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository);
+    underTest = createStep();
+  }
+
+  private PersistFileSourcesStep createStep() {
+    return new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository,
+      htmlSourceCache, settings);
   }
 
   @Override
@@ -119,6 +130,45 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(1).getSource()).isEqualTo("line2");
   }
 
+  @Test
+  public void persist_sources_of_more_files_than_can_be_pending() {
+    settings.setProperty(PersistFileSourcesStep.THREAD_COUNT_PROPERTY, 2);
+    underTest = createStep();
+    // at most 4 files are pending with 2 threads
+    int fileCount = 9;
+    Component[] files = new Component[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      int fileRef = 10 + i;
+      files[i] = ReportComponent.builder(Component.Type.FILE, fileRef).setUuid("FILE_" + i).setKey("MODULE_KEY:src/Foo" + i + ".java").build();
+      reportReader.putComponent(BatchReport.Component.newBuilder().setRef(fileRef).setType(Constants.ComponentType.FILE).build());
+      fileSourceRepository.addLine(fileRef, "line of file " + i);
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(files).build());
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(fileCount);
+    for (int i = 0; i < fileCount; i++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_" + i);
+      DbFileSources.Data data = FileSourceDto.decodeSourceData(fileSourceDto.getBinaryData());
+      assertThat(data.getLinesCount()).isEqualTo(1);
+      assertThat(data.getLines(0).getSource()).isEqualTo("line of file " + i);
+    }
+  }
+
+  @Test
+  public void persist_sources_with_a_single_thread() {
+    settings.setProperty(PersistFileSourcesStep.THREAD_COUNT_PROPERTY, 1);
+    underTest = createStep();
+    initBasicReport(2);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    DbFileSources.Data data = FileSourceDto.decodeSourceData(fileSourceDto.getBinaryData());
+    assertThat(data.getLinesCount()).isEqualTo(2);
+  }
+
   @Test
   public void persist_source_hashes() {
     initBasicReport(2);
@@ -320,6 +370,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    verifyZeroInteractions(htmlSourceCache);
   }
 
   @Test
@@ -359,6 +410,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
     assertThat(fileSourceDto.getRevision()).isEqualTo("rev-1");
+    verify(htmlSourceCache).invalidate(FILE_UUID);
   }
 
   @Test
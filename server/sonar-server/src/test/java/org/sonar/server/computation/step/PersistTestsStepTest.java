@@ -33,6 +33,7 @@ import org.sonar.batch.protocol.output.BatchReport.CoverageDetail;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.CoveredLines;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.computation.batch.BatchReportReaderRule;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
@@ -157,7 +158,7 @@ public class PersistTestsStepTest extends BaseStepTest {
     assertThat(test1.getStatus()).isEqualTo(DbFileSources.Test.TestStatus.FAILURE);
     assertThat(test1.getExecutionTimeMs()).isEqualTo(1_000);
     assertThat(test1.getCoveredFileCount()).isEqualTo(1);
-    assertThat(test1.getCoveredFile(0).getCoveredLineList()).containsOnly(1, 2, 3);
+    assertThat(CoveredLines.getLineList(test1.getCoveredFile(0))).containsOnly(1, 2, 3);
     assertThat(test1.getCoveredFile(0).getFileUuid()).isEqualTo(MAIN_FILE_UUID_1);
   }
 
@@ -204,8 +205,8 @@ public class PersistTestsStepTest extends BaseStepTest {
     underTest.execute();
 
     FileSourceDto dto = dbClient.fileSourceDao().selectTest(TEST_FILE_UUID_1);
-    List<Integer> coveredLines = dto.getTestData().get(0).getCoveredFile(0).getCoveredLineList();
-    assertThat(coveredLines).containsOnly(1, 2, 3, 4);
+    List<Integer> coveredLines = CoveredLines.getLineList(dto.getTestData().get(0).getCoveredFile(0));
+    assertThat(coveredLines).containsExactly(1, 2, 3, 4);
   }
 
   @Test
@@ -250,7 +251,7 @@ public class PersistTestsStepTest extends BaseStepTest {
     assertThat(test.getStacktrace()).isEqualTo(newBatchTest.getStacktrace());
     assertThat(test.getExecutionTimeMs()).isEqualTo(newBatchTest.getDurationInMs());
     assertThat(test.getCoveredFileCount()).isEqualTo(1);
-    assertThat(test.getCoveredFile(0).getCoveredLineList()).containsOnly(1, 2, 3);
+    assertThat(CoveredLines.getLineList(test.getCoveredFile(0))).containsOnly(1, 2, 3);
     assertThat(test.getCoveredFile(0).getFileUuid()).isEqualTo(MAIN_FILE_UUID_1);
   }
 
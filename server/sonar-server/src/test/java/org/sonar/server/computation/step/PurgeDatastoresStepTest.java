@@ -24,15 +24,20 @@ import com.google.common.collect.FluentIterable;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.Collections;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.config.Settings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.FilePathWithHashDto;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.server.batch.ProjectFilesCache;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.MutableDbIdsRepositoryRule;
@@ -45,6 +50,7 @@ import org.sonar.server.util.WrapInSingleElementArray;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -56,6 +62,8 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
   private static final String PROJECT_KEY = "PROJECT_KEY";
   private static final long PROJECT_ID = 123L;
   private static final String PROJECT_UUID = "UUID-1234";
+  private static final String MODULE_UUID = "UUID-5678";
+  private static final long NEW_SNAPSHOT_ID = 10L;
 
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
@@ -64,8 +72,10 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
 
   ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
   SettingsRepository settingsRepository = mock(SettingsRepository.class);
+  ProjectFilesCache projectFilesCache = new ProjectFilesCache();
 
-  PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository);
+  PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository,
+    projectFilesCache);
 
   @Test
   public void call_purge_method_of_the_purge_task_for_project() {
@@ -81,6 +91,32 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     verify_call_purge_method_of_the_purge_task(project);
   }
 
+  @Test
+  public void invalidate_files_cached_between_switch_of_snapshot_and_purge() {
+    Component module = ReportComponent.builder(Component.Type.MODULE, 2).setUuid(MODULE_UUID).setKey("MODULE_KEY").build();
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(module).build();
+    treeRootHolder.setRoot(project);
+    when(settingsRepository.getSettings(project)).thenReturn(new Settings());
+    dbIdsRepository.setComponentId(project, PROJECT_ID);
+    // files requested by a scanner once the new snapshot is the last one, but before the purge disables removed files
+    projectFilesCache.put(PROJECT_UUID, NEW_SNAPSHOT_ID, Collections.<FilePathWithHashDto>emptyList());
+    projectFilesCache.put(MODULE_UUID, NEW_SNAPSHOT_ID, Collections.<FilePathWithHashDto>emptyList());
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        // still cached while purging
+        assertThat(projectFilesCache.get(PROJECT_UUID, NEW_SNAPSHOT_ID)).isNotNull();
+        return null;
+      }
+    }).when(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class));
+
+    underTest.execute();
+
+    verify(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class));
+    assertThat(projectFilesCache.get(PROJECT_UUID, NEW_SNAPSHOT_ID)).isNull();
+    assertThat(projectFilesCache.get(MODULE_UUID, NEW_SNAPSHOT_ID)).isNull();
+  }
+
   @DataProvider
   public static Object[][] nonRootProjectComponentTypes() {
     return dataproviderFromComponentTypeValues(new Predicate<Component.Type>() {
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+import org.sonar.server.computation.queue.CeTask;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RenewTaskLeaseStepTest {
+
+  private static final long NOW = 1_450_000_000_000L;
+  private static final String TASK_UUID = "TASK_1";
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester dbTester = DbTester.create(system2);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  CeTask task = mock(CeTask.class);
+
+  RenewTaskLeaseStep underTest = new RenewTaskLeaseStep(dbTester.getDbClient(), task, ceConfiguration);
+
+  @Test
+  public void renew_lease_of_task() {
+    when(task.getUuid()).thenReturn(TASK_UUID);
+    insertInProgress(ceConfiguration.getNodeUuid(), NOW - 1L);
+
+    underTest.execute();
+
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), TASK_UUID).get().getLeaseExpiresAt())
+      .isEqualTo(NOW + ceConfiguration.getLeaseDuration());
+  }
+
+  @Test
+  public void fail_if_task_is_processed_by_another_node() {
+    when(task.getUuid()).thenReturn(TASK_UUID);
+    insertInProgress("NODE_2", NOW + 1L);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Lease of task TASK_1 has expired");
+
+    underTest.execute();
+  }
+
+  @Test
+  public void fail_if_task_has_been_reset_to_pending() {
+    when(task.getUuid()).thenReturn(TASK_UUID);
+    insertInProgress(ceConfiguration.getNodeUuid(), NOW - 1L);
+    dbTester.getDbClient().ceQueueDao().resetToPendingForNode(dbTester.getSession(), ceConfiguration.getNodeUuid());
+    dbTester.getSession().commit();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Lease of task TASK_1 has expired");
+
+    underTest.execute();
+  }
+
+  private void insertInProgress(String nodeUuid, long leaseExpiresAt) {
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setComponentUuid("PROJECT_1");
+    queueDto.setUuid(TASK_UUID);
+    queueDto.setStatus(CeQueueDto.Status.IN_PROGRESS);
+    queueDto.setNodeUuid(nodeUuid);
+    queueDto.setLeaseExpiresAt(leaseExpiresAt);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), queueDto);
+    dbTester.getSession().commit();
+  }
+}
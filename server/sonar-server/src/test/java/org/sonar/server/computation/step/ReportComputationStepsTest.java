@@ -28,6 +28,7 @@ import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.server.computation.container.ComputeEngineContainer;
 import org.sonar.server.computation.container.ComputeEngineContainerImpl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 public class ReportComputationStepsTest {
@@ -69,4 +70,27 @@ public class ReportComputationStepsTest {
 
     Lists.newArrayList(new ReportComputationSteps(computeEngineContainer).instances());
   }
+
+  @Test
+  public void formula_steps_are_executed_in_order() {
+    ReportComputationSteps underTest = new ReportComputationSteps(mock(ComputeEngineContainer.class));
+
+    assertThat(underTest.orderedFormulaStepClasses()).containsExactly(
+      SizeMeasuresStep.class,
+      NewCoverageMeasuresStep.class,
+      CoverageMeasuresStep.class,
+      CommentMeasuresStep.class,
+      DuplicationMeasuresStep.class,
+      LanguageDistributionMeasuresStep.class,
+      UnitTestMeasuresStep.class,
+      ComplexityMeasuresStep.class);
+  }
+
+  @Test
+  public void formulaStepInstances_throws_ISE_if_container_does_not_have_formula_step() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Component not found: " + SizeMeasuresStep.class);
+
+    new ReportComputationSteps(mock(ComputeEngineContainer.class)).formulaStepInstances();
+  }
 }
@@ -19,11 +19,13 @@
  */
 package org.sonar.server.computation.step;
 
+import java.util.Collection;
 import java.util.Date;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.Duration;
@@ -41,7 +43,9 @@ import org.sonar.server.issue.notification.NewIssuesNotification;
 import org.sonar.server.issue.notification.NewIssuesNotificationFactory;
 import org.sonar.server.issue.notification.NewIssuesStatistics;
 import org.sonar.server.notification.NotificationService;
+import org.sonar.server.util.cache.DiskCache;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
@@ -101,6 +105,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
     underTest.execute();
 
     verify(notificationService, never()).deliver(any(Notification.class));
+    verify(notificationService, never()).deliver(any(Collection.class));
   }
 
   @Test
@@ -130,7 +135,8 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
     underTest.execute();
 
-    verify(notificationService, times(2)).deliver(any(Notification.class));
+    verify(notificationService).deliver(any(NewIssuesNotification.class));
+    assertThat(captureDeliveredNotifications()).containsExactly(myNewIssuesNotificationMock);
     verify(myNewIssuesNotificationMock).setAssignee(ISSUE_ASSIGNEE);
     verify(myNewIssuesNotificationMock).setProject(PROJECT_KEY, PROJECT_UUID, PROJECT_NAME);
     verify(myNewIssuesNotificationMock).setAnalysisDate(new Date(ANALYSE_DATE));
@@ -147,7 +153,30 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
     underTest.execute();
 
-    verify(notificationService).deliver(any(IssueChangeNotification.class));
+    Collection<Notification> notifications = captureDeliveredNotifications();
+    assertThat(notifications).hasSize(1);
+    assertThat(notifications.iterator().next()).isInstanceOf(IssueChangeNotification.class);
+  }
+
+  @Test
+  public void send_issues_change_notifications_by_batches() throws Exception {
+    DiskCache<DefaultIssue>.DiskAppender appender = issueCache.newAppender();
+    for (int i = 0; i < 150; i++) {
+      appender.append(new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION).setChanged(true).setSendNotifications(true));
+    }
+    appender.close();
+
+    when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
+
+    underTest.execute();
+
+    verify(notificationService, times(2)).deliver(any(Collection.class));
+  }
+
+  private Collection<Notification> captureDeliveredNotifications() {
+    ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(notificationService).deliver(captor.capture());
+    return captor.getValue();
   }
 
   private NewIssuesNotification createNewIssuesNotificationMock() {
@@ -20,16 +20,19 @@
 package org.sonar.server.computation.taskprocessor;
 
 import com.google.common.base.Optional;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.log.CeLogging;
 import org.sonar.server.computation.queue.CeQueue;
 import org.sonar.server.computation.queue.CeQueueImpl;
 import org.sonar.server.computation.queue.CeTask;
+import org.sonar.server.computation.stats.TaskStatsRecorder;
 import org.sonar.server.computation.taskprocessor.report.ReportTaskProcessor;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -46,8 +49,15 @@ public class CeWorkerCallableImplTest {
   CeQueue queue = mock(CeQueueImpl.class);
   ReportTaskProcessor taskProcessor = mock(ReportTaskProcessor.class);
   CeLogging ceLogging = mock(CeLogging.class);
-  CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository);
-  InOrder inOrder = Mockito.inOrder(ceLogging, taskProcessor, queue);
+  TaskStatsRecorder statsRecorder = mock(TaskStatsRecorder.class);
+  DbCe.TaskStats taskStats = DbCe.TaskStats.newBuilder().build();
+  CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository, statsRecorder);
+  InOrder inOrder = Mockito.inOrder(ceLogging, statsRecorder, taskProcessor, queue);
+
+  @Before
+  public void setUp() {
+    when(statsRecorder.clearForTask()).thenReturn(taskStats);
+  }
 
   @Test
   public void no_pending_tasks_in_queue() throws Exception {
@@ -55,7 +65,7 @@ public class CeWorkerCallableImplTest {
 
     assertThat(underTest.call()).isFalse();
 
-    verifyZeroInteractions(taskProcessor, ceLogging);
+    verifyZeroInteractions(taskProcessor, ceLogging, statsRecorder);
   }
 
   @Test
@@ -67,7 +77,8 @@ public class CeWorkerCallableImplTest {
     assertThat(underTest.call()).isTrue();
 
     inOrder.verify(ceLogging).initForTask(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null);
+    inOrder.verify(statsRecorder).initForTask();
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, taskStats);
     inOrder.verify(ceLogging).clearForTask();
   }
 
@@ -80,8 +91,9 @@ public class CeWorkerCallableImplTest {
     assertThat(underTest.call()).isTrue();
 
     inOrder.verify(ceLogging).initForTask(task);
+    inOrder.verify(statsRecorder).initForTask();
     inOrder.verify(taskProcessor).process(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null, taskStats);
     inOrder.verify(ceLogging).clearForTask();
   }
 
@@ -95,8 +107,9 @@ public class CeWorkerCallableImplTest {
     assertThat(underTest.call()).isTrue();
 
     inOrder.verify(ceLogging).initForTask(task);
+    inOrder.verify(statsRecorder).initForTask();
     inOrder.verify(taskProcessor).process(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, taskStats);
     inOrder.verify(ceLogging).clearForTask();
   }
 }
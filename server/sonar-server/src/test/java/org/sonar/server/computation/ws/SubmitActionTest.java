@@ -20,7 +20,9 @@
 package org.sonar.server.computation.ws;
 
 import java.io.InputStream;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.Matchers;
 import org.sonar.core.util.Protobuf;
 import org.sonar.db.ce.CeTaskTypes;
@@ -41,6 +43,9 @@ import static org.mockito.Mockito.when;
 
 public class SubmitActionTest {
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
   SubmitAction underTest = new SubmitAction(reportSubmitter);
   WsActionTester tester = new WsActionTester(underTest);
@@ -99,4 +104,50 @@ public class SubmitActionTest {
     verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), any(InputStream.class));
 
   }
+
+  @Test
+  public void submit_report_uploaded_by_parts() {
+    CeTask task = new CeTask.Builder().setUuid("TASK_1").setType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_1").setSubmitterLogin("robert").build();
+    when(reportSubmitter.submitUpload("my_project", null, "My Project", "UPLOAD_1", "abcdef")).thenReturn(task);
+
+    TestResponse wsResponse = tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("projectName", "My Project")
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("checksum", "abcdef")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+
+    verify(reportSubmitter).submitUpload("my_project", null, "My Project", "UPLOAD_1", "abcdef");
+    WsCe.SubmitResponse submitResponse = Protobuf.read(wsResponse.getInputStream(), WsCe.SubmitResponse.PARSER);
+    assertThat(submitResponse.getTaskId()).isEqualTo("TASK_1");
+  }
+
+  @Test
+  public void fail_if_neither_report_nor_upload_id() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parameter 'report' or 'uploadId' is required");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+  }
+
+  @Test
+  public void fail_if_both_report_and_upload_id() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parameters 'report' and 'uploadId' can't be set together");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("report", "{binary}")
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("checksum", "abcdef")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+  }
 }
@@ -33,6 +33,7 @@ import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.log.CeLogging;
 import org.sonar.server.computation.log.LogFileRef;
 import org.sonar.server.exceptions.ForbiddenException;
@@ -137,6 +138,42 @@ public class TaskActionTest {
     assertThat(task.getAnalysisId()).isEqualTo("123456");
     assertThat(task.getExecutionTimeMs()).isEqualTo(500L);
     assertThat(task.getLogs()).isFalse();
+    assertThat(task.hasStats()).isFalse();
+  }
+
+  @Test
+  public void return_stats_of_archived_task_if_requested() throws Exception {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setUuid("TASK_1");
+    queueDto.setComponentUuid(PROJECT.uuid());
+    CeActivityDto activityDto = new CeActivityDto(queueDto);
+    activityDto.setStatus(CeActivityDto.Status.SUCCESS);
+    activityDto.setStats(DbCe.TaskStats.newBuilder()
+      .addStep(DbCe.Stat.newBuilder().setName("Persist issues").setWallTimeMs(1_250L).setCpuTimeMs(420L).setWrittenRows(1_843L).setReportBytesRead(0L))
+      .addVisitor(DbCe.Stat.newBuilder().setName("IntegrateIssuesVisitor").setWallTimeMs(2_310L))
+      .build().toByteArray());
+    dbTester.getDbClient().ceActivityDao().insert(dbTester.getSession(), activityDto);
+    dbTester.commit();
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("id", "TASK_1")
+      .setParam("additionalFields", "stats")
+      .execute();
+
+    WsCe.TaskStats stats = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask().getStats();
+    assertThat(stats.getStepsCount()).isEqualTo(1);
+    WsCe.TaskStat step = stats.getSteps(0);
+    assertThat(step.getName()).isEqualTo("Persist issues");
+    assertThat(step.getWallTimeMs()).isEqualTo(1_250L);
+    assertThat(step.getCpuTimeMs()).isEqualTo(420L);
+    assertThat(step.hasAllocatedBytes()).isFalse();
+    assertThat(step.getWrittenRows()).isEqualTo(1_843L);
+    assertThat(step.getReportBytesRead()).isEqualTo(0L);
+    assertThat(stats.getVisitorsList()).extracting("name").containsExactly("IntegrateIssuesVisitor");
   }
 
   @Test
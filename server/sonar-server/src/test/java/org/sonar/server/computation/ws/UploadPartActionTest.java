@@ -0,0 +1,92 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.ws;
+
+import java.io.InputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.Matchers;
+import org.sonar.core.util.Protobuf;
+import org.sonar.server.computation.queue.report.ReportSubmitter;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.MediaTypes;
+import org.sonarqube.ws.WsCe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadPartActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
+  UploadPartAction underTest = new UploadPartAction(reportSubmitter);
+  WsActionTester tester = new WsActionTester(underTest);
+
+  @Test
+  public void append_part_and_return_number_of_uploaded_bytes() {
+    when(reportSubmitter.appendPart(eq("my_project"), Matchers.isNull(String.class), eq("UPLOAD_1"), eq(10L), any(InputStream.class), eq("abcdef")))
+      .thenReturn(18L);
+
+    TestResponse wsResponse = tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("offset", "10")
+      .setParam("checksum", "abcdef")
+      .setParam("part", "{binary}")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+
+    verify(reportSubmitter).appendPart(eq("my_project"), Matchers.isNull(String.class), eq("UPLOAD_1"), eq(10L), any(InputStream.class), eq("abcdef"));
+    WsCe.UploadPartResponse response = Protobuf.read(wsResponse.getInputStream(), WsCe.UploadPartResponse.PARSER);
+    assertThat(response.getUploadedBytes()).isEqualTo(18L);
+  }
+
+  @Test
+  public void fail_if_negative_offset() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parameter 'offset' must be positive");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("offset", "-1")
+      .setParam("checksum", "abcdef")
+      .setParam("part", "{binary}")
+      .setMethod("POST")
+      .execute();
+  }
+
+  @Test
+  public void define_ws() {
+    assertThat(tester.getDef().key()).isEqualTo("upload_part");
+    assertThat(tester.getDef().isPost()).isTrue();
+    assertThat(tester.getDef().isInternal()).isTrue();
+    assertThat(tester.getDef().since()).isEqualTo("5.5");
+  }
+}
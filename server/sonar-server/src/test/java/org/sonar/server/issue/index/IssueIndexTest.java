@@ -22,8 +22,10 @@ package org.sonar.server.issue.index;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -188,6 +190,27 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
   }
 
+  @Test
+  public void facets_on_projects_are_not_restricted_to_shards_of_filtered_projects() {
+    ComponentDto project = ComponentTesting.newProjectDto("ABCD");
+    ComponentDto project2 = ComponentTesting.newProjectDto("EFGH");
+    ComponentDto project3 = ComponentTesting.newProjectDto("IJKL");
+
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", ComponentTesting.newFileDto(project)),
+      IssueTesting.newDoc("ISSUE2", ComponentTesting.newFileDto(project2)),
+      IssueTesting.newDoc("ISSUE3", ComponentTesting.newFileDto(project3)));
+
+    IssueQuery query = IssueQuery.builder(userSessionRule).projectUuids(newArrayList("ABCD")).build();
+    List<IssueDoc> issues = index.search(query, new SearchOptions()).getDocs();
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).key()).isEqualTo("ISSUE1");
+
+    SearchResult<IssueDoc> result = index.search(query, new SearchOptions().addFacets(newArrayList("projectUuids")));
+    assertThat(result.getDocs()).hasSize(1);
+    assertThat(result.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 1L), entry("EFGH", 1L), entry("IJKL", 1L));
+  }
+
   @Test
   public void filter_by_modules() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -1283,6 +1306,26 @@ public class IssueIndexTest {
     assertThat(Lists.newArrayList(index.selectIssuesForBatch(ComponentTesting.newProjectDto()))).isEmpty();
   }
 
+  @Test
+  public void search_issues_for_batch_changed_since_date() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+
+    indexIssues(
+      IssueTesting.newDoc("OLD_ISSUE", file).setTechnicalUpdateDate(DateUtils.parseDate("2014-09-20")),
+      IssueTesting.newDoc("UPDATED_ISSUE", file).setTechnicalUpdateDate(DateUtils.parseDate("2014-09-24")),
+      // closed issues are returned, so that the batch can remove them
+      IssueTesting.newDoc("CLOSED_ISSUE", file).setStatus(Issue.STATUS_CLOSED).setResolution(Issue.RESOLUTION_FIXED)
+        .setTechnicalUpdateDate(DateUtils.parseDate("2014-09-25")),
+      IssueTesting.newDoc("OLD_CLOSED_ISSUE", file).setStatus(Issue.STATUS_CLOSED).setResolution(Issue.RESOLUTION_FIXED)
+        .setTechnicalUpdateDate(DateUtils.parseDate("2014-09-20")));
+
+    assertThat(keysOfIssuesForBatch(project, DateUtils.parseDate("2014-09-23"))).containsOnly("UPDATED_ISSUE", "CLOSED_ISSUE");
+    assertThat(keysOfIssuesForBatch(project, DateUtils.parseDate("2014-09-24"))).containsOnly("UPDATED_ISSUE", "CLOSED_ISSUE");
+    assertThat(keysOfIssuesForBatch(project, DateUtils.parseDate("2014-09-26"))).isEmpty();
+    assertThat(keysOfIssuesForBatch(project, null)).containsOnly("OLD_ISSUE", "UPDATED_ISSUE");
+  }
+
   @Test
   public void fail_to_search_issues_for_batch_on_not_allowed_scope() {
     try {
@@ -1329,6 +1372,14 @@ public class IssueIndexTest {
     issueAuthorizationIndexer.index(newArrayList(new IssueAuthorizationDao.Dto(projectUuid, 1).addGroup(group).addUser(user)));
   }
 
+  private List<String> keysOfIssuesForBatch(ComponentDto component, @Nullable Date since) {
+    List<String> keys = new ArrayList<>();
+    for (Iterator<IssueDoc> issues = index.selectIssuesForBatch(component, since); issues.hasNext();) {
+      keys.add(issues.next().key());
+    }
+    return keys;
+  }
+
   private void indexView(String viewUuid, List<String> projects) {
     viewIndexer.index(new ViewDoc().setUuid(viewUuid).setProjects(projects));
   }
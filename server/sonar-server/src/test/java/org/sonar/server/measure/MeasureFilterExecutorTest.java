@@ -26,6 +26,7 @@ import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.utils.DateUtils;
@@ -33,9 +34,17 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ResourceDao;
 import org.sonar.db.component.SnapshotDto;
+import org.sonar.server.measure.index.ProjectMeasuresDoc;
+import org.sonar.server.measure.index.ProjectMeasuresIndex;
+import org.sonar.server.measure.index.ProjectMeasuresQuery;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 
 public class MeasureFilterExecutorTest {
@@ -588,6 +597,73 @@ public class MeasureFilterExecutorTest {
     assertThat(rows.get(0).getSnapshotId()).isEqualTo(101L);
   }
 
+  @Test
+  public void execute_filter_on_numeric_measures_of_projects_on_index() throws Exception {
+    ProjectMeasuresIndex index = mock(ProjectMeasuresIndex.class);
+    when(index.searchAll(any(ProjectMeasuresQuery.class))).thenReturn(Arrays.asList(
+      new ProjectMeasuresDoc().setUuid("PHP").setId(PHP_PROJECT_ID).setSnapshotId(PHP_SNAPSHOT_ID),
+      new ProjectMeasuresDoc().setUuid("JAVA").setId(JAVA_PROJECT_ID).setSnapshotId(JAVA_PROJECT_SNAPSHOT_ID)));
+    executor = new MeasureFilterExecutor(db.myBatis(), db.database(), new ResourceDao(db.myBatis(), System2.INSTANCE), index);
+    MeasureFilter filter = new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK"))
+      .setSortOnMetric(METRIC_LINES).setSortOnPeriod(1).setSortAsc(false)
+      .addCondition(new MeasureFilterCondition(METRIC_COVERAGE, MeasureFilterCondition.Operator.GREATER_OR_EQUALS, 50.0));
+
+    List<MeasureFilterRow> rows = executor.execute(filter, new MeasureFilterContext());
+
+    assertThat(rows).hasSize(2);
+    verifyPhpProject(rows.get(0));
+    verifyJavaProject(rows.get(1));
+    ArgumentCaptor<ProjectMeasuresQuery> query = ArgumentCaptor.forClass(ProjectMeasuresQuery.class);
+    verify(index).searchAll(query.capture());
+    assertThat(query.getValue().getQualifiers()).containsOnly("TRK");
+    assertThat(query.getValue().getSort()).isEqualTo(ProjectMeasuresQuery.Sort.METRIC);
+    assertThat(query.getValue().getSortMetricKey()).isEqualTo("lines");
+    assertThat(query.getValue().isSortOnVariation()).isTrue();
+    assertThat(query.getValue().isAsc()).isFalse();
+    assertThat(query.getValue().getMetricCriteria()).hasSize(1);
+    ProjectMeasuresQuery.MetricCriterion criterion = query.getValue().getMetricCriteria().get(0);
+    assertThat(criterion.getMetricKey()).isEqualTo("coverage");
+    assertThat(criterion.getOperator()).isEqualTo(ProjectMeasuresQuery.Operator.GTE);
+    assertThat(criterion.getValue()).isEqualTo(50.0);
+    assertThat(criterion.isOnVariation()).isFalse();
+  }
+
+  @Test
+  public void execute_other_filters_on_database() throws Exception {
+    db.prepareDbUnit(getClass(), "shared.xml");
+    ProjectMeasuresIndex index = mock(ProjectMeasuresIndex.class);
+    executor = new MeasureFilterExecutor(db.myBatis(), db.database(), new ResourceDao(db.myBatis(), System2.INSTANCE), index);
+    MeasureFilter filter = new MeasureFilter().setResourceQualifiers(Arrays.asList("CLA")).setSortOnMetric(METRIC_LINES);
+
+    List<MeasureFilterRow> rows = executor.execute(filter, new MeasureFilterContext());
+
+    assertThat(rows).hasSize(2);
+    verifyZeroInteractions(index);
+  }
+
+  @Test
+  public void filters_supported_by_index() {
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK", "VW")))).isTrue();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK"))
+      .setSortOn(MeasureFilterSort.Field.KEY).setFromDate(new Date()))).isTrue();
+
+    // components which are not indexed
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK", "CLA")))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceScopes(Arrays.asList("PRJ")))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK")).setBaseResourceKey("foo"))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK")).setUserFavourites(true))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK")).setResourceName("struts"))).isFalse();
+
+    // measures which are not indexed
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK")).setSortOnMetric(METRIC_PROFILE))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK"))
+      .setSortOnMetric(METRIC_LINES).setSortOnPeriod(2))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK"))
+      .addCondition(new MeasureFilterCondition(METRIC_PROFILE, MeasureFilterCondition.Operator.EQUALS, "'Sonar way'")))).isFalse();
+    assertThat(MeasureFilterExecutor.isSupportedByIndex(new MeasureFilter().setResourceQualifiers(Arrays.asList("TRK"))
+      .setSortOn(MeasureFilterSort.Field.VERSION))).isFalse();
+  }
+
   private void verifyJavaProject(MeasureFilterRow row) {
     verifyProject(row, JAVA_PROJECT_SNAPSHOT_ID, JAVA_PROJECT_ID, JAVA_PROJECT_ID);
   }
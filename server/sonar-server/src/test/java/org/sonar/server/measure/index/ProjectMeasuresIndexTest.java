@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.es.SearchResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresQuery.Operator;
+
+public class ProjectMeasuresIndexTest {
+
+  @ClassRule
+  public static EsTester es = new EsTester().addDefinitions(new ProjectMeasuresIndexDefinition(new Settings()));
+
+  ProjectMeasuresIndex underTest = new ProjectMeasuresIndex(es.client());
+
+  @Before
+  public void setUp() throws Exception {
+    es.truncateIndices();
+    es.putDocuments(INDEX, TYPE_PROJECT_MEASURES,
+      newDoc("P1", "Struts", "TRK", 1_450_000_000_000L).addMeasure("ncloc", 150d, 10d).addMeasure("coverage", 80d, null),
+      newDoc("P2", "Ant", "TRK", 1_460_000_000_000L).addMeasure("ncloc", 5000d, -20d),
+      newDoc("P3", "Sonar", "TRK", 1_470_000_000_000L).addMeasure("coverage", 60d, 5d),
+      newDoc("V1", "All projects", "VW", 1_470_000_000_000L).addMeasure("ncloc", 5150d, null));
+  }
+
+  @Test
+  public void sort_by_name_by_default() {
+    assertThat(searchAll(new ProjectMeasuresQuery())).containsExactly("V1", "P2", "P3", "P1");
+  }
+
+  @Test
+  public void filter_on_qualifiers() {
+    assertThat(searchAll(new ProjectMeasuresQuery().setQualifiers(Arrays.asList("VW")))).containsExactly("V1");
+    assertThat(searchAll(new ProjectMeasuresQuery().setQualifiers(Arrays.asList("TRK", "VW")))).containsExactly("V1", "P2", "P3", "P1");
+  }
+
+  @Test
+  public void filter_on_values_of_measures() {
+    ProjectMeasuresQuery query = new ProjectMeasuresQuery()
+      .addMetricCriterion(new ProjectMeasuresQuery.MetricCriterion("ncloc", Operator.GT, 150d, false));
+    assertThat(searchAll(query)).containsExactly("V1", "P2");
+
+    query = new ProjectMeasuresQuery()
+      .addMetricCriterion(new ProjectMeasuresQuery.MetricCriterion("ncloc", Operator.LTE, 5000d, false))
+      .addMetricCriterion(new ProjectMeasuresQuery.MetricCriterion("coverage", Operator.EQ, 80d, false));
+    assertThat(searchAll(query)).containsExactly("P1");
+  }
+
+  @Test
+  public void filter_on_variations_of_measures() {
+    ProjectMeasuresQuery query = new ProjectMeasuresQuery()
+      .addMetricCriterion(new ProjectMeasuresQuery.MetricCriterion("ncloc", Operator.LT, 0d, true));
+    assertThat(searchAll(query)).containsExactly("P2");
+  }
+
+  @Test
+  public void filter_on_analysis_date() {
+    ProjectMeasuresQuery query = new ProjectMeasuresQuery()
+      .setFromDate(new Date(1_460_000_000_000L))
+      .setToDate(new Date(1_465_000_000_000L));
+    assertThat(searchAll(query)).containsExactly("P2");
+  }
+
+  @Test
+  public void sort_by_measure_with_missing_values_last() {
+    assertThat(searchAll(new ProjectMeasuresQuery().setSortOnMetric("ncloc", false))).containsExactly("P1", "P2", "V1", "P3");
+    assertThat(searchAll(new ProjectMeasuresQuery().setSortOnMetric("ncloc", false).setAsc(false))).containsExactly("V1", "P2", "P1", "P3");
+    assertThat(searchAll(new ProjectMeasuresQuery().setSortOnMetric("ncloc", true))).containsExactly("P2", "P1", "V1", "P3");
+  }
+
+  @Test
+  public void sort_by_key_and_analysis_date() {
+    assertThat(searchAll(new ProjectMeasuresQuery().setSort(ProjectMeasuresQuery.Sort.KEY))).containsExactly("P1", "P2", "P3", "V1");
+    assertThat(searchAll(new ProjectMeasuresQuery().setSort(ProjectMeasuresQuery.Sort.ANALYSIS_DATE).setAsc(false))).containsExactly("V1", "P3", "P2", "P1");
+  }
+
+  @Test
+  public void search_with_pagination_and_facets() {
+    SearchResult<ProjectMeasuresDoc> result = underTest.search(new ProjectMeasuresQuery(),
+      new SearchOptions().setPage(2, 3).addFacets(ProjectMeasuresIndex.FACET_QUALIFIERS));
+
+    assertThat(result.getTotal()).isEqualTo(4L);
+    assertThat(result.getDocs()).hasSize(1);
+    assertThat(result.getDocs().get(0).uuid()).isEqualTo("P1");
+    assertThat(result.getDocs().get(0).value("ncloc")).isEqualTo(150d);
+    assertThat(result.getFacets().get(ProjectMeasuresIndex.FACET_QUALIFIERS)).containsOnly(entry("TRK", 3L), entry("VW", 1L));
+  }
+
+  private List<String> searchAll(ProjectMeasuresQuery query) {
+    List<String> uuids = new ArrayList<>();
+    for (ProjectMeasuresDoc doc : underTest.searchAll(query)) {
+      uuids.add(doc.uuid());
+    }
+    return uuids;
+  }
+
+  private static ProjectMeasuresDoc newDoc(String uuid, String name, String qualifier, long analysedAt) {
+    return new ProjectMeasuresDoc()
+      .setUuid(uuid)
+      .setId(uuid.hashCode())
+      .setSnapshotId(uuid.hashCode() + 1)
+      .setKey(uuid)
+      .setName(name)
+      .setQualifier(qualifier)
+      .setAnalysedAt(new Date(analysedAt));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.server.es.EsTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+
+public class ProjectMeasuresIndexerTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new ProjectMeasuresIndexDefinition(new Settings()));
+
+  @Before
+  public void setUp() {
+    dbTester.truncateTables();
+    esTester.truncateIndices();
+  }
+
+  @Test
+  public void index_nothing() {
+    createIndexer().index();
+
+    assertThat(esTester.countDocuments(INDEX, TYPE_PROJECT_MEASURES)).isZero();
+  }
+
+  @Test
+  public void index_numeric_measures_of_last_analysis_of_roots() {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    createIndexer().index();
+
+    List<ProjectMeasuresDoc> docs = esTester.getDocuments(INDEX, TYPE_PROJECT_MEASURES, ProjectMeasuresDoc.class);
+    assertThat(uuids(docs)).containsOnly("ABCD", "EFGH");
+
+    ProjectMeasuresDoc project = getDoc(docs, "ABCD");
+    assertThat(project.id()).isEqualTo(1L);
+    assertThat(project.snapshotId()).isEqualTo(100L);
+    assertThat(project.key()).isEqualTo("org.struts:struts");
+    assertThat(project.name()).isEqualTo("Apache Struts");
+    assertThat(project.qualifier()).isEqualTo("TRK");
+    assertThat(project.analysedAt().getTime()).isEqualTo(1450000000000L);
+    assertThat(project.measures()).hasSize(2);
+    assertThat(project.value("ncloc")).isEqualTo(150d);
+    assertThat(project.variation("ncloc")).isEqualTo(10d);
+    assertThat(project.value("coverage")).isEqualTo(80.5d);
+    assertThat(project.variation("coverage")).isNull();
+    assertThat(project.value("ncloc_language_distribution")).isNull();
+
+    ProjectMeasuresDoc view = getDoc(docs, "EFGH");
+    assertThat(view.qualifier()).isEqualTo("VW");
+    assertThat(view.measures()).isEmpty();
+  }
+
+  @Test
+  public void index_single_project() {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    createIndexer().index("EFGH");
+
+    assertThat(uuids(esTester.getDocuments(INDEX, TYPE_PROJECT_MEASURES, ProjectMeasuresDoc.class))).containsOnly("EFGH");
+  }
+
+  @Test
+  public void delete_project() {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+    ProjectMeasuresIndexer indexer = createIndexer();
+    indexer.index();
+
+    indexer.deleteProject("ABCD");
+
+    assertThat(uuids(esTester.getDocuments(INDEX, TYPE_PROJECT_MEASURES, ProjectMeasuresDoc.class))).containsOnly("EFGH");
+  }
+
+  @Test
+  public void do_nothing_if_disabled() {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    createIndexer().setEnabled(false).index();
+
+    assertThat(esTester.countDocuments(INDEX, TYPE_PROJECT_MEASURES)).isZero();
+  }
+
+  private static ProjectMeasuresDoc getDoc(List<ProjectMeasuresDoc> docs, String uuid) {
+    for (ProjectMeasuresDoc doc : docs) {
+      if (doc.uuid().equals(uuid)) {
+        return doc;
+      }
+    }
+    throw new IllegalArgumentException("Document not found: " + uuid);
+  }
+
+  private static List<String> uuids(List<ProjectMeasuresDoc> docs) {
+    List<String> uuids = new ArrayList<>();
+    for (ProjectMeasuresDoc doc : docs) {
+      uuids.add(doc.uuid());
+    }
+    return uuids;
+  }
+
+  private ProjectMeasuresIndexer createIndexer() {
+    ProjectMeasuresIndexer indexer = new ProjectMeasuresIndexer(dbTester.getDbClient(), esTester.client());
+    indexer.setEnabled(true);
+    return indexer;
+  }
+}
@@ -21,9 +21,11 @@ package org.sonar.server.notification;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import java.io.IOException;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
@@ -41,6 +43,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -106,6 +109,40 @@ public class DefaultNotificationManagerTest {
     inOrder.verify(notificationQueueDao).delete(dtos);
   }
 
+  @Test
+  public void get_batch_from_queue_then_delete_it() throws Exception {
+    NotificationQueueDto dto1 = NotificationQueueDto.toNotificationQueueDto(new Notification("test1"));
+    NotificationQueueDto dto2 = mock(NotificationQueueDto.class);
+    when(dto2.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    NotificationQueueDto dto3 = mock(NotificationQueueDto.class);
+    when(dto3.toNotification()).thenThrow(new IOException("corrupted"));
+    NotificationQueueDto dto4 = NotificationQueueDto.toNotificationQueueDto(new Notification("test4"));
+    List<NotificationQueueDto> dtos = Arrays.asList(dto1, dto2, dto3, dto4);
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    DefaultNotificationManager.Batch batch = manager.getFromQueue(10);
+
+    assertThat(batch.isEmpty()).isFalse();
+    assertThat(batch.getNotifications()).extracting("type").containsExactly("test1", "test4");
+    // notifications are deleted only once delivered
+    verify(notificationQueueDao, never()).delete(any(List.class));
+
+    manager.removeFromQueue(batch);
+    verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void get_empty_batch_from_queue() {
+    when(notificationQueueDao.selectOldest(10)).thenReturn(Collections.<NotificationQueueDto>emptyList());
+
+    DefaultNotificationManager.Batch batch = manager.getFromQueue(10);
+    assertThat(batch.isEmpty()).isTrue();
+    assertThat(batch.getNotifications()).isEmpty();
+
+    manager.removeFromQueue(batch);
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
   // SONAR-4739
   @Test
   public void shouldNotFailWhenUnableToDeserialize() throws Exception {
@@ -175,4 +212,20 @@ public class DefaultNotificationManagerTest {
     assertThat(map.get("user2")).containsOnly(emailChannel, twitterChannel);
     assertThat(map.get("other")).isNull();
   }
+
+  @Test
+  public void subscribers_are_read_once_per_batch() {
+    when(propertiesDao.selectNotificationSubscribers("NewViolations", "Email", "struts")).thenReturn(Lists.newArrayList("user1"));
+
+    manager.startBatch();
+    manager.findNotificationSubscribers(dispatcher, "struts");
+    manager.findNotificationSubscribers(dispatcher, "struts");
+    manager.findNotificationSubscribers(dispatcher, "other");
+    manager.endBatch();
+    Multimap<String, NotificationChannel> multiMap = manager.findNotificationSubscribers(dispatcher, "struts");
+
+    assertThat(multiMap.get("user1")).containsOnly(emailChannel);
+    verify(propertiesDao, times(2)).selectNotificationSubscribers("NewViolations", "Email", "struts");
+    verify(propertiesDao).selectNotificationSubscribers("NewViolations", "Email", "other");
+  }
 }
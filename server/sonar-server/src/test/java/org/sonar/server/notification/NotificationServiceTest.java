@@ -20,7 +20,10 @@
 package org.sonar.server.notification;
 
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -28,12 +31,16 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
+import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.property.PropertiesDao;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
@@ -67,7 +74,7 @@ public class NotificationServiceTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(batch(notification)).thenReturn(batch());
 
     Settings settings = new Settings().setProperty("sonar.notifications.delay", 1L);
 
@@ -94,6 +101,7 @@ public class NotificationServiceTest {
 
     service.start();
     verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(manager, timeout(2000)).removeFromQueue(any(DefaultNotificationManager.Batch.class));
     service.stop();
 
     verify(gtalkChannel, never()).deliver(notification, ASSIGNEE_SIMON);
@@ -175,7 +183,7 @@ public class NotificationServiceTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(batch(notification)).thenReturn(batch());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -217,7 +225,7 @@ public class NotificationServiceTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(batch(notification)).thenReturn(batch(notification)).thenReturn(batch());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     service = spy(service);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -228,6 +236,65 @@ public class NotificationServiceTest {
     service.stop();
   }
 
+  @Test
+  public void deliver_batch_of_notifications_with_workers() {
+    setUpMocks();
+    // DB queue is empty
+    when(manager.getFromQueue(anyInt())).thenReturn(batch());
+    Notification otherNotification = mock(Notification.class);
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, gtalkChannel)).when(commentOnIssueCreatedByMe).dispatch(same(otherNotification), any(NotificationDispatcher.Context.class));
+    doThrow(new IllegalStateException("SMTP is down")).when(emailChannel).deliver(otherNotification, ASSIGNEE_SIMON);
+
+    service.start();
+    service.deliver(Arrays.asList(notification, otherNotification));
+    service.stop();
+
+    verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel).deliver(otherNotification, ASSIGNEE_SIMON);
+    verify(gtalkChannel).deliver(otherNotification, CREATOR_EVGENY);
+    verify(manager).startBatch();
+    verify(manager).endBatch();
+    assertThat(service.getSuccessCount()).isEqualTo(2);
+    assertThat(service.getErrorCount()).isEqualTo(1);
+    assertThat(service.getPendingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void deliver_in_caller_thread_if_service_is_not_started() {
+    setUpMocks();
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+
+    service.deliver(notification);
+
+    verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    assertThat(service.getSuccessCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void deliveries_rejected_by_stopped_service_are_not_pending() {
+    setUpMocks();
+    when(manager.getFromQueue(anyInt())).thenReturn(batch());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    service.start();
+    service.stop();
+
+    try {
+      service.deliver(notification);
+      fail();
+    } catch (RejectedExecutionException e) {
+      verify(emailChannel, never()).deliver(notification, ASSIGNEE_SIMON);
+      assertThat(service.getPendingCount()).isEqualTo(0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_workers_is_not_strictly_positive() {
+    Settings settings = new Settings().setProperty(NotificationService.PROPERTY_WORKERS, 0);
+
+    new NotificationService(settings, manager, dbClient);
+  }
+
   @Test
   public void hasProjectSubscribersForType() {
     setUpMocks();
@@ -244,6 +311,14 @@ public class NotificationServiceTest {
     assertThat(service.hasProjectSubscribersForTypes("PROJECT_UUID", Sets.newHashSet("issue-changes"))).isTrue();
   }
 
+  private static DefaultNotificationManager.Batch batch(Notification... notifications) {
+    List<NotificationQueueDto> dtos = new ArrayList<>();
+    for (int i = 0; i < notifications.length; i++) {
+      dtos.add(new NotificationQueueDto());
+    }
+    return new DefaultNotificationManager.Batch(dtos, Arrays.asList(notifications));
+  }
+
   private static Answer<Object> addUser(final String user, final NotificationChannel channel) {
     return addUser(user, new NotificationChannel[]{channel});
   }
@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.server.notification.NotificationService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NotificationMonitorTest {
+  private static final long PENDING_COUNT = 2;
+  private static final long SUCCESS_COUNT = 13;
+  private static final long ERROR_COUNT = 10;
+  private static final long PROCESSING_TIME = 987;
+
+  private NotificationService notificationService = mock(NotificationService.class);
+  private NotificationMonitor underTest = new NotificationMonitor(notificationService);
+
+  @Test
+  public void name_is_Notifications() {
+    assertThat(underTest.name()).isEqualTo("Notifications");
+  }
+
+  @Test
+  public void attributes_has_entry_for_each_get_method() {
+    mockCounts();
+
+    assertThat(underTest.attributes()).containsOnly(
+      entry("Pending", PENDING_COUNT),
+      entry("Successfully delivered", SUCCESS_COUNT),
+      entry("Delivered with error", ERROR_COUNT),
+      entry("Processing time", PROCESSING_TIME));
+  }
+
+  @Test
+  public void get_methods_delegate_to_the_NotificationService_instance() {
+    mockCounts();
+
+    assertThat(underTest.getPendingCount()).isEqualTo(PENDING_COUNT);
+    assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
+    assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
+    assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+  }
+
+  private void mockCounts() {
+    when(notificationService.getPendingCount()).thenReturn(PENDING_COUNT);
+    when(notificationService.getSuccessCount()).thenReturn(SUCCESS_COUNT);
+    when(notificationService.getErrorCount()).thenReturn(ERROR_COUNT);
+    when(notificationService.getProcessingTime()).thenReturn(PROCESSING_TIME);
+  }
+}
@@ -44,12 +44,17 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.component.index.ComponentDoc;
+import org.sonar.server.component.index.ComponentIndexDefinition;
+import org.sonar.server.component.index.ComponentIndexer;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.measure.index.ProjectMeasuresIndexDefinition;
+import org.sonar.server.measure.index.ProjectMeasuresIndexer;
 import org.sonar.server.test.index.TestDoc;
 import org.sonar.server.test.index.TestIndexDefinition;
 import org.sonar.server.test.index.TestIndexer;
@@ -74,7 +79,8 @@ public class DeleteActionTest {
 
   @ClassRule
   public static EsTester es = new EsTester().addDefinitions(new IssueIndexDefinition(new Settings()),
-    new TestIndexDefinition(new Settings()));
+    new TestIndexDefinition(new Settings()), new ProjectMeasuresIndexDefinition(new Settings()),
+    new ComponentIndexDefinition(new Settings()));
 
   @Rule
   public UserSessionRule userSessionRule = UserSessionRule.standalone();
@@ -103,6 +109,8 @@ public class DeleteActionTest {
           new IssueAuthorizationIndexer(dbClient, es.client()),
           new IssueIndexer(dbClient, es.client()),
           new TestIndexer(dbClient, es.client()),
+          new ProjectMeasuresIndexer(dbClient, es.client()),
+          new ComponentIndexer(dbClient, es.client()),
           mockResourceTypes,
           new ComponentFinder(dbClient)),
         new ComponentFinder(dbClient),
@@ -181,6 +189,8 @@ public class DeleteActionTest {
       .containsOnly(remainingProjectUuid);
     assertThat(es.getDocumentFieldValues(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE, TestIndexDefinition.FIELD_PROJECT_UUID))
       .containsOnly(remainingProjectUuid);
+    assertThat(es.getDocumentFieldValues(ComponentIndexDefinition.INDEX, ComponentIndexDefinition.TYPE_COMPONENT, ComponentIndexDefinition.FIELD_PROJECT_UUID))
+      .containsOnly(remainingProjectUuid);
   }
 
   @Test
@@ -249,6 +259,9 @@ public class DeleteActionTest {
 
     TestDoc testDoc = new TestDoc().setUuid("test-uuid-" + suffix).setProjectUuid(project.uuid()).setFileUuid(project.uuid());
     es.putDocuments(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE, testDoc);
+
+    ComponentDoc componentDoc = new ComponentDoc().setUuid(project.uuid()).setProjectUuid(project.uuid()).setKey(project.key()).setQualifier(project.qualifier());
+    es.putDocuments(ComponentIndexDefinition.INDEX, ComponentIndexDefinition.TYPE_COMPONENT, componentDoc);
   }
 
   private WsTester.TestRequest newRequest() {
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HtmlSourceCacheTest {
+
+  private static final String FILE_UUID = "FILE_UUID";
+  private static final String DATA_HASH = "DATA_HASH";
+
+  HtmlSourceCache underTest = new HtmlSourceCache();
+
+  @Test
+  public void get_cached_range_of_lines() {
+    underTest.put(FILE_UUID, DATA_HASH, 3, 1, "HTML_1");
+    underTest.put(FILE_UUID, DATA_HASH, 3, 2, "HTML_2");
+
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 2)).containsExactly("HTML_1", "HTML_2");
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 2, 2)).containsExactly("HTML_2");
+  }
+
+  @Test
+  public void return_null_if_a_line_of_the_range_is_missing() {
+    underTest.put(FILE_UUID, DATA_HASH, 3, 1, "HTML_1");
+    underTest.put(FILE_UUID, DATA_HASH, 3, 3, "HTML_3");
+
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 3)).isNull();
+    assertThat(underTest.get("OTHER_FILE", DATA_HASH, 1, 1)).isNull();
+  }
+
+  @Test
+  public void range_is_truncated_to_the_number_of_lines_of_the_file() {
+    underTest.put(FILE_UUID, DATA_HASH, 2, 1, "HTML_1");
+    underTest.put(FILE_UUID, DATA_HASH, 2, 2, "HTML_2");
+
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 2, 10)).containsExactly("HTML_2");
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 5, 10)).isEmpty();
+  }
+
+  @Test
+  public void lines_of_previous_data_hash_are_dropped() {
+    underTest.put(FILE_UUID, "OLD_HASH", 2, 1, "OLD_HTML_1");
+    underTest.put(FILE_UUID, "OLD_HASH", 2, 2, "OLD_HTML_2");
+    underTest.put(FILE_UUID, DATA_HASH, 2, 1, "HTML_1");
+
+    assertThat(underTest.get(FILE_UUID, "OLD_HASH", 1, 1)).isNull();
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 1)).containsExactly("HTML_1");
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 2)).isNull();
+  }
+
+  @Test
+  public void invalidate_file() {
+    underTest.put(FILE_UUID, DATA_HASH, 1, 1, "HTML_1");
+    underTest.put("OTHER_FILE", DATA_HASH, 1, 1, "HTML_1");
+
+    underTest.invalidate(FILE_UUID);
+
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 1)).isNull();
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void size_is_limited_by_number_of_lines() {
+    underTest.put(FILE_UUID, DATA_HASH, HtmlSourceCache.MAX_LINES, 1, "HTML_1");
+
+    assertThat(underTest.get(FILE_UUID, DATA_HASH, 1, 1)).isNull();
+    assertThat(underTest.size()).isZero();
+  }
+}
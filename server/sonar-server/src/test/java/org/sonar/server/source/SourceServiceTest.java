@@ -34,12 +34,17 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.source.index.FileSourceTesting;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SourceServiceTest {
 
   public static final String FILE_UUID = "FILE_UUID";
+  public static final String HASHED_FILE_UUID = "HASHED_FILE_UUID";
+  public static final String DATA_HASH = "DATA_HASH";
 
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
@@ -49,7 +54,9 @@ public class SourceServiceTest {
 
   HtmlSourceDecorator htmlDecorator = mock(HtmlSourceDecorator.class);
 
-  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator);
+  HtmlSourceCache htmlCache = new HtmlSourceCache();
+
+  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator, htmlCache);
 
   @Before
   public void injectFakeLines() throws IOException {
@@ -57,6 +64,11 @@ public class SourceServiceTest {
     dto.setFileUuid(FILE_UUID).setProjectUuid("PROJECT_UUID");
     dto.setSourceData(FileSourceTesting.newFakeData(10).build());
     dbTester.getDbClient().fileSourceDao().insert(dto);
+
+    FileSourceDto hashedDto = new FileSourceDto();
+    hashedDto.setFileUuid(HASHED_FILE_UUID).setProjectUuid("PROJECT_UUID").setDataHash(DATA_HASH);
+    hashedDto.setSourceData(FileSourceTesting.newFakeData(10).build());
+    dbTester.getDbClient().fileSourceDao().insert(hashedDto);
   }
 
   @Test
@@ -90,6 +102,37 @@ public class SourceServiceTest {
     assertThat(lines).containsExactly("HTML_5", "HTML_6", "HTML_7");
   }
 
+  @Test
+  public void get_range_of_lines_as_html_from_cache() throws Exception {
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn("HTML_5");
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_6", "HIGHLIGHTING_6", "SYMBOLS_6")).thenReturn("HTML_6");
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_7", "HIGHLIGHTING_7", "SYMBOLS_7")).thenReturn("HTML_7");
+
+    underTest.getLinesAsHtml(dbTester.getSession(), HASHED_FILE_UUID, 5, 7);
+    Optional<Iterable<String>> linesOpt = underTest.getLinesAsHtml(dbTester.getSession(), HASHED_FILE_UUID, 6, 7);
+
+    assertThat(linesOpt.isPresent()).isTrue();
+    assertThat(Lists.newArrayList(linesOpt.get())).containsExactly("HTML_6", "HTML_7");
+    verify(htmlDecorator, times(3)).getDecoratedSourceAsHtml(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void ignore_cached_lines_of_previous_version_of_sources() throws Exception {
+    htmlCache.put(HASHED_FILE_UUID, "OLD_HASH", 10, 5, "OLD_HTML_5");
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn("HTML_5");
+
+    Optional<Iterable<String>> linesOpt = underTest.getLinesAsHtml(dbTester.getSession(), HASHED_FILE_UUID, 5, 5);
+
+    assertThat(Lists.newArrayList(linesOpt.get())).containsExactly("HTML_5");
+    assertThat(htmlCache.get(HASHED_FILE_UUID, DATA_HASH, 5, 5)).containsExactly("HTML_5");
+  }
+
+  @Test
+  public void getLinesAsHtml_file_does_not_exist() throws Exception {
+    Optional<Iterable<String>> lines = underTest.getLinesAsHtml(dbTester.getSession(), "FILE_DOES_NOT_EXIST", 1, 10);
+    assertThat(lines.isPresent()).isFalse();
+  }
+
   @Test
   public void getLines_fails_if_range_starts_at_zero() {
     expectedException.expect(IllegalArgumentException.class);
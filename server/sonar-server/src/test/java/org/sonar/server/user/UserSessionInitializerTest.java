@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Optional;
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.GroupDao;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDao;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.usertoken.UserTokenAuthenticator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class UserSessionInitializerTest {
+
+  static final String TOKEN = "ABCDE";
+  static final String LOGIN = "marius";
+
+  DbClient dbClient = mock(DbClient.class);
+  DbSession dbSession = mock(DbSession.class);
+  UserDao userDao = mock(UserDao.class);
+  GroupDao groupDao = mock(GroupDao.class);
+  ThreadLocalUserSession threadLocalSession = new ThreadLocalUserSession();
+  UserTokenAuthenticator tokenAuthenticator = mock(UserTokenAuthenticator.class);
+  Settings settings = new Settings();
+  HttpServletRequest request = mock(HttpServletRequest.class);
+
+  UserSessionInitializer underTest = new UserSessionInitializer(dbClient, threadLocalSession, tokenAuthenticator, settings);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(false)).thenReturn(dbSession);
+    when(dbClient.userDao()).thenReturn(userDao);
+    when(dbClient.groupDao()).thenReturn(groupDao);
+    when(request.getLocale()).thenReturn(Locale.FRENCH);
+    when(tokenAuthenticator.authenticate(anyString())).thenReturn(Optional.<String>absent());
+    // for test isolation
+    threadLocalSession.remove();
+  }
+
+  @After
+  public void tearDown() {
+    threadLocalSession.remove();
+  }
+
+  @Test
+  public void init_anonymous_session() {
+    assertThat(underTest.initUserSession(request)).isTrue();
+
+    assertThat(threadLocalSession.hasSession()).isTrue();
+    assertThat(threadLocalSession.isLoggedIn()).isFalse();
+    assertThat(threadLocalSession.locale()).isEqualTo(Locale.FRENCH);
+  }
+
+  @Test
+  public void delegate_to_rails_when_authentication_is_forced() {
+    settings.setProperty(CoreProperties.CORE_FORCE_AUTHENTICATION_PROPERTY, true);
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    assertThat(threadLocalSession.hasSession()).isFalse();
+  }
+
+  @Test
+  public void delegate_to_rails_when_http_session_exists() {
+    when(request.getSession(false)).thenReturn(mock(HttpSession.class));
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    assertThat(threadLocalSession.hasSession()).isFalse();
+  }
+
+  @Test
+  public void delegate_to_rails_when_remember_me_cookie_exists() {
+    when(request.getCookies()).thenReturn(new Cookie[] {new Cookie("JSESSIONID", "foo"), new Cookie("auth_token", "bar")});
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    assertThat(threadLocalSession.hasSession()).isFalse();
+  }
+
+  @Test
+  public void init_session_of_user_authenticated_by_token() {
+    when(request.getHeader("Authorization")).thenReturn(basicAuthorization(TOKEN + ":"));
+    when(tokenAuthenticator.authenticate(TOKEN)).thenReturn(Optional.of(LOGIN));
+    when(userDao.selectActiveUserByLogin(dbSession, LOGIN)).thenReturn(new UserDto().setId(10L).setLogin(LOGIN).setName("Marius"));
+    when(groupDao.selectByUserLogin(dbSession, LOGIN)).thenReturn(Arrays.asList(new GroupDto().setName("sonar-users")));
+
+    assertThat(underTest.initUserSession(request)).isTrue();
+
+    assertThat(threadLocalSession.isLoggedIn()).isTrue();
+    assertThat(threadLocalSession.getLogin()).isEqualTo(LOGIN);
+    assertThat(threadLocalSession.getName()).isEqualTo("Marius");
+    assertThat(threadLocalSession.getUserId()).isEqualTo(10);
+    assertThat(threadLocalSession.getUserGroups()).contains("sonar-users");
+    verify(dbClient).closeSession(dbSession);
+  }
+
+  @Test
+  public void delegate_to_rails_when_token_is_invalid() {
+    when(request.getHeader("Authorization")).thenReturn(basicAuthorization(TOKEN + ":"));
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    assertThat(threadLocalSession.hasSession()).isFalse();
+  }
+
+  @Test
+  public void delegate_to_rails_when_user_of_token_is_disabled() {
+    when(request.getHeader("Authorization")).thenReturn(basicAuthorization(TOKEN + ":"));
+    when(tokenAuthenticator.authenticate(TOKEN)).thenReturn(Optional.of(LOGIN));
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    assertThat(threadLocalSession.hasSession()).isFalse();
+    verify(dbClient).closeSession(dbSession);
+  }
+
+  @Test
+  public void delegate_to_rails_when_authenticated_by_password() {
+    when(request.getHeader("Authorization")).thenReturn(basicAuthorization(LOGIN + ":password"));
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    verifyZeroInteractions(tokenAuthenticator);
+  }
+
+  @Test
+  public void delegate_to_rails_when_authorization_is_not_basic() {
+    when(request.getHeader("Authorization")).thenReturn("Bearer " + TOKEN);
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    verifyZeroInteractions(tokenAuthenticator);
+  }
+
+  @Test
+  public void delegate_to_rails_when_basic_authorization_is_not_base64() {
+    when(request.getHeader("Authorization")).thenReturn("Basic ###");
+
+    assertThat(underTest.initUserSession(request)).isFalse();
+    verifyZeroInteractions(tokenAuthenticator);
+  }
+
+  private static String basicAuthorization(String credentials) {
+    return "Basic " + BaseEncoding.base64().encode(credentials.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -66,6 +66,14 @@ public class ServletRequestTest {
     assertThat(request.getMediaType()).isEqualTo(MediaTypes.PROTOBUF);
   }
 
+  @Test
+  public void header() {
+    when(source.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"abc\"");
+    ServletRequest request = new ServletRequest(source, Collections.<String, Object>emptyMap());
+    assertThat(request.header(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"abc\"");
+    assertThat(request.header("Unknown")).isNull();
+  }
+
   @Test
   public void has_param_from_source() {
     when(source.getParameterMap()).thenReturn(ImmutableMap.of("param", new String[] {"value"}));
@@ -31,6 +31,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class TestRequest extends ValidatingRequest {
 
   private final Map<String, String> params = new HashMap<>();
+  private final Map<String, String> headers = new HashMap<>();
   private String method = "GET";
   private String mimeType = "application/octet-stream";
 
@@ -58,6 +59,18 @@ public class TestRequest extends ValidatingRequest {
     return params.containsKey(key);
   }
 
+  @Override
+  public String header(String name) {
+    return headers.get(name);
+  }
+
+  public TestRequest setHeader(String name, String value) {
+    checkNotNull(name);
+    checkNotNull(value);
+    headers.put(name, value);
+    return this;
+  }
+
   public TestRequest setMethod(String method) {
     checkNotNull(method);
     this.method = method;
@@ -20,17 +20,23 @@
 package org.sonar.server.ws;
 
 import com.google.common.collect.Maps;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Map;
 import javax.annotation.Nullable;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.i18n.I18n;
+import org.sonar.api.server.ws.RailsHandler;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.RequestHandler;
 import org.sonar.api.server.ws.Response;
@@ -43,7 +49,10 @@ import org.sonar.server.tester.UserSessionRule;
 import org.sonarqube.ws.MediaTypes;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class WebServiceEngineTest {
@@ -96,6 +105,45 @@ public class WebServiceEngineTest {
     assertThat(response.stream().outputAsString()).isEmpty();
   }
 
+  @Test
+  public void get_java_action_by_path() {
+    assertThat(engine.getJavaAction("api/system/health").key()).isEqualTo("health");
+    assertThat(engine.getJavaAction("api/system/health.protobuf").key()).isEqualTo("health");
+    assertThat(engine.getJavaAction("api/system/unknown")).isNull();
+    assertThat(engine.getJavaAction("api/xxx/health")).isNull();
+    assertThat(engine.getJavaAction("api/system")).isNull();
+  }
+
+  @Test
+  public void get_java_action_ignores_rails_actions() {
+    assertThat(engine.getJavaAction("api/system/rails")).isNull();
+  }
+
+  @Test
+  public void execute_request_with_streamed_response() throws IOException {
+    HttpServletResponse httpResponse = mock(HttpServletResponse.class);
+    ByteArrayServletOutputStream output = new ByteArrayServletOutputStream();
+    when(httpResponse.getOutputStream()).thenReturn(output);
+
+    ValidatingRequest request = new SimpleRequest("GET");
+    engine.execute(request, new ServletResponse(httpResponse), "api/system", "health");
+
+    assertThat(new String(output.bytes.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("good");
+    verify(httpResponse).setStatus(200);
+  }
+
+  @Test
+  public void errors_are_not_sent_if_streamed_response_is_committed() throws IOException {
+    HttpServletResponse httpResponse = mock(HttpServletResponse.class);
+    doThrow(new IllegalStateException("committed")).when(httpResponse).resetBuffer();
+
+    ValidatingRequest request = new SimpleRequest("GET");
+    engine.execute(request, new ServletResponse(httpResponse), "api/system", "fail");
+
+    verify(httpResponse, never()).setStatus(500);
+    verify(httpResponse, never()).getOutputStream();
+  }
+
   @Test
   public void bad_controller() {
     ValidatingRequest request = new SimpleRequest("GET");
@@ -314,6 +362,25 @@ public class WebServiceEngineTest {
 
   }
 
+  static class ByteArrayServletOutputStream extends ServletOutputStream {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    @Override
+    public void write(int b) {
+      bytes.write(b);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   static class SystemWs implements WebService {
     @Override
     public void define(Context context) {
@@ -379,6 +446,8 @@ public class WebServiceEngineTest {
             throw new BadRequestException(errors);
           }
         });
+      createNewDefaultAction(newController, "rails")
+        .setHandler(RailsHandler.INSTANCE);
       createNewDefaultAction(newController, "alive")
         .setHandler(new RequestHandler() {
           @Override
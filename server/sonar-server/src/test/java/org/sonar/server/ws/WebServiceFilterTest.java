@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.platform.Platform;
+import org.sonar.server.user.UserSessionInitializer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class WebServiceFilterTest {
+
+  Platform platform = mock(Platform.class);
+  ComponentContainer container = mock(ComponentContainer.class);
+  WebServiceEngine engine = mock(WebServiceEngine.class);
+  UserSessionInitializer userSessionInitializer = mock(UserSessionInitializer.class);
+  WebService.Action action = mock(WebService.Action.class);
+  HttpServletRequest request = mock(HttpServletRequest.class);
+  HttpServletResponse response = mock(HttpServletResponse.class);
+  FilterChain chain = mock(FilterChain.class);
+
+  WebServiceFilter underTest = new WebServiceFilter(platform);
+
+  @Before
+  public void setUp() {
+    when(platform.getContainer()).thenReturn(container);
+    when(container.getComponentByType(WebServiceEngine.class)).thenReturn(engine);
+    when(container.getComponentByType(UserSessionInitializer.class)).thenReturn(userSessionInitializer);
+    when(request.getContextPath()).thenReturn("/sonar");
+    when(request.getRequestURI()).thenReturn("/sonar/api/issues/search.protobuf");
+    when(action.path()).thenReturn("api/issues/search");
+    when(action.key()).thenReturn("search");
+    when(userSessionInitializer.initUserSession(request)).thenReturn(true);
+  }
+
+  @Test
+  public void execute_java_web_service() throws Exception {
+    when(engine.getJavaAction("api/issues/search.protobuf")).thenReturn(action);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(engine).execute(any(ServletRequest.class), any(ServletResponse.class), eq("api/issues"), eq("search"));
+    verifyZeroInteractions(chain);
+  }
+
+  @Test
+  public void execute_java_web_service_without_context_path() throws Exception {
+    when(request.getContextPath()).thenReturn("");
+    when(request.getRequestURI()).thenReturn("/api/issues/search.protobuf");
+    when(engine.getJavaAction("api/issues/search.protobuf")).thenReturn(action);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(engine).execute(any(ServletRequest.class), any(ServletResponse.class), eq("api/issues"), eq("search"));
+  }
+
+  @Test
+  public void context_path_is_not_a_regular_expression() throws Exception {
+    when(request.getContextPath()).thenReturn("/sonar+");
+    when(request.getRequestURI()).thenReturn("/sonar+/api/issues/search.protobuf");
+    when(engine.getJavaAction("api/issues/search.protobuf")).thenReturn(action);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(engine).execute(any(ServletRequest.class), any(ServletResponse.class), eq("api/issues"), eq("search"));
+  }
+
+  @Test
+  public void execute_index_action_requested_by_path_of_controller() throws Exception {
+    when(request.getRequestURI()).thenReturn("/sonar/api/issues");
+    when(action.path()).thenReturn("api/issues/index");
+    when(action.key()).thenReturn("index");
+    when(engine.getJavaAction("api/issues/index")).thenReturn(action);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(engine).execute(any(ServletRequest.class), any(ServletResponse.class), eq("api/issues"), eq("index"));
+    verifyZeroInteractions(chain);
+  }
+
+  @Test
+  public void forward_to_rails_if_not_a_java_web_service() throws Exception {
+    underTest.doFilter(request, response, chain);
+
+    verify(chain).doFilter(request, response);
+    verify(engine, never()).execute(any(ServletRequest.class), any(ServletResponse.class), anyString(), anyString());
+  }
+
+  @Test
+  public void forward_to_rails_if_user_session_requires_rails() throws Exception {
+    when(engine.getJavaAction("api/issues/search.protobuf")).thenReturn(action);
+    when(userSessionInitializer.initUserSession(request)).thenReturn(false);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(chain).doFilter(request, response);
+    verify(engine, never()).execute(any(ServletRequest.class), any(ServletResponse.class), anyString(), anyString());
+  }
+
+  @Test
+  public void forward_to_rails_if_multipart_request() throws Exception {
+    when(engine.getJavaAction("api/issues/search.protobuf")).thenReturn(action);
+    when(request.getContentType()).thenReturn("multipart/form-data; boundary=foo");
+
+    underTest.doFilter(request, response, chain);
+
+    verify(chain).doFilter(request, response);
+    verifyZeroInteractions(userSessionInitializer);
+  }
+
+  @Test
+  public void forward_to_rails_if_platform_is_not_fully_started() throws Exception {
+    when(container.getComponentByType(UserSessionInitializer.class)).thenReturn(null);
+
+    underTest.doFilter(request, response, chain);
+
+    verify(chain).doFilter(request, response);
+    verifyZeroInteractions(engine);
+  }
+
+  @Test
+  public void just_for_fun_and_coverage() throws Exception {
+    underTest.init(mock(FilterConfig.class));
+    underTest.destroy();
+    // do not fail
+  }
+}
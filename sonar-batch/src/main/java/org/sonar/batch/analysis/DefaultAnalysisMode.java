@@ -36,10 +36,12 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode implements Analysi
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultAnalysisMode.class);
   private static final String KEY_SCAN_ALL = "sonar.scanAllFiles";
+  private static final String KEY_SKIP_UNCHANGED = "sonar.skipUnchangedFiles";
 
   private boolean mediumTestMode;
   private boolean notAssociated;
   private boolean scanAllFiles;
+  private boolean incrementalPublish;
 
   public DefaultAnalysisMode(GlobalProperties globalProps, AnalysisProperties props) {
     init(globalProps.properties(), props.properties());
@@ -57,6 +59,17 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode implements Analysi
     return scanAllFiles;
   }
 
+  /**
+   * In publish mode, files that did not change since the previous analysis are flagged in the report so that the
+   * Compute Engine carries forward what sensors did not compute for them. They are hidden only from the sensors
+   * which declare {@link org.sonar.api.batch.sensor.SensorDescriptor#onlyOnChangedFiles()}, other sensors (CPD for
+   * example) still work on all files.
+   * @since 5.5
+   */
+  public boolean isIncrementalPublish() {
+    return incrementalPublish;
+  }
+
   private void init(Map<String, String> globalProps, Map<String, String> analysisProps) {
     // make sure analysis is consistent with global properties
     boolean globalPreview = isIssues(globalProps);
@@ -76,6 +89,7 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode implements Analysi
     mediumTestMode = "true".equals(getPropertyWithFallback(analysisProps, globalProps, FakePluginInstaller.MEDIUM_TEST_ENABLED));
     notAssociated = issues && rootProjectKeyMissing(analysisProps);
     String scanAllStr = getPropertyWithFallback(analysisProps, globalProps, KEY_SCAN_ALL);
+    incrementalPublish = !issues && "true".equals(getPropertyWithFallback(analysisProps, globalProps, KEY_SKIP_UNCHANGED));
     scanAllFiles = !issues || "true".equals(scanAllStr);
   }
 
@@ -93,6 +107,9 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode implements Analysi
     if (notAssociated) {
       LOG.info("Local analysis");
     }
+    if (incrementalPublish) {
+      LOG.info("Incremental publish: unchanged files are reused from the previous analysis");
+    }
     if (!scanAllFiles) {
       LOG.info("Scanning only changed files");
     }
@@ -29,6 +29,7 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.ClassUtils;
@@ -36,6 +37,7 @@ import org.sonar.api.batch.CheckProject;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.postjob.PostJob;
 import org.sonar.api.batch.postjob.PostJobContext;
 import org.sonar.api.batch.sensor.Sensor;
@@ -43,6 +45,7 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
 import org.sonar.batch.postjob.PostJobOptimizer;
 import org.sonar.batch.postjob.PostJobWrapper;
 import org.sonar.batch.sensor.DefaultSensorContext;
@@ -60,14 +63,16 @@ public class BatchExtensionDictionnary {
   private final SensorOptimizer sensorOptimizer;
   private final PostJobContext postJobContext;
   private final PostJobOptimizer postJobOptimizer;
+  private final DefaultAnalysisMode analysisMode;
 
   public BatchExtensionDictionnary(ComponentContainer componentContainer, DefaultSensorContext sensorContext, SensorOptimizer sensorOptimizer, PostJobContext postJobContext,
-    PostJobOptimizer postJobOptimizer) {
+    PostJobOptimizer postJobOptimizer, DefaultAnalysisMode analysisMode) {
     this.componentContainer = componentContainer;
     this.sensorContext = sensorContext;
     this.sensorOptimizer = sensorOptimizer;
     this.postJobContext = postJobContext;
     this.postJobOptimizer = postJobOptimizer;
+    this.analysisMode = analysisMode;
   }
 
   public <T> Collection<T> select(Class<T> type, @Nullable Project project, boolean sort, @Nullable ExtensionMatcher matcher) {
@@ -96,7 +101,7 @@ public class BatchExtensionDictionnary {
     List<T> result = Lists.newArrayList();
     for (Object extension : getExtensions(type)) {
       if (org.sonar.api.batch.Sensor.class.equals(type) && extension instanceof Sensor) {
-        extension = new SensorWrapper((Sensor) extension, sensorContext, sensorOptimizer);
+        extension = new SensorWrapper((Sensor) extension, sensorContext, sensorOptimizer, analysisMode);
       }
       if (shouldKeep(type, extension, project, matcher)) {
         result.add((T) extension);
@@ -105,7 +110,7 @@ public class BatchExtensionDictionnary {
     if (org.sonar.api.batch.Sensor.class.equals(type)) {
       // Retrieve new Sensors and wrap then in SensorWrapper
       for (Object extension : getExtensions(Sensor.class)) {
-        extension = new SensorWrapper((Sensor) extension, sensorContext, sensorOptimizer);
+        extension = new SensorWrapper((Sensor) extension, sensorContext, sensorOptimizer, analysisMode);
         if (shouldKeep(type, extension, project, matcher)) {
           result.add((T) extension);
         }
@@ -154,13 +159,31 @@ public class BatchExtensionDictionnary {
     return Collections2.filter(sortedList, Predicates.in(extensions));
   }
 
+  /**
+   * Whether two extensions can be executed in any order, or concurrently: they belong to the same phase and
+   * none of them depends upon the other.
+   * @since 5.5
+   */
+  public boolean areIndependent(Object extension, Object other) {
+    return evaluatePhase(extension) == evaluatePhase(other) && !dependsUpon(extension, other) && !dependsUpon(other, extension);
+  }
+
+  private boolean dependsUpon(Object extension, Object other) {
+    List<Object> dependencies = getDependencies(extension);
+    List<Object> dependents = getDependents(other);
+    return dependencies.contains(other) || dependents.contains(extension) || !Collections.disjoint(dependencies, dependents);
+  }
+
   /**
    * Extension dependencies
    */
   private <T> List<Object> getDependencies(T extension) {
     List<Object> result = new ArrayList<>();
     result.addAll(evaluateAnnotatedClasses(extension, DependsUpon.class));
-    return result;
+    if (extension instanceof SensorWrapper) {
+      result.addAll(((SensorWrapper) extension).descriptor().requiredMetrics());
+    }
+    return toMetricKeys(result);
   }
 
   /**
@@ -169,6 +192,21 @@ public class BatchExtensionDictionnary {
   public <T> List<Object> getDependents(T extension) {
     List<Object> result = new ArrayList<>();
     result.addAll(evaluateAnnotatedClasses(extension, DependedUpon.class));
+    if (extension instanceof SensorWrapper) {
+      result.addAll(((SensorWrapper) extension).descriptor().providedMetrics());
+    }
+    return toMetricKeys(result);
+  }
+
+  /**
+   * Metrics are replaced by their keys, so that metrics declared in annotations match the metric keys declared
+   * by {@link org.sonar.api.batch.sensor.SensorDescriptor}
+   */
+  private static List<Object> toMetricKeys(List<Object> dependencies) {
+    List<Object> result = new ArrayList<>(dependencies.size());
+    for (Object dependency : dependencies) {
+      result.add(dependency instanceof Metric ? ((Metric) dependency).key() : dependency);
+    }
     return result;
   }
 
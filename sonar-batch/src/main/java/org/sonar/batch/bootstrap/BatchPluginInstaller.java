@@ -20,15 +20,26 @@
 package org.sonar.batch.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.io.FileUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.SonarPlugin;
@@ -42,6 +53,7 @@ import org.sonar.core.platform.RemotePlugin;
 import org.sonar.core.platform.RemotePluginFile;
 import org.sonar.home.cache.FileCache;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.WsResponse;
 
 import static java.lang.String.format;
@@ -54,17 +66,22 @@ public class BatchPluginInstaller implements PluginInstaller {
 
   private static final Logger LOG = Loggers.get(BatchPluginInstaller.class);
   private static final String PLUGINS_INDEX_URL = "/deploy/plugins/index.txt";
+  private static final int DOWNLOAD_THREADS = 4;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
 
   private final WSLoader wsLoader;
   private final FileCache fileCache;
   private final BatchPluginPredicate pluginPredicate;
   private final BatchWsClient wsClient;
+  private final BatchPluginJarExploder jarExploder;
 
-  public BatchPluginInstaller(WSLoader wsLoader, BatchWsClient wsClient, FileCache fileCache, BatchPluginPredicate pluginPredicate) {
+  public BatchPluginInstaller(WSLoader wsLoader, BatchWsClient wsClient, FileCache fileCache, BatchPluginPredicate pluginPredicate,
+    BatchPluginJarExploder jarExploder) {
     this.wsLoader = wsLoader;
     this.fileCache = fileCache;
     this.pluginPredicate = pluginPredicate;
     this.wsClient = wsClient;
+    this.jarExploder = jarExploder;
   }
 
   @Override
@@ -73,20 +90,59 @@ public class BatchPluginInstaller implements PluginInstaller {
   }
 
   private Map<String, PluginInfo> loadPlugins(List<RemotePlugin> remotePlugins) {
-    Map<String, PluginInfo> infosByKey = new HashMap<>();
-
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
-    for (RemotePlugin remotePlugin : remotePlugins) {
-      if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
+    List<Future<PluginInfo>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(DOWNLOAD_THREADS,
+      new ThreadFactoryBuilder().setNameFormat("plugin-download-%d").setDaemon(true).build());
+    try {
+      for (final RemotePlugin remotePlugin : remotePlugins) {
+        if (pluginPredicate.apply(remotePlugin.getKey())) {
+          futures.add(executor.submit(new Callable<PluginInfo>() {
+            @Override
+            public PluginInfo call() {
+              return install(remotePlugin);
+            }
+          }));
+        }
+      }
+      Map<String, PluginInfo> infosByKey = new HashMap<>();
+      for (Future<PluginInfo> future : futures) {
+        PluginInfo info = getResult(future);
         infosByKey.put(info.getKey(), info);
       }
+      profiler.stopDebug();
+      return infosByKey;
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    profiler.stopDebug();
-    return infosByKey;
+  private static PluginInfo getResult(Future<PluginInfo> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading plugins", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to load plugins", e.getCause());
+    }
+  }
+
+  /**
+   * Downloads the plugin then immediately explodes it, so that exploding is done while other
+   * plugins are being downloaded.
+   */
+  private PluginInfo install(RemotePlugin remotePlugin) {
+    File jarFile = download(remotePlugin);
+    PluginInfo info = PluginInfo.create(jarFile);
+    try {
+      jarExploder.unzipFile(jarFile);
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to open plugin [%s]: %s", info.getKey(), jarFile.getAbsolutePath()), e);
+    }
+    return info;
   }
 
   /**
@@ -129,12 +185,12 @@ public class BatchPluginInstaller implements PluginInstaller {
 
   private String loadPluginIndex() {
     Profiler profiler = Profiler.create(LOG).startInfo("Load plugins index");
-    WSLoaderResult<String> wsResult = wsLoader.loadString(PLUGINS_INDEX_URL);
+    WSLoaderResult<String> wsResult = wsLoader.loadStringIfModified(PLUGINS_INDEX_URL);
     profiler.stopInfo(wsResult.isFromCache());
     return wsResult.get();
   }
 
-  private class FileDownloader implements FileCache.Downloader {
+  private class FileDownloader implements FileCache.ResumableDownloader {
     private String key;
 
     FileDownloader(String key) {
@@ -143,6 +199,11 @@ public class BatchPluginInstaller implements PluginInstaller {
 
     @Override
     public void download(String filename, File toFile) throws IOException {
+      download(filename, toFile, 0L);
+    }
+
+    @Override
+    public void download(String filename, File toFile, long offset) throws IOException {
       String url = format("/deploy/plugins/%s/%s", key, filename);
       if (LOG.isDebugEnabled()) {
         LOG.debug("Download plugin {} to {}", filename, toFile);
@@ -150,9 +211,25 @@ public class BatchPluginInstaller implements PluginInstaller {
         LOG.info("Download {}", filename);
       }
 
-      WsResponse response = wsClient.call(new GetRequest(url));
-      try (InputStream stream = response.contentStream()) {
-        FileUtils.copyInputStreamToFile(stream, toFile);
+      GetRequest request = new GetRequest(url);
+      if (offset > 0) {
+        request.setHeader("Range", format("bytes=%d-", offset));
+      }
+      WsResponse response;
+      try {
+        response = wsClient.call(request);
+      } catch (HttpException e) {
+        if (offset > 0 && e.code() == HTTP_RANGE_NOT_SATISFIABLE) {
+          // partial file is not valid anymore
+          download(filename, toFile, 0L);
+          return;
+        }
+        throw e;
+      }
+      // server may ignore the range and send the whole file
+      boolean append = offset > 0 && response.code() == HttpURLConnection.HTTP_PARTIAL;
+      try (InputStream stream = response.contentStream(); OutputStream output = new FileOutputStream(toFile, append)) {
+        IOUtils.copy(stream, output);
       }
     }
   }
@@ -52,7 +52,10 @@ public class BatchPluginJarExploder extends PluginJarExploder {
     }
   }
 
-  private File unzipFile(File cachedFile) throws IOException {
+  /**
+   * Unzips the plugin into the cache, if not already done by a previous analysis
+   */
+  File unzipFile(File cachedFile) throws IOException {
     String filename = cachedFile.getName();
     File destDir = new File(cachedFile.getParentFile(), filename + "_unzip");
     File lockFile = new File(cachedFile.getParentFile(), filename + "_unzip.lock");
@@ -58,7 +58,8 @@ public class BatchWsClient {
    *     a connectivity problem or timeout. Because networks can
    *     fail during an exchange, it is possible that the remote server
    *     accepted the request before the failure
-   * @throws HttpException if the response code is not in range [200..300)
+   * @throws HttpException if the response code is not in range [200..300) and is not 304 Not Modified, which
+   *     can only be returned to conditional requests
    */
   public WsResponse call(WsRequest request) {
     Profiler profiler = Profiler.createIfDebug(LOG).start();
@@ -93,7 +94,9 @@ public class BatchWsClient {
       // SONAR-4397 Details are in response content
       throw MessageException.of(tryParseAsJsonError(response.content()));
     }
-    response.failIfNotSuccessful();
+    if (response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+      response.failIfNotSuccessful();
+    }
   }
 
   private static String tryParseAsJsonError(String responseContent) {
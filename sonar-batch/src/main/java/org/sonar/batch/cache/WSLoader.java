@@ -21,8 +21,11 @@ package org.sonar.batch.cache;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -33,7 +36,9 @@ import org.sonar.batch.bootstrap.BatchWsClient;
 import org.sonar.home.cache.PersistentCache;
 import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.WsResponse;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static org.sonar.batch.cache.WSLoader.ServerStatus.ACCESSIBLE;
 import static org.sonar.batch.cache.WSLoader.ServerStatus.NOT_ACCESSIBLE;
 import static org.sonar.batch.cache.WSLoader.ServerStatus.UNKNOWN;
@@ -41,6 +46,8 @@ import static org.sonar.batch.cache.WSLoader.ServerStatus.UNKNOWN;
 public class WSLoader {
   private static final Logger LOG = Loggers.get(WSLoader.class);
   private static final String FAIL_MSG = "Server is not accessible and data is not cached";
+  private static final String NEXT_SINCE_HEADER = "Sonar-Next-Since";
+  private static final String INCREMENTAL_HEADER = "Sonar-Incremental";
 
   public enum ServerStatus {
     UNKNOWN, ACCESSIBLE, NOT_ACCESSIBLE
@@ -50,6 +57,13 @@ public class WSLoader {
     SERVER_FIRST, CACHE_FIRST, SERVER_ONLY, CACHE_ONLY
   }
 
+  /**
+   * Merges the changes downloaded by {@link #loadStreamIncrementally(String, StreamMerger)} into the cached data
+   */
+  public interface StreamMerger {
+    void merge(InputStream cached, InputStream changes, OutputStream merged) throws IOException;
+  }
+
   private final LoadStrategy defautLoadStrategy;
   private final BatchWsClient wsClient;
   private final PersistentCache cache;
@@ -71,6 +85,46 @@ public class WSLoader {
     }
   };
 
+  /**
+   * Sends the ETag of the cached data, if any, so that the server can answer 304 Not Modified
+   * instead of sending the same content again.
+   */
+  private DataLoader<String> conditionalStringServerLoader = new DataLoader<String>() {
+    @Override
+    public String load(String id) throws IOException {
+      String etag = cache.getString(etagKey(id));
+      if (etag != null) {
+        WsResponse response = wsClient.call(new GetRequest(id).setHeader("If-None-Match", etag));
+        if (response.code() != HTTP_NOT_MODIFIED) {
+          return readAndCache(id, response);
+        }
+        String cached = cache.getString(id);
+        if (cached != null) {
+          LOG.debug("{} not modified since last request", id);
+          return cached;
+        }
+        // cached data has been evicted in the meantime
+      }
+      return readAndCache(id, wsClient.call(new GetRequest(id)));
+    }
+
+    private String readAndCache(String id, WsResponse response) throws IOException {
+      try (Reader reader = response.contentReader()) {
+        String str = IOUtils.toString(reader);
+        try {
+          cache.put(id, str.getBytes(StandardCharsets.UTF_8));
+          String etag = response.header("ETag");
+          if (etag != null) {
+            cache.put(etagKey(id), etag.getBytes(StandardCharsets.UTF_8));
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException("Error saving to WS cache", e);
+        }
+        return str;
+      }
+    }
+  };
+
   private DataLoader<String> stringCacheLoader = new DataLoader<String>() {
     @Override
     public String load(String id) throws IOException {
@@ -93,6 +147,112 @@ public class WSLoader {
     }
   };
 
+  /**
+   * Same as {@link #conditionalStringServerLoader}, for binary data
+   */
+  private DataLoader<InputStream> conditionalStreamServerLoader = new DataLoader<InputStream>() {
+    @Override
+    public InputStream load(String id) throws IOException {
+      String etag = cache.getString(etagKey(id));
+      if (etag != null) {
+        WsResponse response = wsClient.call(new GetRequest(id).setHeader("If-None-Match", etag));
+        if (response.code() != HTTP_NOT_MODIFIED) {
+          return readAndCache(id, response);
+        }
+        InputStream cached = cache.getStream(id);
+        if (cached != null) {
+          LOG.debug("{} not modified since last request", id);
+          return cached;
+        }
+        // cached data has been evicted in the meantime
+      }
+      return readAndCache(id, wsClient.call(new GetRequest(id)));
+    }
+
+    private InputStream readAndCache(String id, WsResponse response) throws IOException {
+      try (InputStream is = response.contentStream()) {
+        try {
+          cache.put(id, is);
+          String etag = response.header("ETag");
+          if (etag != null) {
+            cache.put(etagKey(id), etag.getBytes(StandardCharsets.UTF_8));
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException("Error saving to WS cache", e);
+        }
+      }
+      return cache.getStream(id);
+    }
+  };
+
+  /**
+   * When data is cached, only the changes since it was downloaded are requested, by adding the parameter "since" to the request,
+   * and merged into the cached data. The value of "since" is given by the server in the header "Sonar-Next-Since" of
+   * the previous response, as only the server knows which changes are already visible. The changes are merged only if
+   * the header "Sonar-Incremental" of the response is true, otherwise the response replaces the cached data.
+   */
+  private class IncrementalStreamServerLoader implements DataLoader<InputStream> {
+    private final StreamMerger merger;
+
+    IncrementalStreamServerLoader(StreamMerger merger) {
+      this.merger = merger;
+    }
+
+    @Override
+    public InputStream load(String id) throws IOException {
+      String since = cache.getString(sinceKey(id));
+      InputStream cached = since == null ? null : cache.getStream(id);
+      if (cached == null) {
+        return cacheAll(id, wsClient.call(new GetRequest(id)));
+      }
+
+      WsResponse response;
+      boolean incremental;
+      Path merged = Files.createTempFile("ws-merge", null);
+      try {
+        try (InputStream cachedData = cached) {
+          response = wsClient.call(new GetRequest(id + "&since=" + since));
+          incremental = Boolean.parseBoolean(response.header(INCREMENTAL_HEADER));
+          if (incremental) {
+            try (InputStream changes = response.contentStream(); OutputStream out = Files.newOutputStream(merged)) {
+              merger.merge(cachedData, changes, out);
+            }
+          }
+        }
+        if (!incremental) {
+          // changes since this date are not available anymore, the response contains all the data
+          LOG.debug("Incremental request of {} is not supported, cached data is replaced", id);
+          return cacheAll(id, response);
+        }
+        try (InputStream is = Files.newInputStream(merged)) {
+          cache.put(id, is);
+        }
+      } finally {
+        Files.deleteIfExists(merged);
+      }
+      saveSince(id, response);
+      return cache.getStream(id);
+    }
+
+    private InputStream cacheAll(String id, WsResponse response) throws IOException {
+      try (InputStream is = response.contentStream()) {
+        cache.put(id, is);
+      }
+      saveSince(id, response);
+      return cache.getStream(id);
+    }
+
+    private void saveSince(String id, WsResponse response) throws IOException {
+      String nextSince = response.header(NEXT_SINCE_HEADER);
+      if (nextSince != null) {
+        cache.put(sinceKey(id), nextSince.getBytes(StandardCharsets.UTF_8));
+      } else {
+        // previous value, if any, is kept. Next request returns more changes than needed, which is harmless.
+        LOG.debug("Server did not return header {} for {}", NEXT_SINCE_HEADER, id);
+      }
+    }
+  }
+
   private DataLoader<InputStream> streamCacheLoader = new DataLoader<InputStream>() {
     @Override
     public InputStream load(String id) throws IOException {
@@ -124,6 +284,26 @@ public class WSLoader {
     return load(id, defautLoadStrategy, streamServerLoader, streamCacheLoader);
   }
 
+  /**
+   * Same as {@link #loadStream(String)}, but the request to server is conditional: the data is not downloaded again
+   * if it did not change since the last request. The server must answer with an ETag.
+   * @since 5.5
+   */
+  @Nonnull
+  public WSLoaderResult<InputStream> loadStreamIfModified(String id) {
+    return load(id, defautLoadStrategy, conditionalStreamServerLoader, streamCacheLoader);
+  }
+
+  /**
+   * Same as {@link #loadStream(String)}, but if data is cached, only the changes since the previous request are downloaded
+   * and merged into the cached data. The server must support the parameter "since", as a timestamp in milliseconds.
+   * @since 5.5
+   */
+  @Nonnull
+  public WSLoaderResult<InputStream> loadStreamIncrementally(String id, StreamMerger merger) {
+    return load(id, defautLoadStrategy, new IncrementalStreamServerLoader(merger), streamCacheLoader);
+  }
+
   @Nonnull
   public WSLoaderResult<String> loadString(String id) {
     return loadString(id, defautLoadStrategy);
@@ -134,6 +314,24 @@ public class WSLoader {
     return load(id, strategy, stringServerLoader, stringCacheLoader);
   }
 
+  /**
+   * Same as {@link #loadString(String)}, but the request to server is conditional: the data is not downloaded again
+   * if it did not change since the last request. It is meant for static resources, which are served with an ETag.
+   * @since 5.5
+   */
+  @Nonnull
+  public WSLoaderResult<String> loadStringIfModified(String id) {
+    return load(id, defautLoadStrategy, conditionalStringServerLoader, stringCacheLoader);
+  }
+
+  private static String etagKey(String id) {
+    return id + "#etag";
+  }
+
+  private static String sinceKey(String id) {
+    return id + "#since";
+  }
+
   @Nonnull
   private <T> WSLoaderResult<T> load(String id, WSLoader.LoadStrategy strategy, DataLoader<T> serverLoader, DataLoader<T> cacheLoader) {
     switch (strategy) {
@@ -19,34 +19,129 @@
  */
 package org.sonar.batch.phases;
 
-
-import org.sonar.batch.util.BatchUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.events.SensorExecutionHandler;
 import org.sonar.api.batch.events.SensorsPhaseHandler;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
+import org.sonar.batch.util.BatchUtils;
 
+/**
+ * Logs execution time of each sensor. As sensors may be executed concurrently, the critical path of the
+ * sensors phase (chain of sensors that determined its duration) is also logged at the end of the phase.
+ */
 public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseHandler {
 
   private static final Logger LOG = Loggers.get(PhasesTimeProfiler.class);
 
-  private Profiler profiler = Profiler.create(LOG);
+  private final System2 system;
+  private final Map<Object, Profiler> profilers = new ConcurrentHashMap<>();
+  private final Map<Object, Execution> executions = new ConcurrentHashMap<>();
+
+  public PhasesTimeProfiler(System2 system) {
+    this.system = system;
+  }
 
   @Override
   public void onSensorsPhase(SensorsPhaseEvent event) {
     if (event.isStart()) {
       LOG.debug("Sensors : {}", StringUtils.join(event.getSensors(), " -> "));
+      executions.clear();
+    } else {
+      logCriticalPath();
+      profilers.clear();
+      executions.clear();
     }
   }
 
   @Override
   public void onSensorExecution(SensorExecutionEvent event) {
+    Object sensor = event.getSensor();
     if (event.isStart()) {
-      profiler.startInfo("Sensor " + BatchUtils.describe(event.getSensor()));
+      executions.put(sensor, new Execution(BatchUtils.describe(sensor), system.now()));
+      Profiler profiler = Profiler.create(LOG);
+      profilers.put(sensor, profiler);
+      profiler.startInfo("Sensor " + BatchUtils.describe(sensor));
     } else {
-      profiler.stopInfo();
+      Execution execution = executions.get(sensor);
+      if (execution != null) {
+        execution.end = system.now();
+      }
+      Profiler profiler = profilers.remove(sensor);
+      if (profiler != null) {
+        profiler.stopInfo();
+      }
+    }
+  }
+
+  private void logCriticalPath() {
+    List<Execution> path = criticalPath(new ArrayList<>(executions.values()));
+    if (path.isEmpty()) {
+      return;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Execution execution : path) {
+      if (sb.length() > 0) {
+        sb.append(" -> ");
+      }
+      sb.append(execution.name).append(" (").append(execution.end - execution.start).append("ms)");
+    }
+    if (path.size() < executions.size()) {
+      LOG.info("Sensors critical path: {}", sb);
+    } else {
+      LOG.debug("Sensors critical path: {}", sb);
+    }
+  }
+
+  /**
+   * Walks back from the sensor that finished last: each step selects the sensor that finished last before
+   * the start of the current one.
+   */
+  static List<Execution> criticalPath(List<Execution> finishedExecutions) {
+    List<Execution> path = new ArrayList<>();
+    Execution current = latestEndingBefore(finishedExecutions, Long.MAX_VALUE, path);
+    while (current != null) {
+      path.add(0, current);
+      current = latestEndingBefore(finishedExecutions, current.start, path);
+    }
+    return path;
+  }
+
+  @CheckForNull
+  private static Execution latestEndingBefore(List<Execution> executions, long time, List<Execution> excluded) {
+    Execution result = null;
+    for (Execution execution : executions) {
+      if (execution.end >= 0 && execution.end <= time && !excluded.contains(execution) && (result == null || execution.end > result.end)) {
+        result = execution;
+      }
+    }
+    return result;
+  }
+
+  static class Execution {
+    private final String name;
+    private final long start;
+    private volatile long end = -1L;
+
+    Execution(String name, long start) {
+      this.name = name;
+      this.start = start;
+    }
+
+    Execution(String name, long start, long end) {
+      this(name, start);
+      this.end = end;
+    }
+
+    String name() {
+      return name;
     }
   }
 
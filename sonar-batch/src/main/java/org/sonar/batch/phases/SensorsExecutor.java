@@ -19,40 +19,143 @@
  */
 package org.sonar.batch.phases;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.batch.bootstrap.BatchExtensionDictionnary;
 import org.sonar.batch.events.EventBus;
-
-import java.util.Collection;
+import org.sonar.batch.sensor.SensorWrapper;
 
 @BatchSide
 public class SensorsExecutor {
 
+  /**
+   * Maximum number of sensors executed concurrently on a module. Only sensors declared as
+   * {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe() thread-safe} and that do not depend upon each other
+   * are executed concurrently. Default value is 1, meaning that all sensors are executed sequentially.
+   */
+  public static final String MAX_THREADS_PROPERTY = "sonar.sensors.maxThreads";
+
   private EventBus eventBus;
   private Project module;
   private BatchExtensionDictionnary selector;
+  private Settings settings;
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = project;
+    this.settings = settings;
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    int maxThreads = settings.getInt(MAX_THREADS_PROPERTY);
+    if (maxThreads > 1) {
+      executeConcurrently(context, groupIndependentSensors(sensors), maxThreads);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  /**
+   * Splits the sorted sensors into consecutive groups. Sensors of a same group are thread-safe and independent
+   * of each other, so they can run concurrently. Groups are executed one after the other, which keeps the order
+   * defined by {@link org.sonar.api.batch.DependsUpon}, {@link org.sonar.api.batch.DependedUpon} and
+   * the metrics provided/required by sensors.
+   */
+  @VisibleForTesting
+  List<List<Sensor>> groupIndependentSensors(Collection<Sensor> sensors) {
+    List<List<Sensor>> groups = new ArrayList<>();
+    List<Sensor> currentGroup = null;
+    for (Sensor sensor : sensors) {
+      if (currentGroup == null || !canJoin(currentGroup, sensor)) {
+        currentGroup = new ArrayList<>();
+        groups.add(currentGroup);
+      }
+      currentGroup.add(sensor);
+    }
+    return groups;
+  }
+
+  private boolean canJoin(List<Sensor> group, Sensor sensor) {
+    if (!isThreadSafe(sensor)) {
+      return false;
+    }
+    for (Sensor member : group) {
+      if (!isThreadSafe(member) || !selector.areIndependent(member, sensor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).descriptor().isThreadSafe();
+  }
+
+  private void executeConcurrently(SensorContext context, List<List<Sensor>> groups, int maxThreads) {
+    ExecutorService executor = Executors.newFixedThreadPool(maxThreads,
+      new ThreadFactoryBuilder().setNameFormat("sensor-%d").setDaemon(true).build());
+    try {
+      for (List<Sensor> group : groups) {
+        if (group.size() == 1) {
+          executeSensor(context, group.get(0));
+        } else {
+          executeGroup(executor, context, group);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void executeGroup(ExecutorService executor, final SensorContext context, List<Sensor> group) {
+    List<Future<?>> futures = new ArrayList<>(group.size());
+    for (final Sensor sensor : group) {
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          executeSensor(context, sensor);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while executing sensors", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException("Fail to execute sensor", e.getCause());
+      }
+    }
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
     eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(module, context);
@@ -27,6 +27,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
 import org.sonar.batch.index.BatchComponent;
 import org.sonar.batch.index.BatchComponentCache;
 import org.sonar.batch.protocol.Constants;
@@ -43,10 +44,12 @@ public class ComponentsPublisher implements ReportPublisherStep {
 
   private final BatchComponentCache resourceCache;
   private final ImmutableProjectReactor reactor;
+  private final DefaultAnalysisMode analysisMode;
 
-  public ComponentsPublisher(ImmutableProjectReactor reactor, BatchComponentCache resourceCache) {
+  public ComponentsPublisher(ImmutableProjectReactor reactor, BatchComponentCache resourceCache, DefaultAnalysisMode analysisMode) {
     this.reactor = reactor;
     this.resourceCache = resourceCache;
+    this.analysisMode = analysisMode;
   }
 
   @Override
@@ -74,7 +77,11 @@ public class ComponentsPublisher implements ReportPublisherStep {
 
     if (batchComponent.isFile()) {
       builder.setIsTest(ResourceUtils.isUnitTestFile(r));
-      builder.setLines(((InputFile) batchComponent.inputComponent()).lines());
+      InputFile inputFile = (InputFile) batchComponent.inputComponent();
+      builder.setLines(inputFile.lines());
+      if (analysisMode.isIncrementalPublish() && inputFile.status() == InputFile.Status.SAME) {
+        builder.setReusePrevious(true);
+      }
     }
     String name = getName(r);
     if (name != null) {
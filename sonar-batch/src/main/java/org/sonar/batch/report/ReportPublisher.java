@@ -21,6 +21,8 @@ package org.sonar.batch.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 import com.squareup.okhttp.HttpUrl;
 import java.io.File;
@@ -47,6 +49,7 @@ import org.sonar.batch.analysis.DefaultAnalysisMode;
 import org.sonar.batch.bootstrap.BatchWsClient;
 import org.sonar.batch.protocol.output.BatchReportWriter;
 import org.sonar.batch.scan.ImmutableProjectReactor;
+import org.sonar.core.util.Uuids;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.client.PostRequest;
@@ -63,6 +66,10 @@ public class ReportPublisher implements Startable {
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
 
+  @VisibleForTesting
+  static final long PART_SIZE = 10L * 1024 * 1024;
+  private static final int MAX_PART_ATTEMPTS = 3;
+
   private final Settings settings;
   private final BatchWsClient wsClient;
   private final AnalysisContextReportPublisher contextPublisher;
@@ -142,23 +149,35 @@ public class ReportPublisher implements Startable {
   }
 
   /**
-   * Uploads the report file to server and returns the generated task id
+   * Uploads the report file to server and returns the generated task id. Reports bigger than {@link #PART_SIZE}
+   * are uploaded by parts, so that a part which failed can be sent again without uploading the whole report.
+   * <p/>
+   * Resume is limited to the current execution: the report is generated again by the next analysis, with
+   * a different content (analysis date, metadata...), so the parts of a previous upload can't be reused.
+   * Abandoned uploads are deleted by the server.
    */
   @VisibleForTesting
   String upload(File report) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
     ProjectDefinition projectDefinition = projectReactor.getRoot();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("projectKey", projectDefinition.getKey())
       .setParam("projectName", projectDefinition.getName())
-      .setParam("projectBranch", projectDefinition.getBranch())
-      .setPart("report", filePart);
-    WsResponse response = wsClient.call(post).failIfNotSuccessful();
-    try (InputStream protobuf = response.contentStream()) {
-      return WsCe.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
+      .setParam("projectBranch", projectDefinition.getBranch());
+    try {
+      if (report.length() <= PART_SIZE) {
+        post.setPart("report", new PostRequest.Part(MediaTypes.ZIP, report));
+      } else {
+        post
+          .setParam("uploadId", uploadParts(report))
+          .setParam("checksum", Files.hash(report, Hashing.md5()).toString());
+      }
+      WsResponse response = wsClient.call(post).failIfNotSuccessful();
+      try (InputStream protobuf = response.contentStream()) {
+        return WsCe.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
+      }
     } catch (Exception e) {
       throw Throwables.propagate(e);
     } finally {
@@ -167,6 +186,54 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private String uploadParts(File report) throws IOException {
+    // a new upload per execution, see upload(File)
+    String uploadId = Uuids.create();
+    ByteSource reportSource = Files.asByteSource(report);
+    long offset = 0L;
+    while (offset < report.length()) {
+      ByteSource partSource = reportSource.slice(offset, PART_SIZE);
+      File part = temp.newFile("batch-report-part", ".zip");
+      try {
+        partSource.copyTo(Files.asByteSink(part));
+        offset = uploadPart(uploadId, offset, part, partSource.hash(Hashing.md5()).toString());
+      } finally {
+        deleteQuietly(part);
+      }
+    }
+    return uploadId;
+  }
+
+  private long uploadPart(String uploadId, long offset, File part, String checksum) throws IOException {
+    ProjectDefinition projectDefinition = projectReactor.getRoot();
+    PostRequest post = new PostRequest("api/ce/upload_part")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("projectKey", projectDefinition.getKey())
+      .setParam("projectBranch", projectDefinition.getBranch())
+      .setParam("uploadId", uploadId)
+      .setParam("offset", String.valueOf(offset))
+      .setParam("checksum", checksum)
+      .setPart("part", new PostRequest.Part(MediaTypes.ZIP, part));
+    int attempt = 1;
+    while (true) {
+      try {
+        WsResponse response = wsClient.call(post).failIfNotSuccessful();
+        try (InputStream protobuf = response.contentStream()) {
+          return WsCe.UploadPartResponse.parser().parseFrom(protobuf).getUploadedBytes();
+        }
+      } catch (MessageException e) {
+        // authentication or permission failure, sending the part again won't help
+        throw e;
+      } catch (RuntimeException e) {
+        if (attempt >= MAX_PART_ATTEMPTS) {
+          throw e;
+        }
+        LOG.warn("Fail to upload part of analysis report at offset {} (attempt {}/{}): {}", offset, attempt, MAX_PART_ATTEMPTS, e.getMessage());
+        attempt++;
+      }
+    }
+  }
+
   @VisibleForTesting
   void logSuccess(@Nullable String taskId) {
     if (taskId == null) {
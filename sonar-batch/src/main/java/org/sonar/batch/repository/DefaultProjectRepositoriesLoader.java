@@ -57,7 +57,7 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
   @Override
   public ProjectRepositories load(String projectKey, boolean issuesMode, @Nullable MutableBoolean fromCache) {
     try {
-      WSLoaderResult<InputStream> result = loader.loadStream(getUrl(projectKey, issuesMode));
+      WSLoaderResult<InputStream> result = loader.loadStreamIfModified(getUrl(projectKey, issuesMode));
       if (fromCache != null) {
         fromCache.setValue(result.isFromCache());
       }
@@ -22,6 +22,9 @@ package org.sonar.batch.repository;
 import com.google.common.base.Function;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.sonar.batch.cache.WSLoader;
 import org.sonar.batch.cache.WSLoaderResult;
@@ -30,6 +33,8 @@ import org.sonar.batch.util.BatchUtils;
 
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  private static final String STATUS_CLOSED = "CLOSED";
+
   private final WSLoader wsLoader;
 
   public DefaultServerIssuesLoader(WSLoader wsLoader) {
@@ -38,7 +43,8 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
   @Override
   public boolean load(String componentKey, Function<ServerIssue, Void> consumer) {
-    WSLoaderResult<InputStream> result = wsLoader.loadStream("/batch/issues.protobuf?key=" + BatchUtils.encodeForUrl(componentKey));
+    WSLoaderResult<InputStream> result = wsLoader.loadStreamIncrementally("/batch/issues.protobuf?key=" + BatchUtils.encodeForUrl(componentKey),
+      IssuesMerger.INSTANCE);
     parseIssues(result.get(), consumer);
     return result.isFromCache();
   }
@@ -56,4 +62,37 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
       IOUtils.closeQuietly(is);
     }
   }
+
+  /**
+   * Applies the issues changed on server side to the cached ones. Closed issues are removed.
+   */
+  static class IssuesMerger implements WSLoader.StreamMerger {
+    static final IssuesMerger INSTANCE = new IssuesMerger();
+
+    @Override
+    public void merge(InputStream cached, InputStream changes, OutputStream merged) throws IOException {
+      Map<String, ServerIssue> changedIssuesByKey = new LinkedHashMap<>();
+      ServerIssue changedIssue = ServerIssue.parseDelimitedFrom(changes);
+      while (changedIssue != null) {
+        changedIssuesByKey.put(changedIssue.getKey(), changedIssue);
+        changedIssue = ServerIssue.parseDelimitedFrom(changes);
+      }
+
+      ServerIssue cachedIssue = ServerIssue.parseDelimitedFrom(cached);
+      while (cachedIssue != null) {
+        ServerIssue issue = changedIssuesByKey.remove(cachedIssue.getKey());
+        write(issue == null ? cachedIssue : issue, merged);
+        cachedIssue = ServerIssue.parseDelimitedFrom(cached);
+      }
+      for (ServerIssue newIssue : changedIssuesByKey.values()) {
+        write(newIssue, merged);
+      }
+    }
+
+    private static void write(ServerIssue issue, OutputStream output) throws IOException {
+      if (!STATUS_CLOSED.equals(issue.getStatus())) {
+        issue.writeDelimitedTo(output);
+      }
+    }
+  }
 }
@@ -0,0 +1,172 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.sensor;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.SortedSet;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputModule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.measure.NewMeasure;
+import org.sonar.api.config.Settings;
+
+/**
+ * Context of the sensors which declare {@link org.sonar.api.batch.sensor.SensorDescriptor#onlyOnChangedFiles()} when
+ * unchanged files are reused from the previous analysis. Files with status {@link InputFile.Status#SAME} are not
+ * visible in its file system. Other sensors keep on working on all the files of the module.
+ */
+class ChangedFilesSensorContext implements SensorContext {
+
+  private final SensorContext delegate;
+  private final FileSystem fs;
+
+  ChangedFilesSensorContext(SensorContext delegate) {
+    this.delegate = delegate;
+    this.fs = new ChangedFilesFileSystem(delegate.fileSystem());
+  }
+
+  @Override
+  public Settings settings() {
+    return delegate.settings();
+  }
+
+  @Override
+  public FileSystem fileSystem() {
+    return fs;
+  }
+
+  @Override
+  public ActiveRules activeRules() {
+    return delegate.activeRules();
+  }
+
+  @Override
+  public InputModule module() {
+    return delegate.module();
+  }
+
+  @Override
+  public <G extends Serializable> NewMeasure<G> newMeasure() {
+    return delegate.newMeasure();
+  }
+
+  @Override
+  public NewIssue newIssue() {
+    return delegate.newIssue();
+  }
+
+  @Override
+  public NewHighlighting newHighlighting() {
+    return delegate.newHighlighting();
+  }
+
+  @Override
+  public NewCoverage newCoverage() {
+    return delegate.newCoverage();
+  }
+
+  @Override
+  public NewCpdTokens newCpdTokens() {
+    return delegate.newCpdTokens();
+  }
+
+  private static class ChangedFilesFileSystem implements FileSystem {
+    private final FileSystem delegate;
+    private final FilePredicate changed;
+
+    private ChangedFilesFileSystem(FileSystem delegate) {
+      this.delegate = delegate;
+      this.changed = delegate.predicates().not(delegate.predicates().hasStatus(InputFile.Status.SAME));
+    }
+
+    @Override
+    public File baseDir() {
+      return delegate.baseDir();
+    }
+
+    @Override
+    public Charset encoding() {
+      return delegate.encoding();
+    }
+
+    @Override
+    public File workDir() {
+      return delegate.workDir();
+    }
+
+    @Override
+    public FilePredicates predicates() {
+      return delegate.predicates();
+    }
+
+    @Override
+    @CheckForNull
+    public InputFile inputFile(FilePredicate predicate) {
+      return delegate.inputFile(onlyChanged(predicate));
+    }
+
+    @Override
+    @CheckForNull
+    public InputDir inputDir(File dir) {
+      return delegate.inputDir(dir);
+    }
+
+    @Override
+    public Iterable<InputFile> inputFiles(FilePredicate predicate) {
+      return delegate.inputFiles(onlyChanged(predicate));
+    }
+
+    @Override
+    public boolean hasFiles(FilePredicate predicate) {
+      return delegate.hasFiles(onlyChanged(predicate));
+    }
+
+    @Override
+    public Iterable<File> files(FilePredicate predicate) {
+      return delegate.files(onlyChanged(predicate));
+    }
+
+    @Override
+    public SortedSet<String> languages() {
+      return delegate.languages();
+    }
+
+    @Override
+    public File resolvePath(String path) {
+      return delegate.resolvePath(path);
+    }
+
+    private FilePredicate onlyChanged(FilePredicate predicate) {
+      return delegate.predicates().and(changed, predicate);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.resources.Project;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
 
 public class SensorWrapper implements org.sonar.api.batch.Sensor {
 
@@ -35,18 +36,26 @@ public class SensorWrapper implements org.sonar.api.batch.Sensor {
   private DefaultSensorDescriptor descriptor;
   private SensorOptimizer optimizer;
 
-  public SensorWrapper(Sensor newSensor, SensorContext adaptor, SensorOptimizer optimizer) {
+  public SensorWrapper(Sensor newSensor, SensorContext adaptor, SensorOptimizer optimizer, DefaultAnalysisMode analysisMode) {
     this.wrappedSensor = newSensor;
     this.optimizer = optimizer;
     descriptor = new DefaultSensorDescriptor();
     newSensor.describe(descriptor);
-    this.adaptor = adaptor;
+    if (analysisMode.isIncrementalPublish() && descriptor.isOnlyOnChangedFiles()) {
+      this.adaptor = new ChangedFilesSensorContext(adaptor);
+    } else {
+      this.adaptor = adaptor;
+    }
   }
 
   public Sensor wrappedSensor() {
     return wrappedSensor;
   }
 
+  public DefaultSensorDescriptor descriptor() {
+    return descriptor;
+  }
+
   @Override
   public boolean shouldExecuteOnProject(Project project) {
     return optimizer.shouldExecute(descriptor);
@@ -106,11 +106,34 @@ public class DefaultAnalysisModeTest {
     assertThat(mode.scanAllFiles()).isTrue();
   }
 
+  @Test
+  public void incremental_publish() {
+    Map<String, String> props = new HashMap<>();
+    props.put(CoreProperties.ANALYSIS_MODE, CoreProperties.ANALYSIS_MODE_PUBLISH);
+    props.put("sonar.skipUnchangedFiles", "true");
+    DefaultAnalysisMode mode = new DefaultAnalysisMode(new GlobalProperties(props), new AnalysisProperties(props));
+
+    assertThat(mode.isPublish()).isTrue();
+    assertThat(mode.isIncrementalPublish()).isTrue();
+    assertThat(mode.scanAllFiles()).isTrue();
+  }
+
+  @Test
+  public void incremental_publish_is_ignored_in_issues_mode() {
+    Map<String, String> props = new HashMap<>();
+    props.put(CoreProperties.ANALYSIS_MODE, CoreProperties.ANALYSIS_MODE_ISSUES);
+    props.put("sonar.skipUnchangedFiles", "true");
+    DefaultAnalysisMode mode = new DefaultAnalysisMode(new GlobalProperties(props), new AnalysisProperties(props));
+
+    assertThat(mode.isIncrementalPublish()).isFalse();
+  }
+
   @Test
   public void default_publish_mode() {
     DefaultAnalysisMode mode = createMode(null);
     assertThat(mode.isPublish()).isTrue();
     assertThat(mode.scanAllFiles()).isTrue();
+    assertThat(mode.isIncrementalPublish()).isFalse();
   }
 
   @Test
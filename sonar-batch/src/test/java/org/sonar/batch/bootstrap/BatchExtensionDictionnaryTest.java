@@ -35,10 +35,14 @@ import org.sonar.api.batch.PostJob;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.resources.Project;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
 import org.sonar.batch.postjob.PostJobOptimizer;
 import org.sonar.batch.sensor.DefaultSensorContext;
 import org.sonar.batch.sensor.SensorOptimizer;
+import org.sonar.batch.sensor.SensorWrapper;
 import org.sonar.core.platform.ComponentContainer;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -53,7 +57,7 @@ public class BatchExtensionDictionnaryTest {
       iocContainer.addSingleton(extension);
     }
     return new BatchExtensionDictionnary(iocContainer, mock(DefaultSensorContext.class), mock(SensorOptimizer.class), mock(PostJobContext.class),
-      mock(PostJobOptimizer.class));
+      mock(PostJobOptimizer.class), mock(DefaultAnalysisMode.class));
   }
 
   @Test
@@ -101,7 +105,7 @@ public class BatchExtensionDictionnaryTest {
     child.addSingleton(c);
 
     BatchExtensionDictionnary dictionnary = new BatchExtensionDictionnary(child, mock(DefaultSensorContext.class), mock(SensorOptimizer.class), mock(PostJobContext.class),
-      mock(PostJobOptimizer.class));
+      mock(PostJobOptimizer.class), mock(DefaultAnalysisMode.class));
     assertThat(dictionnary.select(Sensor.class, null, true, null)).containsOnly(a, b, c);
   }
 
@@ -316,6 +320,60 @@ public class BatchExtensionDictionnaryTest {
     assertThat(extensions.get(2)).isEqualTo(checker);
   }
 
+  @Test
+  public void areIndependent() {
+    BatchExtension produces = new GeneratesSomething("something");
+    BatchExtension consumes = new MethodDependentOf("something");
+    BatchExtension other = new GeneratesSomething("other");
+    BatchExtension pre = new PreSensor();
+
+    BatchExtensionDictionnary selector = newSelector(produces, consumes, other, pre);
+
+    assertThat(selector.areIndependent(produces, other)).isTrue();
+    assertThat(selector.areIndependent(consumes, other)).isTrue();
+    assertThat(selector.areIndependent(produces, consumes)).isFalse();
+    assertThat(selector.areIndependent(consumes, produces)).isFalse();
+    assertThat(selector.areIndependent(other, pre)).isFalse();
+  }
+
+  @Test
+  public void areIndependent_according_to_metrics_of_sensor_descriptors() {
+    SensorWrapper producer = newSensorWrapper(new DescribedSensor(new String[] {"ncloc"}, new String[0]));
+    SensorWrapper consumer = newSensorWrapper(new DescribedSensor(new String[0], new String[] {"ncloc"}));
+    SensorWrapper other = newSensorWrapper(new DescribedSensor(new String[] {"complexity"}, new String[0]));
+    BatchExtension annotatedConsumer = new MethodDependentOf(CoreMetrics.NCLOC);
+
+    BatchExtensionDictionnary selector = newSelector();
+
+    assertThat(selector.areIndependent(producer, other)).isTrue();
+    assertThat(selector.areIndependent(consumer, other)).isTrue();
+    assertThat(selector.areIndependent(producer, consumer)).isFalse();
+    assertThat(selector.areIndependent(producer, annotatedConsumer)).isFalse();
+  }
+
+  private static SensorWrapper newSensorWrapper(org.sonar.api.batch.sensor.Sensor sensor) {
+    return new SensorWrapper(sensor, mock(DefaultSensorContext.class), mock(SensorOptimizer.class), mock(DefaultAnalysisMode.class));
+  }
+
+  private static class DescribedSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final String[] provided;
+    private final String[] required;
+
+    DescribedSensor(String[] provided, String[] required) {
+      this.provided = provided;
+      this.required = required;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.threadSafe().providesMetrics(provided).requiresMetrics(required);
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+    }
+  }
+
   class FakeSensor implements Sensor {
 
     public void analyse(Project project, SensorContext context) {
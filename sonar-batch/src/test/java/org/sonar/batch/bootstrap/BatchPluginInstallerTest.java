@@ -21,20 +21,27 @@ package org.sonar.batch.bootstrap;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.batch.cache.WSLoader;
 import org.sonar.batch.cache.WSLoaderResult;
+import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.home.cache.FileCache;
+import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BatchPluginInstallerTest {
@@ -48,13 +55,14 @@ public class BatchPluginInstallerTest {
   FileCache fileCache = mock(FileCache.class);
   BatchWsClient wsClient = mock(BatchWsClient.class);
   BatchPluginPredicate pluginPredicate = mock(BatchPluginPredicate.class);
+  BatchPluginJarExploder jarExploder = mock(BatchPluginJarExploder.class);
 
   @Test
   public void listRemotePlugins() {
 
     WSLoader wsLoader = mock(WSLoader.class);
-    when(wsLoader.loadString("/deploy/plugins/index.txt")).thenReturn(new WSLoaderResult<>("checkstyle\nsqale", true));
-    BatchPluginInstaller underTest = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate);
+    when(wsLoader.loadStringIfModified("/deploy/plugins/index.txt")).thenReturn(new WSLoaderResult<>("checkstyle\nsqale", true));
+    BatchPluginInstaller underTest = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate, jarExploder);
 
     List<RemotePlugin> remotePlugins = underTest.listRemotePlugins();
     assertThat(remotePlugins).extracting("key").containsOnly("checkstyle", "sqale");
@@ -66,7 +74,7 @@ public class BatchPluginInstallerTest {
     when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
 
     WSLoader wsLoader = mock(WSLoader.class);
-    BatchPluginInstaller underTest = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate);
+    BatchPluginInstaller underTest = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate, jarExploder);
 
     RemotePlugin remote = new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1");
     File file = underTest.download(remote);
@@ -74,13 +82,47 @@ public class BatchPluginInstallerTest {
     assertThat(file).isEqualTo(pluginJar);
   }
 
+  @Test
+  public void should_download_and_explode_plugins() throws Exception {
+    File checkstyleJar = new File(getClass().getResource("/org/sonar/batch/bootstrap/BatchPluginJarExploderTest/sonar-checkstyle-plugin-2.8.jar").toURI());
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(checkstyleJar);
+    when(pluginPredicate.apply("checkstyle")).thenReturn(true);
+    WSLoader wsLoader = mock(WSLoader.class);
+    when(wsLoader.loadStringIfModified("/deploy/plugins/index.txt")).thenReturn(new WSLoaderResult<>("checkstyle,checkstyle-plugin.jar|fakemd5_1\nsqale,sqale-plugin.jar|fakemd5_2", false));
+
+    Map<String, PluginInfo> infos = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate, jarExploder).installRemotes();
+
+    assertThat(infos).containsOnlyKeys("checkstyle");
+    verify(jarExploder).unzipFile(checkstyleJar);
+  }
+
+  @Test
+  public void should_resume_download() throws Exception {
+    WSLoader wsLoader = mock(WSLoader.class);
+    BatchPluginInstaller underTest = new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate, jarExploder);
+    underTest.download(new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1"));
+    ArgumentCaptor<FileCache.Downloader> downloader = ArgumentCaptor.forClass(FileCache.Downloader.class);
+    verify(fileCache).get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), downloader.capture());
+
+    File partialFile = temp.newFile();
+    FileUtils.write(partialFile, "bo");
+    when(wsClient.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setCode(206).setContent("dy"));
+    ((FileCache.ResumableDownloader) downloader.getValue()).download("checkstyle-plugin.jar", partialFile, 2L);
+
+    assertThat(FileUtils.readFileToString(partialFile)).isEqualTo("body");
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient).call(request.capture());
+    assertThat(request.getValue().getPath()).isEqualTo("/deploy/plugins/checkstyle/checkstyle-plugin.jar");
+    assertThat(request.getValue().getHeaders()).containsEntry("Range", "bytes=2-");
+  }
+
   @Test
   public void should_fail_to_get_plugin_index() {
     thrown.expect(IllegalStateException.class);
 
     WSLoader wsLoader = mock(WSLoader.class);
-    doThrow(new IllegalStateException()).when(wsLoader).loadString("/deploy/plugins/index.txt");
+    doThrow(new IllegalStateException()).when(wsLoader).loadStringIfModified("/deploy/plugins/index.txt");
 
-    new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate).installRemotes();
+    new BatchPluginInstaller(wsLoader, wsClient, fileCache, pluginPredicate, jarExploder).installRemotes();
   }
 }
@@ -21,12 +21,17 @@ package org.sonar.batch.cache;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.batch.bootstrap.BatchWsClient;
 import org.sonar.batch.cache.WSLoader.LoadStrategy;
 import org.sonar.home.cache.PersistentCache;
@@ -38,6 +43,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -240,6 +246,122 @@ public class WSLoaderTest {
     assertResult(loader.loadString(ID), serverValue, false);
   }
 
+  @Test
+  public void conditional_request_not_modified() throws IOException {
+    when(cache.getString(ID + "#etag")).thenReturn("\"abc\"");
+    when(cache.getString(ID)).thenReturn(cacheValue);
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setCode(304));
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    assertResult(loader.loadStringIfModified(ID), cacheValue, false);
+
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(ws).call(request.capture());
+    assertThat(request.getValue().getHeaders()).containsEntry("If-None-Match", "\"abc\"");
+    verify(cache, times(0)).put(eq(ID), any(byte[].class));
+  }
+
+  @Test
+  public void conditional_request_modified() throws IOException {
+    when(cache.getString(ID + "#etag")).thenReturn("\"abc\"");
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setContent(serverValue).setHeader("ETag", "\"def\""));
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    assertResult(loader.loadStringIfModified(ID), serverValue, false);
+
+    verify(cache).put(ID, serverValue.getBytes(StandardCharsets.UTF_8));
+    verify(cache).put(ID + "#etag", "\"def\"".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void conditional_stream_request_not_modified() throws IOException {
+    InputStream cached = mock(InputStream.class);
+    when(cache.getString(ID + "#etag")).thenReturn("\"abc\"");
+    when(cache.getStream(ID)).thenReturn(cached);
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setCode(304));
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    WSLoaderResult<InputStream> result = loader.loadStreamIfModified(ID);
+
+    assertThat(result.get()).isSameAs(cached);
+    assertThat(result.isFromCache()).isFalse();
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(ws).call(request.capture());
+    assertThat(request.getValue().getHeaders()).containsEntry("If-None-Match", "\"abc\"");
+    verify(cache, times(0)).put(eq(ID), any(InputStream.class));
+  }
+
+  @Test
+  public void incremental_request_downloads_everything_if_not_cached() throws IOException {
+    String id = "/batch/issues.protobuf?key=foo";
+    InputStream cached = mock(InputStream.class);
+    when(cache.getStream(id)).thenReturn(cached);
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setContent(serverValue).setHeader("Sonar-Next-Since", "1459417800000"));
+    WSLoader.StreamMerger merger = mock(WSLoader.StreamMerger.class);
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    WSLoaderResult<InputStream> result = loader.loadStreamIncrementally(id, merger);
+
+    assertThat(result.get()).isSameAs(cached);
+    assertThat(result.isFromCache()).isFalse();
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(ws).call(request.capture());
+    assertThat(request.getValue().getPath()).isEqualTo(id);
+    verify(cache).put(eq(id), any(InputStream.class));
+    verify(cache).put(id + "#since", "1459417800000".getBytes(StandardCharsets.UTF_8));
+    verifyNoMoreInteractions(merger);
+  }
+
+  @Test
+  public void incremental_request_merges_changes_into_cached_data() throws IOException {
+    String id = "/batch/issues.protobuf?key=foo";
+    when(cache.getString(id + "#since")).thenReturn("1459417800000");
+    when(cache.getStream(id)).thenReturn(IOUtils.toInputStream(cacheValue));
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setContent(serverValue).setHeader("Sonar-Incremental", "true"));
+    WSLoader.StreamMerger merger = new WSLoader.StreamMerger() {
+      @Override
+      public void merge(InputStream cached, InputStream changes, OutputStream merged) throws IOException {
+        IOUtils.copy(cached, merged);
+        IOUtils.copy(changes, merged);
+      }
+    };
+    final StringBuilder merged = new StringBuilder();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        merged.append(IOUtils.toString((InputStream) invocation.getArguments()[1]));
+        return null;
+      }
+    }).when(cache).put(eq(id), any(InputStream.class));
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    loader.loadStreamIncrementally(id, merger);
+
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(ws).call(request.capture());
+    assertThat(request.getValue().getPath()).isEqualTo(id + "&since=1459417800000");
+    assertThat(merged.toString()).isEqualTo(cacheValue + serverValue);
+    // no value returned by server, previous one is kept
+    verify(cache, times(0)).put(eq(id + "#since"), any(byte[].class));
+  }
+
+  @Test
+  public void incremental_request_replaces_cached_data_if_server_returns_everything() throws IOException {
+    String id = "/batch/issues.protobuf?key=foo";
+    when(cache.getString(id + "#since")).thenReturn("1459417800000");
+    when(cache.getStream(id)).thenReturn(IOUtils.toInputStream(cacheValue));
+    when(ws.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setContent(serverValue)
+      .setHeader("Sonar-Incremental", "false").setHeader("Sonar-Next-Since", "1459420800000"));
+    WSLoader.StreamMerger merger = mock(WSLoader.StreamMerger.class);
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, ws);
+
+    loader.loadStreamIncrementally(id, merger);
+
+    verifyNoMoreInteractions(merger);
+    verify(cache).put(eq(id), any(InputStream.class));
+    verify(cache).put(id + "#since", "1459420800000".getBytes(StandardCharsets.UTF_8));
+  }
+
   private void assertUsedCache(int times) throws IOException {
     verify(cache, times(times)).getString(ID);
   }
@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.batch.phases.PhasesTimeProfiler.Execution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PhasesTimeProfilerTest {
+
+  @Test
+  public void critical_path_of_sequential_sensors() {
+    Execution a = new Execution("A", 0L, 10L);
+    Execution b = new Execution("B", 10L, 30L);
+    Execution c = new Execution("C", 30L, 30L);
+
+    assertThat(names(PhasesTimeProfiler.criticalPath(Arrays.asList(c, a, b)))).containsExactly("A", "B", "C");
+  }
+
+  @Test
+  public void critical_path_of_concurrent_sensors() {
+    Execution a = new Execution("A", 0L, 10L);
+    Execution b = new Execution("B", 0L, 50L);
+    Execution c = new Execution("C", 0L, 20L);
+    Execution d = new Execution("D", 50L, 60L);
+    Execution e = new Execution("E", 50L, 55L);
+
+    assertThat(names(PhasesTimeProfiler.criticalPath(Arrays.asList(a, b, c, d, e)))).containsExactly("B", "D");
+  }
+
+  @Test
+  public void ignore_unfinished_sensors() {
+    Execution unfinished = new Execution("A", 0L);
+
+    assertThat(PhasesTimeProfiler.criticalPath(Arrays.asList(unfinished))).isEmpty();
+  }
+
+  private static List<String> names(List<Execution> executions) {
+    String[] names = new String[executions.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = executions.get(i).name();
+    }
+    return Arrays.asList(names);
+  }
+}
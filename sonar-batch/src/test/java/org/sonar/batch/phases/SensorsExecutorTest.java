@@ -0,0 +1,146 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
+import org.sonar.batch.bootstrap.BatchExtensionDictionnary;
+import org.sonar.batch.events.EventBus;
+import org.sonar.batch.sensor.DefaultSensorContext;
+import org.sonar.batch.sensor.SensorOptimizer;
+import org.sonar.batch.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  Project project = new Project("project");
+  BatchExtensionDictionnary selector = mock(BatchExtensionDictionnary.class);
+  Settings settings = new Settings();
+  SensorContext context = mock(SensorContext.class);
+  SensorsExecutor executor;
+
+  @Before
+  public void setUp() {
+    when(selector.areIndependent(any(), any())).thenReturn(true);
+    executor = new SensorsExecutor(selector, project, mock(EventBus.class), settings);
+  }
+
+  @Test
+  public void execute_sensors_sequentially_by_default() {
+    Sensor sensor1 = mock(Sensor.class);
+    Sensor sensor2 = mock(Sensor.class);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    executor.execute(context);
+
+    verify(sensor1).analyse(project, context);
+    verify(sensor2).analyse(project, context);
+  }
+
+  @Test
+  public void execute_independent_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.MAX_THREADS_PROPERTY, 2);
+    Sensor sensor1 = mockWrapper(true);
+    Sensor sensor2 = mockWrapper(true);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    executor.execute(context);
+
+    verify(sensor1).analyse(project, context);
+    verify(sensor2).analyse(project, context);
+  }
+
+  @Test
+  public void only_group_independent_thread_safe_sensors() {
+    Sensor threadSafe1 = mockWrapper(true);
+    Sensor threadSafe2 = mockWrapper(true);
+    Sensor notThreadSafe = mockWrapper(false);
+    Sensor oldSensor = mock(Sensor.class);
+    Sensor threadSafe3 = mockWrapper(true);
+    Sensor threadSafe4 = mockWrapper(true);
+    when(selector.areIndependent(threadSafe3, threadSafe4)).thenReturn(false);
+
+    List<List<Sensor>> groups = executor.groupIndependentSensors(
+      Arrays.asList(threadSafe1, threadSafe2, notThreadSafe, oldSensor, threadSafe3, threadSafe4));
+
+    assertThat(groups).containsExactly(
+      Arrays.asList(threadSafe1, threadSafe2),
+      Arrays.asList(notThreadSafe),
+      Arrays.asList(oldSensor),
+      Arrays.asList(threadSafe3),
+      Arrays.asList(threadSafe4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void propagate_failure_of_concurrent_sensor() {
+    settings.setProperty(SensorsExecutor.MAX_THREADS_PROPERTY, 2);
+    final SensorWrapper failing = new SensorWrapper(new FakeSensor(true) {
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalArgumentException("fail");
+      }
+    }, mock(DefaultSensorContext.class), mock(SensorOptimizer.class), mock(DefaultAnalysisMode.class));
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(mockWrapper(true), failing));
+
+    executor.execute(context);
+  }
+
+  private static SensorWrapper mockWrapper(boolean threadSafe) {
+    SensorWrapper wrapper = mock(SensorWrapper.class);
+    FakeSensor sensor = new FakeSensor(threadSafe);
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    sensor.describe(descriptor);
+    when(wrapper.descriptor()).thenReturn(descriptor);
+    return wrapper;
+  }
+
+  private static class FakeSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final boolean threadSafe;
+
+    FakeSensor(boolean threadSafe) {
+      this.threadSafe = threadSafe;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+    }
+  }
+}
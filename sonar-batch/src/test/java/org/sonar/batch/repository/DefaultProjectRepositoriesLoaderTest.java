@@ -53,13 +53,13 @@ public class DefaultProjectRepositoriesLoaderTest {
   public void prepare() throws IOException {
     wsLoader = mock(WSLoader.class);
     InputStream is = mockData();
-    when(wsLoader.loadStream(anyString())).thenReturn(new WSLoaderResult<>(is, true));
+    when(wsLoader.loadStreamIfModified(anyString())).thenReturn(new WSLoaderResult<>(is, true));
     loader = new DefaultProjectRepositoriesLoader(wsLoader);
   }
 
   @Test
   public void continueOnError() {
-    when(wsLoader.loadStream(anyString())).thenThrow(IllegalStateException.class);
+    when(wsLoader.loadStreamIfModified(anyString())).thenThrow(IllegalStateException.class);
     ProjectRepositories proj = loader.load(PROJECT_KEY, false, null);
     assertThat(proj.exists()).isEqualTo(false);
   }
@@ -69,7 +69,7 @@ public class DefaultProjectRepositoriesLoaderTest {
     InputStream is = mock(InputStream.class);
     when(is.read()).thenThrow(IOException.class);
 
-    when(wsLoader.loadStream(anyString())).thenReturn(new WSLoaderResult<>(is, false));
+    when(wsLoader.loadStreamIfModified(anyString())).thenReturn(new WSLoaderResult<>(is, false));
     loader.load(PROJECT_KEY, false, null);
   }
 
@@ -77,7 +77,7 @@ public class DefaultProjectRepositoriesLoaderTest {
   public void failFastHttpError() {
     HttpException http = new HttpException("url", 403);
     IllegalStateException e = new IllegalStateException("http error", http);
-    when(wsLoader.loadStream(anyString())).thenThrow(e);
+    when(wsLoader.loadStreamIfModified(anyString())).thenThrow(e);
     loader.load(PROJECT_KEY, false, null);
   }
   
@@ -88,7 +88,7 @@ public class DefaultProjectRepositoriesLoaderTest {
     
     HttpException http = new HttpException("uri", 403);
     MessageException e = MessageException.of("http error", http);
-    when(wsLoader.loadStream(anyString())).thenThrow(e);
+    when(wsLoader.loadStreamIfModified(anyString())).thenThrow(e);
     loader.load(PROJECT_KEY, false, null);
   }
 
@@ -126,7 +126,7 @@ public class DefaultProjectRepositoriesLoaderTest {
   @Test
   public void readRealResponse() throws IOException {
     InputStream is = getTestResource("project.protobuf");
-    when(wsLoader.loadStream(anyString())).thenReturn(new WSLoaderResult<>(is, true));
+    when(wsLoader.loadStreamIfModified(anyString())).thenReturn(new WSLoaderResult<>(is, true));
 
     ProjectRepositories proj = loader.load("org.sonarsource.github:sonar-github-plugin", true, null);
     FileData fd = proj.fileData("org.sonarsource.github:sonar-github-plugin",
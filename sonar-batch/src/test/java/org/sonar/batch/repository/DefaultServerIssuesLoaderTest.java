@@ -35,6 +35,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -58,7 +60,7 @@ public class DefaultServerIssuesLoaderTest {
       .writeDelimitedTo(bos);
 
     InputStream is = new ByteArrayInputStream(bos.toByteArray());
-    when(wsLoader.loadStream("/batch/issues.protobuf?key=foo")).thenReturn(new WSLoaderResult<>(is, true));
+    when(wsLoader.loadStreamIncrementally(eq("/batch/issues.protobuf?key=foo"), any(WSLoader.StreamMerger.class))).thenReturn(new WSLoaderResult<>(is, true));
 
     final List<ServerIssue> result = new ArrayList<>();
     loader.load("foo", new Function<BatchInput.ServerIssue, Void>() {
@@ -73,11 +75,39 @@ public class DefaultServerIssuesLoaderTest {
     assertThat(result).extracting("key").containsExactly("ab1", "ab2");
   }
 
+  @Test
+  public void merge_changed_issues_into_cached_issues() throws Exception {
+    ByteArrayOutputStream cached = new ByteArrayOutputStream();
+    ServerIssue.newBuilder().setKey("ab1").setStatus("OPEN").build().writeDelimitedTo(cached);
+    ServerIssue.newBuilder().setKey("ab2").setStatus("OPEN").build().writeDelimitedTo(cached);
+    ServerIssue.newBuilder().setKey("ab3").setStatus("OPEN").build().writeDelimitedTo(cached);
+
+    ByteArrayOutputStream changes = new ByteArrayOutputStream();
+    ServerIssue.newBuilder().setKey("ab2").setStatus("CLOSED").build().writeDelimitedTo(changes);
+    ServerIssue.newBuilder().setKey("ab3").setStatus("RESOLVED").build().writeDelimitedTo(changes);
+    ServerIssue.newBuilder().setKey("ab4").setStatus("OPEN").build().writeDelimitedTo(changes);
+    ServerIssue.newBuilder().setKey("ab5").setStatus("CLOSED").build().writeDelimitedTo(changes);
+
+    ByteArrayOutputStream merged = new ByteArrayOutputStream();
+    DefaultServerIssuesLoader.IssuesMerger.INSTANCE.merge(new ByteArrayInputStream(cached.toByteArray()), new ByteArrayInputStream(changes.toByteArray()),
+      merged);
+
+    List<ServerIssue> result = new ArrayList<>();
+    InputStream is = new ByteArrayInputStream(merged.toByteArray());
+    ServerIssue issue = ServerIssue.parseDelimitedFrom(is);
+    while (issue != null) {
+      result.add(issue);
+      issue = ServerIssue.parseDelimitedFrom(is);
+    }
+    assertThat(result).extracting("key").containsExactly("ab1", "ab3", "ab4");
+    assertThat(result).extracting("status").containsExactly("OPEN", "RESOLVED", "OPEN");
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testError() throws IOException {
     InputStream is = mock(InputStream.class);
     when(is.read()).thenThrow(IOException.class);
-    when(wsLoader.loadStream("/batch/issues.protobuf?key=foo")).thenReturn(new WSLoaderResult<>(is, true));
+    when(wsLoader.loadStreamIncrementally(eq("/batch/issues.protobuf?key=foo"), any(WSLoader.StreamMerger.class))).thenReturn(new WSLoaderResult<>(is, true));
     loader.load("foo", mock(Function.class));
   }
 }
@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.sensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.analysis.DefaultAnalysisMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorWrapperTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  DefaultAnalysisMode analysisMode = mock(DefaultAnalysisMode.class);
+  SensorContext context = mock(SensorContext.class);
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultFileSystem fs = new DefaultFileSystem(temp.newFolder().toPath());
+    fs.add(new DefaultInputFile("foo", "src/Same.java").setStatus(InputFile.Status.SAME));
+    fs.add(new DefaultInputFile("foo", "src/Changed.java").setStatus(InputFile.Status.CHANGED));
+    fs.add(new DefaultInputFile("foo", "src/Added.java").setStatus(InputFile.Status.ADDED));
+    when(context.fileSystem()).thenReturn(fs);
+  }
+
+  @Test
+  public void hide_unchanged_files_from_sensor_working_only_on_changed_files() {
+    when(analysisMode.isIncrementalPublish()).thenReturn(true);
+    FileCollectorSensor sensor = new FileCollectorSensor(true);
+
+    execute(sensor);
+
+    assertThat(sensor.relativePaths).containsOnly("src/Changed.java", "src/Added.java");
+    assertThat(sensor.hasUnchangedFile).isFalse();
+  }
+
+  @Test
+  public void keep_all_files_of_other_sensors() {
+    when(analysisMode.isIncrementalPublish()).thenReturn(true);
+    FileCollectorSensor sensor = new FileCollectorSensor(false);
+
+    execute(sensor);
+
+    assertThat(sensor.relativePaths).containsOnly("src/Same.java", "src/Changed.java", "src/Added.java");
+  }
+
+  @Test
+  public void keep_all_files_if_unchanged_files_are_not_reused() {
+    when(analysisMode.isIncrementalPublish()).thenReturn(false);
+    FileCollectorSensor sensor = new FileCollectorSensor(true);
+
+    execute(sensor);
+
+    assertThat(sensor.relativePaths).containsOnly("src/Same.java", "src/Changed.java", "src/Added.java");
+    assertThat(sensor.hasUnchangedFile).isTrue();
+  }
+
+  private void execute(Sensor sensor) {
+    new SensorWrapper(sensor, context, mock(SensorOptimizer.class), analysisMode).analyse(mock(Project.class), mock(org.sonar.api.batch.SensorContext.class));
+  }
+
+  private static class FileCollectorSensor implements Sensor {
+    private final boolean onlyOnChangedFiles;
+    private final List<String> relativePaths = new ArrayList<>();
+    private boolean hasUnchangedFile;
+
+    FileCollectorSensor(boolean onlyOnChangedFiles) {
+      this.onlyOnChangedFiles = onlyOnChangedFiles;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("File collector");
+      if (onlyOnChangedFiles) {
+        descriptor.onlyOnChangedFiles();
+      }
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      FileSystem fs = context.fileSystem();
+      for (InputFile inputFile : fs.inputFiles(fs.predicates().all())) {
+        relativePaths.add(inputFile.relativePath());
+      }
+      hasUnchangedFile = fs.hasFiles(fs.predicates().hasRelativePath("src/Same.java"));
+    }
+  }
+}
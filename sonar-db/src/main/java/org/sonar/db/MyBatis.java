@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import javax.annotation.Nullable;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -240,7 +241,9 @@ public class MyBatis {
     };
     confBuilder.loadMappers(mappers);
 
-    sessionFactory = new SqlSessionFactoryBuilder().build(confBuilder.build());
+    Configuration conf = confBuilder.build();
+    conf.addInterceptor(new WrittenRowsCounter());
+    sessionFactory = new SqlSessionFactoryBuilder().build(conf);
     return this;
   }
 
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.Properties;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * MyBatis plugin counting, for each thread, the rows written by insert, update and delete statements.
+ * In batch mode the number of affected rows is not known before flush, so each statement
+ * is counted as a single row.
+ * <p/>
+ * Writes executed with plain JDBC, outside MyBatis, are not intercepted. Their code must report them
+ * through {@link #add(long)}, as done by {@link org.sonar.db.measure.MeasureBulkInserter}.
+ */
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class WrittenRowsCounter implements Interceptor {
+
+  private static final ThreadLocal<long[]> COUNTERS = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+
+  /**
+   * Number of rows written by the current thread since its start.
+   */
+  public static long get() {
+    return COUNTERS.get()[0];
+  }
+
+  /**
+   * Adds rows written by the current thread without going through MyBatis, for example by JDBC batches.
+   */
+  public static void add(long rows) {
+    COUNTERS.get()[0] += rows;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object result = invocation.proceed();
+    if (result instanceof Integer) {
+      int rows = (Integer) result;
+      add(rows == BatchExecutor.BATCH_UPDATE_RETURN_VALUE ? 1 : Math.max(rows, 0));
+    }
+    return result;
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
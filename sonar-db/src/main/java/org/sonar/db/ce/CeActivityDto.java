@@ -47,6 +47,7 @@ public class CeActivityDto {
   private long createdAt;
   private long updatedAt;
   private Long executionTimeMs;
+  private byte[] stats;
 
   CeActivityDto() {
     // required for MyBatis
@@ -187,6 +188,19 @@ public class CeActivityDto {
     return this;
   }
 
+  /**
+   * Serialized {@link org.sonar.db.protobuf.DbCe.TaskStats}. Loaded only by {@link CeActivityDao#selectByUuid(org.sonar.db.DbSession, String)}.
+   */
+  @CheckForNull
+  public byte[] getStats() {
+    return stats;
+  }
+
+  public CeActivityDto setStats(@Nullable byte[] stats) {
+    this.stats = stats;
+    return this;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
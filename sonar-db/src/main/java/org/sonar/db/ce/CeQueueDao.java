@@ -92,12 +92,56 @@ public class CeQueueDao implements Dao {
   }
 
   /**
-   * Update all rows with: STATUS='PENDING', STARTED_AT=NULL, UPDATED_AT={now}
+   * Update all rows with: STATUS='PENDING', STARTED_AT=NULL, NODE_UUID=NULL, LEASE_EXPIRES_AT=NULL, UPDATED_AT={now}
    */
   public void resetAllToPendingStatus(DbSession session) {
     mapper(session).resetAllToPendingStatus(system2.now());
   }
 
+  /**
+   * Same as {@link #resetAllToPendingStatus(DbSession)} but only for the tasks in progress on the given node.
+   *
+   * @return the number of tasks reset to pending
+   */
+  public int resetToPendingForNode(DbSession session, String nodeUuid) {
+    return mapper(session).resetToPendingForNode(nodeUuid, system2.now());
+  }
+
+  /**
+   * Tasks in progress whose lease has not been renewed in time, for example because the node processing them
+   * crashed, are reset to pending so that they can be peeked by any node.
+   * <p>
+   * Expiry dates are computed with the clock of the node which renews the lease, not with the clock of the database.
+   * A lease is then considered as expired only {@code maxClockSkewMs} milliseconds after its expiry date, so that
+   * the tasks of a node whose clock is late are not reset while they are still processed.
+   * </p>
+   *
+   * @return the number of tasks reset to pending
+   */
+  public int resetExpiredLeases(DbSession session, long maxClockSkewMs) {
+    long now = system2.now();
+    return mapper(session).resetToPendingIfLeaseExpired(now - maxClockSkewMs, now);
+  }
+
+  /**
+   * Extends to {now + leaseDurationMs} the lease of all the tasks in progress on the given node.
+   *
+   * @return the number of tasks in progress on the node
+   */
+  public int renewLeases(DbSession session, String nodeUuid, long leaseDurationMs) {
+    return mapper(session).renewLeases(nodeUuid, system2.now() + leaseDurationMs);
+  }
+
+  /**
+   * Extends to {now + leaseDurationMs} the lease of the given task, if it is still in progress on the given node.
+   *
+   * @return false if the task is not in progress on the node anymore, for example because its lease expired and it
+   * has been peeked by another node
+   */
+  public boolean renewLease(DbSession session, String taskUuid, String nodeUuid, long leaseDurationMs) {
+    return mapper(session).renewLease(taskUuid, nodeUuid, system2.now() + leaseDurationMs) == 1;
+  }
+
   public int countByStatus(DbSession dbSession, CeQueueDto.Status status) {
     return mapper(dbSession).countByStatus(status);
   }
@@ -106,18 +150,24 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countAll();
   }
 
-  public Optional<CeQueueDto> peek(DbSession session) {
+  /**
+   * Claims the oldest pending task for the node {@code nodeUuid}, with a lease of {@code leaseDurationMs}
+   * milliseconds. Claiming is an update conditioned by the status of the task, so a task can't be peeked
+   * by two nodes sharing the same database.
+   */
+  public Optional<CeQueueDto> peek(DbSession session, String nodeUuid, long leaseDurationMs) {
     List<String> taskUuids = mapper(session).selectEligibleForPeek();
     if (taskUuids.isEmpty()) {
       return Optional.absent();
     }
 
     String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return tryToPeek(session, taskUuid, nodeUuid, leaseDurationMs);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
-    int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
+  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid, String nodeUuid, long leaseDurationMs) {
+    long now = system2.now();
+    int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, now, nodeUuid, now + leaseDurationMs, now, PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
     }
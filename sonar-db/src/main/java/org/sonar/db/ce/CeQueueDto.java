@@ -39,6 +39,8 @@ public class CeQueueDto {
   private Long startedAt;
   private long createdAt;
   private long updatedAt;
+  private String nodeUuid;
+  private Long leaseExpiresAt;
 
   public String getUuid() {
     return uuid;
@@ -119,6 +121,34 @@ public class CeQueueDto {
     return this;
   }
 
+  /**
+   * UUID of the Compute Engine node processing the task. Null if task is pending.
+   */
+  @CheckForNull
+  public String getNodeUuid() {
+    return nodeUuid;
+  }
+
+  public CeQueueDto setNodeUuid(@Nullable String s) {
+    checkArgument(s == null || s.length() <= 40, "Value of node UUID is too long: %s", s);
+    this.nodeUuid = s;
+    return this;
+  }
+
+  /**
+   * Date after which the task can be processed again by any node if the lease is not renewed
+   * by {@link #getNodeUuid()}. Null if task is pending.
+   */
+  @CheckForNull
+  public Long getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
+
+  public CeQueueDto setLeaseExpiresAt(@Nullable Long l) {
+    this.leaseExpiresAt = l;
+    return this;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -130,6 +160,8 @@ public class CeQueueDto {
       .add("startedAt", startedAt)
       .add("createdAt", createdAt)
       .add("updatedAt", updatedAt)
+      .add("nodeUuid", nodeUuid)
+      .add("leaseExpiresAt", leaseExpiresAt)
       .toString();
   }
 
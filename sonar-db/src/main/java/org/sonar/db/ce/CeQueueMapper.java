@@ -48,9 +48,19 @@ public interface CeQueueMapper {
 
   void resetAllToPendingStatus(@Param("updatedAt") long updatedAt);
 
+  int resetToPendingForNode(@Param("nodeUuid") String nodeUuid, @Param("updatedAt") long updatedAt);
+
+  int resetToPendingIfLeaseExpired(@Param("now") long now, @Param("updatedAt") long updatedAt);
+
+  int renewLeases(@Param("nodeUuid") String nodeUuid, @Param("leaseExpiresAt") long leaseExpiresAt);
+
+  int renewLease(@Param("uuid") String uuid, @Param("nodeUuid") String nodeUuid, @Param("leaseExpiresAt") long leaseExpiresAt);
+
   int updateIfStatus(@Param("uuid") String uuid,
     @Param("newStatus") CeQueueDto.Status newStatus,
     @Nullable @Param("startedAt") Long startedAt,
+    @Nullable @Param("nodeUuid") String nodeUuid,
+    @Nullable @Param("leaseExpiresAt") Long leaseExpiresAt,
     @Param("updatedAt") long updatedAt,
     @Param("oldStatus") CeQueueDto.Status oldStatus);
 
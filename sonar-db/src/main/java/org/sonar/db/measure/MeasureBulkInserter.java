@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.apache.commons.dbutils.DbUtils;
+import org.sonar.core.util.ProgressLogger;
+import org.sonar.db.DbSession;
+import org.sonar.db.WrittenRowsCounter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Inserts rows of table PROJECT_MEASURES through JDBC batches executed on the connection of a {@link DbSession},
+ * without going through MyBatis. Batches are sent to database every {@code flushSize} measures, and when the inserter
+ * is closed. Committing the transaction remains the responsibility of the caller. As MyBatis is bypassed,
+ * the inserted rows are reported to {@link WrittenRowsCounter} when batches are executed.
+ * <p/>
+ * Not thread-safe.
+ */
+public class MeasureBulkInserter implements AutoCloseable {
+
+  public static final int DEFAULT_FLUSH_SIZE = 1_000;
+
+  private static final String SQL = "INSERT INTO project_measures (" +
+    "value, metric_id, snapshot_id, rule_id, text_value, project_id, alert_status, alert_text, description, " +
+    "person_id, variation_value_1, variation_value_2, variation_value_3, variation_value_4, variation_value_5, measure_data) " +
+    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final PreparedStatement stmt;
+  private final int flushSize;
+  private final AtomicLong counter = new AtomicLong(0L);
+  private final ProgressLogger progress;
+  private int pending = 0;
+
+  MeasureBulkInserter(DbSession session, int flushSize) {
+    checkArgument(flushSize > 0, "Flush size must be strictly positive: %s", flushSize);
+    this.flushSize = flushSize;
+    Connection connection = session.getConnection();
+    try {
+      this.stmt = connection.prepareStatement(SQL);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request: " + SQL, e);
+    }
+    this.progress = ProgressLogger.create(getClass(), counter).setPluralLabel("measures");
+    this.progress.start();
+  }
+
+  public void insert(MeasureDto dto) {
+    try {
+      setDouble(1, dto.getValue());
+      stmt.setInt(2, dto.getMetricId());
+      stmt.setLong(3, dto.getSnapshotId());
+      setInteger(4, dto.getRuleId());
+      setString(5, dto.getTextValue());
+      stmt.setLong(6, dto.getComponentId());
+      setString(7, dto.getAlertStatus());
+      setString(8, dto.getAlertText());
+      setString(9, dto.getDescription());
+      setLong(10, dto.getDeveloperId());
+      for (int i = 1; i <= 5; i++) {
+        setDouble(10 + i, dto.getVariation(i));
+      }
+      byte[] data = dto.getDataValue();
+      if (data == null) {
+        stmt.setNull(16, Types.BINARY);
+      } else {
+        stmt.setBytes(16, data);
+      }
+      stmt.addBatch();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to insert measure " + dto, e);
+    }
+    pending++;
+    if (pending >= flushSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the pending batch to database
+   */
+  public void flush() {
+    if (pending == 0) {
+      return;
+    }
+    try {
+      WrittenRowsCounter.add(countWrittenRows(stmt.executeBatch()));
+      stmt.clearBatch();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to insert measures", e);
+    }
+    counter.addAndGet(pending);
+    pending = 0;
+  }
+
+  /**
+   * Drivers may not know the number of rows affected by a statement of the batch, in which case
+   * it is counted as a single row.
+   */
+  private static long countWrittenRows(int[] updateCounts) {
+    long rows = 0L;
+    for (int updateCount : updateCounts) {
+      rows += updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updateCount, 0);
+    }
+    return rows;
+  }
+
+  /**
+   * Number of measures sent to database so far
+   */
+  public long getCount() {
+    return counter.get();
+  }
+
+  /**
+   * Flushes the pending batch and releases the statement. The connection of the session is not closed.
+   */
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      progress.stop();
+      DbUtils.closeQuietly(stmt);
+    }
+  }
+
+  private void setDouble(int index, @Nullable Double d) throws SQLException {
+    if (d == null) {
+      stmt.setNull(index, Types.DOUBLE);
+    } else {
+      stmt.setDouble(index, d);
+    }
+  }
+
+  private void setInteger(int index, @Nullable Integer i) throws SQLException {
+    if (i == null) {
+      stmt.setNull(index, Types.INTEGER);
+    } else {
+      stmt.setInt(index, i);
+    }
+  }
+
+  private void setLong(int index, @Nullable Long l) throws SQLException {
+    if (l == null) {
+      stmt.setNull(index, Types.BIGINT);
+    } else {
+      stmt.setLong(index, l);
+    }
+  }
+
+  private void setString(int index, @Nullable String s) throws SQLException {
+    if (s == null) {
+      stmt.setNull(index, Types.VARCHAR);
+    } else {
+      stmt.setString(index, s);
+    }
+  }
+}
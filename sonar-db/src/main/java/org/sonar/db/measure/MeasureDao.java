@@ -53,6 +53,20 @@ public class MeasureDao implements Dao {
     });
   }
 
+  /**
+   * Selects the measures of the last snapshots of the given components, for the given metrics. Property
+   * {@link MeasureDto#getComponentKey()} of the returned objects is populated.
+   * Component keys are partitioned, while the list of metric keys must not exceed 1'000 elements.
+   */
+  public List<MeasureDto> selectByComponentKeysAndMetricKeys(final DbSession session, Collection<String> componentKeys, final List<String> metricKeys) {
+    return DatabaseUtils.executeLargeInputs(componentKeys, new Function<List<String>, List<MeasureDto>>() {
+      @Override
+      public List<MeasureDto> apply(@Nonnull List<String> keys) {
+        return mapper(session).selectByComponentsAndMetrics(keys, metricKeys);
+      }
+    });
+  }
+
   /**
    * Selects all measures of a specific snapshot for the specified metric keys.
    * <p/>
@@ -142,6 +156,18 @@ public class MeasureDao implements Dao {
     insert(session, Lists.asList(item, others));
   }
 
+  /**
+   * Opens an inserter of measures based on JDBC batches, which is faster than {@link #insert(DbSession, MeasureDto)}
+   * for large volumes of measures. It must be closed before committing the session.
+   */
+  public MeasureBulkInserter openBulkInserter(DbSession session) {
+    return openBulkInserter(session, MeasureBulkInserter.DEFAULT_FLUSH_SIZE);
+  }
+
+  public MeasureBulkInserter openBulkInserter(DbSession session, int flushSize) {
+    return new MeasureBulkInserter(session, flushSize);
+  }
+
   public List<String> selectMetricKeysForSnapshot(DbSession session, long snapshotId) {
     return mapper(session).selectMetricKeysForSnapshot(snapshotId);
   }
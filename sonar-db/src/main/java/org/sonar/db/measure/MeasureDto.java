@@ -50,6 +50,9 @@ public class MeasureDto {
   // TODO to delete – not in db
   private String metricKey;
 
+  // not in db, populated only by queries on component keys
+  private String componentKey;
+
   public Long getId() {
     return id;
   }
@@ -92,6 +95,22 @@ public class MeasureDto {
     return this;
   }
 
+  /**
+   * Value of column TEXT_VALUE, as set by {@link #setData(String)}
+   */
+  @CheckForNull
+  String getTextValue() {
+    return textValue;
+  }
+
+  /**
+   * Value of column MEASURE_DATA, as set by {@link #setData(String)}
+   */
+  @CheckForNull
+  byte[] getDataValue() {
+    return dataValue;
+  }
+
   @CheckForNull
   public Double getVariation(int index) {
     switch (index) {
@@ -219,6 +238,15 @@ public class MeasureDto {
     return this;
   }
 
+  public String getComponentKey() {
+    return componentKey;
+  }
+
+  public MeasureDto setComponentKey(String componentKey) {
+    this.componentKey = componentKey;
+    return this;
+  }
+
   /**
    * @deprecated in 5.5. Does nothing. Kept for compatibility with developer cockpit plugin, version 1.10
    */
@@ -248,6 +276,7 @@ public class MeasureDto {
       .add("ruleId", ruleId)
       .add("developerId", developerId)
       .add("metricKey", metricKey)
+      .add("componentKey", componentKey)
       .toString();
   }
 }
@@ -30,6 +30,8 @@ public interface MeasureMapper {
 
   List<MeasureDto> selectByComponentAndMetrics(@Param("componentKey") String componentKey, @Param("metricKeys") List<String> metricKeys);
 
+  List<MeasureDto> selectByComponentsAndMetrics(@Param("componentKeys") List<String> componentKeys, @Param("metricKeys") List<String> metricKeys);
+
   List<MeasureDto> selectBySnapshotAndMetricKeys(@Param("snapshotId") long snapshotId, @Param("metricKeys") List<String> metricKeys);
 
   List<MeasureDto> selectByDeveloperForSnapshotAndMetrics(@Param("developerId") long developerId, @Param("snapshotId") long snapshotId,
@@ -99,6 +99,10 @@ public class PurgeDao implements Dao {
     commands.deleteSnapshots(query);
   }
 
+  /**
+   * Snapshots of the project are processed together: ids of the rows to be deleted or purged are loaded first,
+   * then each table is cleaned with a few statements on partitions of ids, instead of a set of statements per snapshot.
+   */
   private static void purge(ResourceDto project, String[] scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
     List<Long> projectSnapshotIds = purgeCommands.selectSnapshotIds(
       PurgeSnapshotQuery.create()
@@ -106,21 +110,29 @@ public class PurgeDao implements Dao {
         .setIslast(false)
         .setNotPurged(true)
       );
-    for (final Long projectSnapshotId : projectSnapshotIds) {
-      LOG.debug("<- Clean snapshot " + projectSnapshotId);
-      if (!ArrayUtils.isEmpty(scopesWithoutHistoricalData)) {
-        PurgeSnapshotQuery query = PurgeSnapshotQuery.create()
+    if (projectSnapshotIds.isEmpty()) {
+      return;
+    }
+    LOG.debug("<- Clean " + projectSnapshotIds.size() + " snapshots");
+
+    if (!ArrayUtils.isEmpty(scopesWithoutHistoricalData)) {
+      List<PurgeSnapshotQuery> deleteQueries = new ArrayList<>();
+      for (Long projectSnapshotId : projectSnapshotIds) {
+        deleteQueries.add(PurgeSnapshotQuery.create()
           .setIslast(false)
           .setScopes(scopesWithoutHistoricalData)
-          .setRootSnapshotId(projectSnapshotId);
-        purgeCommands.deleteSnapshots(query);
+          .setRootSnapshotId(projectSnapshotId));
       }
+      purgeCommands.deleteSnapshots(deleteQueries.toArray(new PurgeSnapshotQuery[deleteQueries.size()]));
+    }
 
-      // must be executed at the end for reentrance
-      purgeCommands.purgeSnapshots(
-        PurgeSnapshotQuery.create().setRootSnapshotId(projectSnapshotId).setNotPurged(true),
-        PurgeSnapshotQuery.create().setId(projectSnapshotId).setNotPurged(true));
+    // must be executed at the end for reentrance
+    List<PurgeSnapshotQuery> purgeQueries = new ArrayList<>();
+    for (Long projectSnapshotId : projectSnapshotIds) {
+      purgeQueries.add(PurgeSnapshotQuery.create().setRootSnapshotId(projectSnapshotId).setNotPurged(true));
+      purgeQueries.add(PurgeSnapshotQuery.create().setId(projectSnapshotId).setNotPurged(true));
     }
+    purgeCommands.purgeSnapshots(purgeQueries.toArray(new PurgeSnapshotQuery[purgeQueries.size()]));
   }
 
   private void disableOrphanResources(final ResourceDto project, final SqlSession session, final PurgeMapper purgeMapper, final PurgeListener purgeListener) {
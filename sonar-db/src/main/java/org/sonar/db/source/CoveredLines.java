@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.sonar.db.protobuf.DbFileSources;
+
+/**
+ * Lines of a file covered by a test. They are stored in the field covered_line_runs of
+ * {@link DbFileSources.Test.CoveredFile} as a run-length encoded bitmap. Tests usually cover
+ * consecutive lines, so a run of lines is stored in two varints whatever its length.
+ * <p/>
+ * Data inserted before 5.5 is still supported. It lists the lines in the field covered_line.
+ */
+public class CoveredLines {
+
+  private CoveredLines() {
+    // only static methods
+  }
+
+  /**
+   * Replace the covered lines of the builder by the bits set in {@code lines}.
+   */
+  public static DbFileSources.Test.CoveredFile.Builder setLines(DbFileSources.Test.CoveredFile.Builder builder, BitSet lines) {
+    builder.clearCoveredLine();
+    builder.clearCoveredLineRuns();
+    int previousEnd = 0;
+    int start = lines.nextSetBit(0);
+    while (start >= 0) {
+      int end = lines.nextClearBit(start);
+      builder.addCoveredLineRuns(start - previousEnd);
+      builder.addCoveredLineRuns(end - start);
+      previousEnd = end;
+      start = lines.nextSetBit(end);
+    }
+    return builder;
+  }
+
+  public static BitSet getLines(DbFileSources.Test.CoveredFileOrBuilder coveredFile) {
+    BitSet lines = new BitSet();
+    for (Integer line : coveredFile.getCoveredLineList()) {
+      lines.set(line);
+    }
+    int position = 0;
+    for (int i = 0; i + 1 < coveredFile.getCoveredLineRunsCount(); i += 2) {
+      int start = position + coveredFile.getCoveredLineRuns(i);
+      position = start + coveredFile.getCoveredLineRuns(i + 1);
+      lines.set(start, position);
+    }
+    return lines;
+  }
+
+  /**
+   * Covered lines, in ascending order
+   */
+  public static List<Integer> getLineList(DbFileSources.Test.CoveredFileOrBuilder coveredFile) {
+    BitSet lines = getLines(coveredFile);
+    List<Integer> result = new ArrayList<>(lines.cardinality());
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      result.add(line);
+    }
+    return result;
+  }
+}
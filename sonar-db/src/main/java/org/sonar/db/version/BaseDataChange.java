@@ -54,6 +54,13 @@ public abstract class BaseDataChange implements DataChange, MigrationStep {
    * Do not forget to close it !
    */
   protected Connection openConnection() throws SQLException {
+    return openReadConnection(db);
+  }
+
+  /**
+   * Opens a connection to scroll over rows to be migrated. Do not forget to close it !
+   */
+  static Connection openReadConnection(Database db) throws SQLException {
     Connection connection = db.getDataSource().getConnection();
     connection.setAutoCommit(false);
     if (connection.getMetaData().supportsTransactionIsolationLevel(Connection.TRANSACTION_READ_UNCOMMITTED)) {
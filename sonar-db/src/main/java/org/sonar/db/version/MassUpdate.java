@@ -19,32 +19,67 @@
  */
 package org.sonar.db.version;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.dbutils.DbUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
 import org.sonar.db.Database;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class MassUpdate {
 
   public interface Handler {
     /**
      * Convert some column values of a given row.
+     * <p/>
+     * When rows are partitioned (see {@link #partitionBy(String, String)}), the handler is called concurrently
+     * by several threads.
      *
      * @return true if the row must be updated, else false. If false, then the update parameter must not be touched.
      */
     boolean handle(Select.Row row, SqlStatement update) throws SQLException;
   }
 
+  static final int DEFAULT_PARALLELISM = 4;
+  static final long DEFAULT_PARTITION_SIZE = 100_000L;
+  static final String PROGRESS_PROPERTY_PREFIX = "sonar.internal.massUpdate.";
+
+  private static final Logger LOG = Loggers.get(MassUpdate.class);
+
   private final Database db;
   private final Connection readConnection;
   private final Connection writeConnection;
   private final AtomicLong counter = new AtomicLong(0L);
   private final ProgressLogger progress = ProgressLogger.create(getClass(), counter);
 
-  private Select select;
+  private String selectSql;
+  private SelectParameters selectParameters;
+  private String updateSql;
   private Upsert update;
 
+  private String partitionTable;
+  private String partitionColumn;
+  private int parallelism = DEFAULT_PARALLELISM;
+  private long partitionSize = DEFAULT_PARTITION_SIZE;
+
   MassUpdate(Database db, Connection readConnection, Connection writeConnection) {
     this.db = db;
     this.readConnection = readConnection;
@@ -52,11 +87,13 @@ public class MassUpdate {
   }
 
   public SqlStatement select(String sql) throws SQLException {
-    this.select = SelectImpl.create(db, readConnection, sql);
-    return this.select;
+    this.selectSql = sql;
+    this.selectParameters = new SelectParameters();
+    return this.selectParameters;
   }
 
   public MassUpdate update(String sql) throws SQLException {
+    this.updateSql = sql;
     this.update = UpsertImpl.create(writeConnection, sql);
     return this;
   }
@@ -66,26 +103,56 @@ public class MassUpdate {
     return this;
   }
 
+  /**
+   * Splits the rows in ranges of values of the numeric primary key {@code idColumn} of table {@code table}. Ranges
+   * are processed in parallel, each one with its own connections, and are committed as soon as they are processed.
+   * The ranges which are completely processed are persisted, so that a migration which failed does not process them again
+   * when restarted. As a consequence, the handler must support being called again on rows of the ranges which
+   * were not completed.
+   * <p/>
+   * The SELECT request must end with a condition on the range of primary keys, whose two parameters are the last
+   * ones and are set for each range. Example:
+   * <pre>
+   * massUpdate.select("select id, data from file_sources where data_type=? and id&gt;=? and id&lt;?").setString(1, "SOURCE");
+   * massUpdate.partitionBy("file_sources", "id");
+   * </pre>
+   */
+  public MassUpdate partitionBy(String table, String idColumn) {
+    this.partitionTable = table;
+    this.partitionColumn = idColumn;
+    return this;
+  }
+
+  /**
+   * Number of ranges which are processed in parallel when rows are partitioned. Default value is {@link #DEFAULT_PARALLELISM}.
+   */
+  public MassUpdate setParallelism(int i) {
+    checkArgument(i > 0, "Parallelism must be strictly positive");
+    this.parallelism = i;
+    return this;
+  }
+
+  /**
+   * Number of primary key values in each range when rows are partitioned. Default value is {@link #DEFAULT_PARTITION_SIZE}.
+   */
+  public MassUpdate setPartitionSize(long l) {
+    checkArgument(l > 0L, "Partition size must be strictly positive");
+    this.partitionSize = l;
+    return this;
+  }
+
   public void execute(final Handler handler) throws SQLException {
-    if (select == null || update == null) {
+    if (selectSql == null || update == null) {
       throw new IllegalStateException("SELECT or UPDATE requests are not defined");
     }
 
     progress.start();
     try {
-      select.scroll(new Select.RowHandler() {
-        @Override
-        public void handle(Select.Row row) throws SQLException {
-          if (handler.handle(row, update)) {
-            update.addBatch();
-          }
-          counter.getAndIncrement();
-        }
-      });
-      if (((UpsertImpl) update).getBatchCount() > 0L) {
-        update.execute().commit();
+      if (partitionTable == null) {
+        executeOnSingleConnection(handler);
+      } else {
+        executeOnPartitions(handler);
       }
-      update.close();
 
       // log the total number of processed rows
       progress.log();
@@ -94,4 +161,324 @@ public class MassUpdate {
     }
   }
 
+  private void executeOnSingleConnection(final Handler handler) throws SQLException {
+    Select select = SelectImpl.create(db, readConnection, selectSql);
+    selectParameters.applyTo(select);
+    scroll(select, update, handler);
+    update.close();
+  }
+
+  private void scroll(Select select, final Upsert upsert, final Handler handler) throws SQLException {
+    select.scroll(new Select.RowHandler() {
+      @Override
+      public void handle(Select.Row row) throws SQLException {
+        if (handler.handle(row, upsert)) {
+          upsert.addBatch();
+        }
+        counter.getAndIncrement();
+      }
+    });
+    if (((UpsertImpl) upsert).getBatchCount() > 0L) {
+      upsert.execute().commit();
+    }
+  }
+
+  private void executeOnPartitions(Handler handler) throws SQLException {
+    // statement is created on each worker connection
+    update.close();
+
+    Long minId = SelectImpl.create(db, readConnection, "select min(" + partitionColumn + ") from " + partitionTable).get(Select.LONG_READER);
+    Long maxId = SelectImpl.create(db, readConnection, "select max(" + partitionColumn + ") from " + partitionTable).get(Select.LONG_READER);
+    if (minId == null || maxId == null) {
+      // empty table
+      return;
+    }
+    PartitionProgress partitionProgress = new PartitionProgress(PROGRESS_PROPERTY_PREFIX + partitionTable + "." + partitionColumn, minId, maxId);
+    if (partitionProgress.getPartitionCount() == 0) {
+      partitionProgress.delete();
+      return;
+    }
+    if (partitionProgress.getStartId() > minId) {
+      LOG.info("Resume update of {} from {}={}", partitionTable, partitionColumn, partitionProgress.getStartId());
+    }
+
+    int threads = (int) Math.min(parallelism, partitionProgress.getPartitionCount());
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("MassUpdate-%d").setDaemon(true).build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new PartitionWorker(partitionProgress, handler)));
+      }
+      for (Future<Void> future : futures) {
+        waitFor(future, partitionProgress);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    partitionProgress.delete();
+  }
+
+  private static void waitFor(Future<Void> future, PartitionProgress partitionProgress) throws SQLException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      partitionProgress.cancel();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for update of rows", e);
+    } catch (ExecutionException e) {
+      partitionProgress.cancel();
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private class PartitionWorker implements Callable<Void> {
+    private final PartitionProgress partitionProgress;
+    private final Handler handler;
+
+    private PartitionWorker(PartitionProgress partitionProgress, Handler handler) {
+      this.partitionProgress = partitionProgress;
+      this.handler = handler;
+    }
+
+    @Override
+    public Void call() throws SQLException {
+      Connection workerReadConnection = null;
+      Connection workerWriteConnection = null;
+      Upsert workerUpdate = null;
+      try {
+        workerReadConnection = BaseDataChange.openReadConnection(db);
+        workerWriteConnection = db.getDataSource().getConnection();
+        workerWriteConnection.setAutoCommit(false);
+        workerUpdate = UpsertImpl.create(workerWriteConnection, updateSql);
+
+        int partition = partitionProgress.nextPartition();
+        while (partition >= 0) {
+          Select select = SelectImpl.create(db, workerReadConnection, selectSql);
+          int parameterIndex = selectParameters.applyTo(select);
+          select.setLong(parameterIndex + 1, partitionProgress.getPartitionStart(partition));
+          select.setLong(parameterIndex + 2, partitionProgress.getPartitionStart(partition + 1));
+          scroll(select, workerUpdate, handler);
+          // pending rows of the batch have been committed
+          partitionProgress.done(partition);
+          partition = partitionProgress.nextPartition();
+        }
+        return null;
+      } finally {
+        if (workerUpdate != null) {
+          workerUpdate.close();
+        }
+        DbUtils.closeQuietly(workerReadConnection);
+        DbUtils.closeQuietly(workerWriteConnection);
+      }
+    }
+  }
+
+  /**
+   * Distributes the ranges of primary keys to workers and persists, in table PROPERTIES, the lowest primary key
+   * which is not processed yet. All the ranges below it are completely processed and committed.
+   */
+  private class PartitionProgress {
+    private final String propertyKey;
+    private final long startId;
+    private final long partitionCount;
+    private final SortedSet<Integer> donePartitions = new TreeSet<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private int nextPartition = 0;
+    private int firstNotDonePartition = 0;
+
+    private PartitionProgress(String propertyKey, long minId, long maxId) throws SQLException {
+      this.propertyKey = propertyKey;
+      Long persistedStartId = loadStartId();
+      this.startId = persistedStartId == null ? minId : Math.max(minId, persistedStartId);
+      this.partitionCount = maxId < startId ? 0L : (maxId - startId) / partitionSize + 1;
+    }
+
+    long getStartId() {
+      return startId;
+    }
+
+    long getPartitionCount() {
+      return partitionCount;
+    }
+
+    long getPartitionStart(int partition) {
+      return startId + partition * partitionSize;
+    }
+
+    /**
+     * @return the index of the next partition to be processed, or -1 if all partitions are processed
+     */
+    synchronized int nextPartition() {
+      if (cancelled.get() || nextPartition >= partitionCount) {
+        return -1;
+      }
+      int partition = nextPartition;
+      nextPartition++;
+      return partition;
+    }
+
+    void cancel() {
+      cancelled.set(true);
+    }
+
+    synchronized void done(int partition) throws SQLException {
+      donePartitions.add(partition);
+      int before = firstNotDonePartition;
+      while (!donePartitions.isEmpty() && donePartitions.first() == firstNotDonePartition) {
+        donePartitions.remove(firstNotDonePartition);
+        firstNotDonePartition++;
+      }
+      if (firstNotDonePartition > before) {
+        persistStartId(getPartitionStart(firstNotDonePartition));
+      }
+    }
+
+    @CheckForNull
+    private Long loadStartId() throws SQLException {
+      Select select = SelectImpl.create(db, writeConnection, "select text_value from properties where prop_key=? and resource_id is null and user_id is null");
+      select.setString(1, propertyKey);
+      String value = select.get(Select.STRING_READER);
+      return value == null ? null : Long.parseLong(value);
+    }
+
+    private void persistStartId(long id) throws SQLException {
+      deleteProperty();
+      UpsertImpl.create(writeConnection, "insert into properties (prop_key, text_value) values (?, ?)")
+        .setString(1, propertyKey)
+        .setString(2, String.valueOf(id))
+        .execute()
+        .commit()
+        .close();
+    }
+
+    synchronized void delete() throws SQLException {
+      deleteProperty();
+      writeConnection.commit();
+    }
+
+    private void deleteProperty() throws SQLException {
+      UpsertImpl.create(writeConnection, "delete from properties where prop_key=? and resource_id is null and user_id is null")
+        .setString(1, propertyKey)
+        .execute()
+        .close();
+    }
+  }
+
+  /**
+   * Parameters of the SELECT request. They are recorded so that they can be set on each statement
+   * when rows are partitioned.
+   */
+  private static class SelectParameters implements SqlStatement<SelectParameters> {
+    private final List<Parameter> parameters = new ArrayList<>();
+
+    /**
+     * @return the greatest index of parameters, 0 if there are no parameters
+     */
+    int applyTo(SqlStatement statement) throws SQLException {
+      int maxIndex = 0;
+      for (Parameter parameter : parameters) {
+        parameter.applyTo(statement);
+        maxIndex = Math.max(maxIndex, parameter.index);
+      }
+      return maxIndex;
+    }
+
+    private SelectParameters add(int index, ParameterType type, @Nullable Object value) {
+      parameters.add(new Parameter(index, type, value));
+      return this;
+    }
+
+    @Override
+    public SelectParameters setBoolean(int columnIndex, @Nullable Boolean value) {
+      return add(columnIndex, ParameterType.BOOLEAN, value);
+    }
+
+    @Override
+    public SelectParameters setDate(int columnIndex, @Nullable Date value) {
+      return add(columnIndex, ParameterType.DATE, value);
+    }
+
+    @Override
+    public SelectParameters setDouble(int columnIndex, @Nullable Double value) {
+      return add(columnIndex, ParameterType.DOUBLE, value);
+    }
+
+    @Override
+    public SelectParameters setInt(int columnIndex, @Nullable Integer value) {
+      return add(columnIndex, ParameterType.INT, value);
+    }
+
+    @Override
+    public SelectParameters setLong(int columnIndex, @Nullable Long value) {
+      return add(columnIndex, ParameterType.LONG, value);
+    }
+
+    @Override
+    public SelectParameters setString(int columnIndex, @Nullable String value) {
+      return add(columnIndex, ParameterType.STRING, value);
+    }
+
+    @Override
+    public SelectParameters setBytes(int columnIndex, @Nullable byte[] data) {
+      return add(columnIndex, ParameterType.BYTES, data);
+    }
+
+    @Override
+    public SelectParameters close() {
+      parameters.clear();
+      return this;
+    }
+  }
+
+  private enum ParameterType {
+    BOOLEAN, DATE, DOUBLE, INT, LONG, STRING, BYTES
+  }
+
+  private static class Parameter {
+    private final int index;
+    private final ParameterType type;
+    private final Object value;
+
+    private Parameter(int index, ParameterType type, @Nullable Object value) {
+      this.index = index;
+      this.type = type;
+      this.value = value;
+    }
+
+    private void applyTo(SqlStatement statement) throws SQLException {
+      switch (type) {
+        case BOOLEAN:
+          statement.setBoolean(index, (Boolean) value);
+          break;
+        case DATE:
+          statement.setDate(index, (Date) value);
+          break;
+        case DOUBLE:
+          statement.setDouble(index, (Double) value);
+          break;
+        case INT:
+          statement.setInt(index, (Integer) value);
+          break;
+        case LONG:
+          statement.setLong(index, (Long) value);
+          break;
+        case STRING:
+          statement.setString(index, (String) value);
+          break;
+        case BYTES:
+          statement.setBytes(index, (byte[]) value);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported type of parameter: " + type);
+      }
+    }
+  }
 }
@@ -396,6 +396,8 @@ INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1115');
 INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1116');
 INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1117');
 INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1118');
+INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1119');
+INSERT INTO SCHEMA_MIGRATIONS(VERSION) VALUES ('1120');
 
 INSERT INTO USERS(ID, LOGIN, NAME, EMAIL, EXTERNAL_IDENTITY, EXTERNAL_IDENTITY_PROVIDER, CRYPTED_PASSWORD, SALT, CREATED_AT, UPDATED_AT, REMEMBER_TOKEN, REMEMBER_TOKEN_EXPIRES_AT) VALUES (1, 'admin', 'Administrator', '', 'admin', 'sonarqube', 'a373a0e667abb2604c1fd571eb4ad47fe8cc0878', '48bc4b0d93179b5103fd3885ea9119498e9d161b', '1418215735482', '1418215735482', null, null);
 ALTER TABLE USERS ALTER COLUMN ID RESTART WITH 2;
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WrittenRowsCounterTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  @Test
+  public void count_rows_written_by_current_thread() {
+    long initialCount = WrittenRowsCounter.get();
+
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setUuid("TASK_1");
+    queueDto.setTaskType("REPORT");
+    // one insert and one update of flag is_last
+    db.getDbClient().ceActivityDao().insert(db.getSession(), new CeActivityDto(queueDto).setStatus(CeActivityDto.Status.SUCCESS));
+    db.getSession().commit();
+    assertThat(WrittenRowsCounter.get() - initialCount).isEqualTo(2L);
+
+    // selects are not counted
+    db.getDbClient().ceActivityDao().selectByUuid(db.getSession(), "TASK_1");
+    assertThat(WrittenRowsCounter.get() - initialCount).isEqualTo(2L);
+
+    // deletes of missing rows are not counted
+    db.getDbClient().ceActivityDao().deleteByUuid(db.getSession(), "MISSING");
+    assertThat(WrittenRowsCounter.get() - initialCount).isEqualTo(2L);
+  }
+}
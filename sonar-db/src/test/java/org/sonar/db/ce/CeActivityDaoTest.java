@@ -26,6 +26,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbCe;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -62,6 +63,21 @@ public class CeActivityDaoTest {
     assertThat(saved.get().toString()).isNotEmpty();
   }
 
+  @Test
+  public void stats_are_loaded_only_by_selectByUuid() {
+    byte[] stats = DbCe.TaskStats.newBuilder()
+      .addStep(DbCe.Stat.newBuilder().setName("Persist sources").setWallTimeMs(1_200L).setWrittenRows(350L))
+      .build().toByteArray();
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setUuid("TASK_1");
+    queueDto.setTaskType(REPORT);
+    queueDto.setComponentUuid("PROJECT_1");
+    underTest.insert(db.getSession(), new CeActivityDto(queueDto).setStatus(CeActivityDto.Status.SUCCESS).setStats(stats));
+
+    assertThat(underTest.selectByUuid(db.getSession(), "TASK_1").get().getStats()).isEqualTo(stats);
+    assertThat(underTest.selectByQuery(db.getSession(), new CeTaskQuery().setComponentUuid("PROJECT_1"), 0, 10).get(0).getStats()).isNull();
+  }
+
   @Test
   public void insert_must_set_relevant_is_last_field() {
     // only a single task on PROJECT_1 -> is_last=true
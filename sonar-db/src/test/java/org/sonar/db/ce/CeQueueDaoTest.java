@@ -48,6 +48,10 @@ public class CeQueueDaoTest {
   private static final String COMPONENT_UUID_1 = "PROJECT_1";
   private static final String COMPONENT_UUID_2 = "PROJECT_2";
   public static final String TASK_UUID_3 = "TASK_3";
+  private static final String NODE_UUID_1 = "NODE_1";
+  private static final String NODE_UUID_2 = "NODE_2";
+  private static final long LEASE_DURATION = 60_000L;
+  private static final long MAX_CLOCK_SKEW = 5_000L;
 
   private TestSystem2 system2 = new TestSystem2().setNow(INIT_TIME);
 
@@ -127,11 +131,11 @@ public class CeQueueDaoTest {
 
   @Test
   public void peek_none_if_no_pendings() throws Exception {
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION).isPresent()).isFalse();
 
     // not pending, but in progress
     insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION).isPresent()).isFalse();
   }
 
   @Test
@@ -144,21 +148,21 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING);
 
     // peek first one
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession());
+    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // peek second one
-    peek = underTest.peek(db.getSession());
+    peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, IN_PROGRESS);
 
     // no more pendings
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION).isPresent()).isFalse();
   }
 
   @Test
@@ -168,21 +172,137 @@ public class CeQueueDaoTest {
     system2.setNow(INIT_TIME + 3_000_000);
     insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
 
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession());
+    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // do not peek second task as long as the first one is in progress
-    peek = underTest.peek(db.getSession());
+    peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
     assertThat(peek.isPresent()).isFalse();
 
     // first one is finished
     underTest.deleteByUuid(db.getSession(), TASK_UUID_1);
-    peek = underTest.peek(db.getSession());
+    peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void peek_assigns_task_to_node_with_a_lease() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+
+    CeQueueDto peek = underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION).get();
+
+    assertThat(peek.getNodeUuid()).isEqualTo(NODE_UUID_1);
+    assertThat(peek.getStartedAt()).isEqualTo(INIT_TIME);
+    assertThat(peek.getLeaseExpiresAt()).isEqualTo(INIT_TIME + LEASE_DURATION);
+  }
+
+  @Test
+  public void task_peeked_by_a_node_can_not_be_peeked_by_another_node() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION).get().getUuid()).isEqualTo(TASK_UUID_1);
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION).get().getUuid()).isEqualTo(TASK_UUID_2);
+    assertThat(underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION).isPresent()).isFalse();
+
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getNodeUuid()).isEqualTo(NODE_UUID_1);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_2).get().getNodeUuid()).isEqualTo(NODE_UUID_2);
+  }
+
+  @Test
+  public void renewLeases_extends_leases_of_tasks_of_node() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+    underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION);
+
+    system2.setNow(INIT_TIME + 10_000L);
+    int renewed = underTest.renewLeases(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+    db.commit();
+
+    assertThat(renewed).isEqualTo(1);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getLeaseExpiresAt()).isEqualTo(INIT_TIME + 10_000L + LEASE_DURATION);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_2).get().getLeaseExpiresAt()).isEqualTo(INIT_TIME + LEASE_DURATION);
+  }
+
+  @Test
+  public void renewLease_extends_lease_of_task_if_still_on_node() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+
+    system2.setNow(INIT_TIME + 10_000L);
+    assertThat(underTest.renewLease(db.getSession(), TASK_UUID_1, NODE_UUID_1, LEASE_DURATION)).isTrue();
+    assertThat(underTest.renewLease(db.getSession(), TASK_UUID_1, NODE_UUID_2, LEASE_DURATION)).isFalse();
+    db.commit();
+
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getLeaseExpiresAt()).isEqualTo(INIT_TIME + 10_000L + LEASE_DURATION);
+  }
+
+  @Test
+  public void renewLease_fails_if_task_has_been_peeked_by_another_node() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+    system2.setNow(INIT_TIME + LEASE_DURATION + MAX_CLOCK_SKEW + 1L);
+    underTest.resetExpiredLeases(db.getSession(), MAX_CLOCK_SKEW);
+    underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION);
+
+    assertThat(underTest.renewLease(db.getSession(), TASK_UUID_1, NODE_UUID_1, LEASE_DURATION)).isFalse();
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getNodeUuid()).isEqualTo(NODE_UUID_2);
+  }
+
+  @Test
+  public void resetExpiredLeases_makes_tasks_available_to_other_nodes() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+    system2.setNow(INIT_TIME + 10_000L);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+
+    // lease of first task only is expired, for more than the max clock skew
+    system2.setNow(INIT_TIME + LEASE_DURATION + MAX_CLOCK_SKEW + 1L);
+    int reset = underTest.resetExpiredLeases(db.getSession(), MAX_CLOCK_SKEW);
+    db.commit();
+
+    assertThat(reset).isEqualTo(1);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+    CeQueueDto peek = underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION).get();
+    assertThat(peek.getUuid()).isEqualTo(TASK_UUID_1);
+    assertThat(peek.getNodeUuid()).isEqualTo(NODE_UUID_2);
+  }
+
+  @Test
+  public void resetExpiredLeases_does_not_reset_leases_expired_for_less_than_max_clock_skew() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+
+    system2.setNow(INIT_TIME + LEASE_DURATION + MAX_CLOCK_SKEW - 1L);
+    int reset = underTest.resetExpiredLeases(db.getSession(), MAX_CLOCK_SKEW);
+    db.commit();
+
+    assertThat(reset).isEqualTo(0);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getStatus()).isEqualTo(IN_PROGRESS);
+  }
+
+  @Test
+  public void resetToPendingForNode_resets_only_tasks_of_node() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    underTest.peek(db.getSession(), NODE_UUID_1, LEASE_DURATION);
+    underTest.peek(db.getSession(), NODE_UUID_2, LEASE_DURATION);
+
+    int reset = underTest.resetToPendingForNode(db.getSession(), NODE_UUID_1);
+    db.commit();
+
+    assertThat(reset).isEqualTo(1);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+    CeQueueDto task1 = underTest.selectByUuid(db.getSession(), TASK_UUID_1).get();
+    assertThat(task1.getNodeUuid()).isNull();
+    assertThat(task1.getLeaseExpiresAt()).isNull();
+    assertThat(task1.getStartedAt()).isNull();
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
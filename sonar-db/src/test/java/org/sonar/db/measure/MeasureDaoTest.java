@@ -22,6 +22,7 @@ package org.sonar.db.measure;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -35,6 +36,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.WrittenRowsCounter;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.component.SnapshotDto;
@@ -119,6 +121,18 @@ public class MeasureDaoTest {
     assertThat(result.getVariation(5)).isEqualTo(-5d);
   }
 
+  @Test
+  public void select_by_component_keys_and_metrics() {
+    db.prepareDbUnit(getClass(), "shared.xml");
+
+    List<MeasureDto> results = underTest.selectByComponentKeysAndMetricKeys(dbSession,
+      newArrayList("org.struts:struts-core:src/org/struts/RequestContext.java", "unknown"), newArrayList("ncloc", "authors_by_line"));
+
+    assertThat(results).extracting("id").containsOnly(22L, 20L);
+    assertThat(results).extracting("componentKey").containsOnly("org.struts:struts-core:src/org/struts/RequestContext.java");
+    assertThat(underTest.selectByComponentKeysAndMetricKeys(dbSession, newArrayList("unknown"), newArrayList("ncloc"))).isEmpty();
+  }
+
   @Test
   public void select_by_snapshotId_and_metrics() {
     db.prepareDbUnit(getClass(), "shared.xml");
@@ -505,6 +519,70 @@ public class MeasureDaoTest {
     assertThat(db.countRowsOfTable("project_measures")).isEqualTo(2);
   }
 
+  @Test
+  public void insert_with_bulk_inserter() {
+    db.prepareDbUnit(getClass(), "empty.xml");
+
+    MeasureBulkInserter inserter = underTest.openBulkInserter(dbSession);
+    inserter.insert(new MeasureDto()
+      .setSnapshotId(2L)
+      .setMetricId(3)
+      .setDeveloperId(23L)
+      .setRuleId(5)
+      .setComponentId(6L)
+      .setValue(2.0d)
+      .setData("measure-value")
+      .setVariation(1, 1.0d)
+      .setVariation(2, 2.0d)
+      .setVariation(3, 3.0d)
+      .setVariation(4, 4.0d)
+      .setVariation(5, 5.0d)
+      .setAlertStatus("alert")
+      .setAlertText("alert-text")
+      .setDescription("measure-description")
+      );
+    inserter.close();
+    dbSession.commit(true);
+
+    assertThat(inserter.getCount()).isEqualTo(1);
+    db.assertDbUnit(getClass(), "insert-result.xml", new String[] {"id"}, "project_measures");
+  }
+
+  @Test
+  public void bulk_inserter_flushes_batches_of_configured_size() {
+    db.prepareDbUnit(getClass(), "empty.xml");
+
+    long initialWrittenRows = WrittenRowsCounter.get();
+    MeasureBulkInserter inserter = underTest.openBulkInserter(dbSession, 2);
+    for (int i = 0; i < 5; i++) {
+      inserter.insert(new MeasureDto().setSnapshotId(2L).setMetricId(i).setComponentId(6L).setValue((double) i));
+    }
+    assertThat(inserter.getCount()).isEqualTo(4);
+    assertThat(WrittenRowsCounter.get() - initialWrittenRows).isEqualTo(4L);
+
+    inserter.close();
+    dbSession.commit(true);
+
+    assertThat(inserter.getCount()).isEqualTo(5);
+    assertThat(WrittenRowsCounter.get() - initialWrittenRows).isEqualTo(5L);
+    assertThat(db.countRowsOfTable("project_measures")).isEqualTo(5);
+  }
+
+  @Test
+  public void bulk_inserter_stores_large_data_in_measure_data_column() {
+    db.prepareDbUnit(getClass(), "empty.xml");
+    String largeData = Strings.repeat("a", 4_001);
+
+    MeasureBulkInserter inserter = underTest.openBulkInserter(dbSession);
+    inserter.insert(new MeasureDto().setSnapshotId(2L).setMetricId(3).setComponentId(6L).setData(largeData));
+    inserter.close();
+    dbSession.commit(true);
+
+    MeasureDto result = underTest.selectBySnapshotAndMetrics(dbSession, 2L, ImmutableList.of(3)).get(0);
+    assertThat(result.getData()).isEqualTo(largeData);
+    assertThat(result.getValue()).isNull();
+  }
+
   private static Map<Long, PastMeasureDto> pastMeasuresById(List<PastMeasureDto> pastMeasures) {
     return FluentIterable.from(pastMeasures).uniqueIndex(new Function<PastMeasureDto, Long>() {
       @Nullable
@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.BitSet;
+import org.junit.Test;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoveredLinesTest {
+
+  @Test
+  public void encode_runs_of_lines() {
+    BitSet lines = new BitSet();
+    lines.set(3, 8);
+    lines.set(10);
+    lines.set(20, 22);
+
+    DbFileSources.Test.CoveredFile.Builder builder = CoveredLines.setLines(DbFileSources.Test.CoveredFile.newBuilder(), lines);
+
+    assertThat(builder.getCoveredLineRunsList()).containsExactly(3, 5, 2, 1, 9, 2);
+    assertThat(builder.getCoveredLineList()).isEmpty();
+    assertThat(CoveredLines.getLineList(builder)).containsExactly(3, 4, 5, 6, 7, 10, 20, 21);
+    assertThat(CoveredLines.getLines(builder.build())).isEqualTo(lines);
+  }
+
+  @Test
+  public void encode_no_lines() {
+    DbFileSources.Test.CoveredFile.Builder builder = CoveredLines.setLines(DbFileSources.Test.CoveredFile.newBuilder(), new BitSet());
+
+    assertThat(builder.getCoveredLineRunsCount()).isZero();
+    assertThat(CoveredLines.getLineList(builder)).isEmpty();
+  }
+
+  @Test
+  public void replace_existing_lines() {
+    BitSet lines = new BitSet();
+    lines.set(2);
+    DbFileSources.Test.CoveredFile.Builder builder = DbFileSources.Test.CoveredFile.newBuilder()
+      .addCoveredLine(1)
+      .addCoveredLineRuns(5)
+      .addCoveredLineRuns(1);
+
+    CoveredLines.setLines(builder, lines);
+
+    assertThat(CoveredLines.getLineList(builder)).containsExactly(2);
+  }
+
+  @Test
+  public void read_lines_stored_before_5_5() {
+    DbFileSources.Test.CoveredFile coveredFile = DbFileSources.Test.CoveredFile.newBuilder()
+      .addCoveredLine(12)
+      .addCoveredLine(3)
+      .addCoveredLine(12)
+      .build();
+
+    assertThat(CoveredLines.getLineList(coveredFile)).containsExactly(3, 12);
+  }
+}
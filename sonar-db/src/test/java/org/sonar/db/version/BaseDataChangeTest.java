@@ -22,6 +22,7 @@ package org.sonar.db.version;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Before;
 import org.junit.Rule;
@@ -48,6 +49,7 @@ public class BaseDataChangeTest {
   @Before
   public void setUp() {
     db.executeUpdateSql("truncate table persons");
+    db.executeUpdateSql("truncate table properties");
   }
 
   @Test
@@ -427,6 +429,82 @@ public class BaseDataChangeTest {
     }
   }
 
+  @Test
+  public void mass_update_on_partitions() throws Exception {
+    db.prepareDbUnit(getClass(), "persons.xml");
+
+    new BaseDataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        MassUpdate massUpdate = context.prepareMassUpdate();
+        massUpdate.select("select id from persons where id>=? and id>=? and id<?").setLong(1, 2L);
+        massUpdate.update("update persons set login=?, age=? where id=?");
+        massUpdate.partitionBy("persons", "id").setPartitionSize(1L).setParallelism(2);
+        massUpdate.execute(new UpdateLoginAndAgeHandler());
+      }
+    }.execute();
+
+    db.assertDbUnit(getClass(), "mass-update-result.xml", "persons");
+    // progress is not kept when all the partitions are processed
+    assertThat(db.countRowsOfTable("properties")).isEqualTo(0);
+  }
+
+  @Test
+  public void persist_progress_of_mass_update_on_partitions_if_failure() throws Exception {
+    db.prepareDbUnit(getClass(), "persons.xml");
+
+    try {
+      new BaseDataChange(db.database()) {
+        @Override
+        public void execute(Context context) throws SQLException {
+          MassUpdate massUpdate = context.prepareMassUpdate();
+          massUpdate.select("select id from persons where id>=? and id<?");
+          massUpdate.update("update persons set login=?, age=? where id=?");
+          massUpdate.partitionBy("persons", "id").setPartitionSize(1L).setParallelism(1);
+          massUpdate.execute(new UpdateLoginAndAgeHandler() {
+            @Override
+            public boolean handle(Select.Row row, SqlStatement update) throws SQLException {
+              if (row.getLong(1) == 3L) {
+                throw new IllegalStateException("Unexpected error");
+              }
+              return super.handle(row, update);
+            }
+          });
+        }
+      }.execute();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Error during processing of row: [id=3]");
+    }
+
+    // rows 1 and 2 are committed
+    assertThat(db.countSql("select count(*) from persons where login like 'login%'")).isEqualTo(2);
+    Map<String, Object> progress = db.selectFirst("select prop_key as \"key\", text_value as \"value\" from properties");
+    assertThat(progress.get("key")).isEqualTo("sonar.internal.massUpdate.persons.id");
+    assertThat(progress.get("value")).isEqualTo("3");
+  }
+
+  @Test
+  public void resume_mass_update_on_partitions() throws Exception {
+    db.prepareDbUnit(getClass(), "persons.xml");
+    db.executeUpdateSql("insert into properties (prop_key, text_value) values ('sonar.internal.massUpdate.persons.id', '3')");
+
+    new BaseDataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        MassUpdate massUpdate = context.prepareMassUpdate();
+        massUpdate.select("select id from persons where id>=? and id<?");
+        massUpdate.update("update persons set login=?, age=? where id=?");
+        massUpdate.partitionBy("persons", "id").setPartitionSize(1L);
+        massUpdate.execute(new UpdateLoginAndAgeHandler());
+      }
+    }.execute();
+
+    // persons 1 and 2 were already processed before failure
+    db.assertDbUnit(getClass(), "mass-update-resumed-result.xml", "persons");
+    assertThat(db.countRowsOfTable("properties")).isEqualTo(0);
+  }
+
   @Test
   public void read_not_null_fields() throws Exception {
     db.prepareDbUnit(getClass(), "persons.xml");
@@ -462,6 +540,18 @@ public class BaseDataChangeTest {
     assertThat(persons.get(0)[5]).isEqualTo(5.2);
   }
 
+  static class UpdateLoginAndAgeHandler implements MassUpdate.Handler {
+    @Override
+    public boolean handle(Select.Row row, SqlStatement update) throws SQLException {
+      long id = row.getNullableLong(1);
+      update
+        .setString(1, "login" + id)
+        .setInt(2, 10 + (int) id)
+        .setLong(3, id);
+      return true;
+    }
+  }
+
   static class UserReader implements Select.RowReader<Object[]> {
     @Override
     public Object[] read(Select.Row row) throws SQLException {
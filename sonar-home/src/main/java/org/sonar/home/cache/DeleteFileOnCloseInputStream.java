@@ -76,7 +76,7 @@ public class DeleteFileOnCloseInputStream extends InputStream {
   @Override
   public void close() throws IOException {
     try {
-      super.close();
+      is.close();
     } finally {
       Files.delete(p);
     }
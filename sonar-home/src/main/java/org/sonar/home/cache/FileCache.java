@@ -20,8 +20,13 @@
 package org.sonar.home.cache;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import javax.annotation.CheckForNull;
 
 /**
@@ -34,6 +39,8 @@ public class FileCache {
   /** Maximum loop count when creating temp directories. */
   private static final int TEMP_DIR_ATTEMPTS = 10000;
 
+  private static final String PARTIAL_SUFFIX = ".part";
+
   private final File dir;
   private final File tmpDir;
   private final FileHashes hashes;
@@ -73,13 +80,30 @@ public class FileCache {
     void download(String filename, File toFile) throws IOException;
   }
 
+  /**
+   * A {@link Downloader} that is able to resume a download interrupted by a previous process.
+   * @since 5.5
+   */
+  public interface ResumableDownloader extends Downloader {
+    /**
+     * Completes {@code toFile}, which already contains the first {@code offset} bytes of the file. Content must
+     * be fully rewritten if the remaining bytes can't be downloaded separately.
+     */
+    void download(String filename, File toFile, long offset) throws IOException;
+  }
+
   public File get(String filename, String hash, Downloader downloader) {
     // Does not fail if another process tries to create the directory at the same time.
     File hashDir = hashDir(hash);
     File targetFile = new File(hashDir, filename);
     if (!targetFile.exists()) {
-      File tempFile = newTempFile();
-      download(downloader, filename, tempFile);
+      File tempFile;
+      if (downloader instanceof ResumableDownloader) {
+        tempFile = downloadResumable((ResumableDownloader) downloader, filename, hash);
+      } else {
+        tempFile = newTempFile();
+        download(downloader, filename, tempFile);
+      }
       String downloadedHash = hashes.of(tempFile);
       if (!hash.equals(downloadedHash)) {
         throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + hash
@@ -99,6 +123,50 @@ public class FileCache {
     }
   }
 
+  /**
+   * Downloads into a partial file which is kept when the process is interrupted, so that the next process can
+   * resume the download. The partial file is locked as several processes can share the same cache.
+   */
+  private File downloadResumable(ResumableDownloader downloader, String filename, String hash) {
+    File partialFile = new File(tmpDir, hash + "_" + filename + PARTIAL_SUFFIX);
+    File lockFile = new File(tmpDir, partialFile.getName() + ".lock");
+    try (FileOutputStream out = new FileOutputStream(lockFile)) {
+      FileLock lock = tryLock(out.getChannel());
+      if (lock == null) {
+        // the same file is being downloaded by another process
+        File tempFile = newTempFile();
+        download(downloader, filename, tempFile);
+        return tempFile;
+      }
+      try {
+        long offset = partialFile.length();
+        if (offset > 0) {
+          logger.debug(String.format("Resume download of %s from byte %d", filename, offset));
+        }
+        downloader.download(filename, partialFile, offset);
+        // the complete file must not be resumed anymore
+        File tempFile = newTempFile();
+        Files.move(partialFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return tempFile;
+      } finally {
+        // lock file is not deleted, as another process may be about to lock it
+        lock.release();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to download " + filename + " to " + partialFile, e);
+    }
+  }
+
+  @CheckForNull
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // lock is already held by this JVM
+      return null;
+    }
+  }
+
   private void renameQuietly(File sourceFile, File targetFile) {
     boolean rename = sourceFile.renameTo(targetFile);
     // Check if the file was cached by another process during download
@@ -24,30 +24,45 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
-
+/**
+ * Cache shared by threads and processes. Entries are written to a temporary file which is then atomically
+ * renamed, so that readers never see partial entries and do not need any lock. The cross-process
+ * {@link DirectoryLock} is only taken to {@link #clear()} or {@link #clean()} the cache.
+ */
 public class PersistentCache {
   private static final char[] hexArray = "0123456789ABCDEF".toCharArray();
   private static final Charset ENCODING = StandardCharsets.UTF_8;
   private static final String DIGEST_ALGO = "MD5";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int MAX_MOVE_ATTEMPTS = 5;
+  private static final long MOVE_RETRY_PAUSE_MS = 20L;
 
   private final PersistentCacheInvalidation invalidation;
   private final Logger logger;
   private final Path dir;
   private DirectoryLock lock;
 
+  /**
+   * Last modification time of the entries known by this process, so that expiration does not require
+   * to access file system on each hit.
+   */
+  private final ConcurrentMap<String, Long> lastModifiedByKey = new ConcurrentHashMap<>();
+
   public PersistentCache(Path dir, PersistentCacheInvalidation invalidation, Logger logger, DirectoryLock lock) {
     this.dir = dir;
     this.invalidation = invalidation;
@@ -59,6 +74,7 @@ public class PersistentCache {
   }
 
   public synchronized void reconfigure() {
+    lastModifiedByKey.clear();
     try {
       Files.createDirectories(dir);
     } catch (IOException e) {
@@ -71,7 +87,7 @@ public class PersistentCache {
   }
 
   @CheckForNull
-  public synchronized String getString(@Nonnull String obj) throws IOException {
+  public String getString(@Nonnull String obj) throws IOException {
     byte[] cached = get(obj);
 
     if (cached == null) {
@@ -81,62 +97,65 @@ public class PersistentCache {
     return new String(cached, ENCODING);
   }
 
+  /**
+   * The returned stream reads a private copy of the entry, which is deleted when the stream is closed. The entry itself
+   * is not kept open, as open files can't be replaced or deleted on Windows.
+   */
   @CheckForNull
-  public synchronized InputStream getStream(@Nonnull String obj) throws IOException {
+  public InputStream getStream(@Nonnull String obj) throws IOException {
     String key = getKey(obj);
+    Path cachePath = getCacheEntryPath(key);
 
-    try {
-      lock();
-      Path path = getCacheCopy(key);
-      if (path == null) {
-        return null;
-      }
-      return new DeleteFileOnCloseInputStream(new FileInputStream(path.toFile()), path);
+    if (!validateCacheEntry(key, cachePath)) {
+      return null;
+    }
 
-    } finally {
-      unlock();
+    Path temp = Files.createTempFile("sonar_cache", null);
+    try {
+      Files.copy(cachePath, temp, StandardCopyOption.REPLACE_EXISTING);
+    } catch (NoSuchFileException e) {
+      // deleted by another thread or process
+      lastModifiedByKey.remove(key);
+      Files.deleteIfExists(temp);
+      return null;
     }
+    return new DeleteFileOnCloseInputStream(new FileInputStream(temp.toFile()), temp);
   }
 
   @CheckForNull
-  public synchronized byte[] get(@Nonnull String obj) throws IOException {
+  public byte[] get(@Nonnull String obj) throws IOException {
     String key = getKey(obj);
 
-    try {
-      lock();
+    byte[] cached = getCache(key);
 
-      byte[] cached = getCache(key);
-
-      if (cached != null) {
-        logger.debug("cache hit for " + obj + " -> " + key);
-        return cached;
-      }
-
-      logger.debug("cache miss for " + obj + " -> " + key);
-    } finally {
-      unlock();
+    if (cached != null) {
+      logger.debug("cache hit for " + obj + " -> " + key);
+      return cached;
     }
 
+    logger.debug("cache miss for " + obj + " -> " + key);
     return null;
   }
 
-  public synchronized void put(@Nonnull String obj, @Nonnull InputStream stream) throws IOException {
+  public void put(@Nonnull String obj, @Nonnull InputStream stream) throws IOException {
     String key = getKey(obj);
+    Path tempFile = createTempFile(key);
     try {
-      lock();
-      putCache(key, stream);
+      Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      moveToCache(key, tempFile);
     } finally {
-      unlock();
+      Files.deleteIfExists(tempFile);
     }
   }
 
-  public synchronized void put(@Nonnull String obj, @Nonnull byte[] value) throws IOException {
+  public void put(@Nonnull String obj, @Nonnull byte[] value) throws IOException {
     String key = getKey(obj);
+    Path tempFile = createTempFile(key);
     try {
-      lock();
-      putCache(key, value);
+      Files.write(tempFile, value);
+      moveToCache(key, tempFile);
     } finally {
-      unlock();
+      Files.deleteIfExists(tempFile);
     }
   }
 
@@ -151,6 +170,7 @@ public class PersistentCache {
     } catch (IOException e) {
       logger.error("Error clearing cache", e);
     } finally {
+      lastModifiedByKey.clear();
       unlock();
     }
   }
@@ -166,6 +186,7 @@ public class PersistentCache {
     } catch (IOException e) {
       logger.error("Error cleaning cache", e);
     } finally {
+      lastModifiedByKey.clear();
       unlock();
     }
   }
@@ -204,7 +225,9 @@ public class PersistentCache {
   private class DirectoryClearFilter implements DirectoryStream.Filter<Path> {
     @Override
     public boolean accept(Path entry) throws IOException {
-      return !lock.getFileLockName().equals(entry.getFileName().toString());
+      String fileName = entry.getFileName().toString();
+      // entries being written by other threads or processes are kept
+      return !lock.getFileLockName().equals(fileName) && !fileName.endsWith(TEMP_FILE_SUFFIX);
     }
   }
 
@@ -215,54 +238,85 @@ public class PersistentCache {
         return false;
       }
 
+      // also deletes the temporary files left by killed processes
       return invalidation.test(entry);
     }
   }
 
-  private void putCache(String key, byte[] value) throws IOException {
-    Path cachePath = getCacheEntryPath(key);
-    Files.write(cachePath, value, CREATE, WRITE, TRUNCATE_EXISTING);
+  private Path createTempFile(String key) throws IOException {
+    return Files.createTempFile(dir, key, TEMP_FILE_SUFFIX);
   }
 
-  private void putCache(String key, InputStream stream) throws IOException {
+  private void moveToCache(String key, Path tempFile) throws IOException {
     Path cachePath = getCacheEntryPath(key);
-    Files.copy(stream, cachePath, StandardCopyOption.REPLACE_EXISTING);
+    for (int attempt = 1;; attempt++) {
+      try {
+        move(tempFile, cachePath);
+        break;
+      } catch (AccessDeniedException e) {
+        // on Windows, the entry can't be replaced while another thread or process copies it
+        if (attempt >= MAX_MOVE_ATTEMPTS) {
+          throw e;
+        }
+        pauseBeforeRetry();
+      }
+    }
+    lastModifiedByKey.put(key, System.currentTimeMillis());
   }
 
-  private byte[] getCache(String key) throws IOException {
-    Path cachePath = getCacheEntryPath(key);
-
-    if (!validateCacheEntry(cachePath)) {
-      return null;
+  private static void move(Path tempFile, Path cachePath) throws IOException {
+    try {
+      Files.move(tempFile, cachePath, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, cachePath, StandardCopyOption.REPLACE_EXISTING);
     }
+  }
 
-    return Files.readAllBytes(cachePath);
+  private static void pauseBeforeRetry() throws IOException {
+    try {
+      Thread.sleep(MOVE_RETRY_PAUSE_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing cache entry", e);
+    }
   }
 
-  private Path getCacheCopy(String key) throws IOException {
+  private byte[] getCache(String key) throws IOException {
     Path cachePath = getCacheEntryPath(key);
 
-    if (!validateCacheEntry(cachePath)) {
+    if (!validateCacheEntry(key, cachePath)) {
       return null;
     }
 
-    Path temp = Files.createTempFile("sonar_cache", null);
-    Files.copy(cachePath, temp, StandardCopyOption.REPLACE_EXISTING);
-    return temp;
+    try {
+      return Files.readAllBytes(cachePath);
+    } catch (NoSuchFileException e) {
+      // deleted by another thread or process
+      lastModifiedByKey.remove(key);
+      return null;
+    }
   }
 
-  private boolean validateCacheEntry(Path cacheEntryPath) throws IOException {
-    if (!Files.exists(cacheEntryPath)) {
-      return false;
+  private boolean validateCacheEntry(String key, Path cacheEntryPath) throws IOException {
+    Long lastModified = lastModifiedByKey.get(key);
+    if (lastModified != null && !invalidation.test(lastModified)) {
+      return true;
     }
 
-    if (invalidation.test(cacheEntryPath)) {
-      logger.debug("cache: evicting entry");
-      Files.delete(cacheEntryPath);
+    // Entry is unknown, or is expired according to a modification time that may be outdated
+    // if another process wrote the entry again. File system is the reference.
+    lastModifiedByKey.remove(key);
+    try {
+      if (invalidation.test(cacheEntryPath)) {
+        logger.debug("cache: evicting entry");
+        Files.deleteIfExists(cacheEntryPath);
+        return false;
+      }
+      lastModifiedByKey.put(key, Files.getLastModifiedTime(cacheEntryPath).toMillis());
+      return true;
+    } catch (NoSuchFileException e) {
       return false;
     }
-
-    return true;
   }
 
   private Path getCacheEntryPath(String key) {
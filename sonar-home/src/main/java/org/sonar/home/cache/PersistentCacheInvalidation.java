@@ -24,4 +24,10 @@ import java.nio.file.Path;
 
 public interface PersistentCacheInvalidation {
   boolean test(Path cacheEntryPath) throws IOException;
+
+  /**
+   * Same as {@link #test(Path)}, from the last modification time of the entry instead of the file
+   * @since 5.5
+   */
+  boolean test(long lastModifiedMs);
 }
@@ -34,15 +34,13 @@ public class TTLCacheInvalidation implements PersistentCacheInvalidation {
   @Override
   public boolean test(Path cacheEntryPath) throws IOException {
     BasicFileAttributes attr = Files.readAttributes(cacheEntryPath, BasicFileAttributes.class);
-    long modTime = attr.lastModifiedTime().toMillis();
-
-    long age = System.currentTimeMillis() - modTime;
-
-    if (age > durationToExpireMs) {
-      return true;
-    }
+    return test(attr.lastModifiedTime().toMillis());
+  }
 
-    return false;
+  @Override
+  public boolean test(long lastModifiedMs) {
+    long age = System.currentTimeMillis() - lastModifiedMs;
+    return age > durationToExpireMs;
   }
 
 }
@@ -28,6 +28,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -114,4 +115,51 @@ public class FileCacheTest {
     assertThat(cachedFile.getParentFile().getParentFile()).isEqualTo(cache.getDir());
     assertThat(FileUtils.readFileToString(cachedFile)).contains("downloaded by");
   }
+
+  @Test
+  public void resume_partial_download() throws IOException {
+    FileHashes hashes = mock(FileHashes.class);
+    when(hashes.of(any(File.class))).thenReturn("ABCDE");
+    FileCache cache = new FileCache(tempFolder.newFolder(), hashes, mock(Logger.class));
+    FileUtils.write(new File(cache.getDir(), "_tmp/ABCDE_sonar-foo-plugin-1.5.jar.part"), "bo");
+
+    final long[] resumedOffset = new long[1];
+    FileCache.ResumableDownloader downloader = new FileCache.ResumableDownloader() {
+      public void download(String filename, File toFile, long offset) throws IOException {
+        resumedOffset[0] = offset;
+        FileUtils.write(toFile, "dy", true);
+      }
+
+      public void download(String filename, File toFile) throws IOException {
+        throw new IllegalStateException("Download must be resumed");
+      }
+    };
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
+
+    assertThat(resumedOffset[0]).isEqualTo(2L);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+    assertThat(new File(cache.getDir(), "_tmp/ABCDE_sonar-foo-plugin-1.5.jar.part")).doesNotExist();
+  }
+
+  @Test
+  public void keep_partial_file_of_failed_download() throws IOException {
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+
+    FileCache.ResumableDownloader downloader = new FileCache.ResumableDownloader() {
+      public void download(String filename, File toFile, long offset) throws IOException {
+        FileUtils.write(toFile, "bo");
+        throw new IOException("connection reset");
+      }
+
+      public void download(String filename, File toFile) throws IOException {
+        throw new IllegalStateException("Download must be resumable");
+      }
+    };
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(FileUtils.readFileToString(new File(cache.getDir(), "_tmp/ABCDE_sonar-foo-plugin-1.5.jar.part"))).isEqualTo("bo");
+    }
+  }
 }
@@ -47,6 +47,13 @@ public class TTLCacheInvalidationTest {
     assertThat(invalidation.test(testFile)).isEqualTo(true);
   }
 
+  @Test
+  public void test_from_last_modification_time() {
+    TTLCacheInvalidation invalidation = new TTLCacheInvalidation(100_000);
+    assertThat(invalidation.test(System.currentTimeMillis() - 200_000)).isTrue();
+    assertThat(invalidation.test(System.currentTimeMillis() - 50_000)).isFalse();
+  }
+
   @Test
   public void testValid() throws IOException {
     TTLCacheInvalidation invalidation = new TTLCacheInvalidation(100_000);
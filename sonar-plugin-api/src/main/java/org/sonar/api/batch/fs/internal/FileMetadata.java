@@ -267,6 +267,12 @@ public class FileMetadata {
    * Maximum performance is needed.
    */
   public Metadata readMetadata(File file, Charset encoding) {
+    if (Utf8MetadataReader.supports(encoding)) {
+      Metadata metadata = Utf8MetadataReader.readMetadata(file, encoding);
+      if (metadata != null) {
+        return metadata;
+      }
+    }
     LineCounter lineCounter = new LineCounter(file, encoding);
     FileHashComputer fileHashComputer = new FileHashComputer(file);
     LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
@@ -356,10 +362,14 @@ public class FileMetadata {
     final int lastValidOffset;
 
     private Metadata(int lines, int nonBlankLines, String hash, List<Integer> originalLineOffsets, int lastValidOffset) {
+      this(lines, nonBlankLines, hash, Ints.toArray(originalLineOffsets), lastValidOffset);
+    }
+
+    Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
       this.lines = lines;
       this.nonBlankLines = nonBlankLines;
       this.hash = hash;
-      this.originalLineOffsets = Ints.toArray(originalLineOffsets);
+      this.originalLineOffsets = originalLineOffsets;
       this.lastValidOffset = lastValidOffset;
     }
   }
@@ -374,6 +384,9 @@ public class FileMetadata {
    * Compute a MD5 hash of each line of the file after removing of all blank chars
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
+    if (Utf8MetadataReader.supports(f.charset()) && Utf8MetadataReader.computeLineHashes(f.file(), f.charset(), consumer)) {
+      return;
+    }
     readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
   }
 }
@@ -0,0 +1,376 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.batch.fs.internal.FileMetadata.Metadata;
+
+/**
+ * Computes in a single pass over the bytes of a file encoded in UTF-8 or US-ASCII the same
+ * results than the {@link java.io.Reader} based implementation of {@link FileMetadata}: number of lines,
+ * number of non-blank lines, global hash, line offsets and line hashes.
+ * <p/>
+ * Content is never decoded to chars. When it contains a sequence which would be decoded to a replacement
+ * character, reading is aborted and {@code null} (or {@code false}) is returned, so that caller falls back to
+ * the {@link java.io.Reader} based implementation which reports the invalid characters.
+ * <p/>
+ * Instances are not thread-safe and must be used only once.
+ */
+class Utf8MetadataReader {
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final int DIGEST_BUFFER_SIZE = 8 * 1024;
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+  private static final boolean[] ASCII_WHITESPACES = new boolean[128];
+
+  static {
+    for (int c = 0; c < ASCII_WHITESPACES.length; c++) {
+      ASCII_WHITESPACES[c] = Character.isWhitespace(c);
+    }
+  }
+
+  private final File file;
+  private final Charset encoding;
+  private final boolean asciiOnly;
+
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  // global hash, lines and offsets. Digest is null when only line hashes are requested.
+  @CheckForNull
+  private final MessageDigest globalDigest;
+  private final byte[] globalBuffer;
+  private int globalBufferLength = 0;
+  private int lines = 1;
+  private int nonBlankLines = 0;
+  private boolean blankLine = true;
+  private int[] lineOffsets = new int[64];
+  private int currentOffset = 0;
+
+  // line hashes. Digest is null when line hashes are not requested.
+  @CheckForNull
+  private final MessageDigest lineDigest;
+  private final byte[] lineBuffer;
+  private int lineBufferLength = 0;
+  private boolean lineHasContent = false;
+  private int[] hashedLines = new int[64];
+  private byte[][] lineHashes = new byte[64][];
+  private int lineHashesCount = 0;
+
+  private boolean afterCR = false;
+
+  private Utf8MetadataReader(File file, Charset encoding, boolean computeMetadata, boolean computeLineHashes) {
+    this.file = file;
+    this.encoding = encoding;
+    this.asciiOnly = StandardCharsets.US_ASCII.equals(encoding);
+    this.globalDigest = computeMetadata ? DigestUtils.getMd5Digest() : null;
+    this.globalBuffer = computeMetadata ? new byte[DIGEST_BUFFER_SIZE] : null;
+    this.lineDigest = computeLineHashes ? DigestUtils.getMd5Digest() : null;
+    this.lineBuffer = computeLineHashes ? new byte[DIGEST_BUFFER_SIZE] : null;
+  }
+
+  static boolean supports(Charset encoding) {
+    return StandardCharsets.UTF_8.equals(encoding) || StandardCharsets.US_ASCII.equals(encoding);
+  }
+
+  /**
+   * @return {@code null} if the file contains characters which can't be decoded
+   */
+  @CheckForNull
+  static Metadata readMetadata(File file, Charset encoding) {
+    Utf8MetadataReader reader = new Utf8MetadataReader(file, encoding, true, false);
+    if (!reader.read()) {
+      return null;
+    }
+    return new Metadata(reader.lines, reader.nonBlankLines, Hex.encodeHexString(reader.globalDigest.digest()),
+      Arrays.copyOf(reader.lineOffsets, reader.lines), reader.currentOffset);
+  }
+
+  /**
+   * Line hashes are given to the consumer only when the whole file has been successfully read.
+   *
+   * @return {@code false} if the file contains characters which can't be decoded, consumer is then never called
+   */
+  static boolean computeLineHashes(File file, Charset encoding, LineHashConsumer consumer) {
+    Utf8MetadataReader reader = new Utf8MetadataReader(file, encoding, false, true);
+    if (!reader.read()) {
+      return false;
+    }
+    for (int i = 0; i < reader.lineHashesCount; i++) {
+      consumer.consume(reader.hashedLines[i], reader.lineHashes[i]);
+    }
+    return true;
+  }
+
+  private boolean read() {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      boolean eof = false;
+      boolean start = true;
+      while (!eof) {
+        eof = fill(channel);
+        readBuffer.flip();
+        if (start) {
+          skipBom();
+          start = false;
+        }
+        if (!decode(eof)) {
+          return false;
+        }
+        readBuffer.compact();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+    eof();
+    return true;
+  }
+
+  /**
+   * @return true if end of file is reached
+   */
+  private boolean fill(FileChannel channel) throws IOException {
+    while (readBuffer.hasRemaining()) {
+      if (channel.read(readBuffer) == -1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same behavior than {@link org.apache.commons.io.input.BOMInputStream}: BOM is dropped whatever the encoding. Other BOMs are
+   * not valid UTF-8 and make reading fail.
+   */
+  private void skipBom() {
+    byte[] bytes = readBuffer.array();
+    int position = readBuffer.position();
+    if (readBuffer.remaining() >= 3 && bytes[position] == (byte) 0xEF && bytes[position + 1] == (byte) 0xBB && bytes[position + 2] == (byte) 0xBF) {
+      readBuffer.position(position + 3);
+    }
+  }
+
+  private boolean decode(boolean eof) {
+    byte[] bytes = readBuffer.array();
+    int i = readBuffer.position();
+    int limit = readBuffer.limit();
+    while (i < limit) {
+      int b0 = bytes[i] & 0xFF;
+      if (b0 < 0x80) {
+        onAscii(bytes, i, b0);
+        i++;
+        continue;
+      }
+      int length = asciiOnly ? -1 : sequenceLength(b0);
+      if (length < 0) {
+        return false;
+      }
+      if (i + length > limit) {
+        if (eof) {
+          // truncated sequence
+          return false;
+        }
+        // wait for the next bytes
+        break;
+      }
+      int codePoint = decodeSequence(bytes, i, length);
+      if (codePoint < 0 || codePoint == REPLACEMENT_CHARACTER) {
+        return false;
+      }
+      onNonEol(bytes, i, length, !Character.isWhitespace(codePoint), Character.charCount(codePoint));
+      i += length;
+    }
+    readBuffer.position(i);
+    return true;
+  }
+
+  private void onAscii(byte[] bytes, int i, int c) {
+    if (c == LINE_FEED) {
+      currentOffset++;
+      newLine();
+      afterCR = false;
+    } else if (c == CARRIAGE_RETURN) {
+      if (afterCR) {
+        newLine();
+      }
+      currentOffset++;
+      afterCR = true;
+    } else {
+      onNonEol(bytes, i, 1, !ASCII_WHITESPACES[c], 1);
+    }
+  }
+
+  private void onNonEol(byte[] bytes, int i, int length, boolean notBlank, int charCount) {
+    if (afterCR) {
+      newLine();
+      afterCR = false;
+    }
+    currentOffset += charCount;
+    if (globalDigest != null) {
+      appendToGlobalHash(bytes, i, length);
+    }
+    if (notBlank) {
+      blankLine = false;
+      if (lineDigest != null) {
+        appendToLineHash(bytes, i, length);
+      }
+    }
+  }
+
+  private void newLine() {
+    if (globalDigest != null) {
+      if (globalBufferLength == globalBuffer.length) {
+        flushGlobalHash();
+      }
+      globalBuffer[globalBufferLength] = LINE_FEED;
+      globalBufferLength++;
+      if (lines == lineOffsets.length) {
+        lineOffsets = Arrays.copyOf(lineOffsets, lineOffsets.length * 2);
+      }
+      lineOffsets[lines] = currentOffset;
+    }
+    if (lineDigest != null) {
+      completeLineHash();
+    }
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+    lines++;
+  }
+
+  private void eof() {
+    if (afterCR) {
+      newLine();
+    }
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    if (globalDigest != null) {
+      flushGlobalHash();
+    }
+    if (lineDigest != null) {
+      completeLineHash();
+    }
+  }
+
+  private void appendToGlobalHash(byte[] bytes, int offset, int length) {
+    if (globalBufferLength + length > globalBuffer.length) {
+      flushGlobalHash();
+    }
+    System.arraycopy(bytes, offset, globalBuffer, globalBufferLength, length);
+    globalBufferLength += length;
+  }
+
+  private void flushGlobalHash() {
+    globalDigest.update(globalBuffer, 0, globalBufferLength);
+    globalBufferLength = 0;
+  }
+
+  private void appendToLineHash(byte[] bytes, int offset, int length) {
+    if (lineBufferLength + length > lineBuffer.length) {
+      lineDigest.update(lineBuffer, 0, lineBufferLength);
+      lineBufferLength = 0;
+    }
+    System.arraycopy(bytes, offset, lineBuffer, lineBufferLength, length);
+    lineBufferLength += length;
+    lineHasContent = true;
+  }
+
+  private void completeLineHash() {
+    if (lineHasContent) {
+      lineDigest.update(lineBuffer, 0, lineBufferLength);
+      addLineHash(lines, lineDigest.digest());
+      lineBufferLength = 0;
+      lineHasContent = false;
+    }
+  }
+
+  private void addLineHash(int line, byte[] hash) {
+    if (lineHashesCount == hashedLines.length) {
+      hashedLines = Arrays.copyOf(hashedLines, hashedLines.length * 2);
+      lineHashes = Arrays.copyOf(lineHashes, lineHashes.length * 2);
+    }
+    hashedLines[lineHashesCount] = line;
+    lineHashes[lineHashesCount] = hash;
+    lineHashesCount++;
+  }
+
+  /**
+   * @return number of bytes of the UTF-8 sequence starting with the specified byte, or -1 if the byte can't start a sequence
+   */
+  private static int sequenceLength(int b0) {
+    if (b0 >= 0xC2 && b0 <= 0xDF) {
+      return 2;
+    }
+    if (b0 >= 0xE0 && b0 <= 0xEF) {
+      return 3;
+    }
+    if (b0 >= 0xF0 && b0 <= 0xF4) {
+      return 4;
+    }
+    return -1;
+  }
+
+  /**
+   * Rejects overlong forms, surrogates and code points greater than U+10FFFF, like the JDK decoder.
+   *
+   * @return the code point, or -1 if the sequence is malformed
+   */
+  private static int decodeSequence(byte[] bytes, int i, int length) {
+    int b0 = bytes[i] & 0xFF;
+    int b1 = bytes[i + 1] & 0xFF;
+    if (length == 2) {
+      return isContinuation(b1) ? (((b0 & 0x1F) << 6) | (b1 & 0x3F)) : -1;
+    }
+    int b2 = bytes[i + 2] & 0xFF;
+    if (length == 3) {
+      int min = b0 == 0xE0 ? 0xA0 : 0x80;
+      int max = b0 == 0xED ? 0x9F : 0xBF;
+      if (b1 < min || b1 > max || !isContinuation(b2)) {
+        return -1;
+      }
+      return ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+    }
+    int b3 = bytes[i + 3] & 0xFF;
+    int min = b0 == 0xF0 ? 0x90 : 0x80;
+    int max = b0 == 0xF4 ? 0x8F : 0xBF;
+    if (b1 < min || b1 > max || !isContinuation(b2) || !isContinuation(b3)) {
+      return -1;
+    }
+    return ((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F);
+  }
+
+  private static boolean isContinuation(int b) {
+    return (b & 0xC0) == 0x80;
+  }
+}
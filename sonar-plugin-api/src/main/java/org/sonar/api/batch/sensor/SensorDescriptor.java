@@ -81,4 +81,34 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} can be executed concurrently with other thread-safe sensors of the same module.
+   * Its execution must not rely on mutable state shared with other sensors.
+   * Default is to execute the {@link Sensor} alone.
+   * @since 5.5
+   */
+  SensorDescriptor threadSafe();
+
+  /**
+   * Keys of metrics saved by this {@link Sensor}. Sensors requiring one of these metrics are executed after this one.
+   * @since 5.5
+   */
+  SensorDescriptor providesMetrics(String... metricKeys);
+
+  /**
+   * Keys of metrics read by this {@link Sensor}. It is executed after the sensors providing one of these metrics.
+   * @since 5.5
+   */
+  SensorDescriptor requiresMetrics(String... metricKeys);
+
+  /**
+   * Declare that this {@link Sensor} only needs the files which changed since the previous analysis, for example
+   * because it computes measures or issues of each file independently of the other files. When the analysis reuses
+   * unchanged files from the previous analysis (see property "sonar.skipUnchangedFiles"), these files are not
+   * visible in the {@link org.sonar.api.batch.fs.FileSystem} of this {@link Sensor}.
+   * Default is to work on all files.
+   * @since 5.5
+   */
+  SensorDescriptor onlyOnChangedFiles();
+
 }
@@ -32,6 +32,10 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
   private InputFile.Type type = null;
   private String[] ruleRepositories = new String[0];
   private String[] properties = new String[0];
+  private boolean threadSafe = false;
+  private String[] providedMetrics = new String[0];
+  private String[] requiredMetrics = new String[0];
+  private boolean onlyOnChangedFiles = false;
 
   public String name() {
     return name;
@@ -54,6 +58,22 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return Arrays.asList(properties);
   }
 
+  public boolean isThreadSafe() {
+    return threadSafe;
+  }
+
+  public Collection<String> providedMetrics() {
+    return Arrays.asList(providedMetrics);
+  }
+
+  public Collection<String> requiredMetrics() {
+    return Arrays.asList(requiredMetrics);
+  }
+
+  public boolean isOnlyOnChangedFiles() {
+    return onlyOnChangedFiles;
+  }
+
   @Override
   public DefaultSensorDescriptor name(String name) {
     this.name = name;
@@ -99,4 +119,28 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return this;
   }
 
+  @Override
+  public DefaultSensorDescriptor threadSafe() {
+    this.threadSafe = true;
+    return this;
+  }
+
+  @Override
+  public DefaultSensorDescriptor providesMetrics(String... metricKeys) {
+    this.providedMetrics = metricKeys;
+    return this;
+  }
+
+  @Override
+  public DefaultSensorDescriptor requiresMetrics(String... metricKeys) {
+    this.requiredMetrics = metricKeys;
+    return this;
+  }
+
+  @Override
+  public DefaultSensorDescriptor onlyOnChangedFiles() {
+    this.onlyOnChangedFiles = true;
+    return this;
+  }
+
 }
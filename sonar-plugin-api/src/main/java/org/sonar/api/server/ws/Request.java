@@ -46,6 +46,17 @@ public abstract class Request {
    */
   public abstract String getMediaType();
 
+  /**
+   * Returns the value of the given HTTP header, or {@code null} if the header is not present
+   * or if headers are not supported by the implementation.
+   *
+   * @since 5.5
+   */
+  @CheckForNull
+  public String header(String name) {
+    return null;
+  }
+
   /**
    * Return true of the parameter is set.
    */
@@ -20,6 +20,7 @@
 package org.sonar.api.batch.fs.internal;
 
 import java.io.File;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
@@ -302,6 +303,38 @@ public class FileMetadataTest {
     assertThat(hash1).isNotEqualTo(hash2);
   }
 
+  @Test
+  public void same_metadata_when_reading_bytes_or_chars() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      // multi-byte chars are split across read buffers
+      sb.append("line ").append(i).append(" f\u00f6\u20ac\ud834\udd1e\t").append(i % 3 == 0 ? "\r\n" : "\n").append(i % 5 == 0 ? "  \r" : "");
+    }
+    String content = sb.toString();
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, content, StandardCharsets.UTF_8);
+
+    FileMetadata.Metadata fromBytes = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    FileMetadata.Metadata fromChars = new FileMetadata().readMetadata(new StringReader(content));
+
+    assertThat(fromBytes.lines).isEqualTo(fromChars.lines);
+    assertThat(fromBytes.nonBlankLines).isEqualTo(fromChars.nonBlankLines);
+    assertThat(fromBytes.hash).isEqualTo(fromChars.hash);
+    assertThat(fromBytes.originalLineOffsets).isEqualTo(fromChars.originalLineOffsets);
+    assertThat(fromBytes.lastValidOffset).isEqualTo(fromChars.lastValidOffset);
+  }
+
+  @Test
+  public void non_ascii_content_with_ascii_encoding() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "f\u00f6o\n", StandardCharsets.UTF_8);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.US_ASCII);
+    assertThat(metadata.lines).isEqualTo(2);
+    assertThat(metadata.hash).isEqualTo(md5Hex("f\ufffd\ufffdo\n"));
+    assertThat(logTester.logs(LoggerLevel.WARN).get(0)).contains("Invalid character encountered in file");
+  }
+
   @Test
   public void binary_file_with_unmappable_character() throws Exception {
     File woff = new File(this.getClass().getResource("glyphicons-halflings-regular.woff").toURI());
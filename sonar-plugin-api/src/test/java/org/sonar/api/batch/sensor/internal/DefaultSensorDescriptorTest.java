@@ -41,6 +41,34 @@ public class DefaultSensorDescriptorTest {
     assertThat(descriptor.type()).isEqualTo(InputFile.Type.MAIN);
     assertThat(descriptor.properties()).containsOnly("sonar.foo.reportPath");
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isThreadSafe()).isFalse();
+    assertThat(descriptor.providedMetrics()).isEmpty();
+    assertThat(descriptor.requiredMetrics()).isEmpty();
+    assertThat(descriptor.isOnlyOnChangedFiles()).isFalse();
+  }
+
+  @Test
+  public void describe_concurrency() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    descriptor
+      .name("Foo")
+      .threadSafe()
+      .providesMetrics("ncloc", "complexity")
+      .requiresMetrics("lines");
+
+    assertThat(descriptor.isThreadSafe()).isTrue();
+    assertThat(descriptor.providedMetrics()).containsOnly("ncloc", "complexity");
+    assertThat(descriptor.requiredMetrics()).containsOnly("lines");
+  }
+
+  @Test
+  public void describe_only_on_changed_files() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    descriptor
+      .name("Foo")
+      .onlyOnChangedFiles();
+
+    assertThat(descriptor.isOnlyOnChangedFiles()).isTrue();
   }
 
 }
@@ -37,6 +37,8 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
   // keep the same order -> do not use HashMap
   private final Map<String, String> params = new LinkedHashMap<>();
 
+  private final Map<String, String> headers = new LinkedHashMap<>();
+
   BaseRequest(String path) {
     this.path = path;
   }
@@ -72,4 +74,17 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
   public Map<String, String> getParams() {
     return params;
   }
+
+  public SELF setHeader(String name, @Nullable String value) {
+    checkArgument(!isNullOrEmpty(name), "a header name cannot be null");
+    if (value != null) {
+      this.headers.put(name, value);
+    }
+    return (SELF) this;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
 }
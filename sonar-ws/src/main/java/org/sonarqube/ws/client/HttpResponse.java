@@ -23,6 +23,7 @@ import com.squareup.okhttp.Response;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import javax.annotation.CheckForNull;
 
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 
@@ -54,6 +55,12 @@ class HttpResponse extends BaseResponse {
     return okResponse.header("Content-Type");
   }
 
+  @Override
+  @CheckForNull
+  public String header(String name) {
+    return okResponse.header(name);
+  }
+
   /**
    * Get stream of bytes
    */
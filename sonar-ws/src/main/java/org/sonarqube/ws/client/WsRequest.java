@@ -34,6 +34,12 @@ public interface WsRequest {
 
   Map<String, String> getParams();
 
+  /**
+   * HTTP headers to be added to the request, for example to execute conditional or partial requests.
+   * @since 5.5
+   */
+  Map<String, String> getHeaders();
+
   enum Method {
     GET, POST
   }
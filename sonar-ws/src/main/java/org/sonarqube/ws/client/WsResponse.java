@@ -21,6 +21,7 @@ package org.sonarqube.ws.client;
 
 import java.io.InputStream;
 import java.io.Reader;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -50,6 +51,13 @@ public interface WsResponse {
 
   String contentType();
 
+  /**
+   * Value of the given header, or null if the header is not present.
+   * @since 5.5
+   */
+  @CheckForNull
+  String header(String name);
+
   boolean hasContent();
 
   InputStream contentStream();
@@ -65,6 +65,14 @@ public class BaseRequestTest {
     assertThat(underTest.getParams()).isEmpty();
   }
 
+  @Test
+  public void headers() {
+    underTest.setHeader("Range", "bytes=10-");
+    underTest.setHeader("If-None-Match", null);
+
+    assertThat(underTest.getHeaders()).containsExactly(entry("Range", "bytes=10-"));
+  }
+
   @Test
   public void fail_if_null_param_key() {
     expectedException.expect(IllegalArgumentException.class);
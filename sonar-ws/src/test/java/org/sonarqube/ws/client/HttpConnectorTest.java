@@ -117,6 +117,21 @@ public class HttpConnectorTest {
    * Access token replaces the couple {login,password} and is sent through
    * the login field
    */
+  @Test
+  public void send_request_headers_and_read_response_headers() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"abc\""));
+    HttpConnector underTest = new HttpConnector.Builder().url(serverUrl).build();
+
+    GetRequest request = new GetRequest("deploy/plugins/index.txt").setHeader("If-None-Match", "\"abc\"");
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.code()).isEqualTo(304);
+    assertThat(response.header("ETag")).isEqualTo("\"abc\"");
+    assertThat(response.header("Unknown")).isNull();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getHeader("If-None-Match")).isEqualTo("\"abc\"");
+  }
+
   @Test
   public void use_access_token() throws Exception {
     answerHelloWorld();